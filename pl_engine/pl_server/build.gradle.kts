@@ -16,6 +16,20 @@ plugins {
     application
 }
 
+// JMH benchmarks (src/jmh), run with "gradlew jmh"
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+        runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().runtimeClasspath
+    }
+
+    // the tests of the PL/CSQL backends run against MockCas of the benchmarks
+    test {
+        compileClasspath += sourceSets["jmh"].output
+        runtimeClasspath += sourceSets["jmh"].output
+    }
+}
+
 repositories {
     mavenLocal()
 
@@ -57,11 +71,19 @@ dependencies {
 
     implementation("org.antlr:antlr4-runtime:4.9.3")
 
+    // class file generation without javac (BytecodeWriter) and rewriting (PlcsqlPositionWeaver)
+    implementation("org.ow2.asm:asm:9.8")
+    implementation("org.ow2.asm:asm-tree:9.8")
+
     // CUBRID JDBC
     implementation("cubrid:cubrid-jdbc:latest.integration")
 
     // netty
     implementation("io.netty:netty-buffer:4.1.95.Final")
+
+    // JMH
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 // Antlr
@@ -142,6 +164,14 @@ tasks.test {
     })
 }
 
+tasks.register<JavaExec>("jmh") {
+    description = "Runs the JMH benchmarks of pl_server, e.g. gradlew jmh --args='SpLib -f 1'"
+    group = "verification"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    javaLauncher.set(javaToolchains.launcherFor(java.toolchain))
+}
+
 tasks.jar {
     // To make fat Jar
     val dependencies = configurations
@@ -151,3 +181,65 @@ tasks.jar {
     from(dependencies)
     duplicatesStrategy = DuplicatesStrategy.EXCLUDE
 }
+
+// Class data sharing archive of pl_server.jar (build/libs/pl_server.jsa) to start the PL server faster.
+// It is made only on request (-PcdsArchive, see WITH_PL_CDS_ARCHIVE of CMake) and used when installed
+// next to pl_server.jar, see pl_jvm_options () in src/sp/pl_sr_jvm.cpp.
+// The classes are the ones loaded by WarmupThread, which compiles and invokes a routine without a database.
+val cdsDir = layout.buildDirectory.dir("cds")
+val cdsClassList = cdsDir.map { it.file("pl_server.classlist") }
+val cdsLauncher = javaToolchains.launcherFor(java.toolchain)
+
+val classListTask = tasks.register<JavaExec>("cdsClassList") {
+    description = "Lists the classes loaded while the PL server warms up"
+    group = "build"
+    val jarFile = tasks.jar.flatMap { it.archiveFile }
+    val rootDir = cdsDir.map { it.dir("root") }
+    inputs.file(jarFile)
+    outputs.file(cdsClassList)
+    classpath = files(jarFile)
+    mainClass.set("com.cubrid.jsp.WarmupThread")
+    javaLauncher.set(cdsLauncher)
+    isIgnoreExitValue = true // no archive rather than a failed build
+    doFirst {
+        delete(rootDir)
+        copy {
+            from(jarFile)
+            into(rootDir.get().dir("vm"))
+        }
+        args(rootDir.get().asFile.absolutePath)
+        jvmArgs("-XX:DumpLoadedClassList=" + cdsClassList.get().asFile.absolutePath)
+        if (cdsLauncher.get().metadata.languageVersion.asInt() >= 12) {
+            jvmArgs("-Djava.security.manager=allow") // SpSecurityManager
+        }
+    }
+}
+
+val cdsArchiveTask = tasks.register<JavaExec>("cdsArchive") {
+    description = "Makes the class data sharing archive of pl_server.jar"
+    group = "build"
+    dependsOn(classListTask)
+    val jarFile = tasks.jar.flatMap { it.archiveFile }
+    val archiveFile = tasks.jar.flatMap { it.destinationDirectory.file("pl_server.jsa") }
+    inputs.file(cdsClassList)
+    outputs.file(archiveFile)
+    onlyIf { cdsClassList.get().asFile.exists() }
+    classpath = files(jarFile)
+    mainClass.set("com.cubrid.jsp.Server") // not run, the JVM exits after dumping
+    javaLauncher.set(cdsLauncher)
+    isIgnoreExitValue = true
+    doFirst {
+        jvmArgs(
+            "-Xshare:dump",
+            "-XX:+UnlockDiagnosticVMOptions",
+            "-XX:SharedClassListFile=" + cdsClassList.get().asFile.absolutePath,
+            "-XX:SharedArchiveFile=" + archiveFile.get().asFile.absolutePath)
+    }
+}
+
+// not part of the default build: gradlew build -PcdsArchive, or gradlew cdsArchive
+if (project.hasProperty("cdsArchive")) {
+    tasks.build {
+        dependsOn(cdsArchiveTask)
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.benchmark;
+
+import com.cubrid.jsp.Server;
+import com.cubrid.jsp.ServerConfig;
+import com.cubrid.jsp.SysParam;
+import com.cubrid.jsp.context.Context;
+import com.cubrid.jsp.context.ContextManager;
+import com.cubrid.jsp.data.CUBRIDPacker;
+import com.cubrid.jsp.data.CUBRIDUnpacker;
+import com.cubrid.jsp.protocol.BootstrapRequest;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.io.FileUtils;
+
+/*
+ * A PL server without a database for the benchmarks: the server is started on an ephemeral TCP
+ * port under a temporary root, bootstrapped with the system parameters the CUBRID server would
+ * send, and benchmark threads are attached to a session context the same way ExecuteThread does.
+ * The server is shared by all benchmarks of a JVM, acquire () and release () should be paired.
+ */
+public class BenchmarkEnvironment {
+
+    public static final long SESSION_ID = 1;
+
+    private static int refCount = 0;
+    private static Path rootPath = null;
+
+    private static final String[][] SYSTEM_PARAMETERS = {
+        {Integer.toString(SysParam.ORACLE_STYLE_EMPTY_STRING), "false"},
+        {Integer.toString(SysParam.COMPAT_NUMERIC_DIVISION_SCALE), "false"},
+        {Integer.toString(SysParam.INTL_NUMBER_LANG), "en_US"},
+        {Integer.toString(SysParam.INTL_DATE_LANG), "en_US"},
+        {Integer.toString(SysParam.INTL_COLLATION), "utf8_bin"},
+        {Integer.toString(SysParam.TIMEZONE), "Asia/Seoul"},
+        {Integer.toString(SysParam.ORACLE_COMPAT_NUMBER_BEHAVIOR), "false"},
+        {Integer.toString(SysParam.STORED_PROCEDURE_DUMP_ICODE), "false"},
+    };
+
+    private BenchmarkEnvironment() {
+        //
+    }
+
+    public static synchronized void acquire() throws Exception {
+        if (refCount++ > 0) {
+            return;
+        }
+
+        rootPath = Files.createTempDirectory("pl_bench");
+        String root = rootPath.toAbsolutePath().toString();
+        Files.createDirectories(rootPath.resolve("tmp"));
+
+        ServerConfig config =
+                new ServerConfig(
+                        "bench", "1.0", root, root + File.separatorChar + "databases", "0");
+        Server.startWithConfig(config);
+        Server.bootstrap(new BootstrapRequest(new CUBRIDUnpacker(packSystemParameters())));
+    }
+
+    public static synchronized void release() throws IOException {
+        if (refCount == 0 || --refCount > 0) {
+            return;
+        }
+
+        ContextManager.destroyContext(SESSION_ID);
+        Server.stop(0);
+        FileUtils.deleteQuietly(rootPath.toFile());
+        rootPath = null;
+    }
+
+    public static int getServerPort() {
+        return Server.getServer().getServerPort();
+    }
+
+    /* binds the current thread to the benchmark session, see ExecuteThread.runLoop () */
+    public static Context attach() {
+        ContextManager.registerThread(Thread.currentThread().getId(), SESSION_ID);
+        return ContextManager.getContext(SESSION_ID);
+    }
+
+    public static void detach() {
+        ContextManager.deregisterThread(Thread.currentThread().getId());
+    }
+
+    /* same layout as the payload of UTIL_BOOTSTRAP */
+    private static ByteBuffer packSystemParameters() {
+        CUBRIDPacker packer = new CUBRIDPacker(ByteBuffer.allocate(1024));
+        packer.packBigInt(SYSTEM_PARAMETERS.length);
+        for (String[] param : SYSTEM_PARAMETERS) {
+            packer.packInt(Integer.parseInt(param[0]));
+            packer.packInt(SysParam.PRM_TYPE_STRING);
+            packer.packCString(param[1].getBytes(StandardCharsets.UTF_8));
+        }
+
+        ByteBuffer buffer = packer.getBuffer();
+        buffer.flip();
+        return buffer;
+    }
+}
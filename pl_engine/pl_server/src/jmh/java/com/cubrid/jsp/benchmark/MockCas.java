@@ -0,0 +1,1163 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.benchmark;
+
+import com.cubrid.jsp.SysParam;
+import com.cubrid.jsp.data.CUBRIDPacker;
+import com.cubrid.jsp.data.CUBRIDUnpacker;
+import com.cubrid.jsp.data.ColumnInfo;
+import com.cubrid.jsp.data.DBType;
+import com.cubrid.jsp.data.DataUtilities;
+import com.cubrid.jsp.exception.TypeMismatchException;
+import com.cubrid.jsp.impl.SUFunctionCode;
+import com.cubrid.jsp.protocol.RequestCode;
+import com.cubrid.jsp.value.IntValue;
+import com.cubrid.jsp.value.LongValue;
+import com.cubrid.jsp.value.NullValue;
+import com.cubrid.jsp.value.NumericValue;
+import com.cubrid.jsp.value.SetValue;
+import com.cubrid.jsp.value.StringValue;
+import com.cubrid.jsp.value.Value;
+import cubrid.jdbc.jci.CUBRIDCommandType;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Plays the CAS side of the protocol over a loopback socket, so that a request goes through the
+ * real ExecuteThread (frame read, header, unpacking, invocation, result packing and write). With a
+ * MockDatabase, it also compiles PL/CSQL routines and calls them as the CAS does: the semantics
+ * questions of the compiler, the JDBC requests of the routine (PREPARE, EXECUTE, FETCH, ...) and
+ * its code (REQUEST_CODE_ATTR) are answered, and a CALL of another routine is invoked on a
+ * connection of its own, as a nested call is.
+ */
+public class MockCas implements AutoCloseable {
+
+    // METHOD_TYPE in method_def.hpp
+    public static final int LANG_JAVASP = 3;
+    public static final int LANG_PLCSQL = 4;
+
+    // METHOD_CALLBACK_ER_SRV_HANDLE and ER_SP_EXECUTE_ERROR of the server
+    private static final int ER_SRV_HANDLE = -10006;
+    private static final int ER_SP_EXECUTE_ERROR = -889;
+
+    private static final int VARCHAR_MAX_PRECISION = 1073741823;
+
+    /* a routine created by compile (), as the server keeps it in _db_stored_procedure(_code) */
+    public static final class Routine {
+        public final String name;
+        public final String className;
+        public final byte[] objectCode; // jar
+
+        final String signature;
+        final String timestamp;
+        final boolean isFunction;
+        final List<ColumnInfo> params = new ArrayList<>();
+        final List<Integer> modes = new ArrayList<>();
+        ColumnInfo returnType = null;
+
+        private Routine(
+                String name,
+                String className,
+                String signature,
+                String timestamp,
+                boolean isFunction,
+                byte[] objectCode) {
+            this.name = name;
+            this.className = className;
+            this.signature = signature;
+            this.timestamp = timestamp;
+            this.isFunction = isFunction;
+            this.objectCode = objectCode;
+        }
+    }
+
+    /* the result and the OUT arguments of a call, or its error */
+    public static final class CallResult {
+        public final Object result;
+        public final Object[] outArgs;
+        public final String error;
+
+        private CallResult(Object result, Object[] outArgs, String error) {
+            this.result = result;
+            this.outArgs = outArgs;
+            this.error = error;
+        }
+    }
+
+    private static final class Handler {
+        final int serial;
+        final MockDatabase.Query query; // null for a CALL
+        final Routine routine; // null for a query
+        final boolean isFirstOut; // ?= call f (...)
+        final int markers;
+
+        Handler(
+                int serial,
+                MockDatabase.Query query,
+                Routine routine,
+                boolean isFirstOut,
+                int markers) {
+            this.serial = serial;
+            this.query = query;
+            this.routine = routine;
+            this.isFirstOut = isFirstOut;
+            this.markers = markers;
+        }
+    }
+
+    /* what the connections of a CAS share: the session, the transaction and the database */
+    private static final class Session {
+        final int port;
+        final long id;
+        final MockDatabase database = new MockDatabase();
+
+        final Map<String, Routine> routines = new HashMap<>();
+        final Map<Integer, Handler> handlers = new HashMap<>();
+        final Map<Long, List<Object[]>> results = new HashMap<>();
+        final List<MockCas> connections = new ArrayList<>(); // by the nesting level
+
+        int requestId = 0; // incremented across the connections
+        int tranId = 1;
+        int handlerId = 0;
+        int serial = 0;
+        long queryId = 0;
+        long codeTime = 20240101000000L;
+
+        Session(int port, long id) {
+            this.port = port;
+            this.id = id;
+        }
+    }
+
+    private final Session session;
+    private final int level;
+    private final Socket socket;
+    private final DataInputStream input;
+    private final DataOutputStream output;
+
+    private final CUBRIDPacker packer = new CUBRIDPacker(ByteBuffer.allocate(4096));
+    private final CUBRIDPacker payloadPacker = new CUBRIDPacker(ByteBuffer.allocate(4096));
+    private final CUBRIDUnpacker unpacker = new CUBRIDUnpacker();
+    private byte[] response = new byte[4096];
+
+    private Routine invoked = null; // the routine running on this connection
+
+    public MockCas(int port, long sessionId) throws IOException {
+        this(new Session(port, sessionId), 0);
+    }
+
+    private MockCas(Session session, int level) throws IOException {
+        this.session = session;
+        this.level = level;
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), session.port);
+        this.socket.setTcpNoDelay(true);
+        this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        if (level == 0) {
+            session.connections.add(this);
+        }
+    }
+
+    public MockDatabase getDatabase() {
+        return session.database;
+    }
+
+    /* sends INVOKE_SP and returns the result value, see ExecuteThread.processStoredProcedure () */
+    public Value invoke(String signature, Value[] args, int[] argTypes, int returnType)
+            throws IOException, TypeMismatchException {
+        beginRequest(RequestCode.INVOKE_SP);
+
+        // session parameters
+        packer.packBigInt(0);
+
+        // prepare args
+        packer.packBigInt(-1); // group id
+        packer.packInt(1); // tran id
+        packer.packInt(args.length);
+        for (int i = 0; i < args.length; i++) {
+            packer.packInt(argTypes[i]);
+            packArgument(packer, args[i], argTypes[i]);
+        }
+
+        packer.packBigInt(0); // id
+        packer.packInt(1); // tran id
+
+        // procedure
+        packer.packCString(signature.getBytes());
+        packer.packCString("dba".getBytes());
+        packer.packInt(LANG_JAVASP);
+        packer.packInt(args.length);
+        for (int i = 0; i < args.length; i++) {
+            packer.packInt(Value.IN);
+            packer.packInt(argTypes[i]);
+        }
+        packer.packInt(returnType);
+        packer.packBool(false); // transaction control
+
+        sendRequest();
+
+        if (readFrame() != RequestCode.RESULT) {
+            throw new IllegalStateException("request failed: " + unpacker.unpackCString());
+        }
+
+        int type = unpacker.unpackInt();
+        return unpacker.unpackValue(type);
+    }
+
+    /*
+     * Sends COMPILE with the mode of CompileRequest ("" or "b", see ExecuteThread.processCompile
+     * ()), answers the semantics questions of the compiler from the database and the routines
+     * compiled before, and creates the routine.
+     */
+    public Routine compile(String source, String mode) throws IOException {
+        beginRequest(RequestCode.COMPILE);
+        packer.packBigInt(0); // session parameters
+        packer.packCString(source.getBytes(StandardCharsets.UTF_8));
+        packer.packCString("DBA".getBytes(StandardCharsets.UTF_8));
+        packer.packCString(mode.getBytes(StandardCharsets.UTF_8));
+        sendRequest();
+
+        while (true) {
+            int code = readFrame();
+            switch (code) {
+                case RequestCode.REQUEST_SQL_SEMANTICS:
+                    answerSqlSemantics();
+                    break;
+                case RequestCode.REQUEST_GLOBAL_SEMANTICS:
+                    answerGlobalSemantics();
+                    break;
+                case RequestCode.COMPILE:
+                    return createRoutine();
+                case RequestCode.ERROR:
+                    throw new IllegalStateException("compile failed: " + unpackString());
+                default:
+                    throw new IllegalStateException("unexpected request " + code);
+            }
+        }
+    }
+
+    /* calls a routine compiled before in a new transaction, as CALL name (args) of a client does */
+    public CallResult call(String name, Object... args) throws IOException, TypeMismatchException {
+        Routine routine = findRoutine(name);
+        if (routine == null) {
+            throw new IllegalArgumentException("unknown routine " + name);
+        }
+
+        // the handlers of the previous transaction are freed
+        session.tranId++;
+        session.handlers.clear();
+        session.results.clear();
+
+        Value[] values = new Value[args.length];
+        for (int i = 0; i < args.length; i++) {
+            values[i] = toValue(args[i]);
+        }
+
+        CallResult result = invokeRoutine(routine, values);
+        return new CallResult(toObject(result.result), toObjects(result.outArgs), result.error);
+    }
+
+    // CallResult of Values
+    private CallResult invokeRoutine(Routine routine, Value[] args)
+            throws IOException, TypeMismatchException {
+        int paramCount = routine.params.size();
+        if (args.length != paramCount) {
+            throw new IllegalArgumentException(
+                    routine.name + " takes " + paramCount + " arguments, not " + args.length);
+        }
+
+        beginRequest(RequestCode.INVOKE_SP);
+        packer.packBigInt(0); // session parameters
+
+        // prepare args
+        packer.packBigInt(-1); // group id
+        packer.packInt(session.tranId);
+        packer.packInt(paramCount);
+        for (int i = 0; i < paramCount; i++) {
+            int type = (args[i] instanceof NullValue) ? DBType.DB_NULL : routine.params.get(i).type;
+            packer.packInt(type);
+            packArgument(packer, args[i], type);
+        }
+
+        packer.packBigInt(0); // id
+        packer.packInt(session.tranId);
+
+        // procedure
+        packer.packCString(routine.signature.getBytes(StandardCharsets.UTF_8));
+        packer.packCString("dba".getBytes(StandardCharsets.UTF_8));
+        packer.packInt(LANG_PLCSQL);
+        packer.packInt(paramCount);
+        for (int i = 0; i < paramCount; i++) {
+            packer.packInt(routine.modes.get(i));
+            packer.packInt(routine.params.get(i).type);
+        }
+        packer.packInt(routine.isFunction ? routine.returnType.type : DBType.DB_NULL);
+        packer.packBool(false); // transaction control
+
+        Routine prevInvoked = invoked;
+        invoked = routine;
+        try {
+            sendRequest();
+
+            while (true) {
+                int code = readFrame();
+                switch (code) {
+                    case RequestCode.RESULT:
+                        {
+                            Value result = unpacker.unpackValue(unpacker.unpackInt());
+                            List<Value> outArgs = new ArrayList<>();
+                            for (int mode : routine.modes) {
+                                if (mode > Value.IN) {
+                                    outArgs.add(unpacker.unpackValue(unpacker.unpackInt()));
+                                }
+                            }
+                            return new CallResult(result, outArgs.toArray(), null);
+                        }
+                    case RequestCode.ERROR:
+                        return new CallResult(null, null, unpackString());
+                    case RequestCode.INTERNAL_JDBC:
+                        serveCallback();
+                        break;
+                    default:
+                        throw new IllegalStateException("unexpected request " + code);
+                }
+            }
+        } finally {
+            invoked = prevInvoked;
+        }
+    }
+
+    private void serveCallback() throws IOException, TypeMismatchException {
+        int function = unpacker.unpackInt();
+        try {
+            if (function == RequestCode.REQUEST_CODE_ATTR) {
+                answerCodeAttr();
+                return;
+            } else if (function == RequestCode.REQUEST_CHANGE_AUTH_RIGHTS) {
+                beginReply().packInt(0);
+                sendReply();
+                return;
+            }
+
+            SUFunctionCode f = SUFunctionCode.of(function);
+            if (f == null) {
+                replyError(-1, "unknown function " + function);
+                return;
+            }
+            switch (f) {
+                case PREPARE:
+                    prepare();
+                    break;
+                case EXECUTE:
+                    execute();
+                    break;
+                case EXECUTE_BATCH_PREPAREDSTATEMENT:
+                    executeBatch();
+                    break;
+                case FETCH:
+                    fetch();
+                    break;
+                case END_TRANSACTION:
+                    unpacker.unpackInt(); // commit or rollback, not supported
+                    beginReply().packInt(0);
+                    payloadPacker.packInt(0);
+                    sendReply();
+                    break;
+                case GET_DB_PARAMETER:
+                    {
+                        CUBRIDPacker p = beginReply();
+                        p.packInt(0);
+                        p.packInt(4); // TRAN_REP_CLASS_COMMIT_INSTANCE
+                        p.packInt(-1); // lock wait
+                        p.packInt(0); // client type
+                        for (int i = 0; i < 6; i++) {
+                            p.packCString(new byte[0]);
+                        }
+                        p.packInt(0); // process id
+                        sendReply();
+                    }
+                    break;
+                case RELEASE_QUERY_HANDLES:
+                    {
+                        int n = unpacker.unpackInt();
+                        for (int i = 0; i < n; i++) {
+                            session.handlers.remove(unpacker.unpackInt());
+                        }
+                        beginReply().packInt(0);
+                        sendReply();
+                    }
+                    break;
+                default:
+                    replyError(-1, "not supported function " + f);
+                    break;
+            }
+        } catch (MockDatabase.SqlError e) {
+            replyError(e.code, e.getMessage());
+        }
+    }
+
+    private void prepare() throws IOException, MockDatabase.SqlError {
+        String sql = unpackString();
+        unpacker.unpackInt(); // flag
+
+        Handler handler;
+        List<ColumnInfo> columns;
+        int kind;
+        int paramCount;
+        Matcher m = CALL_PATTERN.matcher(sql);
+        if (m.matches()) {
+            Routine routine = findRoutine(m.group(2));
+            if (routine == null) {
+                throw new MockDatabase.SqlError(
+                        MockDatabase.ER_UNKNOWN,
+                        String.format(
+                                "Stored procedure/function '%s' does not exist.", m.group(2)));
+            }
+
+            boolean isFirstOut = (m.group(1) != null);
+            paramCount = sql.length() - sql.replace("?", "").length();
+            handler = new Handler(++session.serial, null, routine, isFirstOut, paramCount);
+            columns = new ArrayList<>();
+            kind = CUBRIDCommandType.CUBRID_STMT_CALL_SP;
+        } else {
+            MockDatabase.Query query = session.database.prepare(sql);
+            handler = new Handler(++session.serial, query, null, false, query.paramCount);
+            columns = query.selectList;
+            kind = query.kind;
+            paramCount = query.paramCount;
+        }
+
+        int handlerId = ++session.handlerId;
+        session.handlers.put(handlerId, handler);
+
+        CUBRIDPacker p = beginReply();
+        p.packInt(0);
+        p.packInt(handlerId);
+        p.packInt(handler.serial);
+        p.packInt(kind);
+        p.packInt(paramCount);
+        packColumns(p, columns);
+        sendReply();
+    }
+
+    private void execute() throws IOException, TypeMismatchException, MockDatabase.SqlError {
+        int handlerId = unpacker.unpackInt();
+        int serial = unpacker.unpackInt();
+        unpacker.unpackInt(); // flag
+        unpacker.unpackInt(); // max field
+        unpacker.unpackInt(); // is forward only
+        int hasParam = unpacker.unpackInt();
+
+        List<Value> params = new ArrayList<>();
+        List<Integer> modes = new ArrayList<>();
+        if (hasParam == 2) {
+            unpackBindParameters(params, modes);
+        }
+
+        Handler handler = findHandler(handlerId, serial);
+        if (handler.routine != null) {
+            executeCall(handlerId, handler, params, modes);
+            return;
+        }
+
+        MockDatabase.Result result = session.database.execute(handler.query, toObjects(params));
+        long queryId = 0;
+        List<ColumnInfo> columns = new ArrayList<>();
+        if (result.rows != null) {
+            queryId = ++session.queryId;
+            session.results.put(queryId, result.rows);
+            columns = handler.query.selectList;
+        }
+
+        CUBRIDPacker p = beginReply();
+        p.packInt(0);
+        p.packInt(handlerId);
+        p.packInt(result.count);
+        packQueryResultInfo(p, handler.query.kind, result.count, queryId);
+        packColumns(p, columns);
+        p.packBool(false); // call info
+        sendReply();
+    }
+
+    // the callee runs on the connection of the next nesting level
+    private void executeCall(
+            int handlerId, Handler handler, List<Value> params, List<Integer> modes)
+            throws IOException, TypeMismatchException {
+        Routine routine = handler.routine;
+        int first = handler.isFirstOut ? 1 : 0;
+        Value[] args = params.subList(first, params.size()).toArray(new Value[0]);
+
+        CallResult result = getConnection(level + 1).invokeRoutine(routine, args);
+        if (result.error != null) {
+            replyError(ER_SP_EXECUTE_ERROR, "Stored procedure execute error: " + result.error);
+            return;
+        }
+
+        // the values of the markers: the result, then the arguments with the OUT values
+        List<Value> values = new ArrayList<>();
+        if (handler.isFirstOut) {
+            values.add((Value) result.result);
+        }
+        int out = 0;
+        for (int i = 0; i < args.length; i++) {
+            values.add((routine.modes.get(i) > Value.IN) ? (Value) result.outArgs[out++] : args[i]);
+        }
+        if (handler.isFirstOut) {
+            values.add(new NullValue());
+        }
+
+        CUBRIDPacker p = beginReply();
+        p.packInt(0);
+        p.packInt(handlerId);
+        p.packInt(1);
+        packQueryResultInfo(p, CUBRIDCommandType.CUBRID_STMT_CALL_SP, 1, 0);
+        packColumns(p, new ArrayList<>());
+        p.packBool(true);
+        p.packInt(handler.markers);
+        p.packBool(handler.isFirstOut);
+        for (Value v : values) {
+            packValue(p, toObject(v));
+        }
+        for (int i = 0; i < handler.markers; i++) {
+            p.packInt(i < modes.size() ? modes.get(i) : Value.IN);
+        }
+        sendReply();
+    }
+
+    // stops after a failed row if asked to, see method_callback.cpp
+    private void executeBatch() throws IOException, TypeMismatchException, MockDatabase.SqlError {
+        int handlerId = unpacker.unpackInt();
+        int serial = unpacker.unpackInt();
+        unpacker.unpackInt(); // flag
+        boolean stopOnError = (unpacker.unpackInt() != 0);
+        unpacker.unpackInt(); // has param
+        int count = unpacker.unpackInt();
+
+        List<List<Value>> bindSets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<Value> params = new ArrayList<>();
+            unpackBindParameters(params, new ArrayList<>());
+            bindSets.add(params);
+        }
+
+        Handler handler = findHandler(handlerId, serial);
+        if (handler.query == null) {
+            throw new MockDatabase.SqlError(MockDatabase.ER_SYNTAX, "a CALL cannot be batched.");
+        }
+
+        List<Object[]> results = new ArrayList<>();
+        for (List<Value> params : bindSets) {
+            try {
+                MockDatabase.Result r = session.database.execute(handler.query, toObjects(params));
+                results.add(new Object[] {r.count, 0, ""});
+            } catch (MockDatabase.SqlError e) {
+                results.add(new Object[] {0, e.code, e.getMessage()});
+                if (stopOnError) {
+                    break;
+                }
+            }
+        }
+
+        CUBRIDPacker p = beginReply();
+        p.packInt(0);
+        p.packInt(results.size());
+        for (Object[] r : results) {
+            p.packInt((Integer) r[0]);
+            p.packInt((Integer) r[1]);
+            p.packCString(((String) r[2]).getBytes(StandardCharsets.UTF_8));
+        }
+        sendReply();
+    }
+
+    private void fetch() throws IOException, MockDatabase.SqlError {
+        long queryId = unpacker.unpackBigint();
+        int start = Math.max(unpacker.unpackInt(), 0);
+        int fetchSize = unpacker.unpackInt();
+        unpacker.unpackInt(); // flag
+
+        List<Object[]> rows = session.results.get(queryId);
+        if (rows == null) {
+            throw new MockDatabase.SqlError(MockDatabase.ER_UNKNOWN, "Unknown query " + queryId);
+        }
+        int end = Math.min(rows.size(), start + (fetchSize > 0 ? fetchSize : 100));
+
+        CUBRIDPacker p = beginReply();
+        p.packInt(0);
+        p.packInt(Math.max(end - start, 0));
+        for (int i = start; i < end; i++) {
+            Object[] row = rows.get(i);
+            p.packInt(i + 1); // tuple number
+            p.packInt(row.length);
+            for (Object v : row) {
+                packValue(p, v);
+            }
+            p.packInt(0); // OID
+            p.packShort((short) 0);
+            p.packShort((short) 0);
+        }
+        sendReply();
+    }
+
+    // ClassAccess asks for the code of the routine being invoked on the connection
+    private void answerCodeAttr() throws IOException {
+        String attr = unpackString();
+        if (invoked == null) {
+            replyError(-1, "no routine is invoked");
+            return;
+        }
+
+        String value;
+        if (attr.equals("created_time")) {
+            value = invoked.timestamp;
+        } else if (attr.equals("ocode")) {
+            value = Base64.getEncoder().encodeToString(invoked.objectCode);
+        } else {
+            replyError(-1, "unknown attribute " + attr);
+            return;
+        }
+
+        CUBRIDPacker p = beginReply();
+        p.packInt(0);
+        packValue(p, value);
+        sendReply();
+    }
+
+    private void answerSqlSemantics() throws IOException {
+        int n = unpacker.unpackInt();
+        List<String> sqls = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            sqls.add(unpackString());
+        }
+
+        CUBRIDPacker p = beginReply();
+        p.packInt(0);
+        p.packInt(n);
+        for (int i = 0; i < n; i++) {
+            p.packInt(i);
+            MockDatabase.Semantics s;
+            try {
+                s = session.database.describe(sqls.get(i));
+            } catch (MockDatabase.SqlError e) {
+                p.packInt(e.code);
+                p.packCString(e.getMessage().getBytes(StandardCharsets.UTF_8));
+                continue;
+            }
+
+            p.packInt(s.kind);
+            p.packCString(s.rewritten.getBytes(StandardCharsets.UTF_8));
+            packColumns(p, s.selectList);
+            p.packInt(s.hostVariables.size());
+            for (String name : s.hostVariables) {
+                packParamInfo(p, Value.IN, name, null);
+            }
+            p.packInt(s.intoTargets.size());
+            for (String target : s.intoTargets) {
+                p.packCString(target.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        sendReply();
+    }
+
+    // see ServerAPI.Question
+    private void answerGlobalSemantics() throws IOException {
+        int n = (int) unpacker.unpackBigint();
+        int[] types = new int[n];
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) {
+            types[i] = unpacker.unpackInt();
+            names[i] = unpackString();
+        }
+
+        CUBRIDPacker p = beginReply();
+        p.packInt(0);
+        p.packBigInt(n);
+        for (int i = 0; i < n; i++) {
+            p.packInt(i);
+            Routine routine = findRoutine(names[i]);
+            switch (types[i]) {
+                case 1: // procedure
+                case 2: // function
+                    if (routine == null || routine.isFunction != (types[i] == 2)) {
+                        packQuestionError(p, names[i] + " is not defined");
+                        break;
+                    }
+                    p.packInt(0);
+                    p.packCString(new byte[0]);
+                    packParamInfo(p, Value.OUT, "", routine.returnType);
+                    p.packBigInt(routine.params.size());
+                    for (int j = 0; j < routine.params.size(); j++) {
+                        ColumnInfo param = routine.params.get(j);
+                        packParamInfo(p, routine.modes.get(j), param.colName, param);
+                    }
+                    break;
+                case 4: // column
+                    {
+                        int dot = names[i].lastIndexOf('.');
+                        ColumnInfo column;
+                        try {
+                            column =
+                                    session.database.getColumn(
+                                            names[i].substring(0, Math.max(dot, 0)),
+                                            names[i].substring(dot + 1));
+                        } catch (MockDatabase.SqlError e) {
+                            packQuestionError(p, e.getMessage());
+                            break;
+                        }
+                        p.packInt(0);
+                        p.packCString(new byte[0]);
+                        packColumn(p, column);
+                    }
+                    break;
+                default: // no serials
+                    packQuestionError(p, names[i] + " is not defined");
+                    break;
+            }
+        }
+        sendReply();
+    }
+
+    private Routine createRoutine() {
+        int errCode = unpacker.unpackInt();
+        if (errCode < 0) {
+            int line = unpacker.unpackInt();
+            int column = unpacker.unpackInt();
+            throw new IllegalStateException(
+                    String.format(
+                            "compile failed: (line %d, column %d) %s",
+                            line, column, unpackString()));
+        }
+
+        unpackString(); // translated
+        String createStmt = unpackString();
+        String className = unpackString();
+        String signature = unpackString();
+        int compiledType = unpacker.unpackInt();
+        byte[] objectCode = null;
+        if (compiledType >= 0) {
+            objectCode = Base64.getDecoder().decode(unpacker.unpackCStringByteArray());
+        }
+
+        Matcher m = CREATE_PATTERN.matcher(createStmt);
+        if (!m.matches()) {
+            throw new IllegalStateException("unknown form of " + createStmt);
+        }
+
+        Routine routine =
+                new Routine(
+                        m.group(2),
+                        className,
+                        signature,
+                        Long.toString(++session.codeTime),
+                        m.group(1).equals("FUNCTION"),
+                        objectCode);
+        if (m.group(3) != null) {
+            for (String param : splitParams(m.group(3))) {
+                Matcher pm = PARAM_PATTERN.matcher(param.trim());
+                if (!pm.matches()) {
+                    throw new IllegalStateException("unknown form of a parameter " + param);
+                }
+                String mode = (pm.group(2) == null) ? "IN" : pm.group(2);
+                routine.modes.add(
+                        mode.equals("IN")
+                                ? Value.IN
+                                : mode.equals("OUT") ? Value.OUT : Value.INOUT);
+                routine.params.add(toColumn(pm.group(1), pm.group(3)));
+            }
+        }
+        if (m.group(4) != null) {
+            routine.returnType = toColumn("", m.group(4).trim());
+        }
+
+        session.routines.put(routine.name, routine);
+        return routine;
+    }
+
+    // CREATE OR REPLACE FUNCTION NAME(P1 INT, P2 OUT NUMERIC(8,2)) RETURN INT AS LANGUAGE JAVA ...
+    private static final Pattern CREATE_PATTERN =
+            Pattern.compile(
+                    "CREATE (?:OR REPLACE )?(PROCEDURE|FUNCTION) (?:\\w+\\.)?(\\w+)\\s*(?:\\((.*)\\))?"
+                            + "\\s*(?:RETURN (.*?))?\\s*AS LANGUAGE JAVA.*",
+                    Pattern.DOTALL);
+    private static final Pattern PARAM_PATTERN =
+            Pattern.compile("(\\w+)\\s+(?:(IN OUT|INOUT|IN|OUT)\\s+)?(.+)");
+    private static final Pattern TYPE_PATTERN =
+            Pattern.compile("(\\w+)\\s*(?:\\(\\s*(\\d+)\\s*(?:,\\s*(\\d+)\\s*)?\\))?");
+    private static final Pattern CALL_PATTERN =
+            Pattern.compile(
+                    "\\s*(\\?\\s*=\\s*)?call\\s+(?:\\w+\\.)?(\\w+)\\s*\\(.*\\)\\s*",
+                    Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    // commas in the parentheses of NUMERIC(p, s) do not separate parameters
+    private static List<String> splitParams(String text) {
+        List<String> params = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                params.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        params.add(text.substring(start));
+        return params;
+    }
+
+    private static ColumnInfo toColumn(String name, String typeText) {
+        Matcher m = TYPE_PATTERN.matcher(typeText);
+        if (!m.matches()) {
+            throw new IllegalStateException("unknown type " + typeText);
+        }
+
+        int prec = (m.group(2) == null) ? -1 : Integer.parseInt(m.group(2));
+        int scale = (m.group(3) == null) ? 0 : Integer.parseInt(m.group(3));
+        switch (m.group(1)) {
+            case "INT":
+            case "INTEGER":
+                return MockDatabase.column(name, DBType.DB_INT, 10, 0);
+            case "BIGINT":
+                return MockDatabase.column(name, DBType.DB_BIGINT, 19, 0);
+            case "VARCHAR":
+            case "STRING":
+                return MockDatabase.column(
+                        name, DBType.DB_STRING, prec < 0 ? VARCHAR_MAX_PRECISION : prec, 0);
+            case "NUMERIC":
+            case "DECIMAL":
+                return MockDatabase.column(name, DBType.DB_NUMERIC, prec < 0 ? 15 : prec, scale);
+            default:
+                throw new IllegalStateException("not supported type " + typeText);
+        }
+    }
+
+    private Routine findRoutine(String name) {
+        // the owner is not distinguished
+        return session.routines.get(name.substring(name.lastIndexOf('.') + 1).toUpperCase());
+    }
+
+    private Handler findHandler(int handlerId, int serial) throws MockDatabase.SqlError {
+        Handler handler = session.handlers.get(handlerId);
+        if (handler == null || handler.serial != serial) {
+            throw new MockDatabase.SqlError(ER_SRV_HANDLE, "Invalid server handle.");
+        }
+        return handler;
+    }
+
+    private MockCas getConnection(int level) throws IOException {
+        while (session.connections.size() <= level) {
+            session.connections.add(new MockCas(session, session.connections.size()));
+        }
+        return session.connections.get(level);
+    }
+
+    private void unpackBindParameters(List<Value> params, List<Integer> modes)
+            throws TypeMismatchException {
+        int n = unpacker.unpackInt();
+        for (int i = 0; i < n; i++) {
+            params.add(unpacker.unpackValue(unpacker.unpackInt()));
+            modes.add(unpacker.unpackInt());
+        }
+    }
+
+    private String unpackString() {
+        return new String(unpacker.unpackCStringByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void beginRequest(int code) {
+        ByteBuffer buffer = packer.getBuffer();
+        buffer.clear();
+        packer.setBuffer(buffer);
+
+        // header
+        packer.packBigInt(session.id);
+        packer.packInt(code);
+        packer.packInt(++session.requestId);
+    }
+
+    private void sendRequest() throws IOException {
+        ByteBuffer buffer = packer.getBuffer();
+        output.writeInt(buffer.position());
+        output.write(buffer.array(), 0, buffer.position());
+        output.flush();
+    }
+
+    // returns the code of the frame, whose payload is to be unpacked next
+    private int readFrame() throws IOException {
+        int size = input.readInt();
+        if (response.length < size) {
+            response = new byte[size];
+        }
+        input.readFully(response, 0, size);
+
+        unpacker.setBuffer(ByteBuffer.wrap(response, 0, size));
+        int code = unpacker.unpackInt();
+        unpacker.align(DataUtilities.MAX_ALIGNMENT);
+        return code;
+    }
+
+    private CUBRIDPacker beginReply() {
+        ByteBuffer buffer = payloadPacker.getBuffer();
+        buffer.clear();
+        payloadPacker.setBuffer(buffer);
+        return payloadPacker;
+    }
+
+    /* [header][payload size][payload], read by Header and CUBRIDUnpacker.unpackBuffer () */
+    private void sendReply() throws IOException {
+        ByteBuffer buffer = packer.getBuffer();
+        buffer.clear();
+        packer.setBuffer(buffer);
+
+        packer.packBigInt(session.id);
+        packer.packInt(0);
+        packer.packInt(0);
+        packer.packInt(payloadPacker.getBuffer().position());
+        packer.packPrimitiveBytes(payloadPacker.getBuffer());
+        sendRequest();
+    }
+
+    private void replyError(int code, String message) throws IOException {
+        CUBRIDPacker p = beginReply();
+        p.packInt(code);
+        p.packInt(code);
+        p.packCString(message.getBytes(StandardCharsets.UTF_8));
+        p.packCString(new byte[0]); // file
+        p.packInt(0); // line
+        sendReply();
+    }
+
+    private static void packQuestionError(CUBRIDPacker p, String message) {
+        p.packInt(-1);
+        p.packCString(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void packQueryResultInfo(CUBRIDPacker p, int kind, int count, long queryId) {
+        p.packInt(kind);
+        p.packInt(count);
+        p.packInt(0); // OID of an inserted row
+        p.packShort((short) 0);
+        p.packShort((short) 0);
+        p.packInt(0); // is OID included
+        p.packBigInt(queryId);
+    }
+
+    private static void packColumns(CUBRIDPacker p, List<ColumnInfo> columns) {
+        p.packInt(columns.size());
+        for (ColumnInfo column : columns) {
+            packColumn(p, column);
+        }
+    }
+
+    // see ColumnInfo (CUBRIDUnpacker)
+    private static void packColumn(CUBRIDPacker p, ColumnInfo column) {
+        p.packInt(column.type);
+        p.packInt(column.setType);
+        p.packInt(column.charset);
+        p.packShort(column.scale);
+        p.packInt(column.prec);
+        p.packCString(column.colName.getBytes(StandardCharsets.UTF_8));
+        p.packCString(column.attrName.getBytes(StandardCharsets.UTF_8));
+        p.packCString(column.className.getBytes(StandardCharsets.UTF_8));
+        p.packCString(column.defaultValueString.getBytes(StandardCharsets.UTF_8));
+        p.packInt(column.isNotNull);
+        p.packInt(column.autoIncrement);
+        p.packInt(column.uniqueKey);
+        p.packInt(column.primaryKey);
+        p.packInt(column.reverseIndex);
+        p.packInt(column.reverseUnique);
+        p.packInt(column.foreignKey);
+        p.packInt(column.shared);
+    }
+
+    // see PlParamInfo (CUBRIDUnpacker), the type is unknown for a host variable
+    private static void packParamInfo(CUBRIDPacker p, int mode, String name, ColumnInfo type) {
+        p.packInt(mode);
+        p.packCString(name.getBytes(StandardCharsets.UTF_8));
+        p.packInt(type == null ? DBType.DB_NULL : type.type);
+        p.packInt(type == null ? 0 : type.prec);
+        p.packInt(type == null ? 0 : type.scale);
+        p.packInt(SysParam.CODESET_UTF8);
+        p.packInt(0); // has default
+        p.packInt(0); // has value
+    }
+
+    private static void packValue(CUBRIDPacker p, Object value) {
+        try {
+            p.packObject(value, DBType.DB_NULL, SysParam.CODESET_UTF8);
+        } catch (java.io.UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Value toValue(Object o) throws TypeMismatchException {
+        if (o == null) {
+            return new NullValue();
+        } else if (o instanceof Integer) {
+            return new IntValue((Integer) o);
+        } else if (o instanceof Long) {
+            return new LongValue((Long) o);
+        } else if (o instanceof BigDecimal) {
+            return new NumericValue((BigDecimal) o);
+        } else if (o instanceof String) {
+            return new StringValue(
+                    ((String) o).getBytes(StandardCharsets.UTF_8), SysParam.CODESET_UTF8);
+        }
+        throw new IllegalArgumentException("not supported argument " + o.getClass());
+    }
+
+    private static Object toObject(Object value) throws TypeMismatchException {
+        if (value == null || value instanceof NullValue) {
+            return null;
+        }
+        return ((Value) value).toObject();
+    }
+
+    private static Object[] toObjects(Object[] values) throws TypeMismatchException {
+        if (values == null) {
+            return null;
+        }
+
+        Object[] objects = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            objects[i] = toObject(values[i]);
+        }
+        return objects;
+    }
+
+    private static Object[] toObjects(List<Value> values) throws TypeMismatchException {
+        return toObjects(values.toArray());
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (MockCas connection : session.connections) {
+            if (connection != this) {
+                connection.socket.close();
+            }
+        }
+        socket.close();
+    }
+
+    /* encodes a value as the CAS does, the counterpart of CUBRIDUnpacker.unpackValue () */
+    public static void packArgument(CUBRIDPacker packer, Value value, int dbType)
+            throws TypeMismatchException {
+        Calendar cal = Calendar.getInstance();
+        switch (dbType) {
+            case DBType.DB_SHORT:
+                packer.packShort(value.toShort());
+                break;
+            case DBType.DB_INT:
+                packer.packInt(value.toInt());
+                break;
+            case DBType.DB_BIGINT:
+                packer.packBigInt(value.toLong());
+                break;
+            case DBType.DB_FLOAT:
+                packer.packFloat(value.toFloat());
+                break;
+            case DBType.DB_DOUBLE:
+            case DBType.DB_MONETARY:
+                packer.packDouble(value.toDouble());
+                break;
+            case DBType.DB_NUMERIC:
+                packer.packString(value.toBigDecimal().toPlainString());
+                break;
+            case DBType.DB_CHAR:
+            case DBType.DB_STRING:
+                packer.packInt(value.getCodeSet());
+                packer.packCString(value.toByteArray());
+                break;
+            case DBType.DB_DATE:
+                cal.setTime(value.toDate());
+                packer.packInt(cal.get(Calendar.YEAR));
+                packer.packInt(cal.get(Calendar.MONTH));
+                packer.packInt(cal.get(Calendar.DAY_OF_MONTH));
+                break;
+            case DBType.DB_TIME:
+                cal.setTime(value.toTime());
+                packer.packInt(cal.get(Calendar.HOUR_OF_DAY));
+                packer.packInt(cal.get(Calendar.MINUTE));
+                packer.packInt(cal.get(Calendar.SECOND));
+                break;
+            case DBType.DB_TIMESTAMP:
+            case DBType.DB_DATETIME:
+                Timestamp ts =
+                        (dbType == DBType.DB_DATETIME) ? value.toDatetime() : value.toTimestamp();
+                cal.setTime(ts);
+                packer.packInt(cal.get(Calendar.YEAR));
+                packer.packInt(cal.get(Calendar.MONTH));
+                packer.packInt(cal.get(Calendar.DAY_OF_MONTH));
+                packer.packInt(cal.get(Calendar.HOUR_OF_DAY));
+                packer.packInt(cal.get(Calendar.MINUTE));
+                packer.packInt(cal.get(Calendar.SECOND));
+                if (dbType == DBType.DB_DATETIME) {
+                    packer.packInt(cal.get(Calendar.MILLISECOND));
+                }
+                break;
+            case DBType.DB_SET:
+            case DBType.DB_MULTISET:
+            case DBType.DB_SEQUENCE:
+                Value[] elements = ((SetValue) value).toValueArray();
+                packer.packInt(elements.length);
+                for (Value e : elements) {
+                    packer.packInt(e.getDbType());
+                    packArgument(packer, e, e.getDbType());
+                }
+                break;
+            case DBType.DB_NULL:
+                break;
+            default:
+                throw new IllegalArgumentException("not supported type: " + dbType);
+        }
+    }
+}
@@ -0,0 +1,1086 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.benchmark;
+
+import com.cubrid.jsp.data.ColumnInfo;
+import com.cubrid.jsp.data.DBType;
+import cubrid.jdbc.jci.CUBRIDCommandType;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * In-memory tables and just enough of SQL for the Static and Dynamic SQL of the PL/CSQL programs
+ * run against a MockCas: SELECT (columns, *, COUNT(*), MAX, MIN, SUM) with WHERE and ORDER BY,
+ * INSERT ... VALUES, UPDATE ... SET and DELETE on one table. The first column of a table is its
+ * primary key.
+ */
+public class MockDatabase {
+
+    public static final int ER_SYNTAX = -493;
+    public static final int ER_UNKNOWN = -494;
+    public static final int ER_NOT_NULL = -631;
+    public static final int ER_UNIQUE_VIOLATION = -670;
+    public static final int ER_DATA_OVERFLOW = -181;
+    public static final int ER_DIVIDE_BY_ZERO = -182;
+    public static final int ER_COERCION = -183;
+
+    private static final int VARCHAR_MAX_PRECISION = 1073741823;
+
+    private static final Set<String> KEYWORDS =
+            new HashSet<>(
+                    Arrays.asList(
+                            "SELECT", "FROM", "WHERE", "AND", "OR", "NOT", "NULL", "IS", "INTO",
+                            "INSERT", "VALUES", "VALUE", "UPDATE", "SET", "DELETE", "ORDER", "BY",
+                            "ASC", "DESC", "COUNT", "MAX", "MIN", "SUM", "NVL"));
+
+    public static class SqlError extends Exception {
+        public final int code;
+
+        public SqlError(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+
+    /* a statement prepared by prepare (), valid as long as the columns of its table do not change */
+    public static final class Query {
+        public final int kind; // CUBRIDCommandType
+        public final List<ColumnInfo> selectList = new ArrayList<>();
+        public int paramCount = 0;
+
+        private final String table;
+        private final List<Expr> items = new ArrayList<>();
+        private final List<String> aggregates = new ArrayList<>(); // null for a non-aggregate item
+        private Expr where = null;
+        private final List<Expr> orderBy = new ArrayList<>();
+        private final List<Boolean> descending = new ArrayList<>();
+        private final List<Integer> targets = new ArrayList<>(); // columns of INSERT and UPDATE
+
+        private Query(int kind, String table) {
+            this.kind = kind;
+            this.table = table;
+        }
+    }
+
+    public static final class Result {
+        public final int count; // affected or selected rows
+        public final List<Object[]> rows; // null if not a SELECT
+
+        private Result(int count, List<Object[]> rows) {
+            this.count = count;
+            this.rows = rows;
+        }
+    }
+
+    /* what the CUBRID server tells the PL/CSQL compiler about a Static SQL, see describe () */
+    public static final class Semantics {
+        public final int kind;
+        public final String rewritten;
+        public final List<ColumnInfo> selectList;
+        public final List<String> hostVariables;
+        public final List<String> intoTargets;
+
+        private Semantics(
+                int kind,
+                String rewritten,
+                List<ColumnInfo> selectList,
+                List<String> hostVariables,
+                List<String> intoTargets) {
+            this.kind = kind;
+            this.rewritten = rewritten;
+            this.selectList = selectList;
+            this.hostVariables = hostVariables;
+            this.intoTargets = intoTargets;
+        }
+    }
+
+    private interface Expr {
+        Object eval(Object[] row, Object[] params) throws SqlError;
+    }
+
+    private static final class Table {
+        final String name;
+        final ColumnInfo[] columns;
+        final List<Object[]> rows = new ArrayList<>();
+
+        Table(String name, ColumnInfo[] columns) {
+            this.name = name;
+            this.columns = columns;
+        }
+
+        int findColumn(String name) {
+            String column = name;
+            int dot = name.indexOf('.');
+            if (dot >= 0) {
+                if (!name.substring(0, dot).equalsIgnoreCase(this.name)) {
+                    return -1;
+                }
+                column = name.substring(dot + 1);
+            }
+
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].colName.equalsIgnoreCase(column)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private final Map<String, Table> tables = new HashMap<>();
+
+    public static ColumnInfo column(String name, int type, int prec, int scale) {
+        ColumnInfo column = new ColumnInfo();
+        column.type = type;
+        column.prec = prec;
+        column.scale = (short) scale;
+        column.charset = 5; // utf8
+        column.colName = name;
+        column.attrName = name;
+        column.className = "";
+        column.defaultValueString = "";
+        return column;
+    }
+
+    /* replaces the table of the same name, if any */
+    public void createTable(String name, ColumnInfo... columns) {
+        for (ColumnInfo column : columns) {
+            column.className = name;
+        }
+        tables.put(name.toLowerCase(), new Table(name, columns));
+    }
+
+    public void insert(String table, Object... values) throws SqlError {
+        Table t = findTable(table);
+        Object[] row = new Object[t.columns.length];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = coerce(t.columns[i], values[i]);
+        }
+        checkKey(t, row, null);
+        t.rows.add(row);
+    }
+
+    /* the rows in the order of the primary key, e.g. "(1, 'kim', 3000.00) (2, 'lee', NULL)" */
+    public String dump(String table) throws SqlError {
+        Table t = findTable(table);
+        List<Object[]> rows = new ArrayList<>(t.rows);
+        Collections.sort(rows, rowComparator(Collections.singletonList(0), null));
+
+        StringBuilder sb = new StringBuilder();
+        for (Object[] row : rows) {
+            sb.append(sb.length() > 0 ? " (" : "(");
+            for (int i = 0; i < row.length; i++) {
+                sb.append(i > 0 ? ", " : "").append(literal(row[i]));
+            }
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+
+    public ColumnInfo getColumn(String table, String column) throws SqlError {
+        Table t = findTable(table);
+        int idx = t.findColumn(column);
+        if (idx < 0) {
+            throw new SqlError(ER_UNKNOWN, String.format("'%s' is not defined.", column));
+        }
+        return t.columns[idx];
+    }
+
+    public Query prepare(String sql) throws SqlError {
+        return new Parser(tokenize(sql)).parse();
+    }
+
+    /*
+     * The host variables of a Static SQL are the identifiers which are neither keywords nor names
+     * of the table and its columns. They are replaced with '?', and the INTO clause is removed.
+     */
+    public Semantics describe(String sql) throws SqlError {
+        List<String> tokens = tokenize(sql);
+        Table table = findTable(tokens.get(findTableToken(tokens)));
+        boolean isSelect = tokens.get(0).equalsIgnoreCase("SELECT");
+
+        List<String> rewritten = new ArrayList<>();
+        List<String> hostVariables = new ArrayList<>();
+        List<String> intoTargets = new ArrayList<>();
+        int depth = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (token.equals("(")) {
+                depth++;
+            } else if (token.equals(")")) {
+                depth--;
+            }
+
+            if (isSelect && depth == 0 && token.equalsIgnoreCase("INTO")) {
+                StringBuilder target = new StringBuilder();
+                while (i + 1 < tokens.size() && !tokens.get(i + 1).equalsIgnoreCase("FROM")) {
+                    String t = tokens.get(++i);
+                    if (t.equals(",")) {
+                        intoTargets.add(target.toString());
+                        target.setLength(0);
+                    } else {
+                        target.append(t);
+                    }
+                }
+                intoTargets.add(target.toString());
+            } else if (isIdentifier(token)
+                    && !KEYWORDS.contains(token.toUpperCase())
+                    && !token.equalsIgnoreCase(table.name)
+                    && table.findColumn(token) < 0) {
+                rewritten.add("?");
+                hostVariables.add(token);
+            } else {
+                rewritten.add(token);
+            }
+        }
+
+        String text = String.join(" ", rewritten);
+        Query query = prepare(text);
+        return new Semantics(query.kind, text, query.selectList, hostVariables, intoTargets);
+    }
+
+    public Result execute(Query query, Object[] params) throws SqlError {
+        Table t = findTable(query.table);
+        switch (query.kind) {
+            case CUBRIDCommandType.CUBRID_STMT_SELECT:
+                {
+                    List<Object[]> rows = select(t, query, params);
+                    return new Result(rows.size(), rows);
+                }
+            case CUBRIDCommandType.CUBRID_STMT_INSERT:
+                {
+                    if (query.items.size() != query.targets.size()) {
+                        throw new SqlError(
+                                ER_SYNTAX, "The number of values does not match the columns.");
+                    }
+                    Object[] row = new Object[t.columns.length];
+                    for (int i = 0; i < query.items.size(); i++) {
+                        int c = query.targets.get(i);
+                        row[c] = coerce(t.columns[c], query.items.get(i).eval(null, params));
+                    }
+                    checkKey(t, row, null);
+                    t.rows.add(row);
+                    return new Result(1, null);
+                }
+            case CUBRIDCommandType.CUBRID_STMT_UPDATE:
+                {
+                    // all rows are checked before any of them is changed
+                    List<Object[]> oldRows = new ArrayList<>();
+                    List<Object[]> newRows = new ArrayList<>();
+                    for (Object[] row : t.rows) {
+                        if (isTrue(query.where, row, params)) {
+                            Object[] newRow = row.clone();
+                            for (int i = 0; i < query.items.size(); i++) {
+                                int c = query.targets.get(i);
+                                newRow[c] =
+                                        coerce(t.columns[c], query.items.get(i).eval(row, params));
+                            }
+                            oldRows.add(row);
+                            newRows.add(newRow);
+                        }
+                    }
+                    for (int i = 0; i < newRows.size(); i++) {
+                        checkKey(t, newRows.get(i), oldRows);
+                    }
+                    for (int i = 0; i < newRows.size(); i++) {
+                        Object[] newRow = newRows.get(i);
+                        System.arraycopy(newRow, 0, oldRows.get(i), 0, newRow.length);
+                    }
+                    return new Result(newRows.size(), null);
+                }
+            case CUBRIDCommandType.CUBRID_STMT_DELETE:
+                {
+                    List<Object[]> kept = new ArrayList<>();
+                    for (Object[] row : t.rows) {
+                        if (!isTrue(query.where, row, params)) {
+                            kept.add(row);
+                        }
+                    }
+                    int count = t.rows.size() - kept.size();
+                    t.rows.clear();
+                    t.rows.addAll(kept);
+                    return new Result(count, null);
+                }
+            default:
+                throw new IllegalStateException("unknown kind of a statement " + query.kind);
+        }
+    }
+
+    private List<Object[]> select(Table t, Query query, Object[] params) throws SqlError {
+        List<Object[]> rows = new ArrayList<>();
+        for (Object[] row : t.rows) {
+            if (isTrue(query.where, row, params)) {
+                rows.add(row);
+            }
+        }
+
+        List<Object[]> result = new ArrayList<>();
+        if (query.aggregates.get(0) != null) {
+            Object[] values = new Object[query.items.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = aggregate(query.aggregates.get(i), query.items.get(i), rows, params);
+            }
+            result.add(values);
+            return result;
+        }
+
+        if (!query.orderBy.isEmpty()) {
+            List<Object[]> keyed = new ArrayList<>();
+            for (Object[] row : rows) {
+                Object[] keys = new Object[query.orderBy.size() + 1];
+                for (int i = 0; i < query.orderBy.size(); i++) {
+                    keys[i] = query.orderBy.get(i).eval(row, params);
+                }
+                keys[keys.length - 1] = row;
+                keyed.add(keys);
+            }
+
+            List<Integer> positions = new ArrayList<>();
+            for (int i = 0; i < query.orderBy.size(); i++) {
+                positions.add(i);
+            }
+            Collections.sort(keyed, rowComparator(positions, query.descending));
+
+            rows.clear();
+            for (Object[] keys : keyed) {
+                rows.add((Object[]) keys[keys.length - 1]);
+            }
+        }
+
+        for (Object[] row : rows) {
+            Object[] values = new Object[query.items.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = query.items.get(i).eval(row, params);
+            }
+            result.add(values);
+        }
+        return result;
+    }
+
+    private static Object aggregate(String function, Expr arg, List<Object[]> rows, Object[] params)
+            throws SqlError {
+        if (function.equals("COUNT")) {
+            return rows.size();
+        }
+
+        Object acc = null;
+        for (Object[] row : rows) {
+            Object v = arg.eval(row, params);
+            if (v == null) {
+                continue;
+            } else if (acc == null) {
+                acc = v;
+            } else if (function.equals("SUM")) {
+                acc = arithmetic("+", acc, v);
+            } else {
+                int c = compare(v, acc);
+                if ((function.equals("MAX") && c > 0) || (function.equals("MIN") && c < 0)) {
+                    acc = v;
+                }
+            }
+        }
+        return acc;
+    }
+
+    private static boolean isTrue(Expr cond, Object[] row, Object[] params) throws SqlError {
+        return cond == null || Boolean.TRUE.equals(cond.eval(row, params));
+    }
+
+    // NULLs first in the ascending order
+    private static Comparator<Object[]> rowComparator(
+            List<Integer> positions, List<Boolean> descending) {
+        return (a, b) -> {
+            for (int i = 0; i < positions.size(); i++) {
+                Object x = a[positions.get(i)];
+                Object y = b[positions.get(i)];
+                int c;
+                if (x == null || y == null) {
+                    c = (x == null ? 0 : 1) - (y == null ? 0 : 1);
+                } else {
+                    c = compare(x, y);
+                }
+                if (descending != null && descending.get(i)) {
+                    c = -c;
+                }
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        };
+    }
+
+    private void checkKey(Table t, Object[] row, List<Object[]> replaced) throws SqlError {
+        ColumnInfo key = t.columns[0];
+        if (row[0] == null) {
+            throw new SqlError(
+                    ER_NOT_NULL,
+                    String.format("Attribute \"%s\" cannot be made NULL.", key.colName));
+        }
+
+        for (Object[] other : t.rows) {
+            if (replaced != null && replaced.contains(other)) {
+                continue;
+            }
+            if (compare(other[0], row[0]) == 0) {
+                throw new SqlError(
+                        ER_UNIQUE_VIOLATION,
+                        String.format(
+                                "Operation would have caused one or more unique constraint"
+                                        + " violations. INDEX pk_%s_%s ON CLASS %s. key: %s.",
+                                t.name, key.colName, t.name, literal(row[0])));
+            }
+        }
+    }
+
+    private Table findTable(String name) throws SqlError {
+        Table t = tables.get(name.toLowerCase());
+        if (t == null) {
+            throw new SqlError(ER_UNKNOWN, String.format("Unknown class \"%s\".", name));
+        }
+        return t;
+    }
+
+    // index of the table name: SELECT/DELETE ... FROM t, INSERT INTO t, UPDATE t
+    private static int findTableToken(List<String> tokens) throws SqlError {
+        String first = tokens.get(0).toUpperCase();
+        int idx = -1;
+        if (first.equals("UPDATE")) {
+            idx = 1;
+        } else if (first.equals("INSERT")) {
+            idx = 2;
+        } else if (first.equals("SELECT") || first.equals("DELETE")) {
+            int depth = 0;
+            for (int i = 1; i < tokens.size(); i++) {
+                String token = tokens.get(i);
+                if (token.equals("(")) {
+                    depth++;
+                } else if (token.equals(")")) {
+                    depth--;
+                } else if (depth == 0 && token.equalsIgnoreCase("FROM")) {
+                    idx = i + 1;
+                    break;
+                }
+            }
+        }
+
+        if (idx < 0 || idx >= tokens.size() || !isIdentifier(tokens.get(idx))) {
+            throw new SqlError(ER_SYNTAX, "Syntax error: a table is expected.");
+        }
+        return idx;
+    }
+
+    private final class Parser {
+        private final List<String> tokens;
+        private int pos = 0;
+        private Table table;
+        private Query query;
+
+        Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        Query parse() throws SqlError {
+            table = findTable(tokens.get(findTableToken(tokens)));
+            switch (next().toUpperCase()) {
+                case "SELECT":
+                    parseSelect();
+                    break;
+                case "INSERT":
+                    parseInsert();
+                    break;
+                case "UPDATE":
+                    parseUpdate();
+                    break;
+                case "DELETE":
+                    expect("FROM");
+                    query = new Query(CUBRIDCommandType.CUBRID_STMT_DELETE, next());
+                    parseWhere();
+                    break;
+                default:
+                    throw syntaxError(tokens.get(0));
+            }
+
+            if (pos < tokens.size()) {
+                throw syntaxError(peek());
+            }
+            return query;
+        }
+
+        private void parseSelect() throws SqlError {
+            query = new Query(CUBRIDCommandType.CUBRID_STMT_SELECT, table.name);
+            if (accept("*")) {
+                for (int i = 0; i < table.columns.length; i++) {
+                    int c = i;
+                    query.items.add((row, params) -> row[c]);
+                    query.aggregates.add(null);
+                    query.selectList.add(table.columns[i]);
+                }
+            } else {
+                do {
+                    parseSelectItem();
+                } while (accept(","));
+            }
+
+            boolean aggregate = query.aggregates.get(0) != null;
+            for (String function : query.aggregates) {
+                if ((function != null) != aggregate) {
+                    throw new SqlError(ER_SYNTAX, "Aggregate and non-aggregate items are mixed.");
+                }
+            }
+
+            expect("FROM");
+            next();
+            parseWhere();
+            if (accept("ORDER")) {
+                expect("BY");
+                do {
+                    query.orderBy.add(parseExpr(null));
+                    boolean descending = accept("DESC");
+                    if (!descending) {
+                        accept("ASC");
+                    }
+                    query.descending.add(descending);
+                } while (accept(","));
+            }
+        }
+
+        private void parseSelectItem() throws SqlError {
+            int start = pos;
+            String function = peek().toUpperCase();
+            ColumnInfo[] type = new ColumnInfo[1];
+            Expr item;
+            if (Arrays.asList("COUNT", "MAX", "MIN", "SUM").contains(function)
+                    && lookAhead(1).equals("(")) {
+                pos += 2;
+                if (function.equals("COUNT")) {
+                    expect("*");
+                    item = null;
+                    type[0] = column("", DBType.DB_INT, 10, 0);
+                } else {
+                    item = parseExpr(type);
+                }
+                expect(")");
+            } else {
+                function = null;
+                item = parseExpr(type);
+            }
+
+            ColumnInfo column = type[0];
+            if (column == null || column.className.isEmpty() || function != null) {
+                // an expression is named after its text
+                String name = String.join("", tokens.subList(start, pos)).toLowerCase();
+                column = column(name, column == null ? DBType.DB_VARIABLE : column.type, 0, 0);
+                column.prec = type[0] == null ? 0 : type[0].prec;
+                column.scale = type[0] == null ? 0 : type[0].scale;
+                if (function != null && function.equals("COUNT")) {
+                    column.prec = 10;
+                }
+            }
+
+            query.items.add(item);
+            query.aggregates.add(function);
+            query.selectList.add(column);
+        }
+
+        private void parseInsert() throws SqlError {
+            expect("INTO");
+            query = new Query(CUBRIDCommandType.CUBRID_STMT_INSERT, next());
+            if (accept("(")) {
+                do {
+                    query.targets.add(parseColumn(next()));
+                } while (accept(","));
+                expect(")");
+            } else {
+                for (int i = 0; i < table.columns.length; i++) {
+                    query.targets.add(i);
+                }
+            }
+
+            if (!accept("VALUES")) {
+                expect("VALUE");
+            }
+            expect("(");
+            do {
+                query.items.add(parseExpr(null));
+            } while (accept(","));
+            expect(")");
+        }
+
+        private void parseUpdate() throws SqlError {
+            query = new Query(CUBRIDCommandType.CUBRID_STMT_UPDATE, next());
+            expect("SET");
+            do {
+                query.targets.add(parseColumn(next()));
+                expect("=");
+                query.items.add(parseExpr(null));
+            } while (accept(","));
+            parseWhere();
+        }
+
+        private void parseWhere() throws SqlError {
+            if (accept("WHERE")) {
+                query.where = parseOr();
+            }
+        }
+
+        private Expr parseOr() throws SqlError {
+            Expr left = parseAnd();
+            while (accept("OR")) {
+                Expr l = left;
+                Expr r = parseAnd();
+                left =
+                        (row, params) -> {
+                            Object x = l.eval(row, params);
+                            Object y = r.eval(row, params);
+                            if (Boolean.TRUE.equals(x) || Boolean.TRUE.equals(y)) {
+                                return true;
+                            }
+                            return (x == null || y == null) ? null : false;
+                        };
+            }
+            return left;
+        }
+
+        private Expr parseAnd() throws SqlError {
+            Expr left = parseNot();
+            while (accept("AND")) {
+                Expr l = left;
+                Expr r = parseNot();
+                left =
+                        (row, params) -> {
+                            Object x = l.eval(row, params);
+                            Object y = r.eval(row, params);
+                            if (Boolean.FALSE.equals(x) || Boolean.FALSE.equals(y)) {
+                                return false;
+                            }
+                            return (x == null || y == null) ? null : true;
+                        };
+            }
+            return left;
+        }
+
+        private Expr parseNot() throws SqlError {
+            if (accept("NOT")) {
+                Expr e = parseNot();
+                return (row, params) -> {
+                    Object x = e.eval(row, params);
+                    return (x == null) ? null : !((Boolean) x);
+                };
+            }
+
+            if (peek().equals("(")) {
+                // a parenthesized condition, or an expression compared with something
+                int start = pos;
+                try {
+                    pos++;
+                    Expr e = parseOr();
+                    expect(")");
+                    if (!isComparison(peek())) {
+                        return e;
+                    }
+                } catch (SqlError e) {
+                    // try again as an expression
+                }
+                pos = start;
+            }
+            return parseComparison();
+        }
+
+        private Expr parseComparison() throws SqlError {
+            Expr left = parseExpr(null);
+            if (accept("IS")) {
+                boolean not = accept("NOT");
+                expect("NULL");
+                return (row, params) -> (left.eval(row, params) == null) != not;
+            }
+
+            String op = next();
+            if (!isComparison(op)) {
+                throw syntaxError(op);
+            }
+            Expr right = parseExpr(null);
+            return (row, params) -> {
+                Object x = left.eval(row, params);
+                Object y = right.eval(row, params);
+                if (x == null || y == null) {
+                    return null;
+                }
+                int c = compare(x, y);
+                switch (op) {
+                    case "=":
+                        return c == 0;
+                    case "<>":
+                    case "!=":
+                        return c != 0;
+                    case "<":
+                        return c < 0;
+                    case "<=":
+                        return c <= 0;
+                    case ">":
+                        return c > 0;
+                    default:
+                        return c >= 0;
+                }
+            };
+        }
+
+        // type[0] is set to the column of the expression, or to the type of its value if known
+        private Expr parseExpr(ColumnInfo[] type) throws SqlError {
+            ColumnInfo[] leftType = new ColumnInfo[1];
+            Expr left = parseTerm(leftType);
+            while (peek().equals("+") || peek().equals("-") || peek().equals("||")) {
+                String op = next();
+                ColumnInfo[] rightType = new ColumnInfo[1];
+                Expr l = left;
+                Expr r = parseTerm(rightType);
+                left = (row, params) -> arithmetic(op, l.eval(row, params), r.eval(row, params));
+                leftType[0] = resultType(op, leftType[0], rightType[0]);
+            }
+            if (type != null) {
+                type[0] = leftType[0];
+            }
+            return left;
+        }
+
+        private Expr parseTerm(ColumnInfo[] type) throws SqlError {
+            Expr left = parseFactor(type);
+            while (peek().equals("*") || peek().equals("/")) {
+                String op = next();
+                ColumnInfo[] rightType = new ColumnInfo[1];
+                Expr l = left;
+                Expr r = parseFactor(rightType);
+                left = (row, params) -> arithmetic(op, l.eval(row, params), r.eval(row, params));
+                type[0] = resultType(op, type[0], rightType[0]);
+            }
+            return left;
+        }
+
+        private Expr parseFactor(ColumnInfo[] type) throws SqlError {
+            String token = next();
+            if (token.equals("?")) {
+                int idx = query.paramCount++;
+                type[0] = null;
+                return (row, params) -> params[idx];
+            } else if (token.equals("-")) {
+                Expr e = parseFactor(type);
+                return (row, params) -> arithmetic("-", 0, e.eval(row, params));
+            } else if (token.equals("(")) {
+                Expr e = parseExpr(type);
+                expect(")");
+                return e;
+            } else if (token.startsWith("'")) {
+                String s = token.substring(1, token.length() - 1).replace("''", "'");
+                type[0] = column("", DBType.DB_STRING, VARCHAR_MAX_PRECISION, 0);
+                return (row, params) -> s;
+            } else if (Character.isDigit(token.charAt(0))) {
+                Object v;
+                if (token.indexOf('.') >= 0) {
+                    BigDecimal d = new BigDecimal(token);
+                    type[0] = column("", DBType.DB_NUMERIC, Math.max(d.precision(), 1), d.scale());
+                    v = d;
+                } else {
+                    type[0] = column("", DBType.DB_INT, 10, 0);
+                    v = Integer.valueOf(token);
+                }
+                return (row, params) -> v;
+            } else if (token.equalsIgnoreCase("NULL")) {
+                type[0] = null;
+                return (row, params) -> null;
+            } else if (token.equalsIgnoreCase("NVL") && peek().equals("(")) {
+                expect("(");
+                Expr e1 = parseExpr(type);
+                expect(",");
+                Expr e2 = parseExpr(new ColumnInfo[1]);
+                expect(")");
+                return (row, params) -> {
+                    Object v = e1.eval(row, params);
+                    return (v == null) ? e2.eval(row, params) : v;
+                };
+            } else if (isIdentifier(token) && !KEYWORDS.contains(token.toUpperCase())) {
+                int c = parseColumn(token);
+                type[0] = table.columns[c];
+                return (row, params) -> {
+                    if (row == null) {
+                        throw new SqlError(
+                                ER_SYNTAX, String.format("'%s' cannot be used here.", token));
+                    }
+                    return row[c];
+                };
+            } else {
+                throw syntaxError(token);
+            }
+        }
+
+        private int parseColumn(String name) throws SqlError {
+            int c = table.findColumn(name);
+            if (c < 0) {
+                throw new SqlError(ER_UNKNOWN, String.format("'%s' is not defined.", name));
+            }
+            return c;
+        }
+
+        private String peek() {
+            return lookAhead(0);
+        }
+
+        private String lookAhead(int n) {
+            return (pos + n < tokens.size()) ? tokens.get(pos + n) : "";
+        }
+
+        private String next() throws SqlError {
+            if (pos >= tokens.size()) {
+                throw new SqlError(ER_SYNTAX, "Syntax error: unexpected end of the statement.");
+            }
+            return tokens.get(pos++);
+        }
+
+        private boolean accept(String token) {
+            if (peek().equalsIgnoreCase(token)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) throws SqlError {
+            if (!accept(token)) {
+                throw syntaxError(peek());
+            }
+        }
+    }
+
+    private static ColumnInfo resultType(String op, ColumnInfo left, ColumnInfo right) {
+        if (op.equals("||")) {
+            return column("", DBType.DB_STRING, VARCHAR_MAX_PRECISION, 0);
+        } else if (left == null || right == null) {
+            return null;
+        } else if (left.type == DBType.DB_INT && right.type == DBType.DB_INT && !op.equals("/")) {
+            return column("", DBType.DB_INT, 10, 0);
+        } else {
+            return column("", DBType.DB_NUMERIC, 38, Math.max(left.scale, right.scale));
+        }
+    }
+
+    private static Object arithmetic(String op, Object x, Object y) throws SqlError {
+        if (x == null || y == null) {
+            return null;
+        }
+
+        if (op.equals("||")) {
+            return toText(x) + toText(y);
+        }
+
+        if (isIntegral(x) && isIntegral(y) && !op.equals("/")) {
+            long a = ((Number) x).longValue();
+            long b = ((Number) y).longValue();
+            long r = op.equals("+") ? a + b : op.equals("-") ? a - b : a * b;
+            if (x instanceof Long || y instanceof Long) {
+                return r;
+            } else if (r < Integer.MIN_VALUE || r > Integer.MAX_VALUE) {
+                throw new SqlError(ER_DATA_OVERFLOW, "Data overflow on data type \"integer\".");
+            }
+            return (int) r;
+        }
+
+        BigDecimal a = toNumber(x);
+        BigDecimal b = toNumber(y);
+        switch (op) {
+            case "+":
+                return a.add(b);
+            case "-":
+                return a.subtract(b);
+            case "*":
+                return a.multiply(b);
+            default:
+                if (b.signum() == 0) {
+                    throw new SqlError(ER_DIVIDE_BY_ZERO, "Attempt to divide by zero.");
+                }
+                return a.divide(b, 9, RoundingMode.HALF_UP);
+        }
+    }
+
+    private static int compare(Object x, Object y) {
+        if (x instanceof Number || y instanceof Number) {
+            try {
+                return toNumber(x).compareTo(toNumber(y));
+            } catch (SqlError e) {
+                // compared as strings
+            }
+        }
+        return toText(x).compareTo(toText(y));
+    }
+
+    private static Object coerce(ColumnInfo column, Object v) throws SqlError {
+        if (v == null) {
+            return null;
+        }
+
+        switch (column.type) {
+            case DBType.DB_INT:
+                try {
+                    return toNumber(v).setScale(0, RoundingMode.HALF_UP).intValueExact();
+                } catch (ArithmeticException e) {
+                    throw new SqlError(ER_DATA_OVERFLOW, "Data overflow on data type \"integer\".");
+                }
+            case DBType.DB_NUMERIC:
+                {
+                    BigDecimal d = toNumber(v).setScale(column.scale, RoundingMode.HALF_UP);
+                    if (d.precision() - d.scale() > column.prec - column.scale) {
+                        throw new SqlError(
+                                ER_DATA_OVERFLOW, "Data overflow on data type \"numeric\".");
+                    }
+                    return d;
+                }
+            case DBType.DB_STRING:
+                {
+                    String s = toText(v);
+                    if (s.length() > column.prec) {
+                        throw new SqlError(
+                                ER_DATA_OVERFLOW,
+                                "Data overflow on data type \"character varying\".");
+                    }
+                    return s;
+                }
+            default:
+                throw new IllegalStateException("unsupported type of a column " + column.type);
+        }
+    }
+
+    private static boolean isIntegral(Object v) {
+        return v instanceof Integer || v instanceof Short || v instanceof Long;
+    }
+
+    private static BigDecimal toNumber(Object v) throws SqlError {
+        if (v instanceof BigDecimal) {
+            return (BigDecimal) v;
+        } else if (isIntegral(v)) {
+            return BigDecimal.valueOf(((Number) v).longValue());
+        } else if (v instanceof Number) {
+            return BigDecimal.valueOf(((Number) v).doubleValue());
+        }
+
+        try {
+            return new BigDecimal(v.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new SqlError(
+                    ER_COERCION,
+                    String.format("Cannot coerce value '%s' to domain \"numeric\".", v));
+        }
+    }
+
+    private static String toText(Object v) {
+        return (v instanceof BigDecimal) ? ((BigDecimal) v).toPlainString() : v.toString();
+    }
+
+    private static String literal(Object v) {
+        if (v == null) {
+            return "NULL";
+        }
+        return (v instanceof String) ? "'" + v + "'" : toText(v);
+    }
+
+    private static boolean isIdentifier(String token) {
+        return Character.isLetter(token.charAt(0)) || token.charAt(0) == '_';
+    }
+
+    private static boolean isComparison(String token) {
+        return Arrays.asList("=", "<>", "!=", "<", "<=", ">", ">=").contains(token);
+    }
+
+    private static SqlError syntaxError(String token) {
+        if (token.isEmpty()) {
+            return new SqlError(ER_SYNTAX, "Syntax error: unexpected end of the statement.");
+        }
+        return new SqlError(ER_SYNTAX, String.format("Syntax error: unexpected '%s'.", token));
+    }
+
+    // identifiers (with dots), numbers, quoted strings, and operators
+    private static List<String> tokenize(String sql) throws SqlError {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        int n = sql.length();
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+
+            int start = i++;
+            if (c == '\'') {
+                while (true) {
+                    if (i >= n) {
+                        throw new SqlError(ER_SYNTAX, "Syntax error: unterminated string.");
+                    } else if (sql.charAt(i) != '\'') {
+                        i++;
+                    } else if (i + 1 < n && sql.charAt(i + 1) == '\'') {
+                        i += 2;
+                    } else {
+                        i++;
+                        break;
+                    }
+                }
+            } else if (Character.isLetter(c) || c == '_') {
+                while (i < n
+                        && (Character.isLetterOrDigit(sql.charAt(i))
+                                || sql.charAt(i) == '_'
+                                || sql.charAt(i) == '.')) {
+                    i++;
+                }
+            } else if (Character.isDigit(c)) {
+                while (i < n && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+            } else if (i < n
+                    && Arrays.asList("||", "<=", ">=", "<>", "!=")
+                            .contains(sql.substring(start, i + 1))) {
+                i++;
+            }
+            tokens.add(sql.substring(start, i));
+        }
+
+        if (tokens.isEmpty()) {
+            throw new SqlError(ER_SYNTAX, "Syntax error: empty statement.");
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.benchmark;
+
+import com.cubrid.jsp.data.CUBRIDPacker;
+import com.cubrid.jsp.data.CUBRIDUnpacker;
+import com.cubrid.jsp.data.DBType;
+import com.cubrid.jsp.value.DateValue;
+import com.cubrid.jsp.value.DatetimeValue;
+import com.cubrid.jsp.value.DoubleValue;
+import com.cubrid.jsp.value.FloatValue;
+import com.cubrid.jsp.value.IntValue;
+import com.cubrid.jsp.value.LongValue;
+import com.cubrid.jsp.value.NumericValue;
+import com.cubrid.jsp.value.SetValue;
+import com.cubrid.jsp.value.ShortValue;
+import com.cubrid.jsp.value.StringValue;
+import com.cubrid.jsp.value.TimeValue;
+import com.cubrid.jsp.value.TimestampValue;
+import com.cubrid.jsp.value.Value;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * CUBRIDPacker.packValue () (results and OUT arguments) and CUBRIDUnpacker.unpackValue ()
+ * (arguments) per DBType. Run with "-prof gc" to see the allocation per value.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PackerBenchmark {
+
+    @Param({
+        "SHORT",
+        "INT",
+        "BIGINT",
+        "FLOAT",
+        "DOUBLE",
+        "NUMERIC",
+        "STRING",
+        "DATE",
+        "TIME",
+        "TIMESTAMP",
+        "DATETIME",
+        "SEQUENCE"
+    })
+    public String type;
+
+    private int dbType;
+    private Value value;
+
+    private ByteBuffer packBuffer;
+    private CUBRIDPacker packer;
+
+    private ByteBuffer encoded;
+    private CUBRIDUnpacker unpacker;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkEnvironment.acquire();
+        BenchmarkEnvironment.attach();
+
+        dbType = dbTypeOf(type);
+        value = sampleValue(dbType);
+
+        packBuffer = ByteBuffer.allocate(4096);
+        packer = new CUBRIDPacker(packBuffer);
+
+        CUBRIDPacker casPacker = new CUBRIDPacker(ByteBuffer.allocate(4096));
+        MockCas.packArgument(casPacker, value, dbType);
+        encoded = casPacker.getBuffer();
+        encoded.flip();
+        unpacker = new CUBRIDUnpacker();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkEnvironment.detach();
+        BenchmarkEnvironment.release();
+    }
+
+    @Benchmark
+    public ByteBuffer packValue() throws Exception {
+        packBuffer.clear();
+        packer.setBuffer(packBuffer);
+        packer.packValue(value, dbType);
+        return packer.getBuffer();
+    }
+
+    @Benchmark
+    public Value unpackValue() throws Exception {
+        encoded.rewind();
+        unpacker.setBuffer(encoded);
+        return unpacker.unpackValue(dbType);
+    }
+
+    static int dbTypeOf(String name) {
+        switch (name) {
+            case "SHORT":
+                return DBType.DB_SHORT;
+            case "INT":
+                return DBType.DB_INT;
+            case "BIGINT":
+                return DBType.DB_BIGINT;
+            case "FLOAT":
+                return DBType.DB_FLOAT;
+            case "DOUBLE":
+                return DBType.DB_DOUBLE;
+            case "NUMERIC":
+                return DBType.DB_NUMERIC;
+            case "STRING":
+                return DBType.DB_STRING;
+            case "DATE":
+                return DBType.DB_DATE;
+            case "TIME":
+                return DBType.DB_TIME;
+            case "TIMESTAMP":
+                return DBType.DB_TIMESTAMP;
+            case "DATETIME":
+                return DBType.DB_DATETIME;
+            case "SEQUENCE":
+                return DBType.DB_SEQUENCE;
+            default:
+                throw new IllegalArgumentException("unknown type: " + name);
+        }
+    }
+
+    static Value sampleValue(int dbType) throws Exception {
+        switch (dbType) {
+            case DBType.DB_SHORT:
+                return new ShortValue((short) 1234);
+            case DBType.DB_INT:
+                return new IntValue(123456789);
+            case DBType.DB_BIGINT:
+                return new LongValue(1234567890123L);
+            case DBType.DB_FLOAT:
+                return new FloatValue(3.14f);
+            case DBType.DB_DOUBLE:
+                return new DoubleValue(2.718281828459045);
+            case DBType.DB_NUMERIC:
+                return new NumericValue("12345678901234567890.123456789");
+            case DBType.DB_STRING:
+                return new StringValue("The quick brown fox jumps over the lazy dog");
+            case DBType.DB_DATE:
+                return new DateValue(2023, 11, 24);
+            case DBType.DB_TIME:
+                return new TimeValue(13, 24, 35);
+            case DBType.DB_TIMESTAMP:
+                return new TimestampValue(2023, 11, 24, 13, 24, 35);
+            case DBType.DB_DATETIME:
+                return new DatetimeValue(2023, 11, 24, 13, 24, 35, 456);
+            case DBType.DB_SEQUENCE:
+                Value[] elements = new Value[16];
+                for (int i = 0; i < elements.length; i++) {
+                    elements[i] = new IntValue(i);
+                }
+                return new SetValue(elements);
+            default:
+                throw new IllegalArgumentException("no sample for type: " + dbType);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.benchmark;
+
+import com.cubrid.jsp.value.DateTimeParser;
+import com.cubrid.plcsql.predefined.sp.SpLib;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/* SpLib operators called by the generated code of PL/CSQL routines */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpLibBenchmark {
+
+    private Integer int1 = 123456;
+    private Integer int2 = 654321;
+
+    private BigDecimal num1 = new BigDecimal("12345678901234.5678");
+    private BigDecimal num2 = new BigDecimal("987.654321");
+
+    private String str1 = "PL/CSQL routine name 0001";
+    private String str2 = "PL/CSQL routine name 0002";
+    private String strPadded = "PL/CSQL routine name 0001   ";
+
+    private String intStr = "1234567";
+    private String dateStr = "2024-06-30";
+    private String datetimeStr = "2024-06-30 13:45:30.250";
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkEnvironment.acquire();
+        BenchmarkEnvironment.attach();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkEnvironment.detach();
+        BenchmarkEnvironment.release();
+    }
+
+    @Benchmark
+    public Integer opAddInteger() {
+        return SpLib.opAdd(int1, int2);
+    }
+
+    @Benchmark
+    public BigDecimal opAddNumeric() {
+        return SpLib.opAdd(num1, num2);
+    }
+
+    @Benchmark
+    public BigDecimal opDivNumeric() {
+        return SpLib.opDiv(num1, num2);
+    }
+
+    @Benchmark
+    public Object opDivInteger() {
+        return SpLib.opDiv(int2, int1);
+    }
+
+    @Benchmark
+    public Boolean opEqString() {
+        return SpLib.opEq(str1, strPadded);
+    }
+
+    @Benchmark
+    public Boolean opLtString() {
+        return SpLib.opLt(str1, str2);
+    }
+
+    @Benchmark
+    public String opConcat() {
+        return SpLib.opConcat(str1, str2);
+    }
+
+    @Benchmark
+    public Integer convStringToInt() {
+        return SpLib.convStringToInt(intStr);
+    }
+
+    @Benchmark
+    public Date convStringToDate() {
+        return SpLib.convStringToDate(dateStr);
+    }
+
+    @Benchmark
+    public Timestamp convStringToDatetime() {
+        return SpLib.convStringToDatetime(datetimeStr);
+    }
+
+    // the general parsers which the conversions above went through for every string, to compare
+    // with their fast paths
+
+    @Benchmark
+    public Integer convStringToIntByBigDecimal() {
+        BigDecimal bd = new BigDecimal(intStr.trim());
+        return Integer.valueOf(bd.setScale(0, RoundingMode.HALF_UP).intValueExact());
+    }
+
+    @Benchmark
+    public Date convStringToDateByParser() {
+        LocalDate d = DateTimeParser.DateLiteral.parse(dateStr);
+        return new Date(d.getYear() - 1900, d.getMonthValue() - 1, d.getDayOfMonth());
+    }
+
+    @Benchmark
+    public Timestamp convStringToDatetimeByParser() {
+        LocalDateTime dt = DateTimeParser.DatetimeLiteral.parse(datetimeStr);
+        return new Timestamp(
+                dt.getYear() - 1900,
+                dt.getMonthValue() - 1,
+                dt.getDayOfMonth(),
+                dt.getHour(),
+                dt.getMinute(),
+                dt.getSecond(),
+                dt.getNano());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.benchmark;
+
+import com.cubrid.jsp.StoredProcedure;
+import com.cubrid.jsp.context.Context;
+import com.cubrid.jsp.data.DBType;
+import com.cubrid.jsp.value.DoubleValue;
+import com.cubrid.jsp.value.IntValue;
+import com.cubrid.jsp.value.LongValue;
+import com.cubrid.jsp.value.StringValue;
+import com.cubrid.jsp.value.Value;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Java SP invocation: StoredProcedure construction (target method lookup, argument conversion) and
+ * invoke () in-process, and the whole INVOKE_SP request through ExecuteThread with a MockCas.
+ * The targets are JDK methods so that they are found by the server class loaders.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StoredProcedureBenchmark {
+
+    private static final long MOCK_CAS_SESSION_ID = 2;
+
+    @Param({"int", "bigint", "double", "string"})
+    public String routine;
+
+    private String signature;
+    private Value[] args;
+    private int[] argTypes;
+    private int returnType;
+
+    private MockCas cas;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkEnvironment.acquire();
+        Context ctx = BenchmarkEnvironment.attach();
+        ctx.checkTranId(1); // creates the class loader of the transaction
+
+        switch (routine) {
+            case "int":
+                signature = "java.lang.Math.max(int,int)";
+                args = new Value[] {new IntValue(1), new IntValue(2)};
+                argTypes = new int[] {DBType.DB_INT, DBType.DB_INT};
+                returnType = DBType.DB_INT;
+                break;
+            case "bigint":
+                signature = "java.lang.Long.sum(long,long)";
+                args = new Value[] {new LongValue(1L << 40), new LongValue(1L)};
+                argTypes = new int[] {DBType.DB_BIGINT, DBType.DB_BIGINT};
+                returnType = DBType.DB_BIGINT;
+                break;
+            case "double":
+                signature = "java.lang.Double.toString(double)";
+                args = new Value[] {new DoubleValue(3.141592653589793)};
+                argTypes = new int[] {DBType.DB_DOUBLE};
+                returnType = DBType.DB_STRING;
+                break;
+            case "string":
+                signature = "java.lang.Integer.parseInt(java.lang.String)";
+                args = new Value[] {new StringValue("123456789")};
+                argTypes = new int[] {DBType.DB_STRING};
+                returnType = DBType.DB_INT;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown routine: " + routine);
+        }
+
+        cas = new MockCas(BenchmarkEnvironment.getServerPort(), MOCK_CAS_SESSION_ID);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        cas.close();
+        BenchmarkEnvironment.detach();
+        BenchmarkEnvironment.release();
+    }
+
+    @Benchmark
+    public Value constructAndInvoke() throws Exception {
+        StoredProcedure procedure =
+                new StoredProcedure(signature, MockCas.LANG_JAVASP, "dba", args, returnType);
+        return procedure.invoke();
+    }
+
+    @Benchmark
+    public Value invokeThroughSocket() throws Exception {
+        return cas.invoke(signature, args, argTypes, returnType);
+    }
+}
@@ -0,0 +1,10 @@
+CREATE OR REPLACE PROCEDURE audit_emp(p_id INT, note OUT VARCHAR) AS
+    FUNCTION tag(v INT) RETURN VARCHAR AS
+    BEGIN
+        RETURN 'audited ' || v;
+    END;
+BEGIN
+    UPDATE emp SET name = name || '*' WHERE id = p_id;
+    note := tag(p_id) || ' (' || SQL%ROWCOUNT || ')';
+    DBMS_OUTPUT.put_line(note);
+END;
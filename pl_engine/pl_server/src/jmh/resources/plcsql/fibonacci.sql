@@ -0,0 +1,17 @@
+CREATE OR REPLACE FUNCTION bench_fibonacci(n INT) RETURN BIGINT AS
+    a BIGINT := 0;
+    b BIGINT := 1;
+    t BIGINT;
+BEGIN
+    IF n < 0 THEN
+        RAISE VALUE_ERROR;
+    END IF;
+
+    FOR i IN 1 .. n LOOP
+        t := a + b;
+        a := b;
+        b := t;
+    END LOOP;
+
+    RETURN a;
+END;
@@ -0,0 +1,19 @@
+CREATE OR REPLACE PROCEDURE bench_grade(score INT, label OUT VARCHAR) AS
+    bonus CONSTANT INT := 5;
+    adjusted INT;
+BEGIN
+    adjusted := score + bonus;
+
+    label := CASE
+        WHEN adjusted >= 90 THEN 'A'
+        WHEN adjusted >= 80 THEN 'B'
+        WHEN adjusted >= 70 THEN 'C'
+        ELSE 'F'
+    END;
+
+    IF label = 'F' AND score BETWEEN 60 AND 64 THEN
+        label := label || ' (retake)';
+    ELSIF label IN ('A', 'B') THEN
+        DBMS_OUTPUT.put_line('passed: ' || label);
+    END IF;
+END;
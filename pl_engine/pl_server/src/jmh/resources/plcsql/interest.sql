@@ -0,0 +1,23 @@
+CREATE OR REPLACE FUNCTION bench_interest(principal NUMERIC, rate NUMERIC, years INT)
+RETURN NUMERIC AS
+    amount NUMERIC(24, 6) := principal;
+    yearly NUMERIC(24, 6);
+    total_interest NUMERIC(24, 6) := 0;
+BEGIN
+    IF principal IS NULL OR rate IS NULL THEN
+        RETURN NULL;
+    END IF;
+
+    FOR y IN 1 .. years LOOP
+        yearly := amount * rate / 100;
+        total_interest := total_interest + yearly;
+        amount := amount + yearly;
+    END LOOP;
+
+    RETURN total_interest;
+EXCEPTION
+    WHEN ZERO_DIVIDE THEN
+        RETURN 0;
+    WHEN VALUE_ERROR THEN
+        RETURN -1;
+END;
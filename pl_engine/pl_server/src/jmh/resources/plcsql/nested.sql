@@ -0,0 +1,39 @@
+CREATE OR REPLACE PROCEDURE bench_nested(n INT) AS
+    total INT := 0;
+    negative_input EXCEPTION;
+
+    FUNCTION gcd(x INT, y INT) RETURN INT AS
+        a INT := x;
+        b INT := y;
+        t INT;
+    BEGIN
+        WHILE b <> 0 LOOP
+            t := a MOD b;
+            a := b;
+            b := t;
+        END LOOP;
+        RETURN a;
+    END;
+
+    PROCEDURE accumulate(v INT, acc INOUT INT) AS
+    BEGIN
+        acc := acc + v;
+    END;
+BEGIN
+    IF n < 0 THEN
+        RAISE negative_input;
+    END IF;
+
+    <<outer>>
+    FOR i IN 1 .. n LOOP
+        FOR j IN REVERSE 1 .. i LOOP
+            CONTINUE outer WHEN gcd(i, j) > 1 AND j = i;
+            accumulate(gcd(i, j), total);
+        END LOOP;
+    END LOOP outer;
+
+    DBMS_OUTPUT.put_line('total = ' || total);
+EXCEPTION
+    WHEN negative_input THEN
+        DBMS_OUTPUT.put_line('negative input');
+END;
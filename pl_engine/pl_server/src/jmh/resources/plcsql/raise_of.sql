@@ -0,0 +1,14 @@
+CREATE OR REPLACE FUNCTION raise_of(p_id INT) RETURN NUMERIC AS
+    s NUMERIC(8, 2);
+
+    FUNCTION ten_percent(v NUMERIC) RETURN NUMERIC AS
+    BEGIN
+        RETURN v * 0.1;
+    END;
+BEGIN
+    SELECT sal INTO s FROM emp WHERE id = p_id;
+    IF s IS NULL THEN
+        RAISE_APPLICATION_ERROR(1001, 'no salary for ' || p_id);
+    END IF;
+    RETURN ten_percent(s);
+END;
@@ -0,0 +1,48 @@
+CREATE OR REPLACE PROCEDURE sql_cursor(d INT) AS
+    CURSOR c(dd INT) IS SELECT id, name FROM emp WHERE dept = dd ORDER BY id;
+    rc SYS_REFCURSOR;
+    k INT;
+    who VARCHAR(100);
+    s NUMERIC(8, 2);
+
+    PROCEDURE show(k INT, v VARCHAR) AS
+    BEGIN
+        DBMS_OUTPUT.put_line(k || ': ' || v);
+    END;
+BEGIN
+    OPEN c(d);
+    LOOP
+        FETCH c INTO k, who;
+        EXIT WHEN c%NOTFOUND;
+        show(k, who);
+    END LOOP;
+    DBMS_OUTPUT.put_line('fetched ' || c%ROWCOUNT);
+    CLOSE c;
+
+    FOR r IN c(d + 10) LOOP
+        show(r.id, r.name);
+    END LOOP;
+
+    FOR r IN (SELECT id, name FROM emp WHERE id > d ORDER BY id) LOOP
+        show(r.id, r.name);
+    END LOOP;
+
+    OPEN rc FOR SELECT id, sal FROM emp WHERE dept >= d ORDER BY sal;
+    LOOP
+        FETCH rc INTO k, s;
+        EXIT WHEN rc%NOTFOUND;
+        show(k, s);
+    END LOOP;
+    CLOSE rc;
+
+    IF d = 30 THEN
+        FETCH c INTO k, who;
+    ELSIF d = 40 THEN
+        -- CURSOR_ALREADY_OPEN is not handled
+        OPEN c(d);
+        OPEN c(d);
+    END IF;
+EXCEPTION
+    WHEN INVALID_CURSOR THEN
+        DBMS_OUTPUT.put_line('invalid cursor');
+END;
@@ -0,0 +1,23 @@
+CREATE OR REPLACE PROCEDURE sql_dynamic(tbl VARCHAR, d INT) AS
+    n INT;
+    who VARCHAR(100);
+    total NUMERIC(10, 2);
+
+    FUNCTION count_sql(t VARCHAR) RETURN VARCHAR AS
+    BEGIN
+        RETURN 'SELECT COUNT(*) FROM ' || t || ' WHERE dept = ?';
+    END;
+BEGIN
+    EXECUTE IMMEDIATE count_sql(tbl) INTO n USING d;
+    DBMS_OUTPUT.put_line('count = ' || n);
+
+    EXECUTE IMMEDIATE 'UPDATE ' || tbl || ' SET sal = sal * 2 WHERE dept = ?' USING d;
+    DBMS_OUTPUT.put_line('doubled = ' || SQL%ROWCOUNT);
+
+    EXECUTE IMMEDIATE 'SELECT SUM(sal) FROM ' || tbl || ' WHERE dept = ?' INTO total USING d;
+    DBMS_OUTPUT.put_line('total = ' || total);
+
+    -- NO_DATA_FOUND is not handled
+    EXECUTE IMMEDIATE 'SELECT name FROM ' || tbl || ' WHERE id = ?' INTO who USING d - 9;
+    DBMS_OUTPUT.put_line('who = ' || who);
+END;
@@ -0,0 +1,29 @@
+CREATE OR REPLACE PROCEDURE sql_forall(lo INT, hi INT) AS
+    FUNCTION or_minus_one(v BIGINT) RETURN BIGINT AS
+    BEGIN
+        IF v IS NULL THEN
+            RETURN -1;
+        END IF;
+        RETURN v;
+    END;
+BEGIN
+    BEGIN
+        FORALL i IN lo .. hi
+            INSERT INTO emp VALUES (i, 'temp' || i, 90, i * 10);
+        DBMS_OUTPUT.put_line('inserted ' || SQL%ROWCOUNT);
+    EXCEPTION
+        WHEN OTHERS THEN
+            DBMS_OUTPUT.put_line('insert failed: ' || SQLERRM);
+    END;
+
+    -- -1 for the rows not executed
+    FOR i IN lo .. hi LOOP
+        DBMS_OUTPUT.put_line('inserted ' || i || ': ' || or_minus_one(SQL%BULK_ROWCOUNT(i)));
+    END LOOP;
+
+    FORALL i IN lo .. hi
+        UPDATE emp SET sal = sal + i WHERE dept = 90 AND id >= i;
+    FOR i IN lo .. hi LOOP
+        DBMS_OUTPUT.put_line('updated ' || i || ': ' || or_minus_one(SQL%BULK_ROWCOUNT(i)));
+    END LOOP;
+END;
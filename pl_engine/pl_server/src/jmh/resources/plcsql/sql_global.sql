@@ -0,0 +1,16 @@
+CREATE OR REPLACE PROCEDURE sql_global(lo INT, hi INT) AS
+    total NUMERIC(10, 2) := 0;
+    note VARCHAR(100);
+
+    PROCEDURE accumulate(v NUMERIC) AS
+    BEGIN
+        total := total + v;
+    END;
+BEGIN
+    -- the first calls of raise_of and audit_emp go through the server, the others are linked
+    FOR i IN lo .. hi LOOP
+        accumulate(raise_of(i));
+        audit_emp(i, note);
+        DBMS_OUTPUT.put_line(i || ': ' || note || ', total ' || total);
+    END LOOP;
+END;
@@ -0,0 +1,30 @@
+CREATE OR REPLACE PROCEDURE sql_record(k INT) AS
+    e emp%ROWTYPE;
+    CURSOR c IS SELECT id, name, sal FROM emp WHERE dept = 50 ORDER BY id;
+    r c%ROWTYPE;
+
+    PROCEDURE show(label VARCHAR, id INT, name VARCHAR, sal NUMERIC) AS
+    BEGIN
+        DBMS_OUTPUT.put_line(label || ' ' || id || ' ' || name || ' ' || sal);
+    END;
+BEGIN
+    SELECT * INTO e FROM emp WHERE id = k;
+    show('emp', e.id, e.name, e.sal);
+
+    e.sal := e.sal + 1;
+    UPDATE emp SET sal = e.sal WHERE id = e.id;
+
+    OPEN c;
+    FETCH c INTO r;
+    WHILE c%FOUND LOOP
+        show('dept 50', r.id, r.name, r.sal);
+        FETCH c INTO r;
+    END LOOP;
+    CLOSE c;
+
+    SELECT * INTO e FROM emp WHERE id = k;
+    show('updated', e.id, e.name, e.sal);
+EXCEPTION
+    WHEN NO_DATA_FOUND THEN
+        DBMS_OUTPUT.put_line('no emp ' || k);
+END;
@@ -0,0 +1,36 @@
+CREATE OR REPLACE PROCEDURE sql_static(d INT) AS
+    n INT;
+    top_sal emp.sal%TYPE;
+    who VARCHAR(100);
+
+    PROCEDURE show(label VARCHAR, v VARCHAR) AS
+    BEGIN
+        IF v IS NULL THEN
+            DBMS_OUTPUT.put_line(label || ' = null');
+        ELSE
+            DBMS_OUTPUT.put_line(label || ' = ' || v);
+        END IF;
+    END;
+BEGIN
+    SELECT COUNT(*) INTO n FROM emp WHERE dept = d;
+    show('count', n);
+
+    UPDATE emp SET sal = sal + 100 WHERE dept = d;
+    show('raised', SQL%ROWCOUNT);
+
+    INSERT INTO emp VALUES (100 + n, 'new' || d, d, 1000);
+    show('inserted', SQL%ROWCOUNT);
+
+    SELECT MAX(sal) INTO top_sal FROM emp WHERE dept = d;
+    show('top', top_sal);
+
+    DELETE FROM emp WHERE dept = d AND sal < 2600;
+    show('deleted', SQL%ROWCOUNT);
+
+    -- TOO_MANY_ROWS is not handled
+    SELECT name INTO who FROM emp WHERE dept = d;
+    show('who', who);
+EXCEPTION
+    WHEN NO_DATA_FOUND THEN
+        show('who', 'no data found');
+END;
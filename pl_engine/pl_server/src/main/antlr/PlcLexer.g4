@@ -100,6 +100,7 @@ FALSE:                        F A L S E ;
 FETCH:                        F E T C H ;
 FLOAT:                        F L O A T ;
 FOR:                          F O R ;
+FORALL:                       F O R A L L ;
 FROM:                         F R O M ;
 FUNCTION:                     F U N C T I O N ;
 HOUR:                         H O U R ;
@@ -137,6 +138,7 @@ OR:                           O R ;
 OR_REPLACE:                   O R SPACE+ R E P L A C E ;
 OUT:                          O U T ;
 OWNER:                        O W N E R ;
+PERCENT_BULK_ROWCOUNT:        '%' SPACE* B U L K '_' R O W C O U N T ;
 PERCENT_FOUND:                '%' SPACE* F O U N D ;
 PERCENT_ISOPEN:               '%' SPACE* I S O P E N ;
 PERCENT_NOTFOUND:             '%' SPACE* N O T F O U N D ;
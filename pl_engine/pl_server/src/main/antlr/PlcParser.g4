@@ -136,6 +136,7 @@ statement
     | procedure_call                        # stmt_proc_call
     | if_statement                          # stmt_if
     | loop_statement                        # stmt_loop
+    | forall_statement                      # stmt_forall
     | case_statement                        # stmt_case
     ;
 
@@ -188,6 +189,10 @@ loop_statement
     | label_declaration? FOR for_static_sql LOOP seq_of_statements END LOOP label_name?    # stmt_for_static_sql_loop
     ;
 
+forall_statement
+    : FORALL index_name IN lower_bound '..' upper_bound static_sql
+    ;
+
  // actually far more complicated according to the Spec.
 iterator
     : index_name IN REVERSE? lower_bound '..' upper_bound (BY step)?
@@ -368,6 +373,7 @@ atom
     | reserved_builtin_func                     # builtin_func
     | case_expression                           # case_exp
     | SQL PERCENT_ROWCOUNT                      # sql_rowcount_exp  // this must go before the cursor_attr_exp line
+    | SQL PERCENT_BULK_ROWCOUNT LPAREN expression RPAREN     # sql_bulk_rowcount_exp
     | cursor_exp ( PERCENT_ISOPEN | PERCENT_FOUND | PERCENT_NOTFOUND | PERCENT_ROWCOUNT )   # cursor_attr_exp
     | LPAREN expression RPAREN                  # paren_exp
     | SQLCODE                                   # sqlcode_exp
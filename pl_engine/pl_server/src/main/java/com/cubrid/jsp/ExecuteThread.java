@@ -31,14 +31,17 @@
 
 package com.cubrid.jsp;
 
+import com.cubrid.jsp.capture.WireCapture;
 import com.cubrid.jsp.classloader.ClassLoaderManager;
 import com.cubrid.jsp.code.CompiledCode;
 import com.cubrid.jsp.code.CompiledCodeSet;
 import com.cubrid.jsp.code.SourceCode;
+import com.cubrid.jsp.compiler.CompileCache;
 import com.cubrid.jsp.compiler.MemoryJavaCompiler;
 import com.cubrid.jsp.context.Context;
 import com.cubrid.jsp.context.ContextManager;
 import com.cubrid.jsp.data.AuthInfo;
+import com.cubrid.jsp.data.BufferPool;
 import com.cubrid.jsp.data.CUBRIDPacker;
 import com.cubrid.jsp.data.CUBRIDUnpacker;
 import com.cubrid.jsp.data.CompileInfo;
@@ -46,12 +49,19 @@ import com.cubrid.jsp.data.CompileRequest;
 import com.cubrid.jsp.data.DataUtilities;
 import com.cubrid.jsp.exception.ExecuteException;
 import com.cubrid.jsp.exception.TypeMismatchException;
+import com.cubrid.jsp.impl.SUStatement;
+import com.cubrid.jsp.metrics.FlightEvent;
+import com.cubrid.jsp.metrics.FlightEvents;
+import com.cubrid.jsp.metrics.MetricsRegistry;
+import com.cubrid.jsp.metrics.RoutineMetrics;
 import com.cubrid.jsp.protocol.BootstrapRequest;
 import com.cubrid.jsp.protocol.Header;
 import com.cubrid.jsp.protocol.PrepareArgs;
 import com.cubrid.jsp.protocol.RequestCode;
+import com.cubrid.jsp.protocol.ServerStatus;
 import com.cubrid.jsp.value.Value;
 import com.cubrid.plcsql.compiler.PlcsqlCompilerMain;
+import com.cubrid.plcsql.compiler.PlcsqlPositionWeaver;
 import com.cubrid.plcsql.predefined.PlcsqlRuntimeError;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
@@ -63,48 +73,92 @@ import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import org.apache.commons.compress.archivers.jar.JarArchiveEntry;
 import org.apache.commons.compress.archivers.jar.JarArchiveOutputStream;
 
-public class ExecuteThread extends Thread {
+/*
+ * An ExecuteThread holds the state of a single CAS/server connection (socket, packer, unpacker, ...)
+ * and handles its requests. It is not bound to a specific java.lang.Thread, it is submitted as a
+ * task to the executor chosen by ServerConfig.getExecutorMode (see ExecutorFactory) and is bound
+ * to the running thread while run() is executing.
+ */
+public class ExecuteThread implements Runnable {
+    private static final ThreadLocal<ExecuteThread> current = new ThreadLocal<ExecuteThread>();
+
     private Socket client;
+    private SocketChannel channel; // null if the socket is not channel-based
 
     private DataInputStream input;
     private DataOutputStream output;
 
+    // reusable buffers of this connection
+    private BufferPool bufferPool = new BufferPool();
+
+    private ByteBuffer resultBuffer; // outbound messages and headers
+    private ByteBuffer requestBuffer; // inbound request (reused unless its payload is queued)
+    private ByteBuffer responseBuffer; // inbound response of a callback (valid until the next one)
+    private ByteBuffer frameSizeBuffer = ByteBuffer.allocate(DataUtilities.INT_BYTES);
+
     /*
-     * TODO: It will be replaced with DirectByteBuffer-based new buffer which
-     * dynamically extended if overflow exists
-     */
-    /*
-     * Since DirectByteBuffer's allocation time is slow, DirectByteBuffer pooling
-     * should be implemented
+     * the frame of the last request, the payload of which has been put into the inbound queue of
+     * its context. the frame belongs to the queue until the payload is taken, and is reused for
+     * the requests after that only (see reclaimRequestBuffer)
      */
-    private ByteBuffer resultBuffer;
+    private ByteBuffer queuedFrame = null;
+    private ByteBuffer queuedPayload = null;
+    private Queue<ByteBuffer> queuedTo = null;
 
     private CUBRIDUnpacker unpacker = new CUBRIDUnpacker();
     private CUBRIDPacker packer;
+    private CUBRIDPacker payloadPacker;
 
     private StoredProcedure storedProcedure = null;
     private PrepareArgs prepareArgs = null;
 
+    /*
+     * the statement whose FETCH has been sent ahead (see SUStatement.prefetch) but not received
+     * yet. the server answers callbacks in order, so the response is received before anything
+     * else is written to the server.
+     */
+    private SUStatement prefetchingStatement = null;
+
+    // records the frames of this connection if enabled (see WireCapture)
+    private WireCapture capture;
+
+    // metrics of the routine being executed by this thread (see MetricsRegistry)
+    private RoutineMetrics routineMetrics = null;
+
     private Context ctx = null;
 
     ExecuteThread(Socket client) throws IOException {
-        super();
         this.client = client;
-        output = new DataOutputStream(new BufferedOutputStream(this.client.getOutputStream()));
 
-        resultBuffer = ByteBuffer.allocate(4096);
+        SocketChannel sc = client.getChannel();
+        if (sc != null && sc.isBlocking()) {
+            channel = sc;
+        } else {
+            output = new DataOutputStream(new BufferedOutputStream(this.client.getOutputStream()));
+        }
+
+        capture = WireCapture.open(Server.getConfig());
+
+        resultBuffer = bufferPool.acquire(4096);
+        packer = new CUBRIDPacker(resultBuffer, bufferPool);
+        payloadPacker = new CUBRIDPacker(bufferPool.acquire(4096), bufferPool);
+    }
 
-        packer = new CUBRIDPacker(resultBuffer);
+    public static ExecuteThread current() {
+        return current.get();
     }
 
     public Socket getSocket() {
@@ -115,19 +169,53 @@ public class ExecuteThread extends Thread {
         return ctx;
     }
 
+    public StoredProcedure getStoredProcedure() {
+        return storedProcedure;
+    }
+
+    public RoutineMetrics getRoutineMetrics() {
+        return routineMetrics;
+    }
+
+    // returns the previous one to be restored when the routine ends
+    public RoutineMetrics setRoutineMetrics(RoutineMetrics metrics) {
+        RoutineMetrics prev = routineMetrics;
+        routineMetrics = metrics;
+        return prev;
+    }
+
     public void closeSocket() {
         try {
-            output.close();
+            if (output != null) {
+                output.close();
+            }
             client.close();
         } catch (IOException e) {
         }
 
         client = null;
+        channel = null;
         output = null;
+
+        if (capture != null) {
+            capture.close();
+            capture = null;
+        }
+
+        bufferPool.clear();
     }
 
     @Override
     public void run() {
+        current.set(this);
+        try {
+            runLoop();
+        } finally {
+            current.remove();
+        }
+    }
+
+    private void runLoop() {
         /* main routine handling stored procedure */
         Header header = null;
         while (!Thread.interrupted()) {
@@ -178,17 +266,10 @@ public class ExecuteThread extends Thread {
                         }
                     case RequestCode.UTIL_STATUS:
                         {
-                            // TODO: create a packable class for status
                             resultBuffer.clear(); /* prepare to put */
                             packer.setBuffer(resultBuffer);
 
-                            packer.packInt(Server.getServer().getServerPort());
-                            packer.packString(Server.getServer().getServerName());
-                            List<String> vm_args = Server.getJVMArguments();
-                            packer.packInt(vm_args.size());
-                            for (String arg : vm_args) {
-                                packer.packString(arg);
-                            }
+                            new ServerStatus().pack(packer);
 
                             resultBuffer = packer.getBuffer();
                             writeBuffer(resultBuffer);
@@ -198,7 +279,7 @@ public class ExecuteThread extends Thread {
                         {
                             // hacky way.. If thread is terminated and socket is closed immediately,
                             // "ping" or "status" command does not work properly
-                            sleep(100);
+                            Thread.sleep(100);
                             Thread.currentThread().interrupt();
                             break;
                         }
@@ -238,20 +319,7 @@ public class ExecuteThread extends Thread {
                             }
                             sendError(msg);
                         } else if (throwable instanceof PlcsqlRuntimeError) {
-                            PlcsqlRuntimeError plcsqlError = (PlcsqlRuntimeError) throwable;
-                            int line = plcsqlError.getLine();
-                            int col = plcsqlError.getColumn();
-                            String errMsg;
-                            if (line == -1 && col == -1) {
-                                // exception was thrown not in the SP code but in the PL engine code
-                                errMsg = String.format("\n  %s", plcsqlError.getMessage());
-                            } else {
-                                errMsg =
-                                        String.format(
-                                                "\n  (line %d, column %d) %s",
-                                                line, col, plcsqlError.getMessage());
-                            }
-                            sendError(errMsg);
+                            sendError(getErrorMessage((PlcsqlRuntimeError) throwable));
                         } else {
                             String msg = throwable.getMessage();
                             if (msg == null) {
@@ -271,8 +339,22 @@ public class ExecuteThread extends Thread {
         closeSocket();
     }
 
+    public static String getErrorMessage(PlcsqlRuntimeError plcsqlError) {
+        int line = plcsqlError.getLine();
+        int col = plcsqlError.getColumn();
+        if (line == -1 && col == -1) {
+            // exception was thrown not in the SP code but in the PL engine code
+            return String.format("\n  %s", plcsqlError.getMessage());
+        } else {
+            return String.format(
+                    "\n  (line %d, column %d) %s", line, col, plcsqlError.getMessage());
+        }
+    }
+
     private Header listenCommand() throws Exception {
-        ByteBuffer inputBuffer = receiveBuffer();
+        reclaimRequestBuffer();
+        requestBuffer = readFrame(requestBuffer);
+        ByteBuffer inputBuffer = requestBuffer;
 
         unpacker.setBuffer(inputBuffer);
 
@@ -287,28 +369,132 @@ public class ExecuteThread extends Thread {
             ByteBuffer payloadBuffer =
                     ByteBuffer.wrap(inputBuffer.array(), startOffset, payloadSize);
 
-            ctx.getInboundQueue().add(payloadBuffer);
+            // handed over to the queue, the next request is read into another buffer
+            queuedFrame = inputBuffer;
+            queuedPayload = payloadBuffer;
+            queuedTo = ctx.getInboundQueue();
+            requestBuffer = null;
+
+            queuedTo.add(payloadBuffer);
         }
 
         return header;
     }
 
+    /* called before reading a request, when the previous one has been processed */
+    private void reclaimRequestBuffer() {
+        if (queuedFrame == null) {
+            return;
+        }
+
+        boolean taken = true;
+        for (ByteBuffer b : queuedTo) {
+            if (b == queuedPayload) {
+                taken = false; // not read by its request, e.g. failed before: left to the queue
+                break;
+            }
+        }
+        if (taken) {
+            bufferPool.release(requestBuffer);
+            requestBuffer = queuedFrame;
+        }
+
+        queuedFrame = null;
+        queuedPayload = null;
+        queuedTo = null;
+    }
+
+    /*
+     * The returned buffer is reused by the next call, callers should consume (or copy) it before
+     * receiving another response
+     */
     public ByteBuffer receiveBuffer() throws IOException {
+        responseBuffer = readFrame(responseBuffer);
+        if (routineMetrics != null) {
+            routineMetrics.addBytesIn(responseBuffer.limit());
+        }
+        return responseBuffer;
+    }
+
+    private ByteBuffer readFrame(ByteBuffer reuse) throws IOException {
         if (input == null) {
             input = new DataInputStream(new BufferedInputStream(this.client.getInputStream()));
         }
 
         int size = input.readInt(); // size
-        byte[] bytes = new byte[size];
-        input.readFully(bytes);
+        ByteBuffer frame = reuse;
+        if (frame == null || frame.capacity() < size) {
+            bufferPool.release(frame);
+            frame = bufferPool.acquire(size);
+        }
+
+        frame.clear();
+        input.readFully(frame.array(), frame.arrayOffset(), size);
+        frame.limit(size);
+
+        if (capture != null) {
+            capture.record(WireCapture.IN, frame.array(), frame.arrayOffset(), size);
+        }
 
-        return ByteBuffer.wrap(bytes);
+        return frame;
     }
 
     private void writeBuffer(ByteBuffer buffer) throws IOException {
-        output.writeInt(buffer.position());
-        output.write(buffer.array(), 0, buffer.position());
-        output.flush();
+        writeFrame(buffer, null);
+    }
+
+    /* writes [size][header][payload] without copying the payload into the header's buffer */
+    private void writeFrame(ByteBuffer header, ByteBuffer payload) throws IOException {
+        int headerSize = header.position();
+        int payloadSize = (payload != null) ? payload.position() : 0;
+
+        if (capture != null) {
+            capture.record(
+                    WireCapture.OUT,
+                    header.array(),
+                    header.arrayOffset(),
+                    headerSize,
+                    (payload != null) ? payload.array() : null,
+                    (payload != null) ? payload.arrayOffset() : 0,
+                    payloadSize);
+        }
+
+        if (channel != null) {
+            frameSizeBuffer.clear();
+            frameSizeBuffer.putInt(headerSize + payloadSize);
+            frameSizeBuffer.flip();
+
+            ByteBuffer headerSrc = header.duplicate();
+            headerSrc.flip();
+
+            ByteBuffer payloadSrc;
+            if (payload != null) {
+                payloadSrc = payload.duplicate();
+                payloadSrc.flip();
+            } else {
+                payloadSrc = ByteBuffer.allocate(0);
+            }
+
+            ByteBuffer[] srcs = {frameSizeBuffer, headerSrc, payloadSrc};
+            while (payloadSrc.hasRemaining()
+                    || headerSrc.hasRemaining()
+                    || frameSizeBuffer.hasRemaining()) {
+                channel.write(srcs);
+            }
+        } else {
+            output.writeInt(headerSize + payloadSize);
+            output.write(header.array(), header.arrayOffset(), headerSize);
+            if (payloadSize > 0) {
+                output.write(payload.array(), payload.arrayOffset(), payloadSize);
+            }
+            output.flush();
+        }
+    }
+
+    /* packer for the payload of sendCommand (), valid until the next call */
+    public CUBRIDPacker getPayloadPacker() {
+        payloadPacker.getBuffer().clear();
+        return payloadPacker;
     }
 
     public CUBRIDUnpacker getUnpacker() {
@@ -320,16 +506,20 @@ public class ExecuteThread extends Thread {
         if (paramCnt > 0) {
             for (int i = 0; i < paramCnt; i++) {
                 SysParam sysParam = new SysParam(unpacker);
-                ctx.getSystemParameters().put(sysParam.getParamId(), sysParam);
+                ctx.setSystemParameter(sysParam);
             }
         }
     }
 
     private void processStoredProcedure() throws Exception {
-        unpacker.setBuffer(ctx.getInboundQueue().take());
+        FlightEvent event = FlightEvents.INVOKE.begin();
+        ByteBuffer request = ctx.getInboundQueue().take();
+        int requestSize = request.remaining();
+        unpacker.setBuffer(request);
 
         // session parameters
         readSessionParameter(unpacker);
+        ctx.getSessionSettings(); // snapshot of them for the operators of PL/CSQL (see SpLib)
 
         // prepare
         if (prepareArgs == null) {
@@ -345,10 +535,40 @@ public class ExecuteThread extends Thread {
 
         StoredProcedure procedure = makeStoredProcedure(unpacker);
 
-        Value result = procedure.invoke();
+        RoutineLinkCache routineLinks = ctx.getRoutineLinkCache();
+        routineLinks.link(procedure, ctx.getTransactionControl());
+
+        RoutineMetrics metrics =
+                MetricsRegistry.getInstance().getRoutineMetrics(procedure.getSignature());
+        metrics.addBytesIn(requestSize);
+        RoutineMetrics prevMetrics = setRoutineMetrics(metrics);
+        try {
+            Value result;
+            boolean failed = true;
+            long start = System.nanoTime();
+            routineLinks.enter();
+            try {
+                result = procedure.invoke();
+                failed = false;
+            } finally {
+                metrics.recordCall(System.nanoTime() - start, failed);
+                routineLinks.exit();
+                ctx.returnCachedStatements(this);
+            }
 
-        /* send results */
-        sendResult(result, procedure);
+            /* send results */
+            sendResult(result, procedure);
+        } finally {
+            setRoutineMetrics(prevMetrics);
+
+            if (event != null) {
+                Value[] args = procedure.getArgs();
+                event.set(FlightEvents.INVOKE_SIGNATURE, procedure.getSignature())
+                        .set(FlightEvents.INVOKE_LANG, procedure.getLang())
+                        .set(FlightEvents.INVOKE_ARG_COUNT, (args == null) ? 0 : args.length)
+                        .commit();
+            }
+        }
     }
 
     private void writeJar(CompiledCodeSet codeSet, OutputStream jarStream) throws IOException {
@@ -386,10 +606,12 @@ public class ExecuteThread extends Thread {
         unpacker.setBuffer(ctx.getInboundQueue().take());
 
         int result = 1; // failed
+        int features = 0;
         try {
             BootstrapRequest request = new BootstrapRequest(unpacker);
             Server.bootstrap(request);
             result = 0; // no error
+            features = request.getFeatures() & BootstrapRequest.SUPPORTED_FEATURES;
         } catch (Exception e) {
             // ignore, 1 will be returned
             Server.log(e);
@@ -398,6 +620,7 @@ public class ExecuteThread extends Thread {
         resultBuffer.clear(); /* prepare to put */
         packer.setBuffer(resultBuffer);
         packer.packInt(result);
+        packer.packInt(features); // the features accepted, ignored by a server of an older version
         resultBuffer = packer.getBuffer();
         writeBuffer(resultBuffer);
     }
@@ -415,15 +638,18 @@ public class ExecuteThread extends Thread {
         if (request.mode.contains("v")) {
             verbose = true;
         }
+        boolean bytecode = request.mode.contains("b") || Server.getConfig().isBytecodeBackend();
         String inSource = request.code;
         String owner = request.owner;
 
+        // a routine being re-created must not be called through a link to its old code
+        ctx.getRoutineLinkCache().clear();
+
         CompileInfo info = null;
+        long start = System.nanoTime();
         try {
-            info = PlcsqlCompilerMain.compilePLCSQL(inSource, owner, verbose);
+            info = PlcsqlCompilerMain.compilePLCSQL(inSource, owner, verbose, bytecode);
             if (info.errCode == 0) {
-                MemoryJavaCompiler compiler = new MemoryJavaCompiler();
-                SourceCode sCode = new SourceCode(info.className, info.translated);
 
                 // dump translated code into $CUBRID_TMP
                 if (Context.getSystemParameterBool(SysParam.STORED_PROCEDURE_DUMP_ICODE)) {
@@ -433,31 +659,86 @@ public class ExecuteThread extends Thread {
                         Files.createDirectories(dirPath);
                     }
 
+                    String translated = info.translated;
+                    if (info.classFiles != null) {
+                        // the class files in use are dumped, too, as they are not compiled from
+                        // the Java code
+                        translated =
+                                "// NOTE: not the source of the class files in use, which are"
+                                        + " generated directly from the PL/CSQL program\n"
+                                        + translated;
+                        for (Map.Entry<String, byte[]> e : info.classFiles.entrySet()) {
+                            Files.write(dirPath.resolve(e.getKey() + ".class"), e.getValue());
+                        }
+                    }
                     Path path = dirPath.resolve(info.className + ".java");
-                    Files.write(path, info.translated.getBytes(Context.getSessionCharset()));
+                    Files.write(path, translated.getBytes(Context.getSessionCharset()));
                 }
 
-                CompiledCodeSet codeSet = compiler.compile(sCode);
+                if (info.compiledCode == null) {
+                    CompiledCodeSet codeSet;
+                    if (info.classFiles != null) {
+                        // already made by the PL/CSQL compiler
+                        List<CompiledCode> codes = new ArrayList<>();
+                        for (Map.Entry<String, byte[]> e : info.classFiles.entrySet()) {
+                            CompiledCode code = new CompiledCode(e.getKey());
+                            code.openOutputStream().write(e.getValue());
+                            codes.add(code);
+                        }
+                        codeSet = new CompiledCodeSet(info.className, codes);
+                    } else {
+                        MemoryJavaCompiler compiler = MemoryJavaCompiler.getInstance();
+                        SourceCode sCode = new SourceCode(info.className, info.translated);
+
+                        FlightEvent event = FlightEvents.COMPILE_STAGE.begin();
+                        long t0 = System.currentTimeMillis();
+                        codeSet = compiler.compile(sCode);
+                        if (event != null) {
+                            event.set(FlightEvents.COMPILE_STAGE_STAGE, "javac")
+                                    .set(FlightEvents.COMPILE_STAGE_UNIT, info.className)
+                                    .commit();
+                        }
+
+                        if (verbose) {
+                            // follows the timing log of PlcsqlCompilerMain
+                            Server.log(
+                                    info.className
+                                            + String.format(
+                                                    "\n%7d : %s",
+                                                    (System.currentTimeMillis() - t0),
+                                                    "Java compilation"));
+                        }
+                    }
 
-                int mode = 1; // 0: temp file mode, 1: memory stream mode
-                byte[] data = null;
+                    // handlers setting the PL/CSQL positions of the errors thrown in the program
+                    codeSet = PlcsqlPositionWeaver.weave(codeSet);
+
+                    int mode = 1; // 0: temp file mode, 1: memory stream mode
+                    byte[] data = null;
+
+                    // write to persistent
+                    if (mode == 0) {
+                        Path jarPath =
+                                ClassLoaderManager.getDynamicPath()
+                                        .resolve(info.className + ".jar");
+                        OutputStream jarStream = Files.newOutputStream(jarPath);
+                        writeJar(codeSet, jarStream);
+                        data = Files.readAllBytes(jarPath);
+                        Files.deleteIfExists(jarPath);
+                    } else {
+                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                        writeJar(codeSet, baos);
+                        data = baos.toByteArray();
+                    }
 
-                // write to persistent
-                if (mode == 0) {
-                    Path jarPath =
-                            ClassLoaderManager.getDynamicPath().resolve(info.className + ".jar");
-                    OutputStream jarStream = Files.newOutputStream(jarPath);
-                    writeJar(codeSet, jarStream);
-                    data = Files.readAllBytes(jarPath);
-                    Files.deleteIfExists(jarPath);
-                } else {
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    writeJar(codeSet, baos);
-                    data = baos.toByteArray();
-                }
+                    info.compiledType = 1; // TODO: always jar
+                    info.compiledCode = Base64.getEncoder().encode(data);
 
-                info.compiledType = 1; // TODO: always jar
-                info.compiledCode = Base64.getEncoder().encode(data);
+                    CompileCache cache = CompileCache.getInstance();
+                    if (cache != null && info.cacheKey != null) {
+                        cache.put(info.cacheKey, info);
+                    }
+                } // else, found in CompileCache
             }
         } catch (Exception e) {
             boolean hasExceptionMessage = (e.getMessage() != null && !e.getMessage().isEmpty());
@@ -468,10 +749,13 @@ public class ExecuteThread extends Thread {
                             0,
                             hasExceptionMessage ? e.getMessage() : "unknown compile error");
         } finally {
-            CUBRIDPacker packer = new CUBRIDPacker(ByteBuffer.allocate(1024));
+            MetricsRegistry.getInstance()
+                    .recordCompile(System.nanoTime() - start, info.errCode != 0);
+
+            CUBRIDPacker packer = getPayloadPacker();
 
             info.pack(packer);
-            Context.getCurrentExecuteThread().sendCommand(RequestCode.COMPILE, packer.getBuffer());
+            sendCommand(RequestCode.COMPILE, packer.getBuffer());
         }
     }
 
@@ -512,6 +796,8 @@ public class ExecuteThread extends Thread {
 
     private void sendResult(Value result, StoredProcedure procedure)
             throws IOException, ExecuteException, TypeMismatchException {
+        completePrefetch();
+
         resultBuffer.clear(); /* prepare to put */
         packer.setBuffer(resultBuffer);
 
@@ -522,33 +808,57 @@ public class ExecuteThread extends Thread {
 
         resultBuffer = packer.getBuffer();
         writeBuffer(resultBuffer);
+
+        if (routineMetrics != null) {
+            routineMetrics.addBytesOut(resultBuffer.position());
+        }
     }
 
     public void sendCommand(int code, ByteBuffer buffer) throws IOException {
+        completePrefetch();
+
         resultBuffer.clear(); /* prepare to put */
         packer.setBuffer(resultBuffer);
 
         packer.packInt(code);
         packer.align(DataUtilities.MAX_ALIGNMENT);
-        packer.packPrimitiveBytes(buffer);
 
         resultBuffer = packer.getBuffer();
-        writeBuffer(resultBuffer);
+        writeFrame(resultBuffer, buffer);
+
+        if (routineMetrics != null) {
+            routineMetrics.addBytesOut(resultBuffer.position() + buffer.position());
+        }
     }
 
     public void sendCommand(ByteBuffer buffer) throws IOException {
-        resultBuffer.clear(); /* prepare to put */
-        packer.setBuffer(resultBuffer);
+        sendCommand(RequestCode.INTERNAL_JDBC, buffer);
 
-        packer.packInt(RequestCode.INTERNAL_JDBC);
-        packer.align(DataUtilities.MAX_ALIGNMENT);
-        packer.packPrimitiveBytes(buffer);
+        if (routineMetrics != null) {
+            // the payload of INTERNAL_JDBC starts with SUFunctionCode
+            routineMetrics.recordRoundTrip(buffer.getInt(0));
+        }
+    }
 
-        resultBuffer = packer.getBuffer();
-        writeBuffer(resultBuffer);
+    /* sends a FETCH without waiting for its response, see completePrefetch () */
+    public void sendPrefetch(SUStatement stmt, ByteBuffer buffer) throws IOException {
+        sendCommand(buffer);
+        prefetchingStatement = stmt;
+    }
+
+    public void completePrefetch() throws IOException {
+        if (prefetchingStatement == null) {
+            return;
+        }
+
+        SUStatement stmt = prefetchingStatement;
+        prefetchingStatement = null;
+        stmt.receivePrefetch(receiveBuffer());
     }
 
     private void sendError(String exception) throws IOException {
+        completePrefetch();
+
         resultBuffer.clear();
         packer.setBuffer(resultBuffer);
 
@@ -562,13 +872,13 @@ public class ExecuteThread extends Thread {
 
     private void sendAuthCommand(int command, String authName) throws Exception {
         AuthInfo info = new AuthInfo(command, authName);
-        CUBRIDPacker packer = new CUBRIDPacker(ByteBuffer.allocate(128));
+        CUBRIDPacker packer = getPayloadPacker();
         packer.packInt(RequestCode.REQUEST_CHANGE_AUTH_RIGHTS);
         info.pack(packer);
-        Context.getCurrentExecuteThread().sendCommand(packer.getBuffer());
+        sendCommand(packer.getBuffer());
 
-        ByteBuffer responseBuffer = Context.getCurrentExecuteThread().receiveBuffer();
-        CUBRIDUnpacker unpacker = new CUBRIDUnpacker(responseBuffer);
+        ByteBuffer response = receiveBuffer();
+        CUBRIDUnpacker unpacker = new CUBRIDUnpacker(response);
         /* read header, dummy */
         Header header = new Header(unpacker);
         ByteBuffer payload = unpacker.unpackBuffer();
@@ -0,0 +1,141 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+package com.cubrid.jsp;
+
+import com.cubrid.jsp.metrics.MetricsRegistry;
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/*
+ * Creates the executor which runs ExecuteThread (a connection) tasks
+ * - thread: a new platform thread per connection (default), idle threads are reused for a while
+ * - pool: a bounded pool of platform threads, idle threads are reclaimed. Connections beyond the
+ *   threads and the queue (-Dcubrid.pl.executor.queue_size) are refused by closing their sockets
+ * - virtual: a virtual thread per connection (JDK 21+), falls back to thread mode otherwise
+ */
+public class ExecutorFactory {
+
+    private static final long POOL_KEEP_ALIVE_SECONDS = 60L;
+
+    private ExecutorFactory() {
+        //
+    }
+
+    public static ExecutorService create(ServerConfig config) {
+        String mode = config.getExecutorMode();
+        if (ServerConfig.EXECUTOR_POOL.equalsIgnoreCase(mode)) {
+            return newBoundedPool(config.getExecutorMaxThreads(), config.getExecutorQueueSize());
+        } else if (ServerConfig.EXECUTOR_VIRTUAL.equalsIgnoreCase(mode)) {
+            ExecutorService virtual = newVirtualThreadPerTask();
+            if (virtual != null) {
+                return virtual;
+            }
+            Server.log("virtual threads are not supported by this JVM, fall back to thread mode");
+        } else if (!ServerConfig.EXECUTOR_THREAD.equalsIgnoreCase(mode)) {
+            Server.log("unknown executor mode (" + mode + "), fall back to thread mode");
+        }
+
+        return Executors.newCachedThreadPool(new ExecuteThreadFactory());
+    }
+
+    private static ExecutorService newBoundedPool(int maxThreads, int queueSize) {
+        BlockingQueue<Runnable> queue =
+                (queueSize > 0)
+                        ? new ArrayBlockingQueue<Runnable>(queueSize)
+                        : new SynchronousQueue<Runnable>();
+        ThreadPoolExecutor pool =
+                new ThreadPoolExecutor(
+                        maxThreads,
+                        maxThreads,
+                        POOL_KEEP_ALIVE_SECONDS,
+                        TimeUnit.SECONDS,
+                        queue,
+                        new ExecuteThreadFactory(),
+                        new RefuseConnection());
+        pool.allowCoreThreadTimeOut(true);
+        MetricsRegistry.getInstance().setExecutorPool(pool);
+        return pool;
+    }
+
+    private static ExecutorService newVirtualThreadPerTask() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (Exception e) {
+            // NoSuchMethodException: JDK < 21
+            return null;
+        }
+    }
+
+    // a connection is held by a thread until the CAS disconnects, so that a connection beyond the
+    // pool may wait indefinitely. It is refused instead, and the CAS gets an error at once.
+    private static class RefuseConnection implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor pool) {
+            if (pool.isShutdown()) {
+                // ListenerThread stops accepting
+                throw new RejectedExecutionException("executor is shut down");
+            }
+
+            MetricsRegistry.getInstance().recordRejectedConnection();
+            Server.log(
+                    Level.WARNING,
+                    "connection refused: all "
+                            + pool.getMaximumPoolSize()
+                            + " threads and the queue of the pool are in use");
+            if (r instanceof ExecuteThread) {
+                ((ExecuteThread) r).closeSocket();
+            }
+        }
+    }
+
+    private static class ExecuteThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "ExecuteThread-" + threadNumber.getAndIncrement());
+            t.setDaemon(false);
+            return t;
+        }
+    }
+}
@@ -34,14 +34,18 @@ package com.cubrid.jsp;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 public class ListenerThread extends Thread {
 
     private ServerSocket serverSocket = null;
+    private ExecutorService executor = null;
 
-    ListenerThread(ServerSocket serverSocket) {
+    ListenerThread(ServerSocket serverSocket, ExecutorService executor) {
         super();
         this.serverSocket = serverSocket;
+        this.executor = executor;
     }
 
     @Override
@@ -51,14 +55,20 @@ public class ListenerThread extends Thread {
             try {
                 client = serverSocket.accept();
                 client.setTcpNoDelay(true);
-                Thread execThread = new ExecuteThread(client);
-                execThread.start();
+                executor.execute(new ExecuteThread(client));
+            } catch (RejectedExecutionException e) {
+                // executor is shut down
+                Server.log(e);
+                closeClient(client);
+                break;
             } catch (IOException e) {
                 Server.log(e);
                 break;
             }
         }
 
+        executor.shutdown();
+
         try {
             serverSocket.close();
         } catch (IOException e) {
@@ -67,6 +77,20 @@ public class ListenerThread extends Thread {
         serverSocket = null;
     }
 
+    private void closeClient(Socket client) {
+        if (client != null) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                // do nothing
+            }
+        }
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
     public ServerSocket getServerSocket() {
         return serverSocket;
     }
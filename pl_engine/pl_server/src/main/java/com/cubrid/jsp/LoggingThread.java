@@ -32,56 +32,304 @@
 package com.cubrid.jsp;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.logging.FileHandler;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
+/*
+ * Asynchronous logger of the PL server.
+ *
+ * Callers only put a record into a bounded ring buffer (no formatting, no I/O). A record is dropped
+ * and counted when the buffer is full. The logging thread drains the buffer in batches, formats the
+ * records, limits the number of records per origin (the throw site for a Throwable) and prints a
+ * repeated stack trace only once, then writes the whole batch with a single flush.
+ */
 public class LoggingThread extends Thread {
-    private final Logger logger = Logger.getLogger("com.cubrid.jsp");
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final long RATE_LIMIT_WINDOW_MILLIS = 1000;
+    private static final long DEDUP_WINDOW_MILLIS = 60 * 1000;
+    private static final int MAX_TRACKED_ENTRIES = 1024;
+
+    private static class LogRecord {
+        final long millis;
+        final Level level;
+        final String threadName;
+        final String message;
+        final Throwable thrown;
+
+        LogRecord(Level level, String message, Throwable thrown) {
+            this.millis = System.currentTimeMillis();
+            this.level = level;
+            this.threadName = Thread.currentThread().getName();
+            this.message = message;
+            this.thrown = thrown;
+        }
+    }
+
+    // records logged from an origin during the current rate limit window
+    private static class OriginState {
+        long windowStart;
+        int logged;
+        int suppressed;
+    }
 
-    private boolean isRunning = false;
-    private FileHandler logHandler = null;
-    private LinkedBlockingQueue<String> logQueue = new LinkedBlockingQueue<String>();
-    private Level logginLevel = Level.SEVERE;
+    // the first time a stack trace was printed and how many times it was repeated since
+    private static class TraceState {
+        final int traceId;
+        long printedAt;
+        int repeated;
 
-    public LoggingThread(Path path) throws SecurityException, IOException {
-        super();
-        logHandler = new FileHandler(path.toAbsolutePath().toString(), true);
-        logger.addHandler(logHandler);
+        TraceState(int traceId) {
+            this.traceId = traceId;
+        }
+    }
+
+    private volatile boolean isRunning = false;
+    private final Path logPath;
+    private final Level loggingLevel;
+    private final int rateLimit; // max records per origin in a window, 0 for no limit
+    private final ArrayBlockingQueue<LogRecord> logQueue;
+    private final AtomicLong droppedCount = new AtomicLong(0);
+
+    // the followings are accessed only by the logging thread
+    private Writer writer = null;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    private final Map<String, OriginState> origins = new BoundedMap<String, OriginState>();
+    private final Map<Integer, TraceState> traces = new BoundedMap<Integer, TraceState>();
+    private int lastTraceId = 0;
+    private long reportedDropCount = 0;
+
+    public LoggingThread(Path path, Level level, int bufferSize, int rateLimit)
+            throws SecurityException, IOException {
+        super("PL-Logger");
+        setDaemon(true);
+        this.logPath = path.toAbsolutePath();
+        this.loggingLevel = level;
+        this.rateLimit = rateLimit;
+        this.logQueue = new ArrayBlockingQueue<LogRecord>(bufferSize);
+        this.writer =
+                Files.newBufferedWriter(
+                        logPath,
+                        StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
     }
 
     @Override
     public void run() {
         isRunning = true;
+        List<LogRecord> batch = new ArrayList<LogRecord>(MAX_BATCH_SIZE);
         while (Thread.interrupted() == false) {
             try {
-                String logString = logQueue.take();
-                logger.log(logginLevel, logString);
+                batch.add(logQueue.take());
+                logQueue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                writeBatch(batch);
             } catch (InterruptedException e) {
                 break;
+            } finally {
+                batch.clear();
             }
         }
 
-        if (logHandler != null) {
-            try {
-                isRunning = false;
-                logHandler.close();
-                logger.removeHandler(logHandler);
-            } catch (Throwable e) {
-            }
+        // write what is left in the buffer
+        isRunning = false;
+        logQueue.drainTo(batch);
+        writeBatch(batch);
+
+        try {
+            writer.close();
+        } catch (Throwable e) {
         }
     }
 
+    public boolean isLoggable(Level level) {
+        return level.intValue() >= loggingLevel.intValue() && loggingLevel != Level.OFF;
+    }
+
     public void log(String str) {
-        try {
-            logQueue.put(str);
-        } catch (InterruptedException e) {
+        log(Level.INFO, str);
+    }
+
+    public void log(Level level, String str) {
+        if (isLoggable(level)) {
+            enqueue(new LogRecord(level, str, null));
         }
     }
 
+    public void log(Level level, Throwable ex) {
+        if (isLoggable(level)) {
+            enqueue(new LogRecord(level, null, ex));
+        }
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
     public boolean isRunning() {
         return isRunning;
     }
+
+    private void enqueue(LogRecord record) {
+        if (!logQueue.offer(record)) {
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    private void writeBatch(List<LogRecord> batch) {
+        try {
+            for (LogRecord record : batch) {
+                if (isRateLimited(record)) {
+                    continue;
+                }
+                writeRecord(record);
+            }
+
+            long dropped = droppedCount.get();
+            if (dropped != reportedDropCount) {
+                writeLine(
+                        System.currentTimeMillis(),
+                        Level.WARNING,
+                        getName(),
+                        (dropped - reportedDropCount)
+                                + " log records were dropped because the log buffer was full");
+                reportedDropCount = dropped;
+            }
+
+            writer.flush();
+        } catch (IOException e) {
+            // nowhere to report it
+        }
+    }
+
+    private boolean isRateLimited(LogRecord record) throws IOException {
+        if (rateLimit <= 0 || record.thrown == null) {
+            return false;
+        }
+
+        String origin = getOrigin(record.thrown);
+        OriginState state = origins.get(origin);
+        if (state == null) {
+            state = new OriginState();
+            state.windowStart = record.millis;
+            origins.put(origin, state);
+        } else if (record.millis - state.windowStart >= RATE_LIMIT_WINDOW_MILLIS) {
+            if (state.suppressed > 0) {
+                writeLine(
+                        record.millis,
+                        Level.WARNING,
+                        getName(),
+                        state.suppressed + " log records from " + origin + " were suppressed");
+            }
+            state.windowStart = record.millis;
+            state.logged = 0;
+            state.suppressed = 0;
+        }
+
+        if (state.logged >= rateLimit) {
+            state.suppressed++;
+            return true;
+        }
+
+        state.logged++;
+        return false;
+    }
+
+    private void writeRecord(LogRecord record) throws IOException {
+        if (record.thrown == null) {
+            writeLine(record.millis, record.level, record.threadName, record.message);
+            return;
+        }
+
+        Throwable ex = record.thrown;
+        int hash = getTraceHash(ex);
+        TraceState state = traces.get(hash);
+        if (state != null && record.millis - state.printedAt < DEDUP_WINDOW_MILLIS) {
+            state.repeated++;
+            writeLine(
+                    record.millis,
+                    record.level,
+                    record.threadName,
+                    ex.toString()
+                            + " (stack trace #"
+                            + state.traceId
+                            + ", repeated "
+                            + state.repeated
+                            + " times)");
+            return;
+        }
+
+        if (state == null) {
+            state = new TraceState(++lastTraceId);
+            traces.put(hash, state);
+        }
+        state.printedAt = record.millis;
+        state.repeated = 0;
+
+        writeLine(record.millis, record.level, record.threadName, "stack trace #" + state.traceId);
+        ex.printStackTrace(new PrintWriter(writer));
+    }
+
+    private void writeLine(long millis, Level level, String threadName, String message)
+            throws IOException {
+        writer.write(dateFormat.format(new Date(millis)));
+        writer.write(" [");
+        writer.write(threadName);
+        writer.write("] ");
+        writer.write(level.getName());
+        writer.write(": ");
+        writer.write(String.valueOf(message));
+        writer.write(System.lineSeparator());
+    }
+
+    private static String getOrigin(Throwable ex) {
+        StackTraceElement[] trace = ex.getStackTrace();
+        if (trace.length == 0) {
+            return ex.getClass().getName();
+        }
+        return ex.getClass().getName() + " at " + trace[0];
+    }
+
+    // the causes are visited once each, as Throwable.printStackTrace() does, even if they make a
+    // cycle (e.g. initCause() called with an exception caused by this one)
+    private static int getTraceHash(Throwable ex) {
+        Set<Throwable> visited =
+                Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+        int hash = 1;
+        for (Throwable t = ex; t != null && visited.add(t); t = t.getCause()) {
+            hash = 31 * hash + t.getClass().getName().hashCode();
+            hash = 31 * hash + Arrays.hashCode(t.getStackTrace());
+        }
+        return hash;
+    }
+
+    // LRU map to keep the state of the recent origins and stack traces only
+    private static class BoundedMap<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        BoundedMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > MAX_TRACKED_ENTRIES;
+        }
+    }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2008 Search Solution Corporation.
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp;
+
+import com.cubrid.jsp.metrics.MetricsRegistry;
+import com.cubrid.jsp.metrics.RoutineMetrics;
+import com.cubrid.plcsql.predefined.PlcsqlRuntimeError;
+import java.lang.invoke.MethodHandle;
+
+/*
+ * A PL/CSQL routine which another PL/CSQL routine calls directly in this JVM instead of going
+ * through the server with a CALL statement. It is made from an INVOKE_SP request of the routine,
+ * after the server has resolved the name, checked the authorization and the class loader has
+ * validated the code. See RoutineLinkCache.
+ */
+public class RoutineLink {
+    private final String authUser;
+    private final boolean transactionControl;
+    private final Class<?> targetClass;
+    private final TargetMethod target;
+    private final Class<?> returnType;
+    private final RoutineMetrics metrics;
+
+    RoutineLink(StoredProcedure procedure, boolean transactionControl) throws Exception {
+        this.authUser = procedure.getAuthUser();
+        this.transactionControl = transactionControl;
+        this.targetClass = procedure.getTargetClass();
+        this.target = procedure.getTarget();
+        this.returnType = target.getMethod(targetClass).getReturnType();
+        this.metrics = MetricsRegistry.getInstance().getRoutineMetrics(procedure.getSignature());
+    }
+
+    public String getAuthUser() {
+        return authUser;
+    }
+
+    public boolean getTransactionControl() {
+        return transactionControl;
+    }
+
+    public RoutineMetrics getMetrics() {
+        return metrics;
+    }
+
+    // check if the arguments and the return type built by the caller fit the target method
+    public boolean accepts(Class<?> retType, Object[] args) {
+        if (retType != returnType) {
+            return false;
+        }
+
+        Class<?>[] argsTypes = target.getArgsTypes();
+        if (argsTypes.length != args.length) {
+            return false;
+        }
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] != null && !argsTypes[i].isInstance(args[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public Object invoke(Object[] args) throws Throwable {
+        MethodHandle mh = target.getMethodHandle(targetClass);
+        boolean inLegacy =
+                PlcsqlRuntimeError.setInLegacyClass(PlcsqlRuntimeError.isLegacyClass(targetClass));
+        try {
+            return (Object) mh.invokeExact(args);
+        } finally {
+            PlcsqlRuntimeError.setInLegacyClass(inLegacy);
+        }
+    }
+}
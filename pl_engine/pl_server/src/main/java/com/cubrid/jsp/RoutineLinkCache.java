@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2008 Search Solution Corporation.
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * (auth user, routine name) => RoutineLink, valid in the current transaction like the classes in
+ * SessionClassLoaderManager.
+ *
+ * A PL/CSQL routine calls another one with a CALL statement at first. Right before executing it,
+ * the caller tells the name of the callee with expect(). The first INVOKE_SP request which arrives
+ * for the session after that is the one of the callee, and link() keeps it as a RoutineLink if
+ * the callee is also a PL/CSQL routine running with the same auth user. Later calls in the same
+ * transaction invoke the linked method directly.
+ */
+public class RoutineLinkCache {
+
+    // METHOD_MAX_RECURSION_DEPTH in sp_constants.hpp
+    private static final int MAX_DEPTH = 15;
+
+    private HashMap<String, RoutineLink> links;
+
+    // callee expected by a caller: set by the caller's thread, consumed by the callee's thread
+    private String expectedAuthUser = null;
+    private String expectedName = null;
+
+    // number of routines running in the session
+    private final AtomicInteger depth = new AtomicInteger(0);
+
+    public RoutineLinkCache() {
+        links = new HashMap<String, RoutineLink>();
+    }
+
+    private static String getKey(String authUser, String name) {
+        return authUser + " " + name;
+    }
+
+    public synchronized RoutineLink get(String authUser, String name) {
+        if (depth.get() >= MAX_DEPTH) {
+            // let the server check the nesting level
+            return null;
+        }
+
+        return links.get(getKey(authUser, name));
+    }
+
+    public synchronized void expect(String authUser, String name) {
+        expectedAuthUser = authUser;
+        expectedName = name;
+    }
+
+    public synchronized void cancelExpect() {
+        expectedAuthUser = null;
+        expectedName = null;
+    }
+
+    public synchronized void link(StoredProcedure procedure, boolean transactionControl) {
+        String authUser = expectedAuthUser;
+        String name = expectedName;
+        if (name == null) {
+            return;
+        }
+        cancelExpect();
+
+        if (!procedure.isPlcsql()) {
+            // Java SPs are always called through the server
+            return;
+        }
+
+        // a PL/CSQL routine is translated into a static method with the same name
+        String methodName = procedure.getTarget().getSignature().getMethodName();
+        if (!name.substring(name.lastIndexOf('.') + 1).equalsIgnoreCase(methodName)) {
+            return;
+        }
+
+        if (!authUser.equals(procedure.getAuthUser())) {
+            // the callee runs with another user (AUTHID)
+            return;
+        }
+
+        try {
+            links.put(getKey(authUser, name), new RoutineLink(procedure, transactionControl));
+        } catch (Exception e) {
+            // keep calling it through the server
+        }
+    }
+
+    public void enter() {
+        depth.incrementAndGet();
+    }
+
+    public void exit() {
+        depth.decrementAndGet();
+    }
+
+    public synchronized void clear() {
+        cancelExpect();
+        links.clear();
+    }
+}
@@ -34,16 +34,17 @@ package com.cubrid.jsp;
 import com.cubrid.jsp.classloader.ClassLoaderManager;
 import com.cubrid.jsp.protocol.BootstrapRequest;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.StringWriter;
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.newsclub.net.unix.AFUNIXServerSocket;
 import org.newsclub.net.unix.AFUNIXSocketAddress;
@@ -103,7 +104,12 @@ public class Server {
             Files.createFile(logPath);
         }
 
-        loggingThread = new LoggingThread(logPath);
+        loggingThread =
+                new LoggingThread(
+                        logPath,
+                        config.getLogLevel(),
+                        config.getLogBufferSize(),
+                        config.getLogRateLimit());
         loggingThread.start();
     }
 
@@ -125,11 +131,13 @@ public class Server {
             portNumber = PORT_NUMBER_UDS;
         } else {
             portNumber = Integer.parseInt(config.getSocketInfo());
-            serverSocket = new ServerSocket(portNumber);
+            // channel-based to write the header and the payload with a gathering write
+            serverSocket = ServerSocketChannel.open().socket();
+            serverSocket.bind(new InetSocketAddress(portNumber));
             portNumber = serverSocket.getLocalPort();
         }
 
-        socketListener = new ListenerThread(serverSocket);
+        socketListener = new ListenerThread(serverSocket, ExecutorFactory.create(config));
     }
 
     private void startSocketListener() {
@@ -229,6 +237,10 @@ public class Server {
         serverInstance = new Server(config);
         serverInstance.startSocketListener();
 
+        if (config.isWarmupEnabled()) {
+            new WarmupThread().start();
+        }
+
         return Server.getServer().getServerPort();
     }
 
@@ -250,21 +262,32 @@ public class Server {
         }
 
         config.initializeCharset();
+        config.setFeatures(request.getFeatures() & BootstrapRequest.SUPPORTED_FEATURES);
     }
 
     public static void main(String[] args) throws Exception {
         Server.start(args);
     }
 
+    // the stack trace is rendered later by the logging thread
     public static void log(Throwable ex) {
-        StringWriter sw = new StringWriter();
-        ex.printStackTrace(new PrintWriter(sw));
-        String exceptionAsString = sw.toString();
-        loggingThread.log(exceptionAsString);
+        log(Level.SEVERE, ex);
+    }
+
+    public static void log(Level level, Throwable ex) {
+        if (loggingThread != null) {
+            loggingThread.log(level, ex);
+        }
     }
 
     public static void log(String str) {
-        loggingThread.log(str);
+        log(Level.INFO, str);
+    }
+
+    public static void log(Level level, String str) {
+        if (loggingThread != null) {
+            loggingThread.log(level, str);
+        }
     }
 
     public void setShutdown() {
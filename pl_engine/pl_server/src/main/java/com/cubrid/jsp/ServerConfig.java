@@ -37,12 +37,55 @@ import java.nio.charset.StandardCharsets;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.util.HashMap;
+import java.util.logging.Level;
 import org.apache.commons.lang3.StringUtils;
 
 public class ServerConfig {
 
     private static final String LOG_DIR = "log";
 
+    /* Execution model of connections, can be given by JVM options (-Dcubrid.pl.executor=...) */
+    public static final String EXECUTOR_THREAD = "thread"; // a new thread per connection
+    public static final String EXECUTOR_POOL = "pool"; // bounded pool of platform threads
+    public static final String EXECUTOR_VIRTUAL = "virtual"; // a virtual thread per connection
+    private static final String EXECUTOR_MODE_PROPERTY = "cubrid.pl.executor";
+    private static final String EXECUTOR_MAX_THREADS_PROPERTY = "cubrid.pl.executor.max_threads";
+    private static final int DEFAULT_EXECUTOR_MAX_THREADS = 256;
+    // connections waiting for a thread of the pool, 0: refused at once when all threads are busy
+    private static final String EXECUTOR_QUEUE_SIZE_PROPERTY = "cubrid.pl.executor.queue_size";
+    private static final int DEFAULT_EXECUTOR_QUEUE_SIZE = 0;
+
+    /* Max number of PL/CSQL classes kept in the server-wide class cache (MemoryClassCache) */
+    private static final String CLASS_CACHE_SIZE_PROPERTY = "cubrid.pl.class_cache.size";
+    public static final int DEFAULT_CLASS_CACHE_SIZE = 1024;
+
+    /* Max number of compiles run in parallel by javac (MemoryJavaCompiler) */
+    private static final String COMPILER_WORKERS_PROPERTY = "cubrid.pl.compiler.workers";
+    private static final int DEFAULT_COMPILER_WORKERS =
+            Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    /* How PL/CSQL programs are turned into class files: "javac" or "bytecode" (BytecodeWriter) */
+    private static final String COMPILER_BACKEND_PROPERTY = "cubrid.pl.compiler.backend";
+    public static final String COMPILER_BACKEND_JAVAC = "javac";
+    public static final String COMPILER_BACKEND_BYTECODE = "bytecode";
+
+    /* Max size in megabytes of the compile results kept in $CUBRID_TMP (CompileCache), 0 to disable */
+    private static final String COMPILE_CACHE_SIZE_PROPERTY = "cubrid.pl.compile_cache.size";
+    private static final int DEFAULT_COMPILE_CACHE_SIZE = 64;
+
+    /* Logging (LoggingThread) */
+    private static final String LOG_LEVEL_PROPERTY = "cubrid.pl.log.level";
+    private static final String LOG_BUFFER_SIZE_PROPERTY = "cubrid.pl.log.buffer_size";
+    private static final String LOG_RATE_LIMIT_PROPERTY = "cubrid.pl.log.rate_limit";
+    private static final int DEFAULT_LOG_BUFFER_SIZE = 8192; // max number of pending records
+    private static final int DEFAULT_LOG_RATE_LIMIT = 100; // per origin per second
+
+    /* Directory to capture the traffic of connections into, disabled if not given (WireCapture) */
+    private static final String CAPTURE_DIR_PROPERTY = "cubrid.pl.capture.dir";
+
+    /* Whether to warm up the compiler and the invocation path when the server starts (WarmupThread) */
+    private static final String WARMUP_PROPERTY = "cubrid.pl.warmup";
+
     private final String name;
     private final String version;
 
@@ -63,6 +106,27 @@ public class ServerConfig {
     private Charset serverCharset;
     private ZoneId serverTimeZone;
 
+    // the features of the wire protocol the server agreed to at bootstrap (BootstrapRequest)
+    private volatile int features = 0;
+
+    private final String executorMode;
+    private final int executorMaxThreads;
+    private final int executorQueueSize;
+
+    private final int classCacheSize;
+
+    private final int compilerWorkers;
+    private final boolean bytecodeBackend;
+    private final int compileCacheSize;
+
+    private final Level logLevel;
+    private final int logBufferSize;
+    private final int logRateLimit;
+
+    private final String captureDir;
+
+    private final boolean warmup;
+
     public ServerConfig(
             String name, String version, String rPath, String dbPath, String socketInfo) {
         this.name = name;
@@ -85,6 +149,79 @@ public class ServerConfig {
         this.systemParameters = new HashMap<Integer, SysParam>();
         this.serverTimeZone = null;
         this.serverCharset = StandardCharsets.UTF_8;
+
+        this.executorMode = System.getProperty(EXECUTOR_MODE_PROPERTY, EXECUTOR_THREAD);
+        this.executorMaxThreads =
+                parsePositiveInt(
+                        System.getProperty(EXECUTOR_MAX_THREADS_PROPERTY),
+                        DEFAULT_EXECUTOR_MAX_THREADS);
+        this.executorQueueSize =
+                parseNonNegativeInt(
+                        System.getProperty(EXECUTOR_QUEUE_SIZE_PROPERTY),
+                        DEFAULT_EXECUTOR_QUEUE_SIZE);
+        this.classCacheSize =
+                parsePositiveInt(
+                        System.getProperty(CLASS_CACHE_SIZE_PROPERTY), DEFAULT_CLASS_CACHE_SIZE);
+        this.compilerWorkers =
+                parsePositiveInt(
+                        System.getProperty(COMPILER_WORKERS_PROPERTY), DEFAULT_COMPILER_WORKERS);
+        this.bytecodeBackend =
+                COMPILER_BACKEND_BYTECODE.equalsIgnoreCase(
+                        System.getProperty(COMPILER_BACKEND_PROPERTY, COMPILER_BACKEND_JAVAC));
+        this.compileCacheSize =
+                parseNonNegativeInt(
+                        System.getProperty(COMPILE_CACHE_SIZE_PROPERTY),
+                        DEFAULT_COMPILE_CACHE_SIZE);
+
+        this.logLevel = parseLevel(System.getProperty(LOG_LEVEL_PROPERTY), Level.INFO);
+        this.logBufferSize =
+                parsePositiveInt(
+                        System.getProperty(LOG_BUFFER_SIZE_PROPERTY), DEFAULT_LOG_BUFFER_SIZE);
+        this.logRateLimit =
+                parsePositiveInt(
+                        System.getProperty(LOG_RATE_LIMIT_PROPERTY), DEFAULT_LOG_RATE_LIMIT);
+
+        this.captureDir = System.getProperty(CAPTURE_DIR_PROPERTY);
+
+        this.warmup = Boolean.parseBoolean(System.getProperty(WARMUP_PROPERTY));
+    }
+
+    private static Level parseLevel(String value, Level defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Level.parse(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+
+    private static int parsePositiveInt(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return (parsed > 0) ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static int parseNonNegativeInt(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return (parsed >= 0) ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
     }
 
     public String getName() {
@@ -123,6 +260,54 @@ public class ServerConfig {
         return socketInfo;
     }
 
+    public String getExecutorMode() {
+        return executorMode;
+    }
+
+    public int getExecutorMaxThreads() {
+        return executorMaxThreads;
+    }
+
+    public int getExecutorQueueSize() {
+        return executorQueueSize;
+    }
+
+    public int getClassCacheSize() {
+        return classCacheSize;
+    }
+
+    public int getCompilerWorkers() {
+        return compilerWorkers;
+    }
+
+    public boolean isBytecodeBackend() {
+        return bytecodeBackend;
+    }
+
+    public int getCompileCacheSize() {
+        return compileCacheSize;
+    }
+
+    public Level getLogLevel() {
+        return logLevel;
+    }
+
+    public int getLogBufferSize() {
+        return logBufferSize;
+    }
+
+    public int getLogRateLimit() {
+        return logRateLimit;
+    }
+
+    public String getCaptureDir() {
+        return captureDir;
+    }
+
+    public boolean isWarmupEnabled() {
+        return warmup;
+    }
+
     public HashMap<Integer, SysParam> getSystemParameters() {
         return systemParameters;
     }
@@ -142,6 +327,14 @@ public class ServerConfig {
         return serverTimeZone;
     }
 
+    public boolean hasFeature(int feature) {
+        return (features & feature) != 0;
+    }
+
+    public void setFeatures(int features) {
+        this.features = features;
+    }
+
     public Charset getServerCharset() {
         return serverCharset;
     }
@@ -32,26 +32,19 @@
 package com.cubrid.jsp;
 
 import com.cubrid.jsp.classloader.ServerClassLoader;
-import com.cubrid.jsp.code.ClassAccess;
-import com.cubrid.jsp.code.CompiledCodeSet;
 import com.cubrid.jsp.code.Signature;
 import com.cubrid.jsp.context.Context;
 import com.cubrid.jsp.context.ContextManager;
-import com.cubrid.jsp.data.DBType;
 import com.cubrid.jsp.exception.ExecuteException;
 import com.cubrid.jsp.exception.TypeMismatchException;
 import com.cubrid.jsp.value.NullValue;
 import com.cubrid.jsp.value.SetValue;
 import com.cubrid.jsp.value.Value;
 import com.cubrid.jsp.value.ValueUtilities;
-import cubrid.sql.CUBRIDOID;
-import java.lang.reflect.Method;
-import java.math.BigDecimal;
+import com.cubrid.plcsql.predefined.PlcsqlRuntimeError;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
 import java.sql.Connection;
-import java.sql.Date;
-import java.sql.ResultSet;
-import java.sql.Time;
-import java.sql.Timestamp;
 
 public class StoredProcedure {
     private String signature;
@@ -89,7 +82,8 @@ public class StoredProcedure {
         Context ctx = ContextManager.getContextofCurrentThread();
 
         Connection conn = ctx.getConnection();
-        Signature sig = Signature.parse(sigString);
+        TargetMethod target = ctx.getTargetMethodCache().get(sigString);
+        Signature sig = target.getSignature();
 
         Class<?> c = null;
         ClassNotFoundException ex = null;
@@ -97,10 +91,7 @@ public class StoredProcedure {
             try {
                 c = ctx.getSessionCLManager().findClass(sig.getClassName());
                 if (c == null) {
-                    CompiledCodeSet codeset = ClassAccess.getObjectCode(conn, sig);
-                    if (codeset != null) {
-                        c = ctx.getSessionCLManager().loadClass(codeset);
-                    }
+                    c = ctx.getSessionCLManager().loadClass(conn, sig);
                 }
             } catch (ClassNotFoundException e) {
                 ex = e;
@@ -126,7 +117,6 @@ public class StoredProcedure {
         }
 
         targetClass = c;
-        TargetMethod target = new TargetMethod(sig);
         return target;
     }
 
@@ -156,180 +146,14 @@ public class StoredProcedure {
                             + ", but "
                             + args.length);
         }
+
+        ArgumentConverter[] converters = target.getArgsConverters();
         for (int i = 0; i < argsTypes.length; i++) {
             Object resolved;
             if (args[i] == null) {
                 resolved = null;
-            } else if (argsTypes[i] == byte.class || argsTypes[i] == Byte.class) {
-                resolved = args[i].toByteObject();
-            } else if (argsTypes[i] == short.class || argsTypes[i] == Short.class) {
-                resolved = args[i].toShortObject();
-
-            } else if (argsTypes[i] == int.class || argsTypes[i] == Integer.class) {
-                resolved = args[i].toIntegerObject();
-
-            } else if (argsTypes[i] == long.class || argsTypes[i] == Long.class) {
-                resolved = args[i].toLongObject();
-
-            } else if (argsTypes[i] == float.class || argsTypes[i] == Float.class) {
-                resolved = args[i].toFloatObject();
-
-            } else if (argsTypes[i] == double.class || argsTypes[i] == Double.class) {
-                resolved = args[i].toDoubleObject();
-
-            } else if (argsTypes[i] == String.class) {
-                resolved = args[i].toString();
-
-            } else if (argsTypes[i] == Date.class) {
-                resolved = args[i].toDate();
-
-            } else if (argsTypes[i] == Time.class) {
-                resolved = args[i].toTime();
-
-            } else if (argsTypes[i] == Timestamp.class) {
-                if (args[i].getDbType() == DBType.DB_DATETIME) {
-                    resolved = args[i].toDatetime();
-                } else {
-                    resolved = args[i].toTimestamp();
-                }
-
-            } else if (argsTypes[i] == BigDecimal.class) {
-                resolved = args[i].toBigDecimal();
-
-            } else if (argsTypes[i] == CUBRIDOID.class) {
-                resolved = args[i].toOid();
-
-            } else if (argsTypes[i] == Object.class) {
-                resolved = args[i].toObject();
-
-            } else if (argsTypes[i] == byte[].class) {
-                resolved = args[i].toByteArray();
-
-            } else if (argsTypes[i] == short[].class) {
-                resolved = args[i].toShortArray();
-
-            } else if (argsTypes[i] == int[].class) {
-                resolved = args[i].toIntegerArray();
-
-            } else if (argsTypes[i] == long[].class) {
-                resolved = args[i].toLongArray();
-
-            } else if (argsTypes[i] == float[].class) {
-                resolved = args[i].toFloatArray();
-
-            } else if (argsTypes[i] == double[].class) {
-                resolved = args[i].toDoubleArray();
-
-            } else if (argsTypes[i] == String[].class) {
-                resolved = args[i].toStringArray();
-
-            } else if (argsTypes[i] == Byte[].class) {
-                resolved = args[i].toByteObjArray();
-
-            } else if (argsTypes[i] == Short[].class) {
-                resolved = args[i].toShortObjArray();
-
-            } else if (argsTypes[i] == Integer[].class) {
-                resolved = args[i].toIntegerObjArray();
-
-            } else if (argsTypes[i] == Long[].class) {
-                resolved = args[i].toLongObjArray();
-
-            } else if (argsTypes[i] == Float[].class) {
-                resolved = args[i].toFloatObjArray();
-
-            } else if (argsTypes[i] == Double[].class) {
-                resolved = args[i].toDoubleObjArray();
-
-            } else if (argsTypes[i] == Date[].class) {
-                resolved = args[i].toDateArray();
-
-            } else if (argsTypes[i] == Time[].class) {
-                resolved = args[i].toTimeArray();
-
-            } else if (argsTypes[i] == Timestamp[].class) {
-                if (args[i].getDbType() == DBType.DB_DATETIME) {
-                    resolved = args[i].toDatetimeArray();
-                } else {
-                    resolved = args[i].toTimestampArray();
-                }
-
-            } else if (argsTypes[i] == BigDecimal[].class) {
-                resolved = args[i].toBigDecimalArray();
-
-            } else if (argsTypes[i] == CUBRIDOID[].class) {
-                resolved = args[i].toOidArray();
-
-            } else if (argsTypes[i] == ResultSet[].class) {
-                resolved = args[i].toResultSetArray(null);
-
-            } else if (argsTypes[i] == Object[].class) {
-                resolved = args[i].toObjectArray();
-
-            } else if (argsTypes[i] == byte[][].class) {
-                resolved = args[i].toByteArrayArray();
-
-            } else if (argsTypes[i] == short[][].class) {
-                resolved = args[i].toShortArrayArray();
-
-            } else if (argsTypes[i] == int[][].class) {
-                resolved = args[i].toIntegerArrayArray();
-
-            } else if (argsTypes[i] == long[][].class) {
-                resolved = args[i].toLongArrayArray();
-
-            } else if (argsTypes[i] == float[][].class) {
-                resolved = args[i].toFloatArrayArray();
-
-            } else if (argsTypes[i] == double[].class) {
-                resolved = args[i].toDoubleArrayArray();
-
-            } else if (argsTypes[i] == String[][].class) {
-                resolved = args[i].toStringArrayArray();
-
-            } else if (argsTypes[i] == Byte[][].class) {
-                resolved = args[i].toByteObjArrayArray();
-
-            } else if (argsTypes[i] == Short[][].class) {
-                resolved = args[i].toShortObjArrayArray();
-
-            } else if (argsTypes[i] == Integer[][].class) {
-                resolved = args[i].toIntegerObjArrayArray();
-
-            } else if (argsTypes[i] == Long[][].class) {
-                resolved = args[i].toLongObjArrayArray();
-
-            } else if (argsTypes[i] == Float[][].class) {
-                resolved = args[i].toFloatObjArrayArray();
-
-            } else if (argsTypes[i] == Double[][].class) {
-                resolved = args[i].toDoubleObjArrayArray();
-
-            } else if (argsTypes[i] == Date[][].class) {
-                resolved = args[i].toDateArrayArray();
-
-            } else if (argsTypes[i] == Time[][].class) {
-                resolved = args[i].toTimeArrayArray();
-
-            } else if (argsTypes[i] == Timestamp[][].class) {
-                if (args[i].getDbType() == DBType.DB_DATETIME) {
-                    resolved = args[i].toDatetimeArrayArray();
-                } else {
-                    resolved = args[i].toTimestampArrayArray();
-                }
-
-            } else if (argsTypes[i] == BigDecimal[][].class) {
-                resolved = args[i].toBigDecimalArrayArray();
-
-            } else if (argsTypes[i] == CUBRIDOID[][].class) {
-                resolved = args[i].toOidArrayArray();
-
-            } else if (argsTypes[i] == ResultSet[][].class) {
-                resolved = args[i].toResultSetArrayArray(null);
-
-            } else if (argsTypes[i] == Object[][].class) {
-                resolved = args[i].toObjectArrayArray();
-
+            } else if (converters[i] != null) {
+                resolved = converters[i].convert(args[i]);
             } else {
                 throw new TypeMismatchException(
                         "Not supported data type: '" + argsTypes[i].getName() + "'");
@@ -340,11 +164,22 @@ public class StoredProcedure {
     }
 
     public Value invoke() throws Exception {
-        Method m = target.getMethod(targetClass);
+        MethodHandle mh = target.getMethodHandle(targetClass);
         if (cachedResolved == null) {
             cachedResolved = getResolved();
         }
-        Object result = m.invoke(null, cachedResolved);
+
+        Object result;
+        boolean inLegacy =
+                PlcsqlRuntimeError.setInLegacyClass(PlcsqlRuntimeError.isLegacyClass(targetClass));
+        try {
+            result = (Object) mh.invokeExact(cachedResolved);
+        } catch (Throwable e) {
+            // same as Method.invoke ()
+            throw new InvocationTargetException(e);
+        } finally {
+            PlcsqlRuntimeError.setInLegacyClass(inLegacy);
+        }
         return ValueUtilities.createValueFrom(result);
     }
 
@@ -382,6 +217,18 @@ public class StoredProcedure {
         return target;
     }
 
+    public Class<?> getTargetClass() {
+        return targetClass;
+    }
+
+    public int getLang() {
+        return lang;
+    }
+
+    public boolean isPlcsql() {
+        return lang == LANG_PLCSQL;
+    }
+
     public String getAuthUser() {
         return authUser;
     }
@@ -16,6 +16,7 @@ public class SysParam implements UnPackableObject {
     public static final int TIMEZONE = 249;
     public static final int ORACLE_COMPAT_NUMBER_BEHAVIOR = 334;
     public static final int STORED_PROCEDURE_DUMP_ICODE = 354;
+    public static final int STORED_PROCEDURE_ERROR_STACK_TRACE = 356;
 
     // paramType
     public static final int PRM_TYPE_INTEGER = 0;
@@ -32,32 +32,56 @@
 package com.cubrid.jsp;
 
 import com.cubrid.jsp.code.Signature;
+import com.cubrid.jsp.data.DBType;
 import com.cubrid.jsp.exception.ExecuteException;
 import cubrid.sql.CUBRIDOID;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.sql.ResultSet;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.HashMap;
 
 public class TargetMethod {
+    private Signature signature;
     private String className;
     private String methodName;
     private Class<?>[] argsTypes;
+    private ArgumentConverter[] argsConverters;
+
+    // resolved method handle of (Object[]) -> Object type for the class
+    private Class<?> resolvedClass = null;
+    private MethodHandle resolvedHandle = null;
 
     private static HashMap<String, Class<?>> argClassMap = new HashMap<String, Class<?>>();
     private static HashMap<String, String> descriptorMap = new HashMap<String, String>();
+    private static HashMap<Class<?>, ArgumentConverter> converterMap =
+            new HashMap<Class<?>, ArgumentConverter>();
 
     static {
         initArgClassMap();
         initdescriptorMap();
+        initConverterMap();
     }
 
     public TargetMethod(Signature signature) throws Exception {
+        this.signature = signature;
         className = signature.getClassName();
         methodName = signature.getMethodName();
         argsTypes = classesFor(signature.getArgs());
+        argsConverters = convertersFor(argsTypes);
+    }
+
+    private ArgumentConverter[] convertersFor(Class<?>[] types) {
+        ArgumentConverter[] converters = new ArgumentConverter[types.length];
+        for (int i = 0; i < types.length; i++) {
+            // null if not supported
+            converters[i] = converterMap.get(types[i]);
+        }
+        return converters;
     }
 
     private Class<?>[] classesFor(String args) throws ClassNotFoundException, ExecuteException {
@@ -208,6 +232,99 @@ public class TargetMethod {
         descriptorMap.put("double", "D");
     }
 
+    private static void initConverterMap() {
+        converterMap.put(byte.class, v -> v.toByteObject());
+        converterMap.put(Byte.class, v -> v.toByteObject());
+        converterMap.put(short.class, v -> v.toShortObject());
+        converterMap.put(Short.class, v -> v.toShortObject());
+        converterMap.put(int.class, v -> v.toIntegerObject());
+        converterMap.put(Integer.class, v -> v.toIntegerObject());
+        converterMap.put(long.class, v -> v.toLongObject());
+        converterMap.put(Long.class, v -> v.toLongObject());
+        converterMap.put(float.class, v -> v.toFloatObject());
+        converterMap.put(Float.class, v -> v.toFloatObject());
+        converterMap.put(double.class, v -> v.toDoubleObject());
+        converterMap.put(Double.class, v -> v.toDoubleObject());
+        converterMap.put(String.class, v -> v.toString());
+        converterMap.put(Date.class, v -> v.toDate());
+        converterMap.put(Time.class, v -> v.toTime());
+        converterMap.put(
+                Timestamp.class,
+                v -> (v.getDbType() == DBType.DB_DATETIME) ? v.toDatetime() : v.toTimestamp());
+        converterMap.put(BigDecimal.class, v -> v.toBigDecimal());
+        converterMap.put(CUBRIDOID.class, v -> v.toOid());
+        converterMap.put(Object.class, v -> v.toObject());
+
+        converterMap.put(byte[].class, v -> v.toByteArray());
+        converterMap.put(short[].class, v -> v.toShortArray());
+        converterMap.put(int[].class, v -> v.toIntegerArray());
+        converterMap.put(long[].class, v -> v.toLongArray());
+        converterMap.put(float[].class, v -> v.toFloatArray());
+        converterMap.put(double[].class, v -> v.toDoubleArray());
+        converterMap.put(String[].class, v -> v.toStringArray());
+        converterMap.put(Byte[].class, v -> v.toByteObjArray());
+        converterMap.put(Short[].class, v -> v.toShortObjArray());
+        converterMap.put(Integer[].class, v -> v.toIntegerObjArray());
+        converterMap.put(Long[].class, v -> v.toLongObjArray());
+        converterMap.put(Float[].class, v -> v.toFloatObjArray());
+        converterMap.put(Double[].class, v -> v.toDoubleObjArray());
+        converterMap.put(Date[].class, v -> v.toDateArray());
+        converterMap.put(Time[].class, v -> v.toTimeArray());
+        converterMap.put(
+                Timestamp[].class,
+                v ->
+                        (v.getDbType() == DBType.DB_DATETIME)
+                                ? v.toDatetimeArray()
+                                : v.toTimestampArray());
+        converterMap.put(BigDecimal[].class, v -> v.toBigDecimalArray());
+        converterMap.put(CUBRIDOID[].class, v -> v.toOidArray());
+        converterMap.put(ResultSet[].class, v -> v.toResultSetArray(null));
+        converterMap.put(Object[].class, v -> v.toObjectArray());
+
+        converterMap.put(byte[][].class, v -> v.toByteArrayArray());
+        converterMap.put(short[][].class, v -> v.toShortArrayArray());
+        converterMap.put(int[][].class, v -> v.toIntegerArrayArray());
+        converterMap.put(long[][].class, v -> v.toLongArrayArray());
+        converterMap.put(float[][].class, v -> v.toFloatArrayArray());
+        converterMap.put(double[][].class, v -> v.toDoubleArrayArray());
+        converterMap.put(String[][].class, v -> v.toStringArrayArray());
+        converterMap.put(Byte[][].class, v -> v.toByteObjArrayArray());
+        converterMap.put(Short[][].class, v -> v.toShortObjArrayArray());
+        converterMap.put(Integer[][].class, v -> v.toIntegerObjArrayArray());
+        converterMap.put(Long[][].class, v -> v.toLongObjArrayArray());
+        converterMap.put(Float[][].class, v -> v.toFloatObjArrayArray());
+        converterMap.put(Double[][].class, v -> v.toDoubleObjArrayArray());
+        converterMap.put(Date[][].class, v -> v.toDateArrayArray());
+        converterMap.put(Time[][].class, v -> v.toTimeArrayArray());
+        converterMap.put(
+                Timestamp[][].class,
+                v ->
+                        (v.getDbType() == DBType.DB_DATETIME)
+                                ? v.toDatetimeArrayArray()
+                                : v.toTimestampArrayArray());
+        converterMap.put(BigDecimal[][].class, v -> v.toBigDecimalArrayArray());
+        converterMap.put(CUBRIDOID[][].class, v -> v.toOidArrayArray());
+        converterMap.put(ResultSet[][].class, v -> v.toResultSetArrayArray(null));
+        converterMap.put(Object[][].class, v -> v.toObjectArrayArray());
+    }
+
+    /*
+     * The handle is resolved once and reused as long as the same class is given. A different
+     * class (e.g. re-created class loader or replaced PL/CSQL code) resolves the handle again.
+     */
+    public MethodHandle getMethodHandle(Class<?> c)
+            throws SecurityException, NoSuchMethodException, IllegalAccessException {
+        if (resolvedHandle != null && resolvedClass == c) {
+            return resolvedHandle;
+        }
+
+        MethodHandle mh = MethodHandles.publicLookup().unreflect(getMethod(c));
+        resolvedHandle =
+                mh.asType(mh.type().generic()).asSpreader(Object[].class, argsTypes.length);
+        resolvedClass = c;
+        return resolvedHandle;
+    }
+
     public Method getMethod(Class<?> c) throws SecurityException, NoSuchMethodException {
         try {
             return c.getMethod(methodName, argsTypes);
@@ -232,4 +349,12 @@ public class TargetMethod {
     public Class<?>[] getArgsTypes() {
         return argsTypes;
     }
+
+    public ArgumentConverter[] getArgsConverters() {
+        return argsConverters;
+    }
+
+    public Signature getSignature() {
+        return signature;
+    }
 }
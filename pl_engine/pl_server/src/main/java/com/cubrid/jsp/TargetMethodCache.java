@@ -31,8 +31,10 @@
 
 package com.cubrid.jsp;
 
+import com.cubrid.jsp.code.Signature;
 import java.util.HashMap;
 
+// signature string => TargetMethod (parsed signature, argument converters, resolved method handle)
 public class TargetMethodCache {
     private HashMap<String, TargetMethod> methods;
 
@@ -45,8 +47,7 @@ public class TargetMethodCache {
 
         method = methods.get(signature);
         if (method == null) {
-            // TODO (CBRD-25370) : disabled temporary
-            // method = new TargetMethod(signature);
+            method = new TargetMethod(Signature.parse(signature));
             methods.put(signature, method);
         }
 
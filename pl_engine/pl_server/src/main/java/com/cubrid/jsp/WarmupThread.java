@@ -0,0 +1,329 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp;
+
+import com.cubrid.jsp.classloader.SessionClassLoader;
+import com.cubrid.jsp.code.CompiledCode;
+import com.cubrid.jsp.code.CompiledCodeSet;
+import com.cubrid.jsp.code.Signature;
+import com.cubrid.jsp.code.SourceCode;
+import com.cubrid.jsp.compiler.MemoryJavaCompiler;
+import com.cubrid.jsp.context.Context;
+import com.cubrid.jsp.context.ContextManager;
+import com.cubrid.jsp.data.CUBRIDPacker;
+import com.cubrid.jsp.data.CUBRIDUnpacker;
+import com.cubrid.jsp.data.CompileInfo;
+import com.cubrid.jsp.data.DBType;
+import com.cubrid.jsp.value.Value;
+import com.cubrid.jsp.value.ValueUtilities;
+import com.cubrid.plcsql.compiler.PlcsqlCompilerMain;
+import com.cubrid.plcsql.compiler.PlcsqlPositionWeaver;
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/*
+ * Pays the one-time costs of the first requests in the background when the server starts
+ * (-Dcubrid.pl.warmup=true): ANTLR's ATN deserialization of the PL/CSQL lexer and parser, the
+ * static initialization of SymbolStack, javac and its classes, and the classes to invoke a routine
+ * and exchange its values with the CUBRID server. A synthetic procedure which needs no database is
+ * compiled and invoked for it, so that the operators of SpLib are also compiled by the JIT.
+ *
+ * main () does the same without a database to make the class list of the class data sharing
+ * archive of pl_server.jar (see the cdsArchive task of build.gradle.kts).
+ */
+public class WarmupThread extends Thread {
+
+    // no session of the CUBRID server has a negative id
+    private static final long SESSION_ID = -1;
+
+    // operators only: builtin functions and SQL would ask the CUBRID server at compile time
+    private static final String PROCEDURE =
+            "CREATE OR REPLACE PROCEDURE pl_warmup(n INT) AS\n"
+                    + "    s VARCHAR := '';\n"
+                    + "    x NUMERIC(20, 4) := 0;\n"
+                    + "    d DOUBLE := 0;\n"
+                    + "    b BOOLEAN := FALSE;\n"
+                    + "BEGIN\n"
+                    + "    FOR i IN 1 .. n LOOP\n"
+                    + "        x := x + i * 1.5;\n"
+                    + "        d := d + i / 3;\n"
+                    + "        s := s || i || '-';\n"
+                    + "        b := (s LIKE '%9%') OR (i BETWEEN 5 AND 10) AND x > d;\n"
+                    + "        IF b THEN\n"
+                    + "            s := '';\n"
+                    + "        END IF;\n"
+                    + "    END LOOP;\n"
+                    + "    IF n < 0 THEN\n"
+                    + "        RAISE VALUE_ERROR;\n"
+                    + "    END IF;\n"
+                    + "EXCEPTION\n"
+                    + "    WHEN OTHERS THEN\n"
+                    + "        NULL;\n"
+                    + "END;";
+
+    // session parameters read by the operators of SpLib, set to the defaults of the CUBRID server
+    private static final int[] SESSION_PARAMETERS = {
+        SysParam.ORACLE_STYLE_EMPTY_STRING,
+        SysParam.ORACLE_COMPAT_NUMBER_BEHAVIOR,
+        SysParam.COMPAT_NUMERIC_DIVISION_SCALE,
+    };
+
+    private static final int INVOKE_COUNT = 200;
+    private static final int LOOP_COUNT = 100;
+
+    // loaded by the first routine using the server-side JDBC
+    private static final String[] CLASSES = {
+        "com.cubrid.jsp.jdbc.CUBRIDServerSideConnection",
+        "com.cubrid.jsp.jdbc.CUBRIDServerSideStatement",
+        "com.cubrid.jsp.jdbc.CUBRIDServerSidePreparedStatement",
+        "com.cubrid.jsp.jdbc.CUBRIDServerSideCallableStatement",
+        "com.cubrid.jsp.jdbc.CUBRIDServerSideResultSet",
+        "com.cubrid.jsp.jdbc.CUBRIDServerSideResultSetMetaData",
+        "com.cubrid.jsp.impl.SUConnection",
+        "com.cubrid.jsp.impl.SUStatement",
+        "com.cubrid.jsp.impl.SUBindParameter",
+        "com.cubrid.jsp.impl.SUResultTuple",
+    };
+
+    // argument types of INVOKE_SP, see CUBRIDUnpacker.unpackValue ()
+    private static final int[] VALUE_TYPES = {
+        DBType.DB_SHORT,
+        DBType.DB_INT,
+        DBType.DB_BIGINT,
+        DBType.DB_FLOAT,
+        DBType.DB_DOUBLE,
+        DBType.DB_NUMERIC,
+        DBType.DB_STRING,
+        DBType.DB_DATE,
+        DBType.DB_TIME,
+        DBType.DB_TIMESTAMP,
+        DBType.DB_DATETIME,
+        DBType.DB_NULL,
+    };
+
+    public WarmupThread() {
+        super("warmup");
+        setDaemon(true);
+        setPriority(Thread.MIN_PRIORITY);
+    }
+
+    @Override
+    public void run() {
+        long start = System.currentTimeMillis();
+        long threadId = Thread.currentThread().getId();
+        ContextManager.registerThread(threadId, SESSION_ID);
+        try {
+            setSessionParameters(ContextManager.getContextofCurrentThread());
+
+            loadClasses();
+            exchangeValues();
+            compileAndInvoke();
+
+            Server.log(
+                    Level.INFO,
+                    "warm-up finished in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (Throwable e) {
+            // the costs are left to the first requests
+            Server.log(Level.WARNING, e);
+        } finally {
+            ContextManager.deregisterThread(threadId);
+            ContextManager.destroyContext(SESSION_ID);
+        }
+    }
+
+    /* same layout as the session parameters of a request, see ExecuteThread.readSessionParameter () */
+    private static void setSessionParameters(Context ctx) {
+        CUBRIDPacker packer = new CUBRIDPacker(ByteBuffer.allocate(256));
+        for (int id : SESSION_PARAMETERS) {
+            packer.packInt(id);
+            packer.packInt(SysParam.PRM_TYPE_STRING);
+            packer.packCString("false".getBytes(StandardCharsets.UTF_8));
+        }
+
+        ByteBuffer buffer = packer.getBuffer();
+        buffer.flip();
+        CUBRIDUnpacker unpacker = new CUBRIDUnpacker(buffer);
+        for (int i = 0; i < SESSION_PARAMETERS.length; i++) {
+            ctx.setSystemParameter(new SysParam(unpacker));
+        }
+    }
+
+    private static void loadClasses() throws ClassNotFoundException {
+        ClassLoader loader = WarmupThread.class.getClassLoader();
+        for (String name : CLASSES) {
+            Class.forName(name, true, loader);
+        }
+    }
+
+    /* unpacks the arguments and packs the results of every type as ExecuteThread does */
+    private static void exchangeValues() throws Exception {
+        int codeset = Context.getCodesetId();
+
+        CUBRIDPacker packer = new CUBRIDPacker(ByteBuffer.allocate(1024));
+        for (int type : VALUE_TYPES) {
+            packArgument(packer, type, codeset);
+        }
+
+        ByteBuffer buffer = packer.getBuffer();
+        buffer.flip();
+        CUBRIDUnpacker unpacker = new CUBRIDUnpacker(buffer);
+
+        CUBRIDPacker resultPacker = new CUBRIDPacker(ByteBuffer.allocate(1024));
+        for (int type : VALUE_TYPES) {
+            Value value = unpacker.unpackValue(type);
+            Object resolved = ValueUtilities.resolveValue(type, value);
+            resultPacker.packObject(resolved, type, codeset);
+            resultPacker.packValue(ValueUtilities.createValueFrom(resolved), type);
+        }
+    }
+
+    private static void packArgument(CUBRIDPacker packer, int type, int codeset) throws Exception {
+        switch (type) {
+            case DBType.DB_SHORT:
+                packer.packShort((short) 1);
+                break;
+            case DBType.DB_INT:
+                packer.packInt(1);
+                break;
+            case DBType.DB_BIGINT:
+                packer.packBigInt(1L);
+                break;
+            case DBType.DB_FLOAT:
+                packer.packFloat(1.5f);
+                break;
+            case DBType.DB_DOUBLE:
+                packer.packDouble(1.5);
+                break;
+            case DBType.DB_NUMERIC:
+                packer.packString("1.5");
+                break;
+            case DBType.DB_STRING:
+                packer.packInt(codeset);
+                packer.packString("warm-up", codeset);
+                break;
+            case DBType.DB_DATETIME:
+                packer.packInt(2000); // year
+                packer.packInt(1); // month
+                packer.packInt(1); // day
+                packer.packInt(1); // hour
+                packer.packInt(1); // minute
+                packer.packInt(1); // second
+                packer.packInt(1); // millisecond
+                break;
+            case DBType.DB_TIMESTAMP:
+                packer.packInt(2000);
+                packer.packInt(1);
+                packer.packInt(1);
+                packer.packInt(1);
+                packer.packInt(1);
+                packer.packInt(1);
+                break;
+            case DBType.DB_DATE:
+                packer.packInt(2000);
+                packer.packInt(1);
+                packer.packInt(1);
+                break;
+            case DBType.DB_TIME:
+                packer.packInt(1);
+                packer.packInt(1);
+                packer.packInt(1);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /* the same path as COMPILE and INVOKE_SP except the protocol */
+    private static void compileAndInvoke() throws Throwable {
+        CompileInfo info =
+                PlcsqlCompilerMain.compilePLCSQL(
+                        PROCEDURE, "DBA", false, Server.getConfig().isBytecodeBackend());
+        if (info.errCode != 0) {
+            throw new IllegalStateException("cannot compile the warm-up procedure: " + info.errMsg);
+        }
+
+        CompiledCodeSet codeSet;
+        if (info.classFiles != null) {
+            List<CompiledCode> codes = new ArrayList<>();
+            for (Map.Entry<String, byte[]> e : info.classFiles.entrySet()) {
+                CompiledCode code = new CompiledCode(e.getKey());
+                code.openOutputStream().write(e.getValue());
+                codes.add(code);
+            }
+            codeSet = new CompiledCodeSet(info.className, codes);
+        } else {
+            MemoryJavaCompiler compiler = MemoryJavaCompiler.getInstance();
+            codeSet = compiler.compile(new SourceCode(info.className, info.translated));
+        }
+
+        codeSet = PlcsqlPositionWeaver.weave(codeSet);
+
+        Class<?> cls = new SessionClassLoader(codeSet).loadClass(info.className);
+        TargetMethod target = new TargetMethod(Signature.parse(info.signature));
+        MethodHandle mh = target.getMethodHandle(cls);
+
+        Object[] args = {Integer.valueOf(LOOP_COUNT)};
+        for (int i = 0; i < INVOKE_COUNT; i++) {
+            mh.invoke(args); // the result is dropped
+        }
+    }
+
+    /* args[0]: a directory to run a server without a database in, args[1]: version (optional) */
+    public static void main(String[] args) throws Exception {
+        String root = new File(args[0]).getAbsolutePath();
+        String version = (args.length > 1) ? args[1] : "0.0.0";
+
+        // MemoryJavaCompiler compiles against $CUBRID/vm/pl_server.jar
+        Files.createDirectories(Paths.get(root, "tmp"));
+        Files.createDirectories(Paths.get(root, "vm"));
+
+        ServerConfig config =
+                new ServerConfig(
+                        "warmup", version, root, root + File.separatorChar + "databases", "0");
+        Server.startWithConfig(config);
+
+        WarmupThread thread = new WarmupThread();
+        thread.start();
+        thread.join();
+
+        Server.stop(0);
+        System.exit(0);
+    }
+}
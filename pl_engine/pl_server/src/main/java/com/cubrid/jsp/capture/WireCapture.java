@@ -0,0 +1,155 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.capture;
+
+import com.cubrid.jsp.Server;
+import com.cubrid.jsp.ServerConfig;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Records the frames of a connection between cub_server and the PL server, so that the traffic can
+ * be replayed later without a database (see WireReplay). It is enabled by giving a directory with
+ * the JVM option -Dcubrid.pl.capture.dir=<path>, then every connection is written to its own file.
+ *
+ * File format (big endian)
+ *   header : int MAGIC, int VERSION
+ *   record : byte direction (IN or OUT), long nanos since the file is opened, int size, bytes
+ * A record is a whole frame without its size prefix: what ExecuteThread read (IN) or wrote (OUT).
+ */
+public class WireCapture implements AutoCloseable {
+    public static final int MAGIC = 0x504C4341; // "PLCA"
+    public static final int VERSION = 1;
+
+    public static final byte IN = 0; // cub_server => PL server
+    public static final byte OUT = 1; // PL server => cub_server
+
+    public static final String FILE_EXTENSION = ".plcap";
+
+    private static final AtomicInteger fileSeq = new AtomicInteger(0);
+
+    private final Path path;
+    private final long startNanos;
+    private DataOutputStream out;
+
+    private WireCapture(Path path) throws IOException {
+        this.path = path;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+        this.startNanos = System.nanoTime();
+    }
+
+    // returns null if capturing is not enabled
+    public static WireCapture open(ServerConfig config) {
+        if (config == null || config.getCaptureDir() == null) {
+            return null;
+        }
+
+        try {
+            Path dir = Paths.get(config.getCaptureDir());
+            Files.createDirectories(dir);
+
+            String time = new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
+            Path path =
+                    dir.resolve(
+                            config.getName()
+                                    + "_"
+                                    + time
+                                    + "_"
+                                    + fileSeq.incrementAndGet()
+                                    + FILE_EXTENSION);
+            return new WireCapture(path);
+        } catch (IOException e) {
+            Server.log(e);
+            return null;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public void record(byte direction, byte[] buf, int offset, int size) {
+        record(direction, buf, offset, size, null, 0, 0);
+    }
+
+    // a frame written from two buffers (e.g. header and payload) is recorded as one
+    public void record(
+            byte direction,
+            byte[] buf1,
+            int offset1,
+            int size1,
+            byte[] buf2,
+            int offset2,
+            int size2) {
+        if (out == null) {
+            return;
+        }
+
+        try {
+            out.writeByte(direction);
+            out.writeLong(System.nanoTime() - startNanos);
+            out.writeInt(size1 + size2);
+            out.write(buf1, offset1, size1);
+            if (size2 > 0) {
+                out.write(buf2, offset2, size2);
+            }
+        } catch (IOException e) {
+            // stop capturing this connection, the file is left as it is
+            Server.log(e);
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (out == null) {
+            return;
+        }
+
+        try {
+            out.close();
+        } catch (IOException e) {
+            // ignore
+        } finally {
+            out = null;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.capture;
+
+import com.cubrid.jsp.data.DataUtilities;
+import com.cubrid.jsp.metrics.LatencyHistogram;
+import com.cubrid.jsp.protocol.RequestCode;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.newsclub.net.unix.AFUNIXSocket;
+import org.newsclub.net.unix.AFUNIXSocketAddress;
+
+/*
+ * Replays connections captured by WireCapture against a running PL server, playing the part of
+ * cub_server: the recorded requests are sent and the callbacks of the PL server (server-side JDBC,
+ * REQUEST_CODE_ATTR, semantics questions, ...) are answered with the recorded responses.
+ *
+ * A connection is replayed as a script. Before an IN frame is sent, the OUT frames recorded before
+ * it are read from the PL server and their request codes (and SUFunctionCode for INTERNAL_JDBC)
+ * are compared with the recording. The replay of a connection stops at the first mismatch, e.g.
+ * when the PL server under test issues a different sequence of callbacks than the captured one.
+ *
+ * usage: WireReplay [-concurrency N] [-repeat N] [-speedup X] <port | uds path> <file | dir>...
+ *   -concurrency : number of connections replayed at the same time (default 1)
+ *   -repeat      : number of times every captured connection is replayed (default 1)
+ *   -speedup     : replays X times faster than captured, 0 sends without waiting (default 0)
+ */
+public class WireReplay {
+
+    private static final int OFFSET_SESSION_ID = 0; // see Header
+    private static final int OFFSET_CODE = 8;
+
+    // an OUT frame of INTERNAL_JDBC is the request code, aligned, then SUFunctionCode
+    private static final int OFFSET_FUNCTION_CODE = DataUtilities.MAX_ALIGNMENT;
+
+    private final String target;
+    private final double speedup;
+
+    // session ids are replaced so that concurrent replays of the same capture do not share a
+    // Context
+    private final AtomicLong sessionIdSeq = new AtomicLong(1L << 40);
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong diverged = new AtomicLong(0);
+
+    public WireReplay(String target, double speedup) {
+        this.target = target;
+        this.speedup = speedup;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = 1;
+        int repeat = 1;
+        double speedup = 0;
+
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("-"); i += 2) {
+            if (i + 1 >= args.length) {
+                usage();
+                return;
+            }
+
+            if (args[i].equals("-concurrency")) {
+                concurrency = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("-repeat")) {
+                repeat = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("-speedup")) {
+                speedup = Double.parseDouble(args[i + 1]);
+            } else {
+                usage();
+                return;
+            }
+        }
+
+        if (args.length - i < 2) {
+            usage();
+            return;
+        }
+
+        String target = args[i++];
+        List<Path> files = new ArrayList<Path>();
+        for (; i < args.length; i++) {
+            collectFiles(Paths.get(args[i]), files);
+        }
+
+        WireReplay replay = new WireReplay(target, speedup);
+        replay.run(files, concurrency, repeat);
+    }
+
+    private static void usage() {
+        System.err.println(
+                "usage: WireReplay [-concurrency N] [-repeat N] [-speedup X] <port | uds path>"
+                        + " <capture file | directory>...");
+    }
+
+    private static void collectFiles(Path path, List<Path> files) throws IOException {
+        if (!Files.isDirectory(path)) {
+            files.add(path);
+            return;
+        }
+
+        List<Path> found = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream =
+                Files.newDirectoryStream(path, "*" + WireCapture.FILE_EXTENSION)) {
+            for (Path p : stream) {
+                found.add(p);
+            }
+        }
+        Collections.sort(found);
+        files.addAll(found);
+    }
+
+    public void run(List<Path> files, int concurrency, int repeat) throws Exception {
+        List<Recording> bootstraps = new ArrayList<Recording>();
+        List<Recording> recordings = new ArrayList<Recording>();
+        for (Path path : files) {
+            Recording rec = Recording.load(path);
+            if (rec.isBootstrap()) {
+                bootstraps.add(rec);
+            } else {
+                recordings.add(rec);
+            }
+        }
+
+        // system parameters must be given to the PL server first
+        for (Recording rec : bootstraps) {
+            replay(rec);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, concurrency));
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        long start = System.nanoTime();
+        for (int r = 0; r < repeat; r++) {
+            for (final Recording rec : recordings) {
+                results.add(executor.submit(() -> replay(rec)));
+            }
+        }
+
+        long calls = 0;
+        for (Future<Integer> f : results) {
+            calls += f.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        double seconds = elapsed / 1e9;
+        System.out.printf(
+                "connections %d, calls %d, diverged %d, elapsed %.3f s, %.1f calls/s%n",
+                results.size(), calls, diverged.get(), seconds, calls / seconds);
+        System.out.printf(
+                "latency (us) mean %d, p50 %d, p99 %d, max %d%n",
+                latency.getMeanMicros(),
+                latency.getPercentileMicros(50),
+                latency.getPercentileMicros(99),
+                latency.getMaxMicros());
+    }
+
+    // returns the number of calls (INVOKE_SP, COMPILE) replayed
+    private int replay(Recording rec) throws IOException {
+        Map<Long, Long> sessionIds = new HashMap<Long, Long>();
+        int calls = 0;
+        long callStart = 0;
+        long wallStart = System.nanoTime();
+
+        try (Socket socket = connect()) {
+            DataInputStream in =
+                    new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            byte[] received = new byte[4096];
+
+            for (Frame frame : rec.frames) {
+                if (frame.direction == WireCapture.OUT) {
+                    out.flush();
+                    int size = in.readInt();
+                    if (received.length < size) {
+                        received = new byte[size];
+                    }
+                    in.readFully(received, 0, size);
+
+                    int code = (size >= 4) ? ByteBuffer.wrap(received).getInt(0) : -1;
+                    if (code != frame.getFirstInt()) {
+                        System.err.printf(
+                                "%s: diverged, expected 0x%x but 0x%x is received%n",
+                                rec.path, frame.getFirstInt(), code);
+                        diverged.incrementAndGet();
+                        break;
+                    }
+
+                    // every server-side JDBC call has the same request code
+                    if (code == RequestCode.INTERNAL_JDBC) {
+                        int function =
+                                (size >= OFFSET_FUNCTION_CODE + 4)
+                                        ? ByteBuffer.wrap(received).getInt(OFFSET_FUNCTION_CODE)
+                                        : -1;
+                        if (function != frame.getInt(OFFSET_FUNCTION_CODE)) {
+                            System.err.printf(
+                                    "%s: diverged, expected JDBC function %d but %d is received%n",
+                                    rec.path, frame.getInt(OFFSET_FUNCTION_CODE), function);
+                            diverged.incrementAndGet();
+                            break;
+                        }
+                    }
+
+                    if (callStart != 0
+                            && (code == RequestCode.RESULT
+                                    || code == RequestCode.ERROR
+                                    || code == RequestCode.COMPILE)) {
+                        latency.recordNanos(System.nanoTime() - callStart);
+                        callStart = 0;
+                    }
+                    continue;
+                }
+
+                int code = frame.getInt(OFFSET_CODE);
+                if (code == RequestCode.UTIL_TERMINATE_SERVER) {
+                    continue;
+                }
+
+                if (speedup > 0) {
+                    long due = wallStart + (long) (frame.nanos / speedup);
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        out.flush();
+                        Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+                    }
+                }
+
+                if (code == RequestCode.INVOKE_SP || code == RequestCode.COMPILE) {
+                    calls++;
+                    callStart = System.nanoTime();
+                }
+
+                byte[] data = frame.data.clone();
+                ByteBuffer buf = ByteBuffer.wrap(data);
+                long sessionId = buf.getLong(OFFSET_SESSION_ID);
+                if (sessionId != 0) {
+                    Long newId = sessionIds.get(sessionId);
+                    if (newId == null) {
+                        newId = sessionIdSeq.incrementAndGet();
+                        sessionIds.put(sessionId, newId);
+                    }
+                    buf.putLong(OFFSET_SESSION_ID, newId);
+                }
+
+                out.writeInt(data.length);
+                out.write(data);
+            }
+            out.flush();
+        } catch (EOFException e) {
+            System.err.println(rec.path + ": the connection is closed by the PL server");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return calls;
+    }
+
+    private Socket connect() throws IOException {
+        if (target.matches("[0-9]+")) {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(target));
+            socket.setTcpNoDelay(true);
+            return socket;
+        }
+
+        return AFUNIXSocket.connectTo(AFUNIXSocketAddress.of(Paths.get(target)));
+    }
+
+    private static class Frame {
+        final byte direction;
+        final long nanos;
+        final byte[] data;
+
+        Frame(byte direction, long nanos, byte[] data) {
+            this.direction = direction;
+            this.nanos = nanos;
+            this.data = data;
+        }
+
+        int getInt(int offset) {
+            return (data.length >= offset + 4) ? ByteBuffer.wrap(data).getInt(offset) : -1;
+        }
+
+        int getFirstInt() {
+            return getInt(0);
+        }
+    }
+
+    private static class Recording {
+        final Path path;
+        final List<Frame> frames = new ArrayList<Frame>();
+
+        Recording(Path path) {
+            this.path = path;
+        }
+
+        static Recording load(Path path) throws IOException {
+            Recording rec = new Recording(path);
+            try (DataInputStream in =
+                    new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                if (in.readInt() != WireCapture.MAGIC || in.readInt() != WireCapture.VERSION) {
+                    throw new IOException(path + " is not a capture of the PL server");
+                }
+
+                while (true) {
+                    byte direction;
+                    try {
+                        direction = in.readByte();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    long nanos = in.readLong();
+                    byte[] data = new byte[in.readInt()];
+                    in.readFully(data);
+                    rec.frames.add(new Frame(direction, nanos, data));
+                }
+            } catch (EOFException e) {
+                // the last record is truncated (e.g. the PL server is killed), ignore it
+            }
+            return rec;
+        }
+
+        boolean isBootstrap() {
+            for (Frame f : frames) {
+                if (f.direction == WireCapture.IN) {
+                    return f.getInt(OFFSET_CODE) == RequestCode.UTIL_BOOTSTRAP;
+                }
+            }
+            return false;
+        }
+    }
+}
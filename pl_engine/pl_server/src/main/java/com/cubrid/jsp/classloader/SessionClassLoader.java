@@ -33,6 +33,8 @@ package com.cubrid.jsp.classloader;
 
 import com.cubrid.jsp.code.CompiledCode;
 import com.cubrid.jsp.code.CompiledCodeSet;
+import com.cubrid.jsp.metrics.FlightEvent;
+import com.cubrid.jsp.metrics.FlightEvents;
 import java.util.Map.Entry;
 import java.util.UUID;
 
@@ -71,6 +73,8 @@ public class SessionClassLoader extends ClassLoader {
 
             // find in codesets
             if (code != null) {
+                FlightEvent event = FlightEvents.CLASS_LOAD.begin();
+                int size = 0;
                 for (Entry<String, CompiledCode> entry : code.getCodeList()) {
                     Class<?> cls = null;
                     String className = entry.getKey();
@@ -79,6 +83,14 @@ public class SessionClassLoader extends ClassLoader {
                     if (name.equals(className)) {
                         mainCls = cls;
                     }
+                    size += classBytes.length;
+                }
+
+                if (event != null) {
+                    event.set(FlightEvents.CLASS_LOAD_CLASS_NAME, name)
+                            .set(FlightEvents.CLASS_LOAD_STAGE, "define")
+                            .set(FlightEvents.CLASS_LOAD_SIZE, size)
+                            .commit();
                 }
             }
         }
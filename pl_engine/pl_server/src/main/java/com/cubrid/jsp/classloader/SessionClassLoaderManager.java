@@ -1,7 +1,11 @@
 package com.cubrid.jsp.classloader;
 
+import com.cubrid.jsp.code.ClassAccess;
 import com.cubrid.jsp.code.CompiledCodeSet;
 import com.cubrid.jsp.code.MemoryClass;
+import com.cubrid.jsp.code.MemoryClassCache;
+import com.cubrid.jsp.code.Signature;
+import java.sql.Connection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -9,35 +13,47 @@ public class SessionClassLoaderManager {
 
     private long id;
 
+    // classes validated in the current transaction
     private Map<String, MemoryClass> sessionScopedLoadedCode; // <Main Class Name, MemoryClass>
 
-    private SessionClassLoaderGroup sessionClassLoaderGroup;
-
     public SessionClassLoaderManager(long id) {
         this.id = id;
         sessionScopedLoadedCode = new HashMap<>();
-        sessionClassLoaderGroup = new SessionClassLoaderGroup();
     }
 
-    public Class<?> loadClass(CompiledCodeSet code) throws ClassNotFoundException {
-        if (code == null) {
+    /*
+     * Only the timestamp of the code is requested to the server if the class is found in the
+     * server-wide MemoryClassCache. The object code is requested and defined only if it is not
+     * cached yet or outdated.
+     */
+    public Class<?> loadClass(Connection conn, Signature sig) throws Exception {
+        String className = sig.getClassName();
+        long timestamp = ClassAccess.getCodeTimestamp(conn, className);
+        if (timestamp == -1) {
             return null;
         }
 
-        String className = code.getMainClassName();
-        MemoryClass mCls = null;
-        if (!sessionScopedLoadedCode.containsKey(className)) {
-            mCls = new MemoryClass(className);
-            mCls.setCode(code);
-            sessionScopedLoadedCode.put(className, mCls);
+        MemoryClass mCls = MemoryClassCache.getInstance().get(className, timestamp);
+        if (mCls == null) {
+            CompiledCodeSet code = ClassAccess.getObjectCode(conn, sig, timestamp);
+            if (code == null) {
+                return null;
+            }
+            mCls = MemoryClassCache.getInstance().load(code);
         }
 
-        Class<?> loadedClass = sessionClassLoaderGroup.loadClass(code);
-        if (mCls != null && loadedClass != null) {
-            mCls.setLoadedClass(loadedClass);
+        sessionScopedLoadedCode.put(className, mCls);
+        return mCls.getLoadedClass();
+    }
+
+    public Class<?> loadClass(CompiledCodeSet code) throws ClassNotFoundException {
+        if (code == null) {
+            return null;
         }
 
-        return loadedClass;
+        MemoryClass mCls = MemoryClassCache.getInstance().load(code);
+        sessionScopedLoadedCode.put(code.getMainClassName(), mCls);
+        return mCls.getLoadedClass();
     }
 
     public Class<?> findClass(String mainClassName) {
@@ -55,11 +71,6 @@ public class SessionClassLoaderManager {
 
     public void clear() {
         sessionScopedLoadedCode.clear();
-
-        if (sessionClassLoaderGroup != null) {
-            sessionClassLoaderGroup.clear();
-        }
-        sessionClassLoaderGroup = new SessionClassLoaderGroup();
     }
 
     public long getId() {
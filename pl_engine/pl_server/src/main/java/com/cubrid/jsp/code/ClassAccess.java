@@ -34,6 +34,8 @@ import com.cubrid.jsp.context.Context;
 import com.cubrid.jsp.data.CUBRIDPacker;
 import com.cubrid.jsp.data.CUBRIDUnpacker;
 import com.cubrid.jsp.exception.TypeMismatchException;
+import com.cubrid.jsp.metrics.FlightEvent;
+import com.cubrid.jsp.metrics.FlightEvents;
 import com.cubrid.jsp.protocol.Header;
 import com.cubrid.jsp.protocol.RequestCode;
 import com.cubrid.jsp.value.Value;
@@ -90,10 +92,8 @@ public class ClassAccess {
         return jar;
     }
 
-    public static CompiledCodeSet getObjectCode(Connection conn, Signature sig) throws Exception {
-        CompiledCodeSet code = null;
-        String className = sig.getClassName();
-
+    // returns -1 if the code does not exist
+    public static long getCodeTimestamp(Connection conn, String className) {
         String tKey = null;
         try {
             tKey = getTransactionKey(conn, className);
@@ -101,20 +101,45 @@ public class ClassAccess {
         }
 
         if (tKey == null) {
+            return -1;
+        }
+
+        return Long.parseLong(tKey);
+    }
+
+    public static CompiledCodeSet getObjectCode(Connection conn, Signature sig) throws Exception {
+        long timestamp = getCodeTimestamp(conn, sig.getClassName());
+        if (timestamp == -1) {
             return null;
         }
 
+        return getObjectCode(conn, sig, timestamp);
+    }
+
+    public static CompiledCodeSet getObjectCode(Connection conn, Signature sig, long timestamp)
+            throws Exception {
+        CompiledCodeSet code = null;
+        String className = sig.getClassName();
+
+        FlightEvent event = FlightEvents.CLASS_LOAD.begin();
         byte[] jarCode = ClassAccess.getObjectCodeBytes(conn, className);
         if (jarCode != null) {
             code = CompiledCodeSet.loadFromJar(className, jarCode);
-            code.setTimestamp(tKey);
+            code.setTimestamp(timestamp);
+        }
+
+        if (event != null) {
+            event.set(FlightEvents.CLASS_LOAD_CLASS_NAME, className)
+                    .set(FlightEvents.CLASS_LOAD_STAGE, "fetch")
+                    .set(FlightEvents.CLASS_LOAD_SIZE, (jarCode == null) ? 0 : jarCode.length)
+                    .commit();
         }
 
         return code;
     }
 
     private static void sendGetCodeAttr(String attr_name) throws IOException {
-        CUBRIDPacker packer = new CUBRIDPacker(ByteBuffer.allocate(1024));
+        CUBRIDPacker packer = Context.getCurrentExecuteThread().getPayloadPacker();
         packer.packInt(RequestCode.REQUEST_CODE_ATTR);
         packer.packString(attr_name);
         Context.getCurrentExecuteThread().sendCommand(packer.getBuffer());
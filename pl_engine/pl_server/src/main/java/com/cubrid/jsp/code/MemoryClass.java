@@ -38,6 +38,9 @@ public class MemoryClass {
     private CompiledCodeSet loadedCode = null;
     private Class<?> loadedClass = null;
 
+    // for LRU eviction in MemoryClassCache
+    private volatile long lastAccessTime = 0;
+
     public MemoryClass(String className) {
         this.className = className;
     }
@@ -46,6 +49,21 @@ public class MemoryClass {
         return className;
     }
 
+    public long getTimeStamp() {
+        if (loadedCode == null) {
+            return -1;
+        }
+        return loadedCode.getTimeStamp();
+    }
+
+    public long getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    public void touch() {
+        lastAccessTime = System.nanoTime();
+    }
+
     public void setCode(CompiledCodeSet codeset) {
         clear();
         this.loadedCode = codeset;
@@ -31,12 +31,18 @@
 
 package com.cubrid.jsp.code;
 
+import com.cubrid.jsp.Server;
+import com.cubrid.jsp.ServerConfig;
+import com.cubrid.jsp.classloader.SessionClassLoader;
+import com.cubrid.jsp.metrics.MetricsRegistry;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+// server-wide cache of loaded PL/CSQL classes, shared across sessions and transactions
 public class MemoryClassCache {
 
-    private Map<String, MemoryClass> classMap = null;
+    private Map<String, MemoryClass> classMap = null; // <Main Class Name, MemoryClass>
+    private final int maxSize;
 
     // singleton
     private static class LazyHolder {
@@ -49,13 +55,94 @@ public class MemoryClassCache {
 
     public MemoryClassCache(MemoryClassCache parent) {
         this.classMap = new ConcurrentHashMap<>();
+
+        ServerConfig config = Server.getConfig();
+        this.maxSize =
+                (config != null)
+                        ? config.getClassCacheSize()
+                        : ServerConfig.DEFAULT_CLASS_CACHE_SIZE;
     }
 
     public MemoryClass getByClassName(String className) {
         return classMap.get(className);
     }
 
+    // returns null if the class is not cached or the cached code is outdated
+    public MemoryClass get(String className, long timestamp) {
+        MemoryClass mCls = classMap.get(className);
+        if (mCls == null || mCls.getTimeStamp() != timestamp) {
+            return null;
+        }
+
+        mCls.touch();
+        MetricsRegistry.getInstance().recordClassCacheHit();
+        return mCls;
+    }
+
     public void put(MemoryClass mCls) {
+        mCls.touch();
         classMap.put(mCls.getClassName(), mCls);
+        evictIfFull();
+    }
+
+    // define the classes of the code in a dedicated class loader and cache them
+    public MemoryClass load(CompiledCodeSet code) throws ClassNotFoundException {
+        String className = code.getMainClassName();
+
+        MemoryClass cached = get(className, code.getTimeStamp());
+        if (cached != null) {
+            return cached;
+        }
+
+        MetricsRegistry.getInstance().recordClassCacheMiss();
+        SessionClassLoader cl = new SessionClassLoader(code);
+        Class<?> loadedClass = cl.loadClass(className);
+        if (loadedClass == null) {
+            throw new ClassNotFoundException(className);
+        }
+
+        MemoryClass mCls = new MemoryClass(className);
+        mCls.setCode(code);
+        mCls.setLoadedClass(loadedClass);
+        mCls.touch();
+
+        // another thread may have loaded the same or a newer code meanwhile
+        MemoryClass result =
+                classMap.merge(
+                        className,
+                        mCls,
+                        (prev, cur) -> (prev.getTimeStamp() >= cur.getTimeStamp()) ? prev : cur);
+        evictIfFull();
+        return result;
+    }
+
+    public void remove(String className) {
+        classMap.remove(className);
+    }
+
+    public int size() {
+        return classMap.size();
+    }
+
+    public void clear() {
+        classMap.clear();
+    }
+
+    private void evictIfFull() {
+        while (classMap.size() > maxSize) {
+            MemoryClass victim = null;
+            for (MemoryClass mCls : classMap.values()) {
+                if (victim == null || mCls.getLastAccessTime() < victim.getLastAccessTime()) {
+                    victim = mCls;
+                }
+            }
+
+            if (victim == null) {
+                break;
+            }
+
+            // loaded classes are still valid for the sessions referencing them
+            classMap.remove(victim.getClassName(), victim);
+        }
     }
 }
@@ -0,0 +1,369 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.compiler;
+
+import com.cubrid.jsp.Server;
+import com.cubrid.jsp.ServerConfig;
+import com.cubrid.jsp.data.CompileInfo;
+import com.cubrid.jsp.metrics.MetricsRegistry;
+import com.cubrid.plcsql.compiler.PlcsqlCompilerMain;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+
+/*
+ * Persistent cache of compile results in $CUBRID_TMP/compile_cache, which saves code generation and
+ * javac when the same routine is created again, e.g. by a deployment script run repeatedly.
+ *
+ * An entry is a file named by the SHA-256 hash of
+ *   . the compiler version, which is the server version and the build time of pl_server.jar,
+ *   . the compile options changing the result, the owner, and the text of the routine, and
+ *   . the answers of the CUBRID server to the semantic questions of the compile (see ServerAPI).
+ * The answers include the types of the table columns and the signatures of the global routines used
+ * in the routine, and so a change of the schema they depend on makes a miss.
+ * The key is completed after type checking, the last stage asking the server, and a hit returns the
+ * CompileInfo of the first compile including its jar.
+ *
+ * Files are touched on hits, and the least recently used ones are removed when the total size exceeds
+ * -Dcubrid.pl.compile_cache.size megabytes. Entries are written to a temporary file and moved in
+ * place, so that PL servers of different databases sharing $CUBRID_TMP can use the same directory.
+ */
+public class CompileCache {
+
+    private static final String DIR_NAME = "compile_cache";
+    private static final String ENTRY_SUFFIX = ".cinfo";
+    private static final int ENTRY_FORMAT = 1;
+
+    private static volatile CompileCache instance = null;
+    private static volatile boolean disabled = false;
+
+    private final Path dir;
+    private final long maxBytes;
+    private final byte[] compilerStamp;
+
+    private long totalBytes = -1; // unknown until the first put ()
+
+    private CompileCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.compilerStamp = getCompilerStamp().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // returns null if the cache is disabled
+    public static CompileCache getInstance() {
+        CompileCache cache = instance;
+        if (cache == null && !disabled) {
+            synchronized (CompileCache.class) {
+                if (instance == null && !disabled) {
+                    ServerConfig config = Server.getConfig();
+                    if (config == null || config.getCompileCacheSize() == 0) {
+                        disabled = true;
+                    } else {
+                        instance =
+                                new CompileCache(
+                                        Paths.get(config.getTmpPath(), DIR_NAME),
+                                        config.getCompileCacheSize() * 1024L * 1024L);
+                    }
+                }
+                cache = instance;
+            }
+        }
+        return cache;
+    }
+
+    // begins the key of a compile, to which the answers from the server are to be added
+    public MessageDigest newKeyDigest(String source, String owner, String options) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every Java platform supports SHA-256
+        }
+
+        digest.update(compilerStamp);
+        for (String s : new String[] {options, owner, source}) {
+            digest.update((byte) 0); // separator
+            if (s != null) {
+                digest.update(s.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        digest.update((byte) 0);
+        return digest;
+    }
+
+    public static String getKey(MessageDigest digest) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    public CompileInfo get(String key) {
+        CompileInfo info = read(key);
+        if (info == null) {
+            MetricsRegistry.getInstance().recordCompileCacheMiss();
+        } else {
+            MetricsRegistry.getInstance().recordCompileCacheHit();
+        }
+        return info;
+    }
+
+    public void put(String key, CompileInfo info) {
+        assert info.errCode == 0 && info.compiledCode != null;
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeInt(ENTRY_FORMAT);
+            writeString(out, info.translated);
+            writeString(out, info.createStmt);
+            writeString(out, info.className);
+            writeString(out, info.signature);
+            out.writeInt(info.compiledType);
+            writeBytes(out, info.compiledCode);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // not expected for a ByteArrayOutputStream
+        }
+        write(key, baos.toByteArray());
+    }
+
+    // ------------------------------------------------------------------
+    // Private
+    // ------------------------------------------------------------------
+
+    private CompileInfo read(String key) {
+        Path path = dir.resolve(key + ENTRY_SUFFIX);
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            if (in.readInt() != ENTRY_FORMAT) {
+                return null;
+            }
+
+            String translated = readString(in);
+            String createStmt = readString(in);
+            String className = readString(in);
+            String signature = readString(in);
+            CompileInfo info = new CompileInfo(translated, createStmt, className, signature);
+            info.compiledType = in.readInt();
+            info.compiledCode = readBytes(in);
+
+            // the most recently used one
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return info;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            Server.log(Level.WARNING, e);
+            return null;
+        }
+    }
+
+    private void write(String key, byte[] entry) {
+        if (entry.length > maxBytes) {
+            return;
+        }
+
+        Path path = dir.resolve(key + ENTRY_SUFFIX);
+        Path tmp = null;
+        try {
+            Files.createDirectories(dir);
+            tmp = Files.createTempFile(dir, key, ".tmp");
+            Files.write(tmp, entry);
+            try {
+                Files.move(
+                        tmp,
+                        path,
+                        StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tmp = null;
+        } catch (IOException e) {
+            Server.log(Level.WARNING, e);
+            return;
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+
+        addSize(entry.length);
+    }
+
+    private static String getCompilerStamp() {
+        String stamp = Server.getConfig().getVersion();
+        try {
+            File jar =
+                    new File(
+                            PlcsqlCompilerMain.class
+                                    .getProtectionDomain()
+                                    .getCodeSource()
+                                    .getLocation()
+                                    .toURI());
+            stamp += "/" + jar.lastModified();
+        } catch (Exception e) {
+            // the version only
+        }
+        return stamp;
+    }
+
+    private synchronized void addSize(long size) {
+        if (totalBytes < 0) {
+            // entries written by the previous runs or by other servers
+            totalBytes = 0;
+            for (Entry e : listEntries()) {
+                totalBytes += e.size;
+            }
+        } else {
+            totalBytes += size;
+        }
+
+        if (totalBytes > maxBytes) {
+            evict();
+        }
+    }
+
+    // removes the least recently used entries until the total size becomes 3/4 of the maximum
+    private void evict() {
+        List<Entry> entries = listEntries();
+        Collections.sort(
+                entries,
+                new Comparator<Entry>() {
+                    @Override
+                    public int compare(Entry a, Entry b) {
+                        return Long.compare(a.lastUsed, b.lastUsed);
+                    }
+                });
+
+        long total = 0;
+        for (Entry e : entries) {
+            total += e.size;
+        }
+
+        long target = maxBytes / 4 * 3;
+        for (Entry e : entries) {
+            if (total <= target) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(e.path);
+            } catch (IOException ex) {
+                // removed by another server or in use, leave it
+            }
+            total -= e.size;
+        }
+
+        totalBytes = total;
+    }
+
+    private List<Entry> listEntries() {
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + ENTRY_SUFFIX)) {
+            for (Path path : stream) {
+                try {
+                    entries.add(
+                            new Entry(
+                                    path,
+                                    Files.size(path),
+                                    Files.getLastModifiedTime(path).toMillis()));
+                } catch (IOException e) {
+                    // removed by another server
+                }
+            }
+        } catch (IOException e) {
+            Server.log(Level.WARNING, e);
+        }
+        return entries;
+    }
+
+    private static class Entry {
+        final Path path;
+        final long size;
+        final long lastUsed;
+
+        Entry(Path path, long size, long lastUsed) {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        writeBytes(out, s == null ? null : s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.compiler;
+
+import java.io.Writer;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+
+/*
+ * Reuses the contexts of javac, which hold the symbol tables of the platform classes and
+ * pl_server.jar, across compiles with the same options. A context keeps the file manager it is
+ * made with, so a pool must be used with the same file manager (see MemoryJavaCompiler.Worker). It is done by
+ * com.sun.tools.javac.api.JavacTaskPool (the pool of JShell), which exists since JDK 9 in a package
+ * jdk.compiler does not export. So it is looked up by reflection and is not available on JDK 8, nor
+ * on JDK 16+ unless --add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED is given.
+ */
+class JavacContextPool {
+
+    private static final String POOL_CLASS = "com.sun.tools.javac.api.JavacTaskPool";
+    private static final String WORKER_CLASS = POOL_CLASS + "$Worker";
+    private static final String TASK_CLASS = "com.sun.source.util.JavacTask";
+
+    private final Object pool;
+    private final Method getTask;
+    private final Class<?> workerClass;
+    private final Method generate;
+
+    private JavacContextPool(Object pool, Method getTask, Class<?> workerClass, Method generate) {
+        this.pool = pool;
+        this.getTask = getTask;
+        this.workerClass = workerClass;
+        this.generate = generate;
+    }
+
+    /* returns null if the JDK does not allow it */
+    static JavacContextPool create(int maxContexts) {
+        try {
+            ClassLoader loader = JavaCompiler.class.getClassLoader();
+            Class<?> poolClass = Class.forName(POOL_CLASS, true, loader);
+            Class<?> workerClass = Class.forName(WORKER_CLASS, true, loader);
+
+            Constructor<?> constructor = poolClass.getConstructor(int.class);
+            Method getTask =
+                    poolClass.getMethod(
+                            "getTask",
+                            Writer.class,
+                            JavaFileManager.class,
+                            DiagnosticListener.class,
+                            Iterable.class,
+                            Iterable.class,
+                            Iterable.class,
+                            workerClass);
+
+            Method generate = Class.forName(TASK_CLASS, true, loader).getMethod("generate");
+
+            return new JavacContextPool(
+                    constructor.newInstance(maxContexts), getTask, workerClass, generate);
+        } catch (Throwable e) {
+            // ClassNotFoundException: JDK 8, IllegalAccessException: not exported
+            return null;
+        }
+    }
+
+    boolean call(
+            JavaFileManager fileManager,
+            DiagnosticListener<? super JavaFileObject> diagnosticListener,
+            List<String> options,
+            List<? extends JavaFileObject> compilationUnits)
+            throws Exception {
+        Object worker =
+                Proxy.newProxyInstance(
+                        workerClass.getClassLoader(),
+                        new Class<?>[] {workerClass},
+                        new TaskWorker(generate));
+        try {
+            Object result =
+                    getTask.invoke(
+                            pool,
+                            null,
+                            fileManager,
+                            diagnosticListener,
+                            options,
+                            null,
+                            compilationUnits,
+                            worker);
+            return Boolean.TRUE.equals(result);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /* JavacTaskPool.Worker: runs the task with a reused context */
+    private static class TaskWorker implements InvocationHandler {
+        private final Method generate;
+
+        TaskWorker(Method generate) {
+            this.generate = generate;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("withTask".equals(method.getName())) {
+                // parses, analyzes and writes the classes as JShell does, the errors are reported
+                // to the diagnostic listener
+                try {
+                    generate.invoke(args[0]);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                return Boolean.TRUE;
+            }
+
+            // Object methods
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return "JavacContextPool.Worker";
+            }
+        }
+    }
+}
@@ -76,4 +76,11 @@ public class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager
     public List<CompiledCode> getCodeList() {
         return codeList;
     }
+
+    /* for a file manager reused across compiles: returns the classes of the last compile */
+    public List<CompiledCode> takeCodeList() {
+        List<CompiledCode> taken = codeList;
+        codeList = new ArrayList<CompiledCode>();
+        return taken;
+    }
 }
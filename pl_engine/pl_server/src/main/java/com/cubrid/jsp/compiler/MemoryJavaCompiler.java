@@ -32,78 +32,156 @@
 package com.cubrid.jsp.compiler;
 
 import com.cubrid.jsp.Server;
+import com.cubrid.jsp.code.CompiledCode;
 import com.cubrid.jsp.code.CompiledCodeSet;
 import com.cubrid.jsp.code.SourceCode;
 import com.cubrid.jsp.context.Context;
 import java.io.File;
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticCollector;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
 import javax.tools.ToolProvider;
 
+/*
+ * javac service of the server, shared by all compiles.
+ *
+ * A compile borrows one of the workers, each of which keeps a standard file manager with
+ * pl_server.jar as the class path. A worker is used by one compile at a time, so the platform
+ * classes and pl_server.jar are opened and indexed once per worker, not once per compile.
+ * Up to -Dcubrid.pl.compiler.workers compiles run in parallel and the others wait for a worker.
+ * The symbol tables of javac are also reused across the compiles of a worker if the JDK allows it
+ * (JavacContextPool).
+ */
 public class MemoryJavaCompiler {
 
-    private static String PL_SERVER_PATH = null;
+    private static volatile MemoryJavaCompiler instance = null;
 
-    private JavaCompiler compiler;
-    private List<String> options = new ArrayList<>();
+    private final JavaCompiler compiler;
+    private final File plServerJar;
 
-    public MemoryJavaCompiler() {
+    private final BlockingQueue<Worker> workers;
+
+    private MemoryJavaCompiler(int workerCount) {
         compiler = ToolProvider.getSystemJavaCompiler();
         if (compiler == null) {
             throw new IllegalStateException(
                     "Cannot find the system Java compiler. Check that your class path includes tools.jar");
         }
 
-        if (PL_SERVER_PATH == null) {
-            PL_SERVER_PATH = Server.getConfig().getVmPath() + File.separator + "pl_server.jar";
+        plServerJar = new File(Server.getConfig().getVmPath() + File.separator + "pl_server.jar");
+
+        workers = new ArrayBlockingQueue<Worker>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(new Worker(newFileManager(), JavacContextPool.create(1)));
         }
+    }
 
-        useOptions("-encoding", Context.getSessionCharset().toString());
-        useOptions("-classpath", PL_SERVER_PATH);
+    public static MemoryJavaCompiler getInstance() {
+        MemoryJavaCompiler compiler = instance;
+        if (compiler == null) {
+            synchronized (MemoryJavaCompiler.class) {
+                if (instance == null) {
+                    instance = new MemoryJavaCompiler(Server.getConfig().getCompilerWorkers());
+                }
+                compiler = instance;
+            }
+        }
+        return compiler;
     }
 
-    public synchronized void useOptions(String... options) {
-        this.options.addAll(Arrays.asList(options));
+    private MemoryFileManager newFileManager() {
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            fileManager.setLocation(
+                    StandardLocation.CLASS_PATH, Collections.singletonList(plServerJar));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot set the class path to " + plServerJar, e);
+        }
+        return new MemoryFileManager(fileManager);
     }
 
-    public synchronized CompiledCodeSet compile(SourceCode code) {
-        DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
-        MemoryFileManager fileManager =
-                new MemoryFileManager(compiler.getStandardFileManager(null, null, null));
-        JavaCompiler.CompilationTask task =
-                compiler.getTask(null, fileManager, collector, options, null, Arrays.asList(code));
-
-        boolean result = task.call();
-        if (!result || collector.getDiagnostics().size() > 0) {
-            String exceptionMsg = new String("Unable to compile the source");
-            boolean hasErrors = false;
-
-            for (Diagnostic<? extends JavaFileObject> d : collector.getDiagnostics()) {
-                switch (d.getKind()) {
-                    case NOTE:
-                    case MANDATORY_WARNING:
-                    case WARNING:
-                        break;
-                    case OTHER:
-                    case ERROR:
-                    default:
-                        hasErrors = true;
-                        break;
-                }
+    public CompiledCodeSet compile(SourceCode code) {
+        Worker worker = borrowWorker();
+        try {
+            DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+            // no annotation processing: saves looking up processors in the class path
+            List<String> options =
+                    Arrays.asList(
+                            "-proc:none", "-encoding", Context.getSessionCharset().toString());
+            List<SourceCode> units = Collections.singletonList(code);
+
+            boolean result;
+            if (worker.contextPool != null) {
+                result = worker.contextPool.call(worker.fileManager, collector, options, units);
+            } else {
+                result =
+                        compiler.getTask(null, worker.fileManager, collector, options, null, units)
+                                .call();
             }
+            List<CompiledCode> codeList = worker.fileManager.takeCodeList();
+
+            if (!result || collector.getDiagnostics().size() > 0) {
+                String exceptionMsg = new String("Unable to compile the source");
+                boolean hasErrors = false;
+
+                for (Diagnostic<? extends JavaFileObject> d : collector.getDiagnostics()) {
+                    switch (d.getKind()) {
+                        case NOTE:
+                        case MANDATORY_WARNING:
+                        case WARNING:
+                            break;
+                        case OTHER:
+                        case ERROR:
+                        default:
+                            hasErrors = true;
+                            break;
+                    }
+                }
 
-            if (hasErrors) {
-                throw new RuntimeException(exceptionMsg.toString());
+                if (hasErrors) {
+                    throw new RuntimeException(exceptionMsg.toString());
+                }
             }
+
+            assert (code.getClassName() != null);
+
+            return new CompiledCodeSet(code.getClassName(), codeList);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // reflective call of JavacContextPool
+            throw new RuntimeException("Unable to compile the source", e);
+        } finally {
+            worker.fileManager.takeCodeList(); // drops the classes of a failed compile
+            workers.offer(worker);
+        }
+    }
+
+    private Worker borrowWorker() {
+        try {
+            return workers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a Java compiler", e);
         }
+    }
 
-        assert (code.getClassName() != null);
+    private static class Worker {
+        final MemoryFileManager fileManager;
+        final JavacContextPool contextPool; // null if not allowed by the JDK
 
-        return new CompiledCodeSet(code.getClassName(), fileManager.getCodeList());
+        Worker(MemoryFileManager fileManager, JavacContextPool contextPool) {
+            this.fileManager = fileManager;
+            this.contextPool = contextPool;
+        }
     }
 }
@@ -32,8 +32,8 @@
 package com.cubrid.jsp.context;
 
 import com.cubrid.jsp.ExecuteThread;
+import com.cubrid.jsp.RoutineLinkCache;
 import com.cubrid.jsp.Server;
-import com.cubrid.jsp.ServerConfig;
 import com.cubrid.jsp.SysParam;
 import com.cubrid.jsp.TargetMethodCache;
 import com.cubrid.jsp.classloader.ClassLoaderManager;
@@ -78,6 +78,9 @@ public class Context {
     // method cache
     private TargetMethodCache methodCache = null;
 
+    // PL/CSQL routines called directly by other PL/CSQL routines
+    private RoutineLinkCache routineLinkCache = null;
+
     // Whether SP is able to process TCL (commit, rollback). (default: false)
     private boolean transactionControl = false;
 
@@ -90,6 +93,7 @@ public class Context {
 
     // context system parameters
     private HashMap<Integer, SysParam> systemParameters = null;
+    private volatile SessionSettings sessionSettings = null; // made from systemParameters
 
     public Context(long id) {
         sessionId = id;
@@ -117,6 +121,12 @@ public class Context {
         }
     }
 
+    public void returnCachedStatements(ExecuteThread owner) {
+        if (connection != null) {
+            connection.returnCachedStatements(owner);
+        }
+    }
+
     public Properties getClientInfo() {
         if (clientInfo == null) {
             clientInfo = new Properties();
@@ -138,6 +148,22 @@ public class Context {
         return systemParameters;
     }
 
+    public void setSystemParameter(SysParam sysParam) {
+        SysParam old = getSystemParameters().put(sysParam.getParamId(), sysParam);
+        if (old == null || !old.getParamValue().equals(sysParam.getParamValue())) {
+            sessionSettings = null;
+        }
+    }
+
+    public SessionSettings getSessionSettings() {
+        SessionSettings settings = sessionSettings;
+        if (settings == null) {
+            settings = new SessionSettings(getSystemParameters());
+            sessionSettings = settings;
+        }
+        return settings;
+    }
+
     public void checkHeader(Header header) {
         if (prevRequestId > header.requestId) {
             // not incremented
@@ -172,6 +198,10 @@ public class Context {
             if (sessionClassLoaderManager != null) {
                 sessionClassLoaderManager.clear();
             }
+
+            if (routineLinkCache != null) {
+                routineLinkCache.clear();
+            }
         }
     }
 
@@ -201,6 +231,11 @@ public class Context {
             methodCache = null;
         }
 
+        if (routineLinkCache != null) {
+            routineLinkCache.clear();
+            routineLinkCache = null;
+        }
+
         if (messageBuffer != null) {
             messageBuffer.clear();
         }
@@ -237,10 +272,22 @@ public class Context {
         return methodCache;
     }
 
+    public synchronized RoutineLinkCache getRoutineLinkCache() {
+        if (routineLinkCache == null) {
+            routineLinkCache = new RoutineLinkCache();
+        }
+
+        return routineLinkCache;
+    }
+
     public void setTransactionControl(boolean tc) {
         this.transactionControl = tc;
     }
 
+    public boolean getTransactionControl() {
+        return transactionControl;
+    }
+
     public boolean canTransactionControl() {
         if (transactionControl) {
             return true;
@@ -257,29 +304,16 @@ public class Context {
     }
 
     public static int getCodesetId() {
-        return SysParam.getCodesetId(getSessionCharset());
+        return getCurrentSessionSettings().codesetId;
     }
 
     public static Charset getSessionCharset() {
-        Context ctx = ContextManager.getContextofCurrentThread();
-        SysParam sysParam = ctx.getSystemParameters().get(SysParam.INTL_COLLATION);
-        if (sysParam == null) {
-            return Server.getConfig().getServerCharset();
-        }
-
-        String collation = sysParam.getParamValue();
-        String codeset = ServerConfig.parseCollationString(collation);
-
-        Charset charset;
-        try {
-            charset = Charset.forName(codeset);
-        } catch (Exception e) {
-            // java.nio.charset.IllegalCharsetNameException
-            // invalid charset is specified
-            charset = Server.getConfig().getServerCharset();
-        }
+        return getCurrentSessionSettings().charset;
+    }
 
-        return charset;
+    public static SessionSettings getCurrentSessionSettings() {
+        Context ctx = ContextManager.getContextofCurrentThread();
+        return ctx.getSessionSettings();
     }
 
     public static SysParam getSystemParam(int id) {
@@ -312,6 +346,6 @@ public class Context {
 
     // TODO: move this function to proper place
     public static ExecuteThread getCurrentExecuteThread() {
-        return (ExecuteThread) Thread.currentThread();
+        return ExecuteThread.current();
     }
 }
@@ -49,54 +49,48 @@ public class ContextManager {
     }
 
     public static Context getContext(long id) {
-        if (hasContext(id)) {
-            return contextMap.get(id);
-        } else {
-            synchronized (ContextManager.class) {
-                Context newCtx = new Context(id);
-                contextMap.put(id, newCtx);
-                // System.out.println ("new session =" + id); // for debug
-                return newCtx;
-            }
-        }
+        return contextMap.computeIfAbsent(id, Context::new);
     }
 
     public static void destroyContext(long id) {
-        if (hasContext(id)) {
-            Context ctx = contextMap.get(id);
-            if (ctx != null) {
-                ctx.destroy();
-            }
-            contextMap.remove(id);
-            // System.out.println ("deleted session =" + id); // for debug
+        Context ctx = contextMap.remove(id);
+        if (ctx != null) {
+            ctx.destroy();
         }
     }
 
     // Java Thread ID => Context ID
     private static ConcurrentMap<Long, Long> contextThreadMap = new ConcurrentHashMap<Long, Long>();
 
+    // Context bound to the current thread while it is registered
+    private static final ThreadLocal<Context> currentContext = new ThreadLocal<Context>();
+
     public static void registerThread(long threadId, long ctxId) {
-        if (contextThreadMap.containsKey(threadId) == false) {
-            contextThreadMap.put(threadId, ctxId);
+        Long registered = contextThreadMap.putIfAbsent(threadId, ctxId);
+        if (threadId == Thread.currentThread().getId()) {
+            currentContext.set(getContext(registered == null ? ctxId : registered));
         }
     }
 
     public static void deregisterThread(long threadId) {
-        if (contextThreadMap.containsKey(threadId) == true) {
-            contextThreadMap.remove(threadId);
+        contextThreadMap.remove(threadId);
+        if (threadId == Thread.currentThread().getId()) {
+            currentContext.remove();
         }
     }
 
     public static Long getContextIdByThreadId(long threadId) {
-        if (contextThreadMap.containsKey(threadId)) {
-            return contextThreadMap.get(threadId);
-        }
-        return null;
+        return contextThreadMap.get(threadId);
     }
 
     public static Context getContextofCurrentThread() {
+        Context ctx = currentContext.get();
+        if (ctx != null) {
+            return ctx;
+        }
+
         Thread t = Thread.currentThread();
         Long ctxId = ContextManager.getContextIdByThreadId(t.getId());
-        return ContextManager.getContext(ctxId);
+        return (ctxId == null) ? null : ContextManager.getContext(ctxId);
     }
 }
@@ -0,0 +1,92 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.context;
+
+import com.cubrid.jsp.Server;
+import com.cubrid.jsp.ServerConfig;
+import com.cubrid.jsp.SysParam;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/*
+ * Immutable snapshot of the session parameters which are looked up very often (e.g. for every
+ * string value packed or unpacked). It is made again only when the session parameters change.
+ */
+public class SessionSettings {
+    public final Charset charset;
+    public final int codesetId;
+
+    public final boolean oracleStyleEmptyString;
+    public final boolean oracleCompatNumberBehavior;
+    public final boolean compatNumericDivisionScale;
+
+    public final boolean errorStackTrace;
+
+    SessionSettings(Map<Integer, SysParam> sessionParams) {
+        charset = resolveCharset(sessionParams);
+        codesetId = SysParam.getCodesetId(charset);
+
+        oracleStyleEmptyString = getBool(sessionParams, SysParam.ORACLE_STYLE_EMPTY_STRING);
+        oracleCompatNumberBehavior = getBool(sessionParams, SysParam.ORACLE_COMPAT_NUMBER_BEHAVIOR);
+        compatNumericDivisionScale = getBool(sessionParams, SysParam.COMPAT_NUMERIC_DIVISION_SCALE);
+
+        errorStackTrace = getBool(sessionParams, SysParam.STORED_PROCEDURE_ERROR_STACK_TRACE);
+    }
+
+    private static Charset resolveCharset(Map<Integer, SysParam> sessionParams) {
+        SysParam sysParam = sessionParams.get(SysParam.INTL_COLLATION);
+        if (sysParam == null) {
+            return Server.getConfig().getServerCharset();
+        }
+
+        String collation = sysParam.getParamValue();
+        String codeset = ServerConfig.parseCollationString(collation);
+
+        try {
+            return Charset.forName(codeset);
+        } catch (Exception e) {
+            // java.nio.charset.IllegalCharsetNameException
+            // invalid charset is specified
+            return Server.getConfig().getServerCharset();
+        }
+    }
+
+    private static boolean getBool(Map<Integer, SysParam> sessionParams, int id) {
+        SysParam param = sessionParams.get(id);
+        if (param == null) {
+            // get server's parameter
+            param = Server.getConfig().getSystemParameters().get(id);
+        }
+
+        return param != null && Boolean.parseBoolean(param.getParamValue());
+    }
+}
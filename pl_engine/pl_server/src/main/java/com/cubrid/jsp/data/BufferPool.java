@@ -0,0 +1,114 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+package com.cubrid.jsp.data;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Pool of reusable heap buffers owned by a connection (ExecuteThread), not thread-safe.
+ * Buffers are grouped by power of two capacities. Heap buffers are used since the packer, the
+ * unpacker and the protocol classes access the backing array directly.
+ */
+public class BufferPool {
+    private static final int MIN_CAPACITY = 4096;
+    private static final int MAX_POOLED_CAPACITY = 4 * 1024 * 1024;
+    private static final int MAX_POOLED_PER_CLASS = 4;
+
+    private final List<ArrayDeque<ByteBuffer>> freeLists;
+
+    public BufferPool() {
+        freeLists = new ArrayList<ArrayDeque<ByteBuffer>>();
+        for (int capacity = MIN_CAPACITY; capacity <= MAX_POOLED_CAPACITY; capacity <<= 1) {
+            freeLists.add(new ArrayDeque<ByteBuffer>(MAX_POOLED_PER_CLASS));
+        }
+    }
+
+    public ByteBuffer acquire(int minCapacity) {
+        int capacity = capacityFor(minCapacity);
+        int index = indexOf(capacity);
+        if (index >= 0) {
+            ByteBuffer pooled = freeLists.get(index).pollFirst();
+            if (pooled != null) {
+                pooled.clear();
+                return pooled;
+            }
+        }
+
+        return ByteBuffer.allocate(capacity);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.isDirect() || buffer.isReadOnly()) {
+            return;
+        }
+
+        int index = indexOf(buffer.capacity());
+        if (index >= 0) {
+            ArrayDeque<ByteBuffer> freeList = freeLists.get(index);
+            if (freeList.size() < MAX_POOLED_PER_CLASS) {
+                buffer.clear();
+                freeList.addFirst(buffer);
+            }
+        }
+    }
+
+    public void clear() {
+        for (ArrayDeque<ByteBuffer> freeList : freeLists) {
+            freeList.clear();
+        }
+    }
+
+    private static int capacityFor(int minCapacity) {
+        if (minCapacity <= MIN_CAPACITY) {
+            return MIN_CAPACITY;
+        }
+
+        int capacity = Integer.highestOneBit(minCapacity);
+        if (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+        return (capacity > 0) ? capacity : minCapacity; // overflow
+    }
+
+    // returns -1 if the capacity is not pooled
+    private static int indexOf(int capacity) {
+        if (capacity < MIN_CAPACITY
+                || capacity > MAX_POOLED_CAPACITY
+                || Integer.bitCount(capacity) != 1) {
+            return -1;
+        }
+        return Integer.numberOfTrailingZeros(capacity)
+                - Integer.numberOfTrailingZeros(MIN_CAPACITY);
+    }
+}
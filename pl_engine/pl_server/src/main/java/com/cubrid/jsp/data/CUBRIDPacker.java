@@ -31,12 +31,16 @@
 
 package com.cubrid.jsp.data;
 
+import com.cubrid.jsp.Server;
+import com.cubrid.jsp.ServerConfig;
 import com.cubrid.jsp.SysParam;
 import com.cubrid.jsp.context.Context;
 import com.cubrid.jsp.exception.TypeMismatchException;
 import com.cubrid.jsp.jdbc.CUBRIDServerSideResultSet;
+import com.cubrid.jsp.protocol.BootstrapRequest;
 import com.cubrid.jsp.protocol.PackableObject;
 import com.cubrid.jsp.value.NullValue;
+import com.cubrid.jsp.value.NumericValue;
 import com.cubrid.jsp.value.SetValue;
 import com.cubrid.jsp.value.StringValue;
 import com.cubrid.jsp.value.Value;
@@ -44,21 +48,31 @@ import com.cubrid.plcsql.predefined.sp.SpLib;
 import cubrid.sql.CUBRIDOID;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.sql.Date;
 import java.sql.ResultSet;
+import java.sql.Time;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 
 public class CUBRIDPacker {
     private ByteBuffer buffer;
 
+    // if set, expanded buffers are taken from and returned to the pool
+    private BufferPool pool = null;
+
     public CUBRIDPacker(ByteBuffer buffer) {
         buffer.clear();
         this.buffer = buffer;
     }
 
+    public CUBRIDPacker(ByteBuffer buffer, BufferPool pool) {
+        this(buffer);
+        this.pool = pool;
+    }
+
     public CUBRIDPacker(byte[] byteArray) {
         this(ByteBuffer.wrap(byteArray));
     }
@@ -202,45 +216,21 @@ public class CUBRIDPacker {
                 break;
 
             case DBType.DB_NUMERIC:
-                packInt(dbType);
-                packString(value.toBigDecimal().toPlainString());
+                packNumeric(value.toBigDecimal());
                 break;
 
             case DBType.DB_DATE:
-                packInt(dbType);
-                Date d = value.toDate();
-                if (d.equals(SpLib.ZERO_DATE)) {
-                    packString("0000-00-00");
-                } else {
-                    packString(d.toString());
-                }
+                packDate(value.toDate());
                 break;
             case DBType.DB_TIME:
-                packInt(dbType);
-                packString(value.toTime().toString());
+                packTime(value.toTime());
                 break;
 
             case DBType.DB_TIMESTAMP:
+                packTimestamp(value.toTimestamp());
+                break;
             case DBType.DB_DATETIME:
-                packInt(dbType);
-
-                Timestamp ts = null;
-                if (dbType == DBType.DB_DATETIME) {
-                    ts = value.toDatetime();
-                    if (ts.equals(SpLib.ZERO_DATETIME)) {
-                        packString("0000-00-00 00:00:00.000");
-                    } else {
-                        packString(ts.toString());
-                    }
-                } else {
-                    ts = value.toTimestamp();
-                    if (SpLib.isZeroTimestamp((java.sql.Timestamp) ts)) {
-                        packString("0000-00-00 00:00:00");
-                    } else {
-                        SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                        packString(formatter.format(ts));
-                    }
-                }
+                packDatetime(value.toDatetime());
                 break;
 
             case DBType.DB_OID:
@@ -253,6 +243,11 @@ public class CUBRIDPacker {
             case DBType.DB_SET:
             case DBType.DB_MULTISET:
             case DBType.DB_SEQUENCE:
+                if (value instanceof SetValue && ((SetValue) value).getPrimitiveArray() != null) {
+                    packPrimitiveArray(((SetValue) value).getPrimitiveArray(), dbType);
+                    break;
+                }
+
                 packInt(dbType);
 
                 Object[] values = null;
@@ -307,37 +302,20 @@ public class CUBRIDPacker {
             packInt(DBType.DB_DOUBLE);
             packDouble(((Double) result).doubleValue());
         } else if (result instanceof BigDecimal) {
-            packInt(DBType.DB_NUMERIC);
-            packString(((BigDecimal) result).toPlainString(), codeset);
+            packNumeric((BigDecimal) result);
         } else if (result instanceof String) {
             packInt(DBType.DB_STRING);
             packInt(codeset);
             packString((String) result, codeset);
         } else if (result instanceof java.sql.Date) {
-            packInt(DBType.DB_DATE);
-            if (result.equals(SpLib.ZERO_DATE)) {
-                packString("0000-00-00", codeset);
-            } else {
-                packString(result.toString(), codeset);
-            }
+            packDate((java.sql.Date) result);
         } else if (result instanceof java.sql.Time) {
-            packInt(DBType.DB_TIME);
-            packString(result.toString(), codeset);
+            packTime((java.sql.Time) result);
         } else if (result instanceof java.sql.Timestamp) {
-            packInt(ret_type);
             if (ret_type == DBType.DB_DATETIME) {
-                if (result.equals(SpLib.ZERO_DATETIME)) {
-                    packString("0000-00-00 00:00:00.000");
-                } else {
-                    packString(result.toString());
-                }
+                packDatetime((java.sql.Timestamp) result);
             } else {
-                if (SpLib.isZeroTimestamp((java.sql.Timestamp) result)) {
-                    packString("0000-00-00 00:00:00");
-                } else {
-                    SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-                    packString(formatter.format(result));
-                }
+                packTimestamp((java.sql.Timestamp) result);
             }
         } else if (result instanceof CUBRIDOID) {
             packInt(DBType.DB_OBJECT);
@@ -348,38 +326,16 @@ public class CUBRIDPacker {
         } else if (result instanceof ResultSet) {
             packInt(DBType.DB_RESULTSET);
             packBigInt(((CUBRIDServerSideResultSet) result).getQueryId());
-        } else if (result instanceof int[]) {
-            int length = ((int[]) result).length;
-            Integer[] array = new Integer[length];
-            packInt(array.length);
-            for (int i = 0; i < array.length; i++) {
-                array[i] = new Integer(((int[]) result)[i]);
-                packObject(array[i], DBType.DB_INT, codeset);
-            }
-        } else if (result instanceof short[]) {
-            int length = ((short[]) result).length;
-            Short[] array = new Short[length];
-            packInt(array.length);
-            for (int i = 0; i < array.length; i++) {
-                array[i] = new Short(((short[]) result)[i]);
-                packObject(array, DBType.DB_SHORT, codeset);
-            }
-        } else if (result instanceof float[]) {
-            int length = ((float[]) result).length;
-            Float[] array = new Float[length];
-            packInt(array.length);
-            for (int i = 0; i < array.length; i++) {
-                array[i] = new Float(((float[]) result)[i]);
-                packObject(array[i], DBType.DB_FLOAT, codeset);
-            }
-        } else if (result instanceof double[]) {
-            int length = ((double[]) result).length;
-            Double[] array = new Double[length];
-            packInt(array.length);
-            for (int i = 0; i < array.length; i++) {
-                array[i] = new Double(((double[]) result)[i]);
-                packObject(array[i], DBType.DB_DOUBLE, codeset);
-            }
+        } else if (result instanceof short[]
+                || result instanceof int[]
+                || result instanceof long[]
+                || result instanceof float[]
+                || result instanceof double[]) {
+            boolean isCollection =
+                    ret_type == DBType.DB_SET
+                            || ret_type == DBType.DB_MULTISET
+                            || ret_type == DBType.DB_SEQUENCE;
+            packPrimitiveArray(result, isCollection ? ret_type : DBType.DB_SEQUENCE);
         } else if (result instanceof Object[]) {
             packInt(ret_type);
             Object[] arr = (Object[]) result;
@@ -394,6 +350,228 @@ public class CUBRIDPacker {
         }
     }
 
+    private static boolean accepted(int feature) {
+        ServerConfig config = Server.getConfig();
+        return config != null && config.hasFeature(feature);
+    }
+
+    /*
+     * DATE, TIME, TIMESTAMP, DATETIME and NUMERIC values are sent in their binary form, with the
+     * type or'ed with DBType.BINARY_ENCODED, if the server agreed to it at bootstrap. Otherwise
+     * (e.g. a server of an older version) they are sent as strings to be parsed by the server.
+     */
+    private static boolean binaryEncoding() {
+        return accepted(BootstrapRequest.FEATURE_BINARY_ENCODING);
+    }
+
+    /*
+     * A collection of short, int, long, float or double is sent as the collection type or'ed with
+     * DBType.BINARY_ENCODED, the element type, the count and the elements one after another, if the
+     * server agreed to it at bootstrap. Otherwise each element is sent as a value with its type.
+     */
+    private void packPrimitiveArray(Object array, int dbType) {
+        boolean bulk = accepted(BootstrapRequest.FEATURE_PRIMITIVE_ARRAY);
+        packInt(bulk ? (dbType | DBType.BINARY_ENCODED) : dbType);
+
+        if (array instanceof short[]) {
+            short[] a = (short[]) array;
+            if (bulk) {
+                packArrayHeader(DBType.DB_SHORT, a.length, DataUtilities.SHORT_BYTES);
+                buffer.asShortBuffer().put(a);
+                skipArrayBody(a.length, DataUtilities.SHORT_BYTES);
+            } else {
+                packInt(a.length);
+                for (short e : a) {
+                    packInt(DBType.DB_SHORT);
+                    packShort(e);
+                }
+            }
+        } else if (array instanceof int[]) {
+            int[] a = (int[]) array;
+            if (bulk) {
+                packArrayHeader(DBType.DB_INT, a.length, DataUtilities.INT_BYTES);
+                buffer.asIntBuffer().put(a);
+                skipArrayBody(a.length, DataUtilities.INT_BYTES);
+            } else {
+                packInt(a.length);
+                for (int e : a) {
+                    packInt(DBType.DB_INT);
+                    packInt(e);
+                }
+            }
+        } else if (array instanceof long[]) {
+            long[] a = (long[]) array;
+            if (bulk) {
+                packArrayHeader(DBType.DB_BIGINT, a.length, DataUtilities.LONG_BYTES);
+                align(DataUtilities.MAX_ALIGNMENT); // as packBigInt ()
+                buffer.asLongBuffer().put(a);
+                skipArrayBody(a.length, DataUtilities.LONG_BYTES);
+            } else {
+                packInt(a.length);
+                for (long e : a) {
+                    packInt(DBType.DB_BIGINT);
+                    packBigInt(e);
+                }
+            }
+        } else if (array instanceof float[]) {
+            float[] a = (float[]) array;
+            if (bulk) {
+                packArrayHeader(DBType.DB_FLOAT, a.length, DataUtilities.FLOAT_BYTES);
+                buffer.asFloatBuffer().put(a);
+                skipArrayBody(a.length, DataUtilities.FLOAT_BYTES);
+            } else {
+                packInt(a.length);
+                for (float e : a) {
+                    packInt(DBType.DB_FLOAT);
+                    packFloat(e);
+                }
+            }
+        } else if (array instanceof double[]) {
+            double[] a = (double[]) array;
+            if (bulk) {
+                packArrayHeader(DBType.DB_DOUBLE, a.length, DataUtilities.DOUBLE_BYTES);
+                buffer.asDoubleBuffer().put(a);
+                skipArrayBody(a.length, DataUtilities.DOUBLE_BYTES);
+            } else {
+                packInt(a.length);
+                for (double e : a) {
+                    packInt(DBType.DB_DOUBLE);
+                    packDouble(e);
+                }
+            }
+        }
+    }
+
+    private void packArrayHeader(int elementType, int count, int elementBytes) {
+        packInt(elementType);
+        packInt(count);
+        ensureSpace(DataUtilities.MAX_ALIGNMENT + count * elementBytes);
+    }
+
+    // the views of asXXXBuffer () do not move the position of the buffer
+    private void skipArrayBody(int count, int elementBytes) {
+        buffer.position(buffer.position() + count * elementBytes);
+    }
+
+    @SuppressWarnings("deprecation")
+    private void packDate(Date d) {
+        if (binaryEncoding()) {
+            packInt(DBType.DB_DATE | DBType.BINARY_ENCODED);
+            if (d.equals(SpLib.ZERO_DATE)) {
+                packYearMonthDay(0, -1, 0);
+            } else {
+                packYearMonthDay(d.getYear() + 1900, d.getMonth(), d.getDate());
+            }
+        } else {
+            packInt(DBType.DB_DATE);
+            if (d.equals(SpLib.ZERO_DATE)) {
+                packString("0000-00-00");
+            } else {
+                packString(d.toString());
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void packTime(Time t) {
+        if (binaryEncoding()) {
+            packInt(DBType.DB_TIME | DBType.BINARY_ENCODED);
+            packInt(t.getHours());
+            packInt(t.getMinutes());
+            packInt(t.getSeconds());
+        } else {
+            packInt(DBType.DB_TIME);
+            packString(t.toString());
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void packTimestamp(Timestamp ts) {
+        boolean zero = SpLib.isZeroTimestamp(ts);
+        if (binaryEncoding()) {
+            packInt(DBType.DB_TIMESTAMP | DBType.BINARY_ENCODED);
+            if (zero) {
+                packYearMonthDay(0, -1, 0);
+                packInt(0);
+                packInt(0);
+                packInt(0);
+            } else {
+                packYearMonthDay(ts.getYear() + 1900, ts.getMonth(), ts.getDate());
+                packInt(ts.getHours());
+                packInt(ts.getMinutes());
+                packInt(ts.getSeconds());
+            }
+        } else {
+            packInt(DBType.DB_TIMESTAMP);
+            if (zero) {
+                packString("0000-00-00 00:00:00");
+            } else {
+                SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+                packString(formatter.format(ts));
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void packDatetime(Timestamp ts) {
+        boolean zero = ts.equals(SpLib.ZERO_DATETIME);
+        if (binaryEncoding()) {
+            packInt(DBType.DB_DATETIME | DBType.BINARY_ENCODED);
+            if (zero) {
+                packYearMonthDay(0, -1, 0);
+                packInt(0);
+                packInt(0);
+                packInt(0);
+                packInt(0);
+            } else {
+                packYearMonthDay(ts.getYear() + 1900, ts.getMonth(), ts.getDate());
+                packInt(ts.getHours());
+                packInt(ts.getMinutes());
+                packInt(ts.getSeconds());
+                packInt(ts.getNanos() / 1000000);
+            }
+        } else {
+            packInt(DBType.DB_DATETIME);
+            if (zero) {
+                packString("0000-00-00 00:00:00.000");
+            } else {
+                packString(ts.toString());
+            }
+        }
+    }
+
+    // month is 0-based as in the values received, see CUBRIDUnpacker.unpackValue ()
+    private void packYearMonthDay(int year, int month, int day) {
+        packInt(year);
+        packInt(month);
+        packInt(day);
+    }
+
+    private void packNumeric(BigDecimal bd) {
+        if (binaryEncoding()) {
+            if (bd.scale() < 0) {
+                bd = bd.setScale(0);
+            }
+
+            // the precision is counted as the server does for the string form (e.g. 2 for 0.05)
+            int precision = Math.max(bd.precision(), bd.scale());
+            if (precision <= NumericValue.MAX_PRECISION) {
+                // the unscaled value in 128 bits two's complement, as DB_C_NUMERIC
+                BigInteger unscaled = bd.unscaledValue();
+                packInt(DBType.DB_NUMERIC | DBType.BINARY_ENCODED);
+                packInt(precision);
+                packInt(bd.scale());
+                packBigInt(unscaled.shiftRight(64).longValue());
+                packBigInt(unscaled.longValue());
+                return;
+            }
+            // too large to be a NUMERIC: let the server report it as it did for the string form
+        }
+
+        packInt(DBType.DB_NUMERIC);
+        packString(bd.toPlainString());
+    }
+
     public void align(int size) {
         int currentPosition = buffer.position();
         int newPosition = DataUtilities.alignedPosition(currentPosition, size);
@@ -414,11 +592,15 @@ public class CUBRIDPacker {
         while (newCapacity < (buffer.capacity() + size)) {
             newCapacity *= EXPAND_FACTOR;
         }
-        ByteBuffer expanded = ByteBuffer.allocate(newCapacity);
+        ByteBuffer expanded =
+                (pool != null) ? pool.acquire(newCapacity) : ByteBuffer.allocate(newCapacity);
 
         expanded.clear();
         expanded.order(buffer.order());
         expanded.put(buffer.array(), 0, buffer.position());
+        if (pool != null) {
+            pool.release(buffer);
+        }
         buffer = expanded;
     }
 }
@@ -34,6 +34,8 @@ package com.cubrid.jsp.data;
 import com.cubrid.jsp.context.Context;
 import com.cubrid.jsp.exception.TypeMismatchException;
 import com.cubrid.jsp.value.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.util.Calendar;
 
@@ -56,6 +58,10 @@ public class CUBRIDUnpacker {
         this.buffer = buffer;
     }
 
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
     public int unpackInt() {
         align(DataUtilities.INT_ALIGNMENT);
         return buffer.getInt();
@@ -141,16 +147,21 @@ public class CUBRIDUnpacker {
         return len;
     }
 
+    /*
+     * The returned buffer shares the content of the unpacked one (no copy), so it is valid only as
+     * long as the unpacked buffer is
+     */
     public ByteBuffer unpackBuffer() {
         align(DataUtilities.INT_ALIGNMENT);
 
         int size = buffer.getInt();
         if (size > 0) {
-            byte[] buf = new byte[size];
-            buffer.get(buf);
+            ByteBuffer buf = buffer.slice();
+            buf.limit(size);
+            buffer.position(buffer.position() + size);
 
             align(DataUtilities.INT_ALIGNMENT);
-            return ByteBuffer.wrap(buf);
+            return buf;
         } else {
             return ByteBuffer.allocate(0);
         }
@@ -186,12 +197,16 @@ public class CUBRIDUnpacker {
             case DBType.DB_NUMERIC:
                 arg = new NumericValue(unpackCString());
                 break;
+            case DBType.DB_NUMERIC | DBType.BINARY_ENCODED:
+                arg = new NumericValue(unpackNumeric());
+                break;
             case DBType.DB_CHAR:
             case DBType.DB_STRING:
                 int codeset = unpackInt();
                 arg = new StringValue(unpackCStringByteArray(), codeset);
                 break;
             case DBType.DB_DATE:
+            case DBType.DB_DATE | DBType.BINARY_ENCODED:
                 {
                     int year = unpackInt();
                     int month = unpackInt();
@@ -201,6 +216,7 @@ public class CUBRIDUnpacker {
                 }
                 break;
             case DBType.DB_TIME:
+            case DBType.DB_TIME | DBType.BINARY_ENCODED:
                 {
                     int hour = unpackInt();
                     int min = unpackInt();
@@ -213,6 +229,7 @@ public class CUBRIDUnpacker {
                 }
                 break;
             case DBType.DB_TIMESTAMP:
+            case DBType.DB_TIMESTAMP | DBType.BINARY_ENCODED:
                 {
                     int year = unpackInt();
                     int month = unpackInt();
@@ -224,6 +241,7 @@ public class CUBRIDUnpacker {
                 }
                 break;
             case DBType.DB_DATETIME:
+            case DBType.DB_DATETIME | DBType.BINARY_ENCODED:
                 {
                     int year = unpackInt();
                     int month = unpackInt();
@@ -243,6 +261,11 @@ public class CUBRIDUnpacker {
                     arg = new SetValue(unpackSetValue(nCol));
                 }
                 break;
+            case DBType.DB_SET | DBType.BINARY_ENCODED:
+            case DBType.DB_MULTISET | DBType.BINARY_ENCODED:
+            case DBType.DB_SEQUENCE | DBType.BINARY_ENCODED:
+                arg = unpackPrimitiveArray();
+                break;
             case DBType.DB_RESULTSET:
                 {
                     long queryId = unpackBigint();
@@ -266,6 +289,176 @@ public class CUBRIDUnpacker {
         return arg;
     }
 
+    /* moves over a value of paramType without creating it, see unpackValue () */
+    public void skipValue(int paramType) {
+        switch (paramType) {
+            case DBType.DB_SHORT:
+                unpackShort();
+                break;
+            case DBType.DB_INT:
+                unpackInt();
+                break;
+            case DBType.DB_BIGINT:
+            case DBType.DB_RESULTSET:
+                unpackBigint();
+                break;
+            case DBType.DB_FLOAT:
+                unpackFloat();
+                break;
+            case DBType.DB_DOUBLE:
+            case DBType.DB_MONETARY:
+                unpackDouble();
+                break;
+            case DBType.DB_NUMERIC:
+                skipCString();
+                break;
+            case DBType.DB_NUMERIC | DBType.BINARY_ENCODED:
+                skipInts(2); // precision, scale
+                unpackBigint();
+                unpackBigint();
+                break;
+            case DBType.DB_CHAR:
+            case DBType.DB_STRING:
+                unpackInt(); // codeset
+                skipCString();
+                break;
+            case DBType.DB_DATE:
+            case DBType.DB_TIME:
+            case DBType.DB_DATE | DBType.BINARY_ENCODED:
+            case DBType.DB_TIME | DBType.BINARY_ENCODED:
+                skipInts(3);
+                break;
+            case DBType.DB_TIMESTAMP:
+            case DBType.DB_TIMESTAMP | DBType.BINARY_ENCODED:
+                skipInts(6);
+                break;
+            case DBType.DB_DATETIME:
+            case DBType.DB_DATETIME | DBType.BINARY_ENCODED:
+                skipInts(7);
+                break;
+            case DBType.DB_SET:
+            case DBType.DB_MULTISET:
+            case DBType.DB_SEQUENCE:
+                {
+                    int nCol = unpackInt();
+                    for (int i = 0; i < nCol; i++) {
+                        skipValue(unpackInt());
+                    }
+                }
+                break;
+            case DBType.DB_SET | DBType.BINARY_ENCODED:
+            case DBType.DB_MULTISET | DBType.BINARY_ENCODED:
+            case DBType.DB_SEQUENCE | DBType.BINARY_ENCODED:
+                {
+                    int elementType = unpackInt();
+                    int nCol = unpackInt();
+                    if (elementType == DBType.DB_BIGINT) {
+                        align(DataUtilities.MAX_ALIGNMENT);
+                    }
+                    skipArrayBody(nCol, elementBytes(elementType));
+                }
+                break;
+            case DBType.DB_OID:
+            case DBType.DB_OBJECT:
+                align(DataUtilities.INT_ALIGNMENT);
+                buffer.position(buffer.position() + 8); // int pageId, short slotId, short volId
+                break;
+            case DBType.DB_NULL:
+            default:
+                break;
+        }
+    }
+
+    /* precision, scale and the unscaled value in 128 bits two's complement, see DB_C_NUMERIC */
+    private BigDecimal unpackNumeric() {
+        unpackInt(); // precision
+        int scale = unpackInt();
+        ByteBuffer unscaled = ByteBuffer.allocate(16);
+        unscaled.putLong(unpackBigint());
+        unscaled.putLong(unpackBigint());
+        return new BigDecimal(new BigInteger(unscaled.array()), scale);
+    }
+
+    /* the element type, the count and the elements one after another, see CUBRIDPacker */
+    private SetValue unpackPrimitiveArray() throws TypeMismatchException {
+        int elementType = unpackInt();
+        int nCol = unpackInt();
+        switch (elementType) {
+            case DBType.DB_SHORT:
+                {
+                    short[] a = new short[nCol];
+                    buffer.asShortBuffer().get(a);
+                    skipArrayBody(nCol, DataUtilities.SHORT_BYTES);
+                    return new SetValue(a);
+                }
+            case DBType.DB_INT:
+                {
+                    int[] a = new int[nCol];
+                    buffer.asIntBuffer().get(a);
+                    skipArrayBody(nCol, DataUtilities.INT_BYTES);
+                    return new SetValue(a);
+                }
+            case DBType.DB_BIGINT:
+                {
+                    long[] a = new long[nCol];
+                    align(DataUtilities.MAX_ALIGNMENT); // as unpackBigint ()
+                    buffer.asLongBuffer().get(a);
+                    skipArrayBody(nCol, DataUtilities.LONG_BYTES);
+                    return new SetValue(a);
+                }
+            case DBType.DB_FLOAT:
+                {
+                    float[] a = new float[nCol];
+                    buffer.asFloatBuffer().get(a);
+                    skipArrayBody(nCol, DataUtilities.FLOAT_BYTES);
+                    return new SetValue(a);
+                }
+            case DBType.DB_DOUBLE:
+                {
+                    double[] a = new double[nCol];
+                    buffer.asDoubleBuffer().get(a);
+                    skipArrayBody(nCol, DataUtilities.DOUBLE_BYTES);
+                    return new SetValue(a);
+                }
+            default:
+                throw new TypeMismatchException(
+                        "unknown element type of a collection: " + elementType);
+        }
+    }
+
+    private static int elementBytes(int elementType) {
+        switch (elementType) {
+            case DBType.DB_SHORT:
+                return DataUtilities.SHORT_BYTES;
+            case DBType.DB_INT:
+                return DataUtilities.INT_BYTES;
+            case DBType.DB_BIGINT:
+                return DataUtilities.LONG_BYTES;
+            case DBType.DB_FLOAT:
+                return DataUtilities.FLOAT_BYTES;
+            default: // DB_DOUBLE
+                return DataUtilities.DOUBLE_BYTES;
+        }
+    }
+
+    // the views of asXXXBuffer () do not move the position of the buffer
+    private void skipArrayBody(int count, int elementBytes) {
+        buffer.position(buffer.position() + count * elementBytes);
+    }
+
+    private void skipInts(int count) {
+        align(DataUtilities.INT_ALIGNMENT);
+        buffer.position(buffer.position() + count * 4);
+    }
+
+    private void skipCString() {
+        int len = unpackStringSize();
+        if (len > 0) {
+            buffer.position(buffer.position() + len);
+        }
+        align(DataUtilities.INT_ALIGNMENT);
+    }
+
     private Value[] unpackSetValue(int paramCount) throws TypeMismatchException {
         Value[] args = new Value[paramCount];
         for (int i = 0; i < paramCount; i++) {
@@ -284,6 +477,10 @@ public class CUBRIDUnpacker {
         return buffer.position();
     }
 
+    public void setCurrentPosition(int position) {
+        buffer.position(position);
+    }
+
     public int getCurrentLimit() {
         return buffer.limit();
     }
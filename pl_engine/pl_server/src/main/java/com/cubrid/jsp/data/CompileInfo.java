@@ -32,6 +32,7 @@
 package com.cubrid.jsp.data;
 
 import com.cubrid.jsp.protocol.PackableObject;
+import java.util.Map;
 
 public class CompileInfo implements PackableObject {
     public int errCode = -1; // 0: no error, < 0: error
@@ -47,6 +48,13 @@ public class CompileInfo implements PackableObject {
     public int compiledType = -1;
     public byte[] compiledCode = null;
 
+    // class files made by the compiler without javac by their class names, the main class first,
+    // if any (not packed)
+    public Map<String, byte[]> classFiles = null;
+
+    // key of the result in CompileCache, if it is to be stored there (not packed)
+    public String cacheKey = null;
+
     public CompileInfo(int code, int line, int column, String msg) {
         assert code < 0;
 
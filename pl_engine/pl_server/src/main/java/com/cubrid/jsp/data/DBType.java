@@ -77,6 +77,12 @@ public class DBType { // see src/compat/dbtype_def.h
     public static final int DB_DATETIMELTZ = 39;
     public static final int DB_JSON = 40;
 
+    /*
+     * or'ed to the type of a DATE, TIME, TIMESTAMP, DATETIME or NUMERIC value sent in its binary form
+     * instead of a string, see CUBRIDPacker and src/method/method_struct_value.hpp
+     */
+    public static final int BINARY_ENCODED = 0x100;
+
     public static int getObjectDBtype(Object value) {
         if (value == null) return DB_NULL;
         else if (value instanceof String) return DB_STRING;
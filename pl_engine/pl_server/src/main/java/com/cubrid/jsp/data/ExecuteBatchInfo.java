@@ -0,0 +1,37 @@
+package com.cubrid.jsp.data;
+
+/* results of SUFunctionCode.EXECUTE_BATCH_PREPAREDSTATEMENT, one for each execution */
+public class ExecuteBatchInfo {
+    public int[] numAffected = null;
+    public int[] errorCodes = null; // 0 if the execution succeeded
+    public String[] errorMessages = null;
+
+    public ExecuteBatchInfo(int size) {
+        numAffected = new int[size];
+        errorCodes = new int[size];
+        errorMessages = new String[size];
+    }
+
+    public ExecuteBatchInfo(CUBRIDUnpacker unpacker) {
+        this(unpacker.unpackInt());
+
+        for (int i = 0; i < numAffected.length; i++) {
+            numAffected[i] = unpacker.unpackInt();
+            errorCodes[i] = unpacker.unpackInt();
+            errorMessages[i] = unpacker.unpackCString();
+        }
+    }
+
+    public int size() {
+        return numAffected.length;
+    }
+
+    public boolean hasError() {
+        for (int code : errorCodes) {
+            if (code != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
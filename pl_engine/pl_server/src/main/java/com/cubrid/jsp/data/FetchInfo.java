@@ -1,19 +1,91 @@
 package com.cubrid.jsp.data;
 
 import com.cubrid.jsp.exception.TypeMismatchException;
-import com.cubrid.jsp.impl.SUResultTuple;
+import com.cubrid.jsp.value.Value;
+import java.util.Arrays;
 
 public class FetchInfo {
     public int numFetched;
-    public SUResultTuple[] tuples;
+
+    /*
+     * The fetched tuples are kept as received and only their offsets are indexed. A value is
+     * decoded when its column is accessed, so columns (and rows) the caller never reads are not
+     * materialized at all.
+     */
+    private CUBRIDUnpacker valueUnpacker = null;
+    private int[] tupleNumbers = null;
+    private int[] tupleStarts = null; // index of the first value of each tuple in valueOffsets
+    private int[] valueOffsets = null; // offset of (type, value) of each attribute
+    private int[] oidOffsets = null;
 
     public FetchInfo(CUBRIDUnpacker unpacker) throws TypeMismatchException {
         numFetched = unpacker.unpackInt();
         if (numFetched > 0) {
-            tuples = new SUResultTuple[numFetched];
+            valueUnpacker = new CUBRIDUnpacker(unpacker.getBuffer().duplicate());
+            tupleNumbers = new int[numFetched];
+            tupleStarts = new int[numFetched + 1];
+            oidOffsets = new int[numFetched];
+
+            int numValues = 0;
             for (int i = 0; i < numFetched; i++) {
-                tuples[i] = new SUResultTuple(unpacker);
+                tupleNumbers[i] = unpacker.unpackInt();
+                int attributeLength = unpacker.unpackInt();
+
+                if (valueOffsets == null) {
+                    valueOffsets = new int[numFetched * attributeLength];
+                } else if (valueOffsets.length < numValues + attributeLength) {
+                    valueOffsets =
+                            Arrays.copyOf(
+                                    valueOffsets,
+                                    Math.max(valueOffsets.length * 2, numValues + attributeLength));
+                }
+
+                tupleStarts[i] = numValues;
+                for (int j = 0; j < attributeLength; j++) {
+                    unpacker.align(DataUtilities.INT_ALIGNMENT);
+                    valueOffsets[numValues++] = unpacker.getCurrentPosition();
+                    unpacker.skipValue(unpacker.unpackInt());
+                }
+
+                unpacker.align(DataUtilities.INT_ALIGNMENT);
+                oidOffsets[i] = unpacker.getCurrentPosition();
+                unpacker.skipValue(DBType.DB_OID);
             }
+            tupleStarts[numFetched] = numValues;
         }
     }
+
+    public int getTupleNumber(int idx) {
+        if (idx < 0 || idx >= numFetched) {
+            return -1;
+        }
+        return tupleNumbers[idx];
+    }
+
+    public int getAttributeLength(int idx) {
+        if (idx < 0 || idx >= numFetched) {
+            return 0;
+        }
+        return tupleStarts[idx + 1] - tupleStarts[idx];
+    }
+
+    /* returns null if there is no such tuple or attribute */
+    public Value getValue(int idx, int attrIdx) throws TypeMismatchException {
+        if (attrIdx < 0 || attrIdx >= getAttributeLength(idx)) {
+            return null;
+        }
+
+        valueUnpacker.setCurrentPosition(valueOffsets[tupleStarts[idx] + attrIdx]);
+        int paramType = valueUnpacker.unpackInt();
+        return valueUnpacker.unpackValue(paramType);
+    }
+
+    public SOID getOID(int idx) {
+        if (idx < 0 || idx >= numFetched) {
+            return null;
+        }
+
+        valueUnpacker.setCurrentPosition(oidOffsets[idx]);
+        return valueUnpacker.unpackOID();
+    }
 }
@@ -5,12 +5,14 @@ import java.util.List;
 
 public class PrepareInfo {
     public int handleId;
+    public int handleSerial;
     public byte stmtType;
     public int numParameters;
     public List<ColumnInfo> columnInfos = null;
 
     public PrepareInfo(CUBRIDUnpacker unpacker) {
         handleId = unpacker.unpackInt();
+        handleSerial = unpacker.unpackInt();
         stmtType = (byte) unpacker.unpackInt();
         numParameters = unpacker.unpackInt();
 
@@ -71,6 +71,16 @@ public class SUBindParameter extends SUParameter {
         return true;
     }
 
+    /* a snapshot of the bound values, see SUStatement.addBatch () */
+    SUBindParameter copy() {
+        SUBindParameter copied = new SUBindParameter(number);
+        System.arraycopy(types, 0, copied.types, 0, number);
+        System.arraycopy(values, 0, copied.values, 0, number);
+        System.arraycopy(isBinded, 0, copied.isBinded, 0, number);
+        System.arraycopy(paramMode, 0, copied.paramMode, 0, number);
+        return copied;
+    }
+
     void close() {
         for (int i = 0; i < number; i++) {
             values[i] = null;
@@ -37,6 +37,7 @@ import com.cubrid.jsp.data.CUBRIDUnpacker;
 import com.cubrid.jsp.data.DBParameterInfo;
 import com.cubrid.jsp.data.DBType;
 import com.cubrid.jsp.data.ErrorInfo;
+import com.cubrid.jsp.data.ExecuteBatchInfo;
 import com.cubrid.jsp.data.ExecuteInfo;
 import com.cubrid.jsp.data.FetchInfo;
 import com.cubrid.jsp.data.GetByOIDInfo;
@@ -49,14 +50,22 @@ import com.cubrid.jsp.exception.TypeMismatchException;
 import com.cubrid.jsp.jdbc.CUBRIDServerSideConstants;
 import com.cubrid.jsp.jdbc.CUBRIDServerSideJDBCErrorCode;
 import com.cubrid.jsp.jdbc.CUBRIDServerSideJDBCErrorManager;
+import com.cubrid.jsp.metrics.FlightEvent;
+import com.cubrid.jsp.metrics.FlightEvents;
+import com.cubrid.jsp.metrics.MetricsRegistry;
+import com.cubrid.jsp.metrics.RoutineMetrics;
 import com.cubrid.jsp.protocol.Header;
 import cubrid.sql.CUBRIDOID;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.sql.SQLException;
+import java.util.List;
 
 public class SUConnection {
 
+    /* METHOD_CALLBACK_ER_SRV_HANDLE in method_error.hpp */
+    private static final int METHOD_CALLBACK_ER_SRV_HANDLE = -10006;
+
     Context ctx = null;
     ByteBuffer outputBuffer = ByteBuffer.allocate(4096);
 
@@ -65,11 +74,30 @@ public class SUConnection {
     }
 
     public CUBRIDUnpacker request(ByteBuffer buffer) throws IOException, SQLException {
+        FlightEvent event = FlightEvents.SERVER_REQUEST.begin();
+        int functionCode = buffer.getInt(0);
+        int requestSize = buffer.position();
+
         Context.getCurrentExecuteThread().sendCommand(buffer);
         buffer.clear();
 
+        // keep the expanded buffer for the next request
+        outputBuffer = buffer;
+
         ByteBuffer responseBuffer = Context.getCurrentExecuteThread().receiveBuffer();
+        if (event != null) {
+            SUFunctionCode f = SUFunctionCode.of(functionCode);
+            event.set(
+                            FlightEvents.SERVER_REQUEST_FUNCTION,
+                            (f == null) ? String.valueOf(functionCode) : f.name())
+                    .set(FlightEvents.SERVER_REQUEST_REQUEST_SIZE, requestSize)
+                    .set(FlightEvents.SERVER_REQUEST_RESPONSE_SIZE, responseBuffer.limit())
+                    .commit();
+        }
+        return unpackResponse(responseBuffer);
+    }
 
+    private CUBRIDUnpacker unpackResponse(ByteBuffer responseBuffer) throws SQLException {
         CUBRIDUnpacker unpacker = new CUBRIDUnpacker(responseBuffer);
 
         /* read header, dummy */
@@ -81,6 +109,12 @@ public class SUConnection {
         int responseCode = unpacker.unpackInt();
         if (responseCode != 0) {
             ErrorInfo errorInfo = new ErrorInfo(unpacker);
+            if (errorInfo.errorCode == METHOD_CALLBACK_ER_SRV_HANDLE) {
+                // the statement may prepare the query again, see SUStatement.execute ()
+                throw CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
+                        CUBRIDServerSideJDBCErrorCode.ER_SRV_HANDLE, null);
+            }
+
             String errorMsg = errorInfo.errorString;
             throw CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
                     CUBRIDServerSideJDBCErrorCode.ER_DBMS, errorMsg, null);
@@ -124,6 +158,18 @@ public class SUConnection {
         return stmt;
     }
 
+    // SUFunctionCode.RELEASE_QUERY_HANDLES
+    public void releaseQueryHandles(List<Integer> handlerIds) throws IOException, SQLException {
+        CUBRIDPacker packer = new CUBRIDPacker(outputBuffer);
+        packer.packInt(SUFunctionCode.RELEASE_QUERY_HANDLES.getCode());
+        packer.packInt(handlerIds.size());
+        for (int id : handlerIds) {
+            packer.packInt(id);
+        }
+
+        request(packer.getBuffer());
+    }
+
     // SUFunctionCode.GET_SCHEMA_INFO
     public SUStatement getSchemaInfo(int type, String arg1, String arg2, byte flag)
             throws IOException, SQLException {
@@ -143,6 +189,7 @@ public class SUConnection {
     // SUFunctionCode.EXECUTE
     public ExecuteInfo execute(
             int handlerId,
+            int handlerSerial,
             byte executeFlag,
             boolean isScrollable,
             int maxField,
@@ -151,6 +198,7 @@ public class SUConnection {
         CUBRIDPacker packer = new CUBRIDPacker(outputBuffer);
         packer.packInt(SUFunctionCode.EXECUTE.getCode());
         packer.packInt(handlerId);
+        packer.packInt(handlerSerial);
         packer.packInt(executeFlag);
         packer.packInt(maxField < 0 ? 0 : maxField);
 
@@ -171,19 +219,80 @@ public class SUConnection {
         return info;
     }
 
+    // SUFunctionCode.EXECUTE_BATCH_PREPAREDSTATEMENT
+    public ExecuteBatchInfo executeBatch(
+            int handlerId,
+            int handlerSerial,
+            byte executeFlag,
+            boolean stopOnError,
+            List<SUBindParameter> bindParameters)
+            throws IOException, SQLException {
+        CUBRIDPacker packer = new CUBRIDPacker(outputBuffer);
+        packer.packInt(SUFunctionCode.EXECUTE_BATCH_PREPAREDSTATEMENT.getCode());
+        packer.packInt(handlerId);
+        packer.packInt(handlerSerial);
+        packer.packInt(executeFlag);
+        packer.packInt(stopOnError ? 1 : 0);
+        packer.packInt(2); // hasParam
+        packer.packInt(bindParameters.size());
+        for (SUBindParameter bindParameter : bindParameters) {
+            bindParameter.pack(packer);
+        }
+
+        CUBRIDUnpacker unpacker = request(packer.getBuffer());
+        ExecuteBatchInfo info = new ExecuteBatchInfo(unpacker);
+        return info;
+    }
+
     // SUFunctionCode.FETCH
     public FetchInfo fetch(long queryId, int currentRowIndex, int fetchSize, int fetchFlag)
             throws IOException, TypeMismatchException, SQLException {
+        CUBRIDPacker packer = packFetch(queryId, currentRowIndex, fetchSize, fetchFlag);
+
+        CUBRIDUnpacker unpacker = request(packer.getBuffer());
+        FetchInfo info = new FetchInfo(unpacker);
+        countFetched(info);
+        return info;
+    }
+
+    // SUFunctionCode.FETCH, the response is received later by receiveFetch ()
+    public void sendFetch(
+            SUStatement stmt, long queryId, int currentRowIndex, int fetchSize, int fetchFlag)
+            throws IOException {
+        CUBRIDPacker packer = packFetch(queryId, currentRowIndex, fetchSize, fetchFlag);
+
+        ByteBuffer buffer = packer.getBuffer();
+        Context.getCurrentExecuteThread().sendPrefetch(stmt, buffer);
+        buffer.clear();
+
+        // keep the expanded buffer for the next request
+        outputBuffer = buffer;
+    }
+
+    public FetchInfo receiveFetch(ByteBuffer responseBuffer)
+            throws TypeMismatchException, SQLException {
+        CUBRIDUnpacker unpacker = unpackResponse(responseBuffer);
+        FetchInfo info = new FetchInfo(unpacker);
+        countFetched(info);
+        return info;
+    }
+
+    private static void countFetched(FetchInfo info) {
+        RoutineMetrics metrics = MetricsRegistry.current();
+        if (metrics != null && info.numFetched > 0) {
+            metrics.addRowsFetched(info.numFetched);
+        }
+    }
+
+    private CUBRIDPacker packFetch(
+            long queryId, int currentRowIndex, int fetchSize, int fetchFlag) {
         CUBRIDPacker packer = new CUBRIDPacker(outputBuffer);
         packer.packInt(SUFunctionCode.FETCH.getCode());
         packer.packBigInt(queryId);
         packer.packInt(currentRowIndex);
         packer.packInt(fetchSize);
         packer.packInt(fetchFlag);
-
-        CUBRIDUnpacker unpacker = request(packer.getBuffer());
-        FetchInfo info = new FetchInfo(unpacker);
-        return info;
+        return packer;
     }
 
     // SUFunctionCode.MAKE_OUT_RS
@@ -74,6 +74,9 @@ public enum SUFunctionCode {
     /** The CURSOR will manage at the DB Server */
     // CURSOR_CLOSE(42),
 
+    /** Not in UFunctionCode: releases query handlers prepared with PREPARE_RETAIN */
+    RELEASE_QUERY_HANDLES(202),
+
     LAST_FUNCTION_CODE(-1);
 
     private int code;
@@ -89,4 +92,14 @@ public enum SUFunctionCode {
     public int getCode() {
         return this.code;
     }
+
+    // returns null if the code is not defined above
+    public static SUFunctionCode of(int code) {
+        for (SUFunctionCode f : values()) {
+            if (f.code == code) {
+                return f;
+            }
+        }
+        return null;
+    }
 }
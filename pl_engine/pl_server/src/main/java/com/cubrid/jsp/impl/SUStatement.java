@@ -1,8 +1,11 @@
 package com.cubrid.jsp.impl;
 
+import com.cubrid.jsp.context.Context;
 import com.cubrid.jsp.data.CallInfo;
 import com.cubrid.jsp.data.ColumnInfo;
 import com.cubrid.jsp.data.DBType;
+import com.cubrid.jsp.data.DataUtilities;
+import com.cubrid.jsp.data.ExecuteBatchInfo;
 import com.cubrid.jsp.data.ExecuteInfo;
 import com.cubrid.jsp.data.FetchInfo;
 import com.cubrid.jsp.data.GetByOIDInfo;
@@ -18,17 +21,20 @@ import com.cubrid.jsp.jdbc.CUBRIDServerSideConstants;
 import com.cubrid.jsp.jdbc.CUBRIDServerSideJDBCErrorCode;
 import com.cubrid.jsp.jdbc.CUBRIDServerSideJDBCErrorManager;
 import com.cubrid.jsp.jdbc.CUBRIDServerSideOID;
+import com.cubrid.jsp.value.NullValue;
 import com.cubrid.jsp.value.ResultSetValue;
 import com.cubrid.jsp.value.Value;
 import cubrid.jdbc.jci.CUBRIDCommandType;
 import cubrid.sql.CUBRIDOID;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,11 +48,19 @@ public class SUStatement {
 
     private static final int DEFAULT_FETCH_SIZE = 1000;
 
+    /* a fetch is sized to about FETCH_BYTES by the width of a row, see estimateFetchSize () */
+    private static final int FETCH_BYTES = 1024 * 1024;
+    private static final int MIN_FETCH_SIZE = 100;
+    private static final int MAX_FETCH_SIZE = 10000;
+    private static final int MAX_ESTIMATED_STRING_SIZE = 1024;
+
     private int handlerId = -1;
+    private int handlerSerial = 0; // tells the handler from the ones given the same id later
     private int type = NORMAL;
 
     /* prepare info */
     private String sqlStmt;
+    private byte prepareFlag;
     private int columnNumber;
     private int parameterNumber;
     private byte commandType;
@@ -55,6 +69,7 @@ public class SUStatement {
     private List<ColumnInfo> columnInfos = null;
     private HashMap<String, Integer> colNameToIndex = null;
     private SUBindParameter bindParameter = null;
+    private List<SUBindParameter> batchParameters = null;
 
     private byte executeFlag;
     private boolean isGeneratedKeys = false;
@@ -69,6 +84,12 @@ public class SUStatement {
     private boolean wasNull = false;
     SUResultTuple tuples[] = null;
 
+    /* the next tuples requested while the current ones are consumed, see prefetch () */
+    private boolean isScrollable = false;
+    private boolean isPrefetching = false;
+    private FetchInfo prefetchedInfo = null;
+    private SQLException prefetchError = null;
+
     /* related to fetch */
     private int maxFetchSize;
     private int fetchSize = DEFAULT_FETCH_SIZE;
@@ -90,11 +111,13 @@ public class SUStatement {
         suConn = conn;
 
         sqlStmt = sql;
+        prepareFlag = flag;
 
         maxFetchSize = 0;
         isSensitive = false;
 
         handlerId = info.handleId;
+        handlerSerial = info.handleSerial;
         commandType = info.stmtType;
         firstStmtType = commandType;
 
@@ -106,7 +129,7 @@ public class SUStatement {
         bindParameter = new SUBindParameter(parameterNumber);
 
         /* init fetch infos */
-        fetchSize = DEFAULT_FETCH_SIZE;
+        fetchSize = estimateFetchSize();
         fetchedStartCursorPosition =
                 cursorPosition =
                         totalTupleNumber = fetchedTupleNumber = fetchedEndCursorPosition = 0;
@@ -191,6 +214,7 @@ public class SUStatement {
 
         /* init column infos */
         setColumnInfo(info.columnInfos);
+        fetchSize = estimateFetchSize();
 
         totalTupleNumber = info.getResultInfo().tupleCount;
     }
@@ -212,6 +236,47 @@ public class SUStatement {
         }
     }
 
+    public void addBatch() throws SQLException {
+        if (bindParameter == null || !bindParameter.checkAllBinded()) {
+            throw CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
+                    CUBRIDServerSideJDBCErrorCode.ER_NOT_BIND, null);
+        }
+
+        if (batchParameters == null) {
+            batchParameters = new ArrayList<SUBindParameter>();
+        }
+        batchParameters.add(bindParameter.copy());
+    }
+
+    public void clearBatch() {
+        if (batchParameters != null) {
+            batchParameters.clear();
+        }
+    }
+
+    /*
+     * executes the statement once per added parameter set in a single request. if stopOnError,
+     * the parameter sets after a failed one are not executed and have no result
+     */
+    public ExecuteBatchInfo executeBatch(boolean stopOnError) throws IOException, SQLException {
+        if (batchParameters == null || batchParameters.isEmpty()) {
+            return new ExecuteBatchInfo(0);
+        }
+
+        try {
+            try {
+                return suConn.executeBatch(
+                        handlerId, handlerSerial, (byte) 0, stopOnError, batchParameters);
+            } catch (SQLException e) {
+                prepareAgainIfFreed(e);
+                return suConn.executeBatch(
+                        handlerId, handlerSerial, (byte) 0, stopOnError, batchParameters);
+            }
+        } finally {
+            batchParameters.clear();
+        }
+    }
+
     public int getTotalTupleNumber() {
         return totalTupleNumber;
     }
@@ -249,8 +314,18 @@ public class SUStatement {
         }
 
         setExecuteFlags(maxRow, isSensitive);
+        this.isScrollable = isScrollable;
+
+        try {
+            executeInfo = requestExecute(maxField);
+        } catch (SQLException e) {
+            prepareAgainIfFreed(e);
+            executeInfo = requestExecute(maxField);
+        }
 
-        executeInfo = suConn.execute(handlerId, executeFlag, isScrollable, maxField, bindParameter);
+        /* tuples requested ahead belong to the previous execution */
+        prefetchedInfo = null;
+        prefetchError = null;
 
         fetchedStartCursorPosition = cursorPosition = -1;
 
@@ -273,6 +348,33 @@ public class SUStatement {
         return colNameToIndex;
     }
 
+    private ExecuteInfo requestExecute(int maxField) throws IOException, SQLException {
+        return suConn.execute(
+                handlerId, handlerSerial, executeFlag, isScrollable, maxField, bindParameter);
+    }
+
+    /*
+     * The handler is freed on the server when the transaction ends or is rolled back to a savepoint,
+     * and its id may be given to another query then. The server refuses the execution of such a
+     * handler, and the query is prepared again for it
+     */
+    private void prepareAgainIfFreed(SQLException e) throws IOException, SQLException {
+        if (e.getErrorCode() != CUBRIDServerSideJDBCErrorCode.ER_SRV_HANDLE
+                || type != NORMAL
+                || sqlStmt == null) {
+            throw e;
+        }
+
+        SUStatement prepared = suConn.prepare(sqlStmt, prepareFlag, false);
+        handlerId = prepared.handlerId;
+        handlerSerial = prepared.handlerSerial;
+        commandType = firstStmtType = prepared.commandType;
+        setColumnInfo(prepared.columnInfos);
+        if (commandType == CUBRIDCommandType.CUBRID_STMT_CALL_SP) {
+            columnNumber = parameterNumber + 1;
+        }
+    }
+
     private void setColumnInfo(List<ColumnInfo> infos) {
         columnInfos = infos;
         columnNumber = columnInfos.size();
@@ -342,29 +444,100 @@ public class SUStatement {
             return;
         }
 
-        // send fetch request
-        try {
-            fetchInfo = suConn.fetch(queryId, cursorPosition, fetchSize, 0);
-        } catch (IOException ioe) {
-            throw CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
-                    CUBRIDServerSideJDBCErrorCode.ER_COMMUNICATION, ioe);
-        } catch (TypeMismatchException te) {
-            throw CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
-                    CUBRIDServerSideJDBCErrorCode.ER_INVALID_ROW, te);
+        FetchInfo info = takePrefetchedInfo();
+        if (info != null && info.getTupleNumber(0) - 1 != cursorPosition) {
+            info = null; // the cursor has been moved elsewhere since the tuples were requested
+        }
+
+        if (info == null) {
+            // send fetch request
+            try {
+                info = suConn.fetch(queryId, cursorPosition, fetchSize, 0);
+            } catch (IOException ioe) {
+                throw CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
+                        CUBRIDServerSideJDBCErrorCode.ER_COMMUNICATION, ioe);
+            } catch (TypeMismatchException te) {
+                throw CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
+                        CUBRIDServerSideJDBCErrorCode.ER_INVALID_ROW, te);
+            }
         }
+        fetchInfo = info;
 
         fetchedTupleNumber = fetchInfo.numFetched;
         if (fetchInfo.numFetched > 0) {
             // fetch until reaching the end of the result set (S_END).
             // If fetchInfo.numFetched == 0, it means there are no remaining rows.
-            fetchedStartCursorPosition = fetchInfo.tuples[0].tupleNumber() - 1;
+            fetchedStartCursorPosition = fetchInfo.getTupleNumber(0) - 1;
             fetchedEndCursorPosition = fetchedStartCursorPosition + fetchedTupleNumber;
 
             // update cursorPosition to the fetched start position
             cursorPosition = fetchedStartCursorPosition;
+
+            prefetch();
         }
     }
 
+    /*
+     * The server fetches the tuples of a query sequentially, so the next tuples can be requested
+     * as soon as the current ones arrive. The response is received by ExecuteThread before it
+     * writes anything else (see ExecuteThread.completePrefetch) and is handed over by
+     * receivePrefetch ().
+     */
+    private void prefetch() {
+        if (fetchedEndCursorPosition >= totalTupleNumber) {
+            return; // the last tuples are fetched
+        }
+
+        if (isScrollable) {
+            return; // the cursor may go anywhere, not only to the next tuples
+        }
+
+        try {
+            isPrefetching = true;
+            suConn.sendFetch(this, queryId, fetchedEndCursorPosition, fetchSize, 0);
+        } catch (IOException ioe) {
+            isPrefetching = false;
+            prefetchError =
+                    CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
+                            CUBRIDServerSideJDBCErrorCode.ER_COMMUNICATION, ioe);
+        }
+    }
+
+    public void receivePrefetch(ByteBuffer responseBuffer) {
+        isPrefetching = false;
+        try {
+            prefetchedInfo = suConn.receiveFetch(responseBuffer);
+        } catch (SQLException e) {
+            prefetchError = e;
+        } catch (TypeMismatchException te) {
+            prefetchError =
+                    CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
+                            CUBRIDServerSideJDBCErrorCode.ER_INVALID_ROW, te);
+        }
+    }
+
+    private FetchInfo takePrefetchedInfo() throws SQLException {
+        if (isPrefetching) {
+            try {
+                Context.getCurrentExecuteThread().completePrefetch();
+            } catch (IOException ioe) {
+                isPrefetching = false;
+                throw CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
+                        CUBRIDServerSideJDBCErrorCode.ER_COMMUNICATION, ioe);
+            }
+        }
+
+        FetchInfo info = prefetchedInfo;
+        SQLException error = prefetchError;
+        prefetchedInfo = null;
+        prefetchError = null;
+
+        if (error != null) {
+            throw error;
+        }
+        return info;
+    }
+
     public void moveCursor(int offset, int origin) {
         if ((origin != CURSOR_SET && origin != CURSOR_CUR && origin != CURSOR_END)
                 || totalTupleNumber == 0) {
@@ -429,14 +602,15 @@ public class SUStatement {
                     CUBRIDServerSideJDBCErrorCode.ER_COLUMN_INDEX, null);
         }
 
+        boolean fromFetchInfo = false;
         if (type == NORMAL) {
             if (commandType == CUBRIDCommandType.CUBRID_STMT_CALL) {
                 /* do nothing, tuples is already retrived when executing the call stmt */
             } else if (commandType != CUBRIDCommandType.CUBRID_STMT_CALL_SP) {
-                tuples = fetchInfo.tuples; // get tuples from fetchInfo
+                fromFetchInfo = true; // get tuples from fetchInfo
             }
         } else if (type == GET_AUTOINCREMENT_KEYS) {
-            tuples = fetchInfo.tuples;
+            fromFetchInfo = true;
         } else {
             // GET_BY_OID initialized 1 tuple at constructor
         }
@@ -450,6 +624,10 @@ public class SUStatement {
                     CUBRIDServerSideJDBCErrorCode.ER_INVALID_INDEX, null);
         }
 
+        if (fromFetchInfo) {
+            return getFetchedValue(idx, index);
+        }
+
         if ((tuples == null) || (tuples[idx] == null)) {
             return null;
         }
@@ -466,6 +644,30 @@ public class SUStatement {
         return obj;
     }
 
+    /* decodes only the accessed value, see FetchInfo */
+    private Value getFetchedValue(int idx, int index) throws SQLException {
+        if (fetchInfo == null || idx >= fetchInfo.numFetched) {
+            return null;
+        }
+
+        Value v = null;
+        try {
+            v = fetchInfo.getValue(idx, index);
+        } catch (TypeMismatchException te) {
+            throw CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
+                    CUBRIDServerSideJDBCErrorCode.ER_INVALID_ROW, te);
+        }
+
+        if (v == null) {
+            // it is error case... but for safe guard
+            wasNull = true;
+            return null;
+        }
+
+        wasNull = (v instanceof NullValue);
+        return v;
+    }
+
     public boolean getWasNull() {
         return wasNull;
     }
@@ -646,16 +848,15 @@ public class SUStatement {
         /* fetch tuples including OID */
         fetch();
 
-        tuples = fetchInfo.tuples;
-        SUResultTuple currentTuple = null;
+        SOID soid = null;
+        if (fetchInfo != null) {
+            soid = fetchInfo.getOID(cursorPosition - fetchedStartCursorPosition);
+        }
 
-        if ((tuples == null)
-                || (tuples[cursorPosition - fetchedStartCursorPosition] == null)
-                || ((currentTuple = tuples[cursorPosition - fetchedStartCursorPosition]) == null)) {
+        if (soid == null) {
             return null;
         }
 
-        SOID soid = currentTuple.getOID();
         return new CUBRIDServerSideOID(suConn, soid);
     }
 
@@ -713,6 +914,63 @@ public class SUStatement {
         return fetchSize;
     }
 
+    /* 0 restores the size estimated from the columns */
+    public void setFetchSize(int rows) {
+        if (rows > 0) {
+            fetchSize = rows;
+        } else {
+            fetchSize = estimateFetchSize();
+        }
+    }
+
+    private int estimateFetchSize() {
+        if (columnInfos == null || columnInfos.isEmpty()) {
+            return DEFAULT_FETCH_SIZE;
+        }
+
+        int tupleSize = 16; // index, the number of attributes and OID
+        for (ColumnInfo info : columnInfos) {
+            tupleSize += DataUtilities.INT_BYTES + estimateValueSize(info);
+        }
+
+        int size = FETCH_BYTES / tupleSize;
+        return Math.max(MIN_FETCH_SIZE, Math.min(MAX_FETCH_SIZE, size));
+    }
+
+    /* approximate size of a packed value, see CUBRIDUnpacker.unpackValue () */
+    private static int estimateValueSize(ColumnInfo info) {
+        switch (info.type) {
+            case DBType.DB_SHORT:
+            case DBType.DB_INT:
+            case DBType.DB_FLOAT:
+                return 4;
+            case DBType.DB_BIGINT:
+            case DBType.DB_DOUBLE:
+            case DBType.DB_MONETARY:
+            case DBType.DB_RESULTSET:
+            case DBType.DB_OID:
+            case DBType.DB_OBJECT:
+                return 8;
+            case DBType.DB_DATE:
+            case DBType.DB_TIME:
+                return 12;
+            case DBType.DB_TIMESTAMP:
+                return 24;
+            case DBType.DB_DATETIME:
+                return 28;
+            case DBType.DB_NUMERIC:
+                return 8 + Math.max(info.prec, 0);
+            case DBType.DB_CHAR:
+            case DBType.DB_STRING:
+                // codeset, length and the (often much shorter than declared) string
+                return 12 + Math.min(Math.max(info.prec, 0), MAX_ESTIMATED_STRING_SIZE);
+            case DBType.DB_NULL:
+                return 0;
+            default:
+                return 64;
+        }
+    }
+
     public int getColumnLength() {
         return columnNumber;
     }
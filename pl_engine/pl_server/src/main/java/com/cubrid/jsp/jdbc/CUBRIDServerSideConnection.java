@@ -31,9 +31,12 @@
 
 package com.cubrid.jsp.jdbc;
 
+import com.cubrid.jsp.ExecuteThread;
+import com.cubrid.jsp.StoredProcedure;
 import com.cubrid.jsp.context.Context;
 import com.cubrid.jsp.data.DBParameterInfo;
 import com.cubrid.jsp.impl.SUConnection;
+import com.cubrid.jsp.impl.SUStatement;
 import cubrid.jdbc.jci.CUBRIDIsolationLevel;
 import java.io.IOException;
 import java.sql.Array;
@@ -53,6 +56,7 @@ import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Struct;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -73,6 +77,19 @@ public class CUBRIDServerSideConnection implements Connection {
     private int transactionIsolation;
     private int holdability;
 
+    /*
+     * Cache of the statement handlers for static SQL, keyed by the auth user and the SQL text.
+     * Handlers are prepared with PREPARE_RETAIN, so the DB server keeps them across invocations
+     * until they are released with releaseRetainedHandles(), or until the end of the transaction
+     * where it frees every handler by itself.
+     */
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    private LinkedHashMap<String, SUStatement> statementCache = null;
+    private List<CUBRIDServerSidePreparedStatement> cachedStatementsInUse = null;
+    private List<Integer> handlesToRelease = null;
+    private int statementCacheGeneration = 0;
+
     public CUBRIDServerSideConnection(Context ctx) {
         this.context = ctx;
 
@@ -136,6 +153,122 @@ public class CUBRIDServerSideConnection implements Connection {
         }
     }
 
+    /* To manage the statement cache for static SQL */
+    public PreparedStatement prepareCachedStatement(String sql) throws SQLException {
+        ExecuteThread thread = Context.getCurrentExecuteThread();
+        StoredProcedure sp = (thread == null) ? null : thread.getStoredProcedure();
+        if (sp == null) {
+            return prepareStatement(sql);
+        }
+
+        if (statementCache == null) {
+            statementCache =
+                    new LinkedHashMap<String, SUStatement>(16, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<String, SUStatement> e) {
+                            if (size() > STATEMENT_CACHE_SIZE) {
+                                handlesToRelease.add(e.getValue().getHandlerId());
+                                return true;
+                            }
+                            return false;
+                        }
+                    };
+            cachedStatementsInUse = new ArrayList<CUBRIDServerSidePreparedStatement>();
+            handlesToRelease = new ArrayList<Integer>();
+        }
+
+        String key = sp.getAuthUser() + '\0' + sql;
+        try {
+            releaseRetainedHandles();
+
+            SUStatement handler = statementCache.remove(key);
+            if (handler == null) {
+                handler =
+                        getSUConnection()
+                                .prepare(sql, CUBRIDServerSideConstants.PREPARE_RETAIN, false);
+            } else {
+                handler.clearBindParameters();
+                handler.clearBatch();
+            }
+
+            CUBRIDServerSidePreparedStatement stmt =
+                    new CUBRIDServerSidePreparedStatement(
+                            this, sql, holdability, handler, key, statementCacheGeneration, thread);
+            cachedStatementsInUse.add(stmt);
+            return stmt;
+        } catch (IOException e) {
+            throw CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
+                    CUBRIDServerSideJDBCErrorCode.ER_COMMUNICATION, e);
+        }
+    }
+
+    void returnCachedStatement(CUBRIDServerSidePreparedStatement stmt) {
+        cachedStatementsInUse.remove(stmt);
+
+        SUStatement handler = stmt.getCachedHandler();
+        if (stmt.getCacheGeneration() != statementCacheGeneration
+                || statementCache.containsKey(stmt.getCacheKey())) {
+            // invalidated while in use, or the same SQL was prepared again by a recursive call
+            handlesToRelease.add(handler.getHandlerId());
+        } else {
+            statementCache.put(stmt.getCacheKey(), handler);
+        }
+    }
+
+    /* the statements left open by an invocation are returned at the end of it */
+    public void returnCachedStatements(ExecuteThread owner) {
+        if (cachedStatementsInUse == null) {
+            return;
+        }
+
+        for (CUBRIDServerSidePreparedStatement stmt :
+                new ArrayList<CUBRIDServerSidePreparedStatement>(cachedStatementsInUse)) {
+            if (stmt.getOwner() == owner) {
+                try {
+                    stmt.close();
+                } catch (SQLException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /* called on a schema change */
+    public void invalidateStatementCache() {
+        if (statementCache == null) {
+            return;
+        }
+
+        for (SUStatement handler : statementCache.values()) {
+            handlesToRelease.add(handler.getHandlerId());
+        }
+        statementCache.clear();
+        statementCacheGeneration++;
+    }
+
+    /* called on the end of a transaction or a session, the handlers are already freed there */
+    private void dropStatementCache() {
+        if (statementCache == null) {
+            return;
+        }
+
+        statementCache.clear();
+        handlesToRelease.clear();
+        statementCacheGeneration++;
+    }
+
+    private void releaseRetainedHandles() throws IOException, SQLException {
+        if (handlesToRelease == null || handlesToRelease.isEmpty()) {
+            return;
+        }
+
+        try {
+            getSUConnection().releaseQueryHandles(handlesToRelease);
+        } finally {
+            handlesToRelease.clear();
+        }
+    }
+
     // ==============================================================
     // The following are JDBC Interface Implementations
     // ==============================================================
@@ -208,6 +341,21 @@ public class CUBRIDServerSideConnection implements Connection {
             }
             statements.clear();
         }
+
+        if (cachedStatementsInUse != null) {
+            for (Statement s :
+                    new ArrayList<CUBRIDServerSidePreparedStatement>(cachedStatementsInUse)) {
+                s.close();
+            }
+        }
+
+        /*
+         * No callback is sent from here, the DB server may not serve one (e.g. on destroying the
+         * session). The retained handles are not released but forgotten: the connection is closed
+         * on the end of a transaction or a session, where they are freed by the DB server, and
+         * may have been given to other queries since.
+         */
+        dropStatementCache();
     }
 
     public boolean isClosed() throws SQLException {
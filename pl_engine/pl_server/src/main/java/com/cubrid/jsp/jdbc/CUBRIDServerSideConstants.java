@@ -43,6 +43,8 @@ public class CUBRIDServerSideConstants {
             PREPARE_QUERY_INFO = 0x04,
             PREPARE_HOLDABLE = 0x08,
             PREPARE_XASL_CACHE_PINNED = 0x10,
+            PREPARE_RETAIN =
+                    0x20, /* only for the DB server: keep the handler after the invocation */
             PREPARE_CALL = 0x40;
 
     /* execute flags */
@@ -63,6 +63,7 @@ public class CUBRIDServerSideJDBCErrorCode {
     public static final int ER_INVALID_SHARD = -21026;
     public static final int ER_ILLEGAL_TIMESTAMP = -21027;
     public static final int ER_SSL_HANDSHAKE = -21028;
+    public static final int ER_SRV_HANDLE = -21029;
 
     /* The following codes are ported from CUBRIDJDBCErrorCode.java */
     public static final int ER_INVALID_QUERY_TYPE_FOR_EXECUTEQUERY = -21109;
@@ -132,6 +133,7 @@ public class CUBRIDServerSideJDBCErrorCode {
         messageString.put(
                 ER_ILLEGAL_TIMESTAMP, "Zero date can not be represented as java.sql.Timestamp");
         messageString.put(ER_SSL_HANDSHAKE, "SSL handshake failure");
+        messageString.put(ER_SRV_HANDLE, "The query handler is freed on the server");
 
         messageString.put(
                 ER_INVALID_QUERY_TYPE_FOR_EXECUTEQUERY,
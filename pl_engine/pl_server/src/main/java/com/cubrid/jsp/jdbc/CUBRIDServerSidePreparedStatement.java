@@ -31,7 +31,10 @@
 
 package com.cubrid.jsp.jdbc;
 
+import com.cubrid.jsp.ExecuteThread;
 import com.cubrid.jsp.data.DBType;
+import com.cubrid.jsp.data.ExecuteBatchInfo;
+import com.cubrid.jsp.impl.SUStatement;
 import cubrid.jdbc.jci.CUBRIDCommandType;
 import cubrid.sql.CUBRIDOID;
 import cubrid.sql.CUBRIDTimestamptz;
@@ -41,6 +44,7 @@ import java.io.Reader;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.Array;
+import java.sql.BatchUpdateException;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Date;
@@ -71,6 +75,12 @@ public class CUBRIDServerSidePreparedStatement extends CUBRIDServerSideStatement
     private String sql;
     private int autoGeneratedKeys;
 
+    /* set only for a statement from the statement cache of the connection */
+    private SUStatement cachedHandler = null;
+    private String cacheKey = null;
+    private int cacheGeneration;
+    private ExecuteThread owner = null;
+
     CUBRIDServerSidePreparedStatement(
             CUBRIDServerSideConnection con,
             String sql,
@@ -91,14 +101,97 @@ public class CUBRIDServerSidePreparedStatement extends CUBRIDServerSideStatement
         }
     }
 
+    CUBRIDServerSidePreparedStatement(
+            CUBRIDServerSideConnection con,
+            String sql,
+            int holdable,
+            SUStatement handler,
+            String cacheKey,
+            int cacheGeneration,
+            ExecuteThread owner) {
+        super(con, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, holdable);
+        this.sql = sql;
+        this.autoGeneratedKeys = Statement.NO_GENERATED_KEYS;
+
+        this.statementHandler = handler;
+        this.cachedHandler = handler;
+        this.cacheKey = cacheKey;
+        this.cacheGeneration = cacheGeneration;
+        this.owner = owner;
+    }
+
+    SUStatement getCachedHandler() {
+        return cachedHandler;
+    }
+
+    String getCacheKey() {
+        return cacheKey;
+    }
+
+    int getCacheGeneration() {
+        return cacheGeneration;
+    }
+
+    ExecuteThread getOwner() {
+        return owner;
+    }
+
     // ==============================================================
     // The following is JDBC Interface Implementations
     // ==============================================================
 
     @Override
     public int[] executeBatch() throws SQLException {
-        // TODO: not implemented yet
-        throw new SQLException(new java.lang.UnsupportedOperationException());
+        return executeBatch(false);
+    }
+
+    /*
+     * if stopOnError, the batch ends at the first failed execution (e.g. FORALL), and the update
+     * counts of the BatchUpdateException cover only the executions up to the failed one
+     */
+    public int[] executeBatch(boolean stopOnError) throws SQLException {
+        ExecuteBatchInfo info = null;
+        try {
+            completeResultSet();
+
+            // only DML can be batched (SELECT, CALL, GET_STATS, EVALUATE have no update count)
+            if (statementHandler.getSQLType() == true
+                    || statementHandler.getStatementType()
+                            == CUBRIDCommandType.CUBRID_STMT_CALL_SP) {
+                statementHandler.clearBatch();
+                SQLException e =
+                        CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
+                                CUBRIDServerSideJDBCErrorCode
+                                        .ER_INVALID_QUERY_TYPE_FOR_EXECUTEUPDATE,
+                                null);
+                throw new BatchUpdateException(
+                        e.getMessage(), e.getSQLState(), e.getErrorCode(), new int[0], e);
+            }
+
+            info = getStatementHandler().executeBatch(stopOnError);
+        } catch (IOException e) {
+            throw CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
+                    CUBRIDServerSideJDBCErrorCode.ER_COMMUNICATION, e);
+        }
+
+        int[] results = new int[info.size()];
+        int firstError = -1;
+        for (int i = 0; i < results.length; i++) {
+            if (info.errorCodes[i] == 0) {
+                results[i] = info.numAffected[i];
+            } else {
+                results[i] = Statement.EXECUTE_FAILED;
+                if (firstError < 0) {
+                    firstError = i;
+                }
+            }
+        }
+
+        if (firstError >= 0) {
+            throw new BatchUpdateException(
+                    info.errorMessages[firstError], null, info.errorCodes[firstError], results);
+        }
+        return results;
     }
 
     @Override
@@ -378,8 +471,7 @@ public class CUBRIDServerSidePreparedStatement extends CUBRIDServerSideStatement
 
     @Override
     public void addBatch() throws SQLException {
-        // TODO: not implemented yet
-        throw new SQLException(new UnsupportedOperationException());
+        getStatementHandler().addBatch();
     }
 
     @Override
@@ -486,12 +578,22 @@ public class CUBRIDServerSidePreparedStatement extends CUBRIDServerSideStatement
 
     @Override
     public void close() throws SQLException {
+        CUBRIDServerSideConnection con = connection;
+        boolean wasOpen = (isClosed() == false);
+
         super.close();
+
+        if (wasOpen && cachedHandler != null) {
+            con.returnCachedStatement(this);
+        }
     }
 
     @Override
     public void clearBatch() throws SQLException {
         batchStrings.clear();
+        if (getStatementHandler() != null) {
+            getStatementHandler().clearBatch();
+        }
     }
 
     // 3.0
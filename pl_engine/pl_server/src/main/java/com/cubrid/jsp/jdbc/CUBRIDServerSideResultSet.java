@@ -657,11 +657,10 @@ public class CUBRIDServerSideResultSet implements ResultSet {
 
     @Override
     public void setFetchSize(int rows) throws SQLException {
-        // TODO: not implemented yet
         if (rows < 0) {
             throw new IllegalArgumentException();
         }
-        throw new SQLException(new UnsupportedOperationException());
+        statementHandler.setFetchSize(rows);
     }
 
     @Override
@@ -36,6 +36,7 @@ import com.cubrid.jsp.impl.SUStatement;
 import cubrid.jdbc.jci.CUBRIDCommandType;
 import cubrid.sql.CUBRIDOID;
 import java.io.IOException;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -111,7 +112,20 @@ public class CUBRIDServerSideStatement implements Statement {
     }
 
     protected void executeInternal() throws IOException, SQLException {
+        statementHandler.setFetchSize(fetchSize);
         statementHandler.execute(maxRows, maxFieldSize, isSensitive(), isScrollable());
+
+        switch (statementHandler.getStatementType()) {
+            case CUBRIDCommandType.CUBRID_STMT_ALTER_CLASS:
+            case CUBRIDCommandType.CUBRID_STMT_CREATE_CLASS:
+            case CUBRIDCommandType.CUBRID_STMT_DROP_CLASS:
+            case CUBRIDCommandType.CUBRID_STMT_RENAME_CLASS:
+            case CUBRIDCommandType.CUBRID_STMT_CREATE_INDEX:
+            case CUBRIDCommandType.CUBRID_STMT_DROP_INDEX:
+                // cached statements may refer to the old schema
+                connection.invalidateStatementCache();
+                break;
+        }
     }
 
     protected void completeResultSet() throws SQLException {
@@ -329,16 +343,12 @@ public class CUBRIDServerSideStatement implements Statement {
 
     @Override
     public void addBatch(String sql) throws SQLException {
-        // TODO: not implemented yet
-        // batchStrings.add (sql);
-        throw new SQLException(new java.lang.UnsupportedOperationException());
+        batchStrings.add(sql);
     }
 
     @Override
     public void clearBatch() throws SQLException {
-        // TODO: not implemented yet
-        // batchStrings.clear();
-        throw new SQLException(new java.lang.UnsupportedOperationException());
+        batchStrings.clear();
     }
 
     @Override
@@ -363,8 +373,50 @@ public class CUBRIDServerSideStatement implements Statement {
 
     @Override
     public int[] executeBatch() throws SQLException {
-        // TODO: not implemented yet
-        throw new SQLException(new java.lang.UnsupportedOperationException());
+        int[] results = new int[batchStrings.size()];
+        SQLException firstError = null;
+
+        try {
+            completeResultSet();
+
+            /* each SQL is prepared differently, so they are executed one by one */
+            int i = 0;
+            for (String sql : batchStrings) {
+                try {
+                    prepareInternal(sql);
+                    if (statementHandler.getSQLType() == true) {
+                        throw CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
+                                CUBRIDServerSideJDBCErrorCode
+                                        .ER_INVALID_QUERY_TYPE_FOR_EXECUTEUPDATE,
+                                null);
+                    }
+
+                    executeInternal();
+                    results[i] = statementHandler.getResultInfo().getResultCount();
+                } catch (SQLException e) {
+                    results[i] = Statement.EXECUTE_FAILED;
+                    if (firstError == null) {
+                        firstError = e;
+                    }
+                }
+                i++;
+            }
+        } catch (IOException e) {
+            throw CUBRIDServerSideJDBCErrorManager.createCUBRIDException(
+                    CUBRIDServerSideJDBCErrorCode.ER_COMMUNICATION, e);
+        } finally {
+            batchStrings.clear();
+        }
+
+        if (firstError != null) {
+            throw new BatchUpdateException(
+                    firstError.getMessage(),
+                    firstError.getSQLState(),
+                    firstError.getErrorCode(),
+                    results,
+                    firstError);
+        }
+        return results;
     }
 
     @Override
@@ -0,0 +1,172 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.metrics;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * A Java Flight Recorder event type of the PL server (see FlightEvents).
+ *
+ * The server is built for Java 8 whose API does not have jdk.jfr, so the event types are defined
+ * at runtime through jdk.jfr.EventFactory (JDK 11+ and 8u262+). begin() returns null when JFR is
+ * not available or no running recording enables the event type, so an event costs nothing more
+ * than a check unless it is recorded.
+ */
+public class FlightEventType {
+    private static final String CATEGORY = "CUBRID PL Server";
+
+    // null if JFR is not available
+    private static final MethodHandle NEW_EVENT; // EventFactory.newEvent ()
+    private static final MethodHandle IS_ENABLED; // EventType.isEnabled ()
+    static final MethodHandle BEGIN; // Event.begin ()
+    static final MethodHandle SET; // Event.set (int, Object)
+    static final MethodHandle COMMIT; // Event.commit ()
+
+    static {
+        MethodHandle newEvent = null;
+        MethodHandle isEnabled = null;
+        MethodHandle begin = null;
+        MethodHandle set = null;
+        MethodHandle commit = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+            Class<?> typeClass = Class.forName("jdk.jfr.EventType");
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+
+            newEvent =
+                    lookup.findVirtual(factoryClass, "newEvent", MethodType.methodType(eventClass));
+            isEnabled =
+                    lookup.findVirtual(
+                            typeClass, "isEnabled", MethodType.methodType(boolean.class));
+            begin = lookup.findVirtual(eventClass, "begin", MethodType.methodType(void.class));
+            set =
+                    lookup.findVirtual(
+                            eventClass,
+                            "set",
+                            MethodType.methodType(void.class, int.class, Object.class));
+            commit = lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class));
+        } catch (Throwable e) {
+            // JFR is not available in this JVM
+            newEvent = null;
+        }
+
+        NEW_EVENT = newEvent;
+        IS_ENABLED = isEnabled;
+        BEGIN = begin;
+        SET = set;
+        COMMIT = commit;
+    }
+
+    private final Object factory; // jdk.jfr.EventFactory
+    private final Object eventType; // jdk.jfr.EventType
+
+    private FlightEventType(Object factory, Object eventType) {
+        this.factory = factory;
+        this.eventType = eventType;
+    }
+
+    /*
+     * defines an event type with the given fields (String, int, long or boolean values).
+     * the duration of an event is measured from begin() to FlightEvent.commit()
+     */
+    public static FlightEventType define(
+            String name,
+            String label,
+            boolean stackTrace,
+            String[] fieldNames,
+            Class<?>[] fieldTypes) {
+        if (NEW_EVENT == null) {
+            return new FlightEventType(null, null);
+        }
+
+        try {
+            List<Object> annotations = new ArrayList<Object>();
+            annotations.add(annotation("jdk.jfr.Name", name));
+            annotations.add(annotation("jdk.jfr.Label", label));
+            annotations.add(annotation("jdk.jfr.Category", new String[] {CATEGORY}));
+            annotations.add(annotation("jdk.jfr.StackTrace", stackTrace));
+
+            Class<?> descClass = Class.forName("jdk.jfr.ValueDescriptor");
+            Constructor<?> descCtor = descClass.getConstructor(Class.class, String.class);
+            List<Object> fields = new ArrayList<Object>();
+            for (int i = 0; i < fieldNames.length; i++) {
+                fields.add(descCtor.newInstance(fieldTypes[i], fieldNames[i]));
+            }
+
+            Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+            Object factory =
+                    factoryClass
+                            .getMethod("create", List.class, List.class)
+                            .invoke(null, annotations, fields);
+            Object eventType = factoryClass.getMethod("getEventType").invoke(factory);
+            return new FlightEventType(factory, eventType);
+        } catch (Throwable e) {
+            return new FlightEventType(null, null);
+        }
+    }
+
+    // returns a begun event, or null if the event type is not being recorded
+    public FlightEvent begin() {
+        if (factory == null) {
+            return null;
+        }
+
+        try {
+            if (!(boolean) IS_ENABLED.invoke(eventType)) {
+                return null;
+            }
+
+            Object event = NEW_EVENT.invoke(factory);
+            BEGIN.invoke(event);
+            return new FlightEvent(event);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object annotation(String annotationClassName, Object value) throws Exception {
+        Class<? extends Annotation> annotationClass =
+                (Class<? extends Annotation>) Class.forName(annotationClassName);
+        Class<?> elementClass = Class.forName("jdk.jfr.AnnotationElement");
+        return elementClass
+                .getConstructor(Class.class, Object.class)
+                .newInstance(annotationClass, value);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.metrics;
+
+// JFR event types of the PL server, the indexes are of the fields for FlightEvent.set ()
+public class FlightEvents {
+
+    // INVOKE_SP request: from reading the arguments to sending the result
+    public static final FlightEventType INVOKE =
+            FlightEventType.define(
+                    "com.cubrid.pl.Invoke",
+                    "Stored Procedure Invocation",
+                    false,
+                    new String[] {"signature", "lang", "argCount"},
+                    new Class<?>[] {String.class, int.class, int.class});
+    public static final int INVOKE_SIGNATURE = 0;
+    public static final int INVOKE_LANG = 1;
+    public static final int INVOKE_ARG_COUNT = 2;
+
+    // a request to the DB server (e.g. server-side JDBC) and its response
+    public static final FlightEventType SERVER_REQUEST =
+            FlightEventType.define(
+                    "com.cubrid.pl.ServerRequest",
+                    "Server Request",
+                    false,
+                    new String[] {"function", "requestSize", "responseSize"},
+                    new Class<?>[] {String.class, int.class, int.class});
+    public static final int SERVER_REQUEST_FUNCTION = 0;
+    public static final int SERVER_REQUEST_REQUEST_SIZE = 1;
+    public static final int SERVER_REQUEST_RESPONSE_SIZE = 2;
+
+    // fetching object code from the DB server or defining its classes
+    public static final FlightEventType CLASS_LOAD =
+            FlightEventType.define(
+                    "com.cubrid.pl.ClassLoad",
+                    "PL Class Loading",
+                    false,
+                    new String[] {"className", "stage", "size"},
+                    new Class<?>[] {String.class, String.class, int.class});
+    public static final int CLASS_LOAD_CLASS_NAME = 0;
+    public static final int CLASS_LOAD_STAGE = 1;
+    public static final int CLASS_LOAD_SIZE = 2;
+
+    // a stage of compiling PL/CSQL (parse, AST conversion, semantic questions, ..., javac)
+    public static final FlightEventType COMPILE_STAGE =
+            FlightEventType.define(
+                    "com.cubrid.pl.CompileStage",
+                    "PL/CSQL Compile Stage",
+                    false,
+                    new String[] {"stage", "unit"},
+                    new Class<?>[] {String.class, String.class});
+    public static final int COMPILE_STAGE_STAGE = 0;
+    public static final int COMPILE_STAGE_UNIT = 1;
+
+    private FlightEvents() {
+        //
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.metrics;
+
+import com.cubrid.jsp.ExecuteThread;
+import com.cubrid.jsp.Server;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/*
+ * Server-wide registry of the execution metrics.
+ *
+ * RoutineMetrics are kept per routine signature. ExecuteThread keeps the metrics of the routine it
+ * is running so that the JDBC round trips, fetched rows and bytes are accounted to the routine.
+ * The metrics are reported by the UTIL_STATUS request (see ServerStatus) and registered as MXBeans
+ * under the "com.cubrid.pl" domain.
+ */
+public class MetricsRegistry implements ServerMetricsMXBean {
+    private static final String JMX_DOMAIN = "com.cubrid.pl";
+
+    // routines beyond this are accounted together so that the registry does not grow unbounded
+    private static final int MAX_ROUTINES = 4096;
+    private static final String OTHER_ROUTINES = "(others)";
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final ConcurrentMap<String, RoutineMetrics> routines =
+            new ConcurrentHashMap<String, RoutineMetrics>();
+
+    private final LongAdder compileErrors = new LongAdder();
+    private final LatencyHistogram compileTime = new LatencyHistogram();
+
+    private final LongAdder classCacheHits = new LongAdder();
+    private final LongAdder classCacheMisses = new LongAdder();
+
+    private final LongAdder compileCacheHits = new LongAdder();
+    private final LongAdder compileCacheMisses = new LongAdder();
+
+    private volatile ThreadPoolExecutor executorPool = null;
+    private final LongAdder rejectedConnections = new LongAdder();
+
+    private MetricsRegistry() {
+        registerMBean(makeObjectName("type=Server"), this);
+    }
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    // returns the metrics of the routine the current thread is executing, or null
+    public static RoutineMetrics current() {
+        ExecuteThread thread = ExecuteThread.current();
+        return (thread == null) ? null : thread.getRoutineMetrics();
+    }
+
+    public RoutineMetrics getRoutineMetrics(String signature) {
+        RoutineMetrics metrics = routines.get(signature);
+        if (metrics != null) {
+            return metrics;
+        }
+
+        if (routines.size() >= MAX_ROUTINES) {
+            signature = OTHER_ROUTINES;
+        }
+
+        RoutineMetrics created = new RoutineMetrics(signature);
+        metrics = routines.putIfAbsent(signature, created);
+        if (metrics == null) {
+            metrics = created;
+            registerMBean(
+                    makeObjectName("type=Routine,name=" + ObjectName.quote(signature)), created);
+        }
+        return metrics;
+    }
+
+    public Collection<RoutineMetrics> getRoutineMetrics() {
+        return routines.values();
+    }
+
+    public void recordCompile(long elapsedNanos, boolean failed) {
+        if (failed) {
+            compileErrors.increment();
+        }
+        compileTime.recordNanos(elapsedNanos);
+    }
+
+    public void recordClassCacheHit() {
+        classCacheHits.increment();
+    }
+
+    public void recordClassCacheMiss() {
+        classCacheMisses.increment();
+    }
+
+    public void recordCompileCacheHit() {
+        compileCacheHits.increment();
+    }
+
+    public void recordCompileCacheMiss() {
+        compileCacheMisses.increment();
+    }
+
+    public void setExecutorPool(ThreadPoolExecutor pool) {
+        executorPool = pool;
+    }
+
+    public void recordRejectedConnection() {
+        rejectedConnections.increment();
+    }
+
+    @Override
+    public int getRoutineCount() {
+        return routines.size();
+    }
+
+    @Override
+    public long getCompiles() {
+        return compileTime.getCount();
+    }
+
+    @Override
+    public long getCompileErrors() {
+        return compileErrors.sum();
+    }
+
+    @Override
+    public long getCompileMeanMicros() {
+        return compileTime.getMeanMicros();
+    }
+
+    @Override
+    public long getCompileP99Micros() {
+        return compileTime.getPercentileMicros(99);
+    }
+
+    @Override
+    public long getCompileMaxMicros() {
+        return compileTime.getMaxMicros();
+    }
+
+    @Override
+    public long getClassCacheHits() {
+        return classCacheHits.sum();
+    }
+
+    @Override
+    public long getClassCacheMisses() {
+        return classCacheMisses.sum();
+    }
+
+    @Override
+    public double getClassCacheHitRatio() {
+        long hits = classCacheHits.sum();
+        long total = hits + classCacheMisses.sum();
+        return (total == 0) ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public long getCompileCacheHits() {
+        return compileCacheHits.sum();
+    }
+
+    @Override
+    public long getCompileCacheMisses() {
+        return compileCacheMisses.sum();
+    }
+
+    @Override
+    public int getExecutorActiveThreads() {
+        ThreadPoolExecutor pool = executorPool;
+        return (pool == null) ? 0 : pool.getActiveCount();
+    }
+
+    @Override
+    public int getExecutorQueuedConnections() {
+        ThreadPoolExecutor pool = executorPool;
+        return (pool == null) ? 0 : pool.getQueue().size();
+    }
+
+    @Override
+    public long getExecutorRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    private static void registerMBean(ObjectName name, Object mbean) {
+        if (name == null) {
+            return;
+        }
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(mbean, name);
+            }
+        } catch (Exception e) {
+            // metrics are still reported by UTIL_STATUS
+            Server.log(e);
+        }
+    }
+
+    private static ObjectName makeObjectName(String properties) {
+        try {
+            return new ObjectName(JMX_DOMAIN + ":" + properties);
+        } catch (Exception e) {
+            Server.log(e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.metrics;
+
+import com.cubrid.jsp.impl.SUFunctionCode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// execution metrics of a routine, see MetricsRegistry
+public class RoutineMetrics implements RoutineMetricsMXBean {
+    private static final SUFunctionCode[] FUNCTION_CODES = SUFunctionCode.values();
+    private static final int OTHER_REQUEST = FUNCTION_CODES.length; // e.g. auth commands
+
+    private final String signature;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private final AtomicLongArray roundTrips = new AtomicLongArray(FUNCTION_CODES.length + 1);
+    private final LongAdder rowsFetched = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+
+    RoutineMetrics(String signature) {
+        this.signature = signature;
+    }
+
+    public void recordCall(long elapsedNanos, boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        latency.recordNanos(elapsedNanos);
+    }
+
+    public void recordRoundTrip(int functionCode) {
+        roundTrips.incrementAndGet(indexOf(functionCode));
+    }
+
+    public void addRowsFetched(int rows) {
+        rowsFetched.add(rows);
+    }
+
+    public void addBytesIn(int bytes) {
+        bytesIn.add(bytes);
+    }
+
+    public void addBytesOut(int bytes) {
+        bytesOut.add(bytes);
+    }
+
+    @Override
+    public String getSignature() {
+        return signature;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getLatencyMeanMicros() {
+        return latency.getMeanMicros();
+    }
+
+    @Override
+    public long getLatencyP50Micros() {
+        return latency.getPercentileMicros(50);
+    }
+
+    @Override
+    public long getLatencyP99Micros() {
+        return latency.getPercentileMicros(99);
+    }
+
+    @Override
+    public long getLatencyMaxMicros() {
+        return latency.getMaxMicros();
+    }
+
+    @Override
+    public long getRoundTrips() {
+        long sum = 0;
+        for (int i = 0; i < roundTrips.length(); i++) {
+            sum += roundTrips.get(i);
+        }
+        return sum;
+    }
+
+    @Override
+    public Map<String, Long> getRoundTripsByFunction() {
+        Map<String, Long> map = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < roundTrips.length(); i++) {
+            long count = roundTrips.get(i);
+            if (count > 0) {
+                map.put((i == OTHER_REQUEST) ? "OTHER" : FUNCTION_CODES[i].name(), count);
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public long getRowsFetched() {
+        return rowsFetched.sum();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    private static int indexOf(int functionCode) {
+        SUFunctionCode f = SUFunctionCode.of(functionCode);
+        return (f == null) ? OTHER_REQUEST : f.ordinal();
+    }
+}
@@ -5,7 +5,13 @@ import com.cubrid.jsp.data.CUBRIDUnpacker;
 
 public class BootstrapRequest implements UnPackableObject {
 
+    /* features of the wire protocol, see DBVALUE_JAVA_FEATURE_* in src/method/method_struct_value.hpp */
+    public static final int FEATURE_BINARY_ENCODING = 0x1;
+    public static final int FEATURE_PRIMITIVE_ARRAY = 0x2;
+    public static final int SUPPORTED_FEATURES = FEATURE_BINARY_ENCODING | FEATURE_PRIMITIVE_ARRAY;
+
     private SysParam[] sysParam;
+    private int features = 0;
 
     public BootstrapRequest(CUBRIDUnpacker unpacker) {
         unpack(unpacker);
@@ -18,9 +24,18 @@ public class BootstrapRequest implements UnPackableObject {
         for (int i = 0; i < size; i++) {
             sysParam[i] = new SysParam(unpacker);
         }
+
+        // a server of an older version does not send its features
+        if (unpacker.getBuffer().hasRemaining()) {
+            features = unpacker.unpackInt();
+        }
     }
 
     public SysParam[] getSystemParameters() {
         return sysParam;
     }
+
+    public int getFeatures() {
+        return features;
+    }
 }
@@ -0,0 +1,61 @@
+package com.cubrid.jsp.protocol;
+
+import com.cubrid.jsp.Server;
+import com.cubrid.jsp.data.CUBRIDPacker;
+import com.cubrid.jsp.metrics.MetricsRegistry;
+import com.cubrid.jsp.metrics.RoutineMetrics;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// response of UTIL_STATUS, the metrics follow the JVM arguments
+public class ServerStatus implements PackableObject {
+
+    @Override
+    public void pack(CUBRIDPacker packer) {
+        packer.packInt(Server.getServer().getServerPort());
+        packer.packString(Server.getServer().getServerName());
+        List<String> vm_args = Server.getJVMArguments();
+        packer.packInt(vm_args.size());
+        for (String arg : vm_args) {
+            packer.packString(arg);
+        }
+
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        packer.packBigInt(registry.getCompiles());
+        packer.packBigInt(registry.getCompileErrors());
+        packer.packBigInt(registry.getCompileMeanMicros());
+        packer.packBigInt(registry.getCompileMaxMicros());
+        packer.packBigInt(registry.getClassCacheHits());
+        packer.packBigInt(registry.getClassCacheMisses());
+
+        // copy, routines can be added meanwhile
+        Collection<RoutineMetrics> routines =
+                new ArrayList<RoutineMetrics>(registry.getRoutineMetrics());
+        packer.packInt(routines.size());
+        for (RoutineMetrics m : routines) {
+            packRoutine(packer, m);
+        }
+    }
+
+    private void packRoutine(CUBRIDPacker packer, RoutineMetrics m) {
+        packer.packString(m.getSignature());
+        packer.packBigInt(m.getCalls());
+        packer.packBigInt(m.getErrors());
+        packer.packBigInt(m.getLatencyMeanMicros());
+        packer.packBigInt(m.getLatencyP50Micros());
+        packer.packBigInt(m.getLatencyP99Micros());
+        packer.packBigInt(m.getLatencyMaxMicros());
+        packer.packBigInt(m.getRowsFetched());
+        packer.packBigInt(m.getBytesIn());
+        packer.packBigInt(m.getBytesOut());
+
+        Map<String, Long> roundTrips = m.getRoundTripsByFunction();
+        packer.packInt(roundTrips.size());
+        for (Map.Entry<String, Long> e : roundTrips.entrySet()) {
+            packer.packString(e.getKey());
+            packer.packBigInt(e.getValue());
+        }
+    }
+}
@@ -39,6 +39,8 @@ import java.sql.Timestamp;
 
 public class NumericValue extends Value {
 
+    public static final int MAX_PRECISION = 38; // DB_MAX_NUMERIC_PRECISION
+
     protected String getTypeName() {
         return TYPE_NAME_NUMERIC;
     }
@@ -53,7 +55,7 @@ public class NumericValue extends Value {
 
     public NumericValue(BigDecimal value) throws TypeMismatchException {
         super();
-        if (value != null && value.precision() > 38) {
+        if (value != null && value.precision() > MAX_PRECISION) {
             throw new TypeMismatchException("precision exceeds 38: " + value);
         }
         this.value = value;
@@ -35,6 +35,7 @@ import com.cubrid.jsp.data.DBType;
 import com.cubrid.jsp.exception.ExecuteException;
 import com.cubrid.jsp.exception.TypeMismatchException;
 import cubrid.sql.CUBRIDOID;
+import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.Time;
@@ -49,6 +50,9 @@ public class SetValue extends Value {
     private Value[] values;
     private Object[] objects;
 
+    // short[], int[], long[], float[] or double[] if created from one, boxed only when asked for
+    private Object primitives = null;
+
     public SetValue(Value[] args) throws TypeMismatchException {
         super();
         this.values = args;
@@ -87,48 +91,28 @@ public class SetValue extends Value {
     }
 
     public SetValue(short[] objects) throws TypeMismatchException {
-        Object[] array = new Object[objects.length];
-        for (int i = 0; i < objects.length; i++) {
-            array[i] = new Short(objects[i]);
-        }
-        this.objects = array;
-        setValuesFromObjects();
+        this.primitives = objects;
+        this.dbType = DBType.DB_SET;
     }
 
     public SetValue(int[] objects) throws TypeMismatchException {
-        Object[] array = new Object[objects.length];
-        for (int i = 0; i < objects.length; i++) {
-            array[i] = new Integer(objects[i]);
-        }
-        this.objects = array;
-        setValuesFromObjects();
+        this.primitives = objects;
+        this.dbType = DBType.DB_SET;
     }
 
     public SetValue(long[] objects) throws TypeMismatchException {
-        Object[] array = new Object[objects.length];
-        for (int i = 0; i < objects.length; i++) {
-            array[i] = new Long(objects[i]);
-        }
-        this.objects = array;
-        setValuesFromObjects();
+        this.primitives = objects;
+        this.dbType = DBType.DB_SET;
     }
 
     public SetValue(float[] objects) throws TypeMismatchException {
-        Object[] array = new Object[objects.length];
-        for (int i = 0; i < objects.length; i++) {
-            array[i] = new Float(objects[i]);
-        }
-        this.objects = array;
-        setValuesFromObjects();
+        this.primitives = objects;
+        this.dbType = DBType.DB_SET;
     }
 
     public SetValue(double[] objects) throws TypeMismatchException {
-        Object[] array = new Object[objects.length];
-        for (int i = 0; i < objects.length; i++) {
-            array[i] = new Double(objects[i]);
-        }
-        this.objects = array;
-        setValuesFromObjects();
+        this.primitives = objects;
+        this.dbType = DBType.DB_SET;
     }
 
     private Object[] toJavaObjectArray(Value[] args) throws TypeMismatchException {
@@ -140,22 +124,42 @@ public class SetValue extends Value {
         return array;
     }
 
+    public Object getPrimitiveArray() {
+        return primitives;
+    }
+
+    private Object[] objects() {
+        if (objects == null && primitives != null) {
+            Object[] array = new Object[Array.getLength(primitives)];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = Array.get(primitives, i);
+            }
+            objects = array;
+        }
+        return objects;
+    }
+
     public Value[] toValueArray() throws TypeMismatchException {
+        if (values == null && primitives != null) {
+            objects(); // setValuesFromObjects () reads the boxed elements
+            setValuesFromObjects();
+        }
         return values;
     }
 
     @Override
     public Object[] toObjectArray() throws TypeMismatchException {
-        return objects;
+        return objects();
     }
 
     @Override
     public Object toObject() throws TypeMismatchException {
-        return objects;
+        return objects();
     }
 
     @Override
     public String toString() {
+        Object[] objects = objects();
         StringBuffer buf = new StringBuffer();
 
         buf.append("{");
@@ -175,6 +179,7 @@ public class SetValue extends Value {
 
     @Override
     public byte[] toByteArray() throws TypeMismatchException {
+        Object[] objects = objects();
         byte[] array = new byte[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -185,6 +190,11 @@ public class SetValue extends Value {
 
     @Override
     public short[] toShortArray() throws TypeMismatchException {
+        if (primitives instanceof short[]) {
+            return ((short[]) primitives).clone();
+        }
+
+        Object[] objects = objects();
         short[] array = new short[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -195,6 +205,11 @@ public class SetValue extends Value {
 
     @Override
     public int[] toIntegerArray() throws TypeMismatchException {
+        if (primitives instanceof int[]) {
+            return ((int[]) primitives).clone();
+        }
+
+        Object[] objects = objects();
         int[] array = new int[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -205,6 +220,11 @@ public class SetValue extends Value {
 
     @Override
     public long[] toLongArray() throws TypeMismatchException {
+        if (primitives instanceof long[]) {
+            return ((long[]) primitives).clone();
+        }
+
+        Object[] objects = objects();
         long[] array = new long[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -215,6 +235,11 @@ public class SetValue extends Value {
 
     @Override
     public float[] toFloatArray() throws TypeMismatchException {
+        if (primitives instanceof float[]) {
+            return ((float[]) primitives).clone();
+        }
+
+        Object[] objects = objects();
         float[] array = new float[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -225,6 +250,11 @@ public class SetValue extends Value {
 
     @Override
     public double[] toDoubleArray() throws TypeMismatchException {
+        if (primitives instanceof double[]) {
+            return ((double[]) primitives).clone();
+        }
+
+        Object[] objects = objects();
         double[] array = new double[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -235,6 +265,7 @@ public class SetValue extends Value {
 
     @Override
     public BigDecimal[] toBigDecimalArray() throws TypeMismatchException {
+        Object[] objects = objects();
         BigDecimal[] array = new BigDecimal[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -245,6 +276,7 @@ public class SetValue extends Value {
 
     @Override
     public Date[] toDateArray() throws TypeMismatchException {
+        Object[] objects = objects();
         Date[] array = new Date[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -255,6 +287,7 @@ public class SetValue extends Value {
 
     @Override
     public Time[] toTimeArray() throws TypeMismatchException {
+        Object[] objects = objects();
         Time[] array = new Time[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -265,6 +298,7 @@ public class SetValue extends Value {
 
     @Override
     public Timestamp[] toTimestampArray() throws TypeMismatchException {
+        Object[] objects = objects();
         Timestamp[] array = new Timestamp[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -275,6 +309,7 @@ public class SetValue extends Value {
 
     @Override
     public Timestamp[] toDatetimeArray() throws TypeMismatchException {
+        Object[] objects = objects();
         Timestamp[] array = new Timestamp[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -285,6 +320,7 @@ public class SetValue extends Value {
 
     @Override
     public String[] toStringArray() throws TypeMismatchException {
+        Object[] objects = objects();
         String[] array = new String[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -295,6 +331,7 @@ public class SetValue extends Value {
 
     @Override
     public Byte[] toByteObjArray() throws TypeMismatchException {
+        Object[] objects = objects();
         Byte[] array = new Byte[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -305,6 +342,7 @@ public class SetValue extends Value {
 
     @Override
     public Double[] toDoubleObjArray() throws TypeMismatchException {
+        Object[] objects = objects();
         Double[] array = new Double[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -315,6 +353,7 @@ public class SetValue extends Value {
 
     @Override
     public Float[] toFloatObjArray() throws TypeMismatchException {
+        Object[] objects = objects();
         Float[] array = new Float[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -325,6 +364,7 @@ public class SetValue extends Value {
 
     @Override
     public Integer[] toIntegerObjArray() throws TypeMismatchException {
+        Object[] objects = objects();
         Integer[] array = new Integer[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -335,6 +375,7 @@ public class SetValue extends Value {
 
     @Override
     public Long[] toLongObjArray() throws TypeMismatchException {
+        Object[] objects = objects();
         Long[] array = new Long[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -345,6 +386,7 @@ public class SetValue extends Value {
 
     @Override
     public Short[] toShortObjArray() throws TypeMismatchException {
+        Object[] objects = objects();
         Short[] array = new Short[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
@@ -355,6 +397,7 @@ public class SetValue extends Value {
 
     @Override
     public CUBRIDOID[] toOidArray() throws TypeMismatchException {
+        Object[] objects = objects();
         CUBRIDOID[] array = new CUBRIDOID[objects.length];
 
         for (int i = 0; i < objects.length; i++) {
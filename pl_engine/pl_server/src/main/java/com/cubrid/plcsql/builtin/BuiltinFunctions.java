@@ -0,0 +1,316 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.plcsql.builtin;
+
+import com.cubrid.jsp.SysParam;
+import com.cubrid.jsp.context.Context;
+import com.cubrid.plcsql.compiler.annotation.BuiltinFunc;
+import com.cubrid.plcsql.compiler.type.Type;
+import com.cubrid.plcsql.predefined.sp.SpLib;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.Time;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * Java implementations of deterministic built-in functions. A call to a built-in function in a
+ * PL/CSQL program is translated into a call to one of these methods, instead of
+ * SpLib.invokeBuiltinFunc() which evaluates it with 'select ... from dual' in the server, when
+ * the argument types and the result type typechecked by the server exactly match a method
+ * below. See SymbolStack.getNativeBuiltinFunc().
+ *
+ * A method whose first parameter is a Connection may fall back to the server at runtime.
+ */
+public class BuiltinFunctions {
+
+    // collations whose case mapping is the default Unicode one
+    private static final Set<String> DEFAULT_CASING_COLLATIONS =
+            new HashSet<>(
+                    Arrays.asList(
+                            "utf8_bin",
+                            "utf8_en_cs",
+                            "utf8_en_ci",
+                            "utf8_gen",
+                            "utf8_gen_ai_ci",
+                            "utf8_gen_ci"));
+
+    // ====================================
+    // string
+
+    @BuiltinFunc(names = {"UPPER", "UCASE"})
+    public static String upper(Connection conn, String s) {
+        s = nullIfEmpty(s);
+        if (s == null) {
+            return null;
+        }
+        if (!hasDefaultCaseMapping(s)) {
+            return (String) SpLib.invokeBuiltinFunc(conn, "UPPER(?)", Type.IDX_STRING, s);
+        }
+
+        StringBuilder sb = new StringBuilder(s.length());
+        s.codePoints().forEach(c -> sb.appendCodePoint(Character.toUpperCase(c)));
+        return sb.toString();
+    }
+
+    @BuiltinFunc(names = {"LOWER", "LCASE"})
+    public static String lower(Connection conn, String s) {
+        s = nullIfEmpty(s);
+        if (s == null) {
+            return null;
+        }
+        if (!hasDefaultCaseMapping(s)) {
+            return (String) SpLib.invokeBuiltinFunc(conn, "LOWER(?)", Type.IDX_STRING, s);
+        }
+
+        StringBuilder sb = new StringBuilder(s.length());
+        s.codePoints().forEach(c -> sb.appendCodePoint(Character.toLowerCase(c)));
+        return sb.toString();
+    }
+
+    @BuiltinFunc(names = {"LENGTH", "CHAR_LENGTH", "CHARACTER_LENGTH"})
+    public static Integer length(String s) {
+        s = nullIfEmpty(s);
+        if (s == null) {
+            return null;
+        }
+        return s.codePointCount(0, s.length());
+    }
+
+    @BuiltinFunc(names = {"REVERSE"})
+    public static String reverse(String s) {
+        s = nullIfEmpty(s);
+        if (s == null) {
+            return null;
+        }
+        return new StringBuilder(s).reverse().toString();
+    }
+
+    @BuiltinFunc(names = {"LTRIM"})
+    public static String ltrim(String s) {
+        s = nullIfEmpty(s);
+        if (s == null) {
+            return null;
+        }
+
+        int i = 0;
+        int len = s.length();
+        while (i < len && s.charAt(i) == ' ') {
+            i++;
+        }
+        return nullIfEmpty(s.substring(i));
+    }
+
+    @BuiltinFunc(names = {"RTRIM"})
+    public static String rtrim(String s) {
+        s = nullIfEmpty(s);
+        if (s == null) {
+            return null;
+        }
+
+        int i = s.length();
+        while (i > 0 && s.charAt(i - 1) == ' ') {
+            i--;
+        }
+        return nullIfEmpty(s.substring(0, i));
+    }
+
+    // ====================================
+    // numeric
+
+    @BuiltinFunc(names = {"ABS"})
+    public static Short abs(Short l) {
+        if (l == null) {
+            return null;
+        }
+        if (l == Short.MIN_VALUE) {
+            throw new SpLib.SQL_ERROR("Data overflow on data type \"smallint\".");
+        }
+        return (short) Math.abs(l);
+    }
+
+    @BuiltinFunc(names = {"ABS"})
+    public static Integer abs(Integer l) {
+        if (l == null) {
+            return null;
+        }
+        if (l == Integer.MIN_VALUE) {
+            throw new SpLib.SQL_ERROR("Data overflow on data type \"integer\".");
+        }
+        return Math.abs(l);
+    }
+
+    @BuiltinFunc(names = {"ABS"})
+    public static Long abs(Long l) {
+        if (l == null) {
+            return null;
+        }
+        if (l == Long.MIN_VALUE) {
+            throw new SpLib.SQL_ERROR("Data overflow on data type \"bigint\".");
+        }
+        return Math.abs(l);
+    }
+
+    @BuiltinFunc(names = {"ABS"})
+    public static BigDecimal abs(BigDecimal l) {
+        if (l == null) {
+            return null;
+        }
+        return l.abs();
+    }
+
+    @BuiltinFunc(names = {"ABS"})
+    public static Float abs(Float l) {
+        if (l == null) {
+            return null;
+        }
+        return Math.abs(l);
+    }
+
+    @BuiltinFunc(names = {"ABS"})
+    public static Double abs(Double l) {
+        if (l == null) {
+            return null;
+        }
+        return Math.abs(l);
+    }
+
+    @BuiltinFunc(names = {"SIGN"})
+    public static Integer sign(Short l) {
+        return (l == null) ? null : Integer.signum(l);
+    }
+
+    @BuiltinFunc(names = {"SIGN"})
+    public static Integer sign(Integer l) {
+        return (l == null) ? null : Integer.signum(l);
+    }
+
+    @BuiltinFunc(names = {"SIGN"})
+    public static Integer sign(Long l) {
+        return (l == null) ? null : Long.signum(l);
+    }
+
+    @BuiltinFunc(names = {"SIGN"})
+    public static Integer sign(BigDecimal l) {
+        return (l == null) ? null : l.signum();
+    }
+
+    @BuiltinFunc(names = {"SIGN"})
+    public static Integer sign(Float l) {
+        return (l == null) ? null : (int) Math.signum(l);
+    }
+
+    @BuiltinFunc(names = {"SIGN"})
+    public static Integer sign(Double l) {
+        return (l == null) ? null : (int) Math.signum(l);
+    }
+
+    // ====================================
+    // comparison
+    // NOTE: NUMERIC is not here because the server converts both arguments to a common scale
+
+    @BuiltinFunc(names = {"NVL", "IFNULL"})
+    public static String nvl(String l, String r) {
+        l = nullIfEmpty(l);
+        return (l == null) ? nullIfEmpty(r) : l;
+    }
+
+    @BuiltinFunc(names = {"NVL", "IFNULL"})
+    public static Short nvl(Short l, Short r) {
+        return (l == null) ? r : l;
+    }
+
+    @BuiltinFunc(names = {"NVL", "IFNULL"})
+    public static Integer nvl(Integer l, Integer r) {
+        return (l == null) ? r : l;
+    }
+
+    @BuiltinFunc(names = {"NVL", "IFNULL"})
+    public static Long nvl(Long l, Long r) {
+        return (l == null) ? r : l;
+    }
+
+    @BuiltinFunc(names = {"NVL", "IFNULL"})
+    public static Float nvl(Float l, Float r) {
+        return (l == null) ? r : l;
+    }
+
+    @BuiltinFunc(names = {"NVL", "IFNULL"})
+    public static Double nvl(Double l, Double r) {
+        return (l == null) ? r : l;
+    }
+
+    @BuiltinFunc(names = {"NVL", "IFNULL"})
+    public static Date nvl(Date l, Date r) {
+        return (l == null) ? r : l;
+    }
+
+    @BuiltinFunc(names = {"NVL", "IFNULL"})
+    public static Time nvl(Time l, Time r) {
+        return (l == null) ? r : l;
+    }
+
+    // ------------------------------------------------------------------
+    // Private
+    // ------------------------------------------------------------------
+
+    // a string argument is bound to a host variable in the server, which makes '' NULL
+    private static String nullIfEmpty(String s) {
+        if (s != null
+                && s.isEmpty()
+                && Context.getCurrentSessionSettings().oracleStyleEmptyString) {
+            return null;
+        }
+        return s;
+    }
+
+    private static boolean hasDefaultCaseMapping(String s) {
+        String collation = Context.getSystemParameterString(SysParam.INTL_COLLATION);
+        if (collation == null || DEFAULT_CASING_COLLATIONS.contains(collation)) {
+            return true;
+        }
+
+        // other collations may have their own case mapping of non-ASCII characters, and
+        // the turkish ones even of ASCII characters ('i' and 'I')
+        if (collation.startsWith("utf8_tr")) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) > 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -171,7 +171,7 @@ public abstract class Coercion {
 
         public static final RecordToRecord DUMMY = new RecordToRecord(null, null);
 
-        Coercion[] fieldCoercions;
+        public Coercion[] fieldCoercions;
 
         @Override
         public String javaCode(String exprJavaCode) {
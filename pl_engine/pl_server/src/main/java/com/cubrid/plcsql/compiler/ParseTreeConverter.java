@@ -1184,6 +1184,12 @@ public class ParseTreeConverter extends PlcParserBaseVisitor<AstNode> {
         return new ExprSqlRowCount(ctx);
     }
 
+    @Override
+    public ExprSqlBulkRowCount visitSql_bulk_rowcount_exp(Sql_bulk_rowcount_expContext ctx) {
+        Expr index = visitExpression(ctx.expression());
+        return new ExprSqlBulkRowCount(ctx, index);
+    }
+
     @Override
     public Expr visitParen_exp(Paren_expContext ctx) {
         return visitExpression(ctx.expression());
@@ -1862,6 +1868,39 @@ public class ParseTreeConverter extends PlcParserBaseVisitor<AstNode> {
         return ret;
     }
 
+    @Override
+    public StmtForall visitForall_statement(Forall_statementContext ctx) {
+
+        connectionRequired = true;
+
+        symbolStack.pushSymbolTable("forall", null);
+
+        String iter = Misc.getNormalizedText(ctx.index_name());
+
+        // the following must be done before putting the iterator variable to the symbol stack
+        Expr lowerBound = visitLower_bound(ctx.lower_bound());
+        Expr upperBound = visitUpper_bound(ctx.upper_bound());
+
+        DeclForIter iterDecl = new DeclForIter(ctx.index_name(), iter);
+        symbolStack.putDecl(iter, iterDecl);
+
+        // not visitStatic_sql(): the statement is executed in batches, not registered for a loop
+        Static_sqlContext sqlCtx = ctx.static_sql();
+        SqlSemantics sws = getSqlSemanticsFromServer(sqlCtx);
+        assert sws != null;
+        StaticSql staticSql = checkAndConvertStaticSql(sws, sqlCtx);
+        if (staticSql.kind == ServerConstants.CUBRID_STMT_SELECT) {
+            throw new SemanticError(
+                    Misc.getLineColumnOf(sqlCtx), // s442
+                    "FORALL statement cannot have a SELECT statement");
+        }
+        assert staticSql.intoTargetList == null;
+
+        symbolStack.popSymbolTable();
+
+        return new StmtForall(ctx, iterDecl, lowerBound, upperBound, staticSql, getSqlSerialNo());
+    }
+
     @Override
     public Expr visitLower_bound(Lower_boundContext ctx) {
         return visitExpression(ctx.concatenation());
@@ -1947,8 +1986,8 @@ public class ParseTreeConverter extends PlcParserBaseVisitor<AstNode> {
                         outermostLoop ? loopOptimizable : null,
                         cursor,
                         args,
-                        label,
-                        record,
+                        declLabel,
+                        recDecl,
                         recTy,
                         stmts);
         if (outermostLoop) {
@@ -2012,7 +2051,7 @@ public class ParseTreeConverter extends PlcParserBaseVisitor<AstNode> {
                 new StmtForStaticSqlLoop(
                         ctx,
                         outermostLoop ? loopOptimizable : null,
-                        label,
+                        declLabel,
                         declForRecord,
                         staticSql,
                         stmts,
@@ -31,16 +31,23 @@
 package com.cubrid.plcsql.compiler;
 
 import com.cubrid.jsp.Server;
+import com.cubrid.jsp.compiler.CompileCache;
 import com.cubrid.jsp.data.CompileInfo;
+import com.cubrid.jsp.metrics.FlightEvent;
+import com.cubrid.jsp.metrics.FlightEvents;
 import com.cubrid.plcsql.compiler.antlrgen.PlcParser;
 import com.cubrid.plcsql.compiler.ast.Unit;
 import com.cubrid.plcsql.compiler.error.SemanticError;
 import com.cubrid.plcsql.compiler.error.SyntaxError;
+import com.cubrid.plcsql.compiler.serverapi.ServerAPI;
+import com.cubrid.plcsql.compiler.visitor.BytecodeWriter;
 import com.cubrid.plcsql.compiler.visitor.JavaCodeWriter;
 import com.cubrid.plcsql.compiler.visitor.TypeChecker;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintStream;
+import java.security.MessageDigest;
+import java.util.Map;
 import org.antlr.v4.runtime.*;
 import org.antlr.v4.runtime.tree.*;
 
@@ -50,20 +57,41 @@ public class PlcsqlCompilerMain {
     private static int revision = 1;
 
     public static CompileInfo compilePLCSQL(String in, String owner, boolean verbose) {
-        return compilePLCSQL(in, verbose, owner, Integer.toString(revision++));
+        return compilePLCSQL(in, owner, verbose, false);
+    }
+
+    public static CompileInfo compilePLCSQL(
+            String in, String owner, boolean verbose, boolean bytecode) {
+        return compilePLCSQL(in, verbose, bytecode, owner, Integer.toString(revision++));
     }
     // end of temporary code
 
     public static CompileInfo compilePLCSQL(
             String in, boolean verbose, String owner, String revision) {
+        return compilePLCSQL(in, verbose, false, owner, revision);
+    }
+
+    // bytecode: generate the class file directly instead of leaving it to javac, if possible.
+    // CompileInfo.classFiles is null if it is not done.
+    public static CompileInfo compilePLCSQL(
+            String in, boolean verbose, boolean bytecode, String owner, String revision) {
 
         // System.out.println("[TEMP] text to the compiler");
         // System.out.println(in);
 
-        int optionFlags = verbose ? OPT_VERBOSE : 0;
+        int optionFlags = (verbose ? OPT_VERBOSE : 0) | (bytecode ? OPT_BYTECODE : 0);
         CharStream input = CharStreams.fromString(in);
+
+        CompileCache cache = CompileCache.getInstance();
+        MessageDigest cacheKey = null;
+        if (cache != null) {
+            cacheKey = cache.newKeyDigest(in, owner, bytecode ? "bytecode" : "javac");
+            ServerAPI.setAnswerDigest(cacheKey);
+        }
+
         try {
-            return compileInner(new InstanceStore(), input, optionFlags, owner, revision);
+            return compileInner(
+                    new InstanceStore(), input, optionFlags, owner, revision, cache, cacheKey);
         } catch (SyntaxError e) {
             CompileInfo err = new CompileInfo(-1, e.line, e.column, e.getMessage());
             return err;
@@ -74,6 +102,10 @@ public class PlcsqlCompilerMain {
             Server.log(e);
             CompileInfo err = new CompileInfo(-1, 0, 0, "internal error");
             return err;
+        } finally {
+            if (cacheKey != null) {
+                ServerAPI.setAnswerDigest(null);
+            }
         }
     }
 
@@ -83,6 +115,7 @@ public class PlcsqlCompilerMain {
 
     private static final int OPT_VERBOSE = 1;
     private static final int OPT_PRINT_PARSE_TREE = 1 << 1;
+    private static final int OPT_BYTECODE = 1 << 2;
 
     private static final String STR_EXPECTING = " expecting ";
     private static final int STR_EXPECTING_LEN = STR_EXPECTING.length();
@@ -173,12 +206,22 @@ public class PlcsqlCompilerMain {
         return t;
     }
 
+    private static void commitStage(FlightEvent event, String stage, String unit) {
+        if (event != null) {
+            event.set(FlightEvents.COMPILE_STAGE_STAGE, stage)
+                    .set(FlightEvents.COMPILE_STAGE_UNIT, unit)
+                    .commit();
+        }
+    }
+
     private static CompileInfo compileInner(
             InstanceStore iStore,
             CharStream input,
             int optionFlags,
             String owner,
-            String revision) {
+            String revision,
+            CompileCache cache,
+            MessageDigest cacheKey) {
 
         boolean verbose = (optionFlags & OPT_VERBOSE) > 0;
 
@@ -192,11 +235,13 @@ public class PlcsqlCompilerMain {
         // ------------------------------------------
         // parsing
 
+        FlightEvent event = FlightEvents.COMPILE_STAGE.begin();
         String[] sqlTemplate = new String[1];
         ParseTree tree = parse(input, verbose, sqlTemplate, logStore);
         if (tree == null) {
             throw new RuntimeException("parsing failed");
         }
+        commitStage(event, "parse", null);
 
         if (verbose) {
             t0 = logElapsedTime(logStore, "parsing", t0);
@@ -220,8 +265,10 @@ public class PlcsqlCompilerMain {
         // ------------------------------------------
         // converting parse tree to AST
 
+        event = FlightEvents.COMPILE_STAGE.begin();
         ParseTreeConverter converter = new ParseTreeConverter(iStore, owner, revision);
         Unit unit = (Unit) converter.visit(tree);
+        commitStage(event, "convert", unit.getClassName());
 
         if (verbose) {
             t0 = logElapsedTime(logStore, "converting to AST", t0);
@@ -232,7 +279,9 @@ public class PlcsqlCompilerMain {
         // . signature of a global procedure/function
         // . whether a name represent a serial or not
         // . type of a table column
+        event = FlightEvents.COMPILE_STAGE.begin();
         converter.askServerSemanticQuestions();
+        commitStage(event, "semantics", unit.getClassName());
 
         if (verbose) {
             t0 = logElapsedTime(logStore, "getting global semantics information from server", t0);
@@ -241,20 +290,71 @@ public class PlcsqlCompilerMain {
         // ------------------------------------------
         // typechecking
 
+        event = FlightEvents.COMPILE_STAGE.begin();
         TypeChecker typeChecker = new TypeChecker(iStore, converter.symbolStack, converter);
         typeChecker.visitUnit(unit);
+        commitStage(event, "typecheck", unit.getClassName());
 
         if (verbose) {
             t0 = logElapsedTime(logStore, "typechecking", t0);
         }
 
+        // ------------------------------------------
+        // looking up the compile cache
+        // the key is complete here since no more questions are asked to the server from now on
+
+        String key = null;
+        if (cache != null) {
+            ServerAPI.setAnswerDigest(null);
+            key = CompileCache.getKey(cacheKey);
+
+            event = FlightEvents.COMPILE_STAGE.begin();
+            CompileInfo cached = cache.get(key);
+            if (cached != null) {
+                commitStage(event, "cache", cached.className);
+
+                if (verbose) {
+                    logElapsedTime(logStore, "compile cache hit (" + cached.className + ")", t0);
+                    Server.log(unit.getClassName() + logStore.toString());
+                }
+                return cached;
+            }
+        }
+
         // ------------------------------------------
         // Java code generation
 
+        event = FlightEvents.COMPILE_STAGE.begin();
         String javaCode = new JavaCodeWriter(iStore).buildCodeLines(unit);
+        commitStage(event, "codegen", unit.getClassName());
 
         if (verbose) {
-            logElapsedTime(logStore, "Java code generation", t0);
+            t0 = logElapsedTime(logStore, "Java code generation", t0);
+        }
+
+        // ------------------------------------------
+        // class file generation (optional)
+        // falls back to javac for the programs using what BytecodeWriter does not support yet
+
+        Map<String, byte[]> classFiles = null;
+        if ((optionFlags & OPT_BYTECODE) > 0) {
+            event = FlightEvents.COMPILE_STAGE.begin();
+            try {
+                classFiles = new BytecodeWriter(iStore).buildClassFiles(unit);
+                commitStage(event, "bytecode", unit.getClassName());
+            } catch (BytecodeWriter.NotSupported e) {
+                if (verbose) {
+                    logStore.append(
+                            "\n        : class files not generated (" + e.getMessage() + ")");
+                }
+            } catch (RuntimeException | AssertionError e) {
+                // a bug of BytecodeWriter, which must not fail the compilation
+                Server.log(e);
+            }
+
+            if (verbose) {
+                logElapsedTime(logStore, "class file generation", t0);
+            }
         }
 
         // ------------------------------------------
@@ -270,6 +370,8 @@ public class PlcsqlCompilerMain {
                         sqlTemplate[0] + String.format(" '%s';", javaSig),
                         unit.getClassName(),
                         javaSig);
+        info.classFiles = classFiles;
+        info.cacheKey = key;
         return info;
     }
 
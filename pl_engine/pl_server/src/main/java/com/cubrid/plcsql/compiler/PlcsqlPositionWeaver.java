@@ -0,0 +1,292 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.plcsql.compiler;
+
+import com.cubrid.jsp.Server;
+import com.cubrid.jsp.code.CompiledCode;
+import com.cubrid.jsp.code.CompiledCodeSet;
+import com.cubrid.plcsql.predefined.sp.SpLib;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodTooLargeException;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+
+/*
+ * Adds exception handlers to the classes of a PL/CSQL program, which set the PL/CSQL line and
+ * column of PlcsqlRuntimeErrors thrown in them. PlcsqlRuntimeErrors do not have stack traces
+ * (see PlcsqlRuntimeError.fillInStackTrace()), from which the position used to be found.
+ *
+ * The code generated for a PL/CSQL program is divided into code ranges of the Java lines generated
+ * for the AST nodes, and the code range table of the program (SpLib.buildCodeRangeTable()) gives
+ * the position of the innermost code range for each Java line. Instructions at the lines with the
+ * same position are covered by a handler catching PlcsqlRuntimeError, which calls
+ * PlcsqlRuntimeError.setPlcLineColumnIfUnknown() and throws the error again.
+ *
+ * The handlers come first in the exception table. So, they get an error before the handlers of the
+ * program, which no longer see the instruction the error was thrown at. For the exception to be
+ * handled as if thrown at the original instruction, the handler code is covered in turn by copies
+ * of the original exception table entries covering the instruction.
+ *
+ * Nothing is added to the normal execution path.
+ */
+public class PlcsqlPositionWeaver {
+
+    private static final String PLCSQL_RUNTIME_ERROR =
+            "com/cubrid/plcsql/predefined/PlcsqlRuntimeError";
+    private static final String CODE_RANGES_FIELD = "codeRanges";
+
+    // weaves all the classes of the program, the code range table of which is in the main class
+    public static CompiledCodeSet weave(CompiledCodeSet codeSet)
+            throws URISyntaxException, IOException {
+
+        String mainClass = codeSet.getMainClassName();
+        CompiledCode main = null;
+        for (Map.Entry<String, CompiledCode> e : codeSet.getCodeList()) {
+            if (e.getKey().equals(mainClass)) {
+                main = e.getValue();
+            }
+        }
+
+        String codeRanges = (main == null) ? null : getCodeRanges(main.getByteCode());
+        if (codeRanges == null) {
+            return codeSet; // not a PL/CSQL program
+        }
+        int[] table = SpLib.buildCodeRangeTable(codeRanges);
+
+        List<CompiledCode> woven = new ArrayList<>();
+        for (Map.Entry<String, CompiledCode> e : codeSet.getCodeList()) {
+            CompiledCode code = new CompiledCode(e.getKey());
+            code.openOutputStream().write(weave(e.getValue().getByteCode(), table));
+            woven.add(code);
+        }
+        return new CompiledCodeSet(mainClass, woven);
+    }
+
+    public static byte[] weave(byte[] classFile, int[] table) {
+
+        ClassNode cn = new ClassNode();
+        new ClassReader(classFile).accept(cn, ClassReader.EXPAND_FRAMES);
+
+        for (MethodNode mn : cn.methods) {
+            if (!"<clinit>".equals(mn.name) && mn.instructions.size() > 0) {
+                weaveMethod(mn, table);
+            }
+        }
+
+        // frames of the original code are kept, and the handler code has its own frames
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cn.accept(cw);
+        try {
+            return cw.toByteArray();
+        } catch (MethodTooLargeException e) {
+            // positions of the PlcsqlRuntimeErrors thrown in this class are reported unknown
+            Server.log(Level.WARNING, "no room for the exception positions in " + cn.name);
+            return classFile;
+        }
+    }
+
+    // ------------------------------------------------------------------
+    // Private
+    // ------------------------------------------------------------------
+
+    // consecutive instructions with the same position and covered by the same handlers
+    private static class Range {
+        final AbstractInsnNode first;
+        AbstractInsnNode last;
+        final int tableIndex;
+        final int[] covering; // indexes of the original try-catch blocks
+
+        Range(AbstractInsnNode first, int tableIndex, int[] covering) {
+            this.first = first;
+            this.last = first;
+            this.tableIndex = tableIndex;
+            this.covering = covering;
+        }
+    }
+
+    private static String getCodeRanges(byte[] classFile) {
+        ClassNode cn = new ClassNode();
+        new ClassReader(classFile).accept(cn, ClassReader.SKIP_CODE);
+        for (FieldNode fn : cn.fields) {
+            if (CODE_RANGES_FIELD.equals(fn.name) && fn.value instanceof String) {
+                return (String) fn.value;
+            }
+        }
+        return null;
+    }
+
+    private static FrameNode getFrameAt(LabelNode label) {
+        for (AbstractInsnNode insn = label.getNext(); insn != null; insn = insn.getNext()) {
+            if (insn instanceof FrameNode) {
+                return (FrameNode) insn;
+            }
+            if (insn.getOpcode() >= 0) {
+                break;
+            }
+        }
+        throw new IllegalStateException("no frame at an exception handler");
+    }
+
+    private static void weaveMethod(MethodNode mn, int[] table) {
+
+        InsnList insns = mn.instructions;
+        List<TryCatchBlockNode> tryCatches = new ArrayList<>(mn.tryCatchBlocks);
+
+        int n = tryCatches.size();
+        int[] tcStart = new int[n];
+        int[] tcEnd = new int[n];
+        for (int i = 0; i < n; i++) {
+            tcStart[i] = insns.indexOf(tryCatches.get(i).start);
+            tcEnd[i] = insns.indexOf(tryCatches.get(i).end);
+        }
+
+        // in a constructor, the code before calling the super constructor is not covered
+        // because the handlers could not have a frame valid for the uninitialized this
+        boolean covering = !"<init>".equals(mn.name);
+
+        List<Range> ranges = new ArrayList<>();
+        Range range = null;
+        int line = 0;
+        int index = 0;
+        for (AbstractInsnNode insn : insns.toArray()) {
+            int i = index++;
+            if (insn instanceof LineNumberNode) {
+                line = ((LineNumberNode) insn).line;
+                continue;
+            }
+            if (insn.getOpcode() < 0) {
+                continue; // labels and frames
+            }
+            if (!covering) {
+                covering =
+                        insn.getOpcode() == Opcodes.INVOKESPECIAL
+                                && "<init>".equals(((MethodInsnNode) insn).name);
+                continue;
+            }
+
+            int t = SpLib.findCodeRange(table, line);
+            if (t < 0 || table[t + 1] < 0) {
+                range = null;
+                continue;
+            }
+
+            int[] cov = new int[n];
+            int c = 0;
+            for (int k = 0; k < n; k++) {
+                if (tcStart[k] <= i && i < tcEnd[k]) {
+                    cov[c++] = k;
+                }
+            }
+            cov = Arrays.copyOf(cov, c);
+
+            if (range != null && range.tableIndex == t && Arrays.equals(range.covering, cov)) {
+                range.last = insn;
+            } else {
+                range = new Range(insn, t, cov);
+                ranges.add(range);
+            }
+        }
+
+        if (ranges.isEmpty()) {
+            return;
+        }
+
+        List<TryCatchBlockNode> handlers = new ArrayList<>();
+        List<TryCatchBlockNode> copies = new ArrayList<>();
+        for (Range r : ranges) {
+            LabelNode start = new LabelNode();
+            LabelNode end = new LabelNode();
+            insns.insertBefore(r.first, start);
+            insns.insert(r.last, end);
+
+            // the locals of the handler code are the ones of the innermost original handler, which
+            // are valid in the range and also for the original handlers enclosing it
+            Object[] locals = new Object[0];
+            if (r.covering.length > 0) {
+                FrameNode f = getFrameAt(tryCatches.get(r.covering[0]).handler);
+                locals = f.local.toArray();
+            }
+
+            LabelNode handler = new LabelNode();
+            LabelNode handlerEnd = new LabelNode();
+            insns.add(handler);
+            insns.add(
+                    new FrameNode(
+                            Opcodes.F_NEW,
+                            locals.length,
+                            locals,
+                            1,
+                            new Object[] {PLCSQL_RUNTIME_ERROR}));
+            insns.add(new LdcInsnNode(table[r.tableIndex + 1]));
+            insns.add(new LdcInsnNode(table[r.tableIndex + 2]));
+            insns.add(
+                    new MethodInsnNode(
+                            Opcodes.INVOKEVIRTUAL,
+                            PLCSQL_RUNTIME_ERROR,
+                            "setPlcLineColumnIfUnknown",
+                            "(II)L" + PLCSQL_RUNTIME_ERROR + ";",
+                            false));
+            insns.add(new InsnNode(Opcodes.ATHROW));
+            insns.add(handlerEnd);
+
+            handlers.add(new TryCatchBlockNode(start, end, handler, PLCSQL_RUNTIME_ERROR));
+            for (int k : r.covering) {
+                TryCatchBlockNode tc = tryCatches.get(k);
+                copies.add(new TryCatchBlockNode(handler, handlerEnd, tc.handler, tc.type));
+            }
+        }
+
+        mn.tryCatchBlocks = new ArrayList<>(handlers.size() + n + copies.size());
+        mn.tryCatchBlocks.addAll(handlers);
+        mn.tryCatchBlocks.addAll(tryCatches);
+        mn.tryCatchBlocks.addAll(copies);
+    }
+}
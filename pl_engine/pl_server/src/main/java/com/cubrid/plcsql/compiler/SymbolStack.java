@@ -32,6 +32,8 @@ package com.cubrid.plcsql.compiler;
 
 import static com.cubrid.plcsql.compiler.antlrgen.PlcParser.*;
 
+import com.cubrid.plcsql.builtin.BuiltinFunctions;
+import com.cubrid.plcsql.compiler.annotation.BuiltinFunc;
 import com.cubrid.plcsql.compiler.annotation.Operator;
 import com.cubrid.plcsql.compiler.ast.*;
 import com.cubrid.plcsql.compiler.error.SemanticError;
@@ -39,6 +41,8 @@ import com.cubrid.plcsql.compiler.type.Type;
 import com.cubrid.plcsql.compiler.type.TypeVariadic;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -69,6 +73,9 @@ public class SymbolStack {
     // NOTE: never changing after its initialization in the SymbolStack class initilization
     private static final Map<String, FuncOverloads> operators = new HashMap<>();
 
+    // NOTE: never changing after its initialization in the SymbolStack class initilization
+    private static final Map<String, List<Method>> nativeBuiltinFuncs = new HashMap<>();
+
     private static SymbolTable predefinedSymbols =
             new SymbolTable(new Scope(null, null, "%predefined_0", LEVEL_PREDEFINED));
 
@@ -130,6 +137,28 @@ public class SymbolStack {
         }
     }
 
+    private static void addNativeBuiltinFuncs() {
+
+        // add BuiltinFunctions static methods evaluating built-in functions in Java
+
+        Method[] methods = BuiltinFunctions.class.getMethods();
+        for (Method m : methods) {
+            if ((m.getModifiers() & Modifier.STATIC) > 0) {
+                BuiltinFunc funcAnnot = m.getAnnotation(BuiltinFunc.class);
+                if (funcAnnot != null) {
+                    for (String name : funcAnnot.names()) {
+                        List<Method> overloads = nativeBuiltinFuncs.get(name);
+                        if (overloads == null) {
+                            overloads = new ArrayList<>();
+                            nativeBuiltinFuncs.put(name, overloads);
+                        }
+                        overloads.add(m);
+                    }
+                }
+            }
+        }
+    }
+
     private static void addDbmsOutputProcedures() {
 
         DeclProc dp;
@@ -526,6 +555,7 @@ public class SymbolStack {
 
     static {
         addOperatorDecls();
+        addNativeBuiltinFuncs();
         addDbmsOutputProcedures();
         addBuiltinFunctions();
         addPredefinedExceptions();
@@ -536,6 +566,47 @@ public class SymbolStack {
         return getFuncOverload(iStore, outCoercions, operators, name, argTypes);
     }
 
+    // returns a Java implementation of the built-in function which takes exactly the given argument
+    // types and returns the given type, or null if there is none.
+    // The returned method may take a Connection as its first parameter in addition.
+    public static Method getNativeBuiltinFunc(String name, List<Type> argTypes, Type retType) {
+
+        List<Method> overloads = nativeBuiltinFuncs.get(name);
+        if (overloads == null) {
+            return null;
+        }
+
+        for (Method m : overloads) {
+            Class[] paramTypes = m.getParameterTypes();
+            int offset = (paramTypes.length > 0 && paramTypes[0] == Connection.class) ? 1 : 0;
+            if (paramTypes.length - offset != argTypes.size()) {
+                continue;
+            }
+
+            if (!isSameType(m.getReturnType(), retType)) {
+                continue;
+            }
+
+            boolean match = true;
+            for (int i = 0; i < argTypes.size(); i++) {
+                if (!isSameType(paramTypes[i + offset], argTypes.get(i))) {
+                    match = false;
+                    break;
+                }
+            }
+            if (match) {
+                return m;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isSameType(Class javaType, Type ty) {
+        Type t = Type.getTypeByJavaName(javaType.getTypeName());
+        return t != null && ty != null && t.idx == ty.idx;
+    }
+
     //
     // end of Static
     // -----------------------------------------------------------------------------
@@ -31,6 +31,7 @@
 package com.cubrid.plcsql.compiler.ast;
 
 import com.cubrid.plcsql.compiler.visitor.AstVisitor;
+import java.lang.reflect.Method;
 import org.antlr.v4.runtime.ParserRuleContext;
 
 public class ExprBuiltinFuncCall extends BuiltinFuncCall {
@@ -49,4 +50,19 @@ public class ExprBuiltinFuncCall extends BuiltinFuncCall {
         this.name = name;
         this.args = args;
     }
+
+    public void setNativeFunc(Method nativeFunc) {
+        this.nativeFunc = nativeFunc;
+    }
+
+    public Method getNativeFunc() {
+        return nativeFunc;
+    }
+
+    // --------------------------------------------------
+    // Private
+    // --------------------------------------------------
+
+    // Java implementation to call instead of evaluating in the server, if any
+    private Method nativeFunc;
 }
@@ -44,6 +44,14 @@ public class ExprField extends Expr implements AssignTarget {
         this.colIndex = colIndex;
     }
 
+    public Type getType() {
+        return type;
+    }
+
+    public int getColIndex() {
+        return colIndex;
+    }
+
     @Override
     public <R> R accept(AstVisitor<R> visitor) {
         return visitor.visitExprField(this);
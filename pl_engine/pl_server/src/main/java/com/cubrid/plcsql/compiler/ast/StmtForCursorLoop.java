@@ -43,7 +43,9 @@ public class StmtForCursorLoop extends StmtLoop {
 
     public final ExprId cursor;
     public final NodeList<Expr> cursorArgs;
+    public final DeclLabel declLabel;
     public final String label;
+    public final DeclVar recordDecl;
     public final String record;
     public final TypeRecord recordType;
     public final NodeList<Stmt> stmts;
@@ -53,8 +55,8 @@ public class StmtForCursorLoop extends StmtLoop {
             StmtLoop.LoopOptimizable loopOptimizable,
             ExprId cursor,
             NodeList<Expr> cursorArgs,
-            String label,
-            String record,
+            DeclLabel declLabel,
+            DeclVar recordDecl,
             TypeRecord recordType,
             NodeList<Stmt> stmts) {
 
@@ -65,8 +67,10 @@ public class StmtForCursorLoop extends StmtLoop {
 
         this.cursor = cursor;
         this.cursorArgs = cursorArgs;
-        this.label = label;
-        this.record = record;
+        this.declLabel = declLabel;
+        this.label = (declLabel == null) ? null : declLabel.name;
+        this.recordDecl = recordDecl;
+        this.record = recordDecl.name;
         this.recordType = recordType;
         this.stmts = stmts;
     }
@@ -36,6 +36,7 @@ import org.antlr.v4.runtime.ParserRuleContext;
 public abstract class StmtForSqlLoop extends StmtLoop {
 
     public final boolean dynamic;
+    public final DeclLabel declLabel;
     public final String label;
     public final DeclId record;
     public final Expr sql;
@@ -47,7 +48,7 @@ public abstract class StmtForSqlLoop extends StmtLoop {
             ParserRuleContext ctx,
             StmtLoop.LoopOptimizable loopOptimizable,
             boolean dynamic,
-            String label,
+            DeclLabel declLabel,
             DeclId record,
             Expr sql,
             List<? extends Expr> usedExprList,
@@ -56,7 +57,8 @@ public abstract class StmtForSqlLoop extends StmtLoop {
         super(ctx, loopOptimizable);
 
         this.dynamic = dynamic;
-        this.label = label;
+        this.declLabel = declLabel;
+        this.label = (declLabel == null) ? null : declLabel.name;
         this.record = record;
         this.sql = sql;
         this.usedExprList = usedExprList;
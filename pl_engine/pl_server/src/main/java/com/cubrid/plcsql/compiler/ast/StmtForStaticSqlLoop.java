@@ -47,7 +47,7 @@ public class StmtForStaticSqlLoop extends StmtForSqlLoop {
     public StmtForStaticSqlLoop(
             ParserRuleContext ctx,
             StmtLoop.LoopOptimizable loopOptimizable,
-            String label,
+            DeclLabel declLabel,
             DeclVar record,
             StaticSql staticSql,
             NodeList<Stmt> stmts,
@@ -56,7 +56,7 @@ public class StmtForStaticSqlLoop extends StmtForSqlLoop {
                 ctx,
                 loopOptimizable,
                 false,
-                label,
+                declLabel,
                 record,
                 new ExprStr(staticSql.ctx, staticSql.rewritten),
                 new ArrayList(staticSql.hostExprs.keySet()),
@@ -44,17 +44,37 @@ import com.cubrid.jsp.protocol.SqlSemanticsResponse;
 import com.cubrid.jsp.protocol.UnPackableObject;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.util.List;
 
 public class ServerAPI {
 
+    // digest of the answers the compile running in the current thread got from the server, if any.
+    // The compile result depends on them besides the program text (see CompileCache)
+    private static final ThreadLocal<MessageDigest> answerDigest = new ThreadLocal<>();
+
+    public static void setAnswerDigest(MessageDigest digest) {
+        if (digest == null) {
+            answerDigest.remove();
+        } else {
+            answerDigest.set(digest);
+        }
+    }
+
+    private static void digestAnswer(ByteBuffer payload) {
+        MessageDigest digest = answerDigest.get();
+        if (digest != null) {
+            digest.update(payload.duplicate());
+        }
+    }
+
     public static List<SqlSemantics> getSqlSemantics(List<String> sqlTexts) {
         if (sqlTexts == null || sqlTexts.size() == 0) {
             return null;
         }
 
         try {
-            CUBRIDPacker packer = new CUBRIDPacker(ByteBuffer.allocate(1024));
+            CUBRIDPacker packer = Context.getCurrentExecuteThread().getPayloadPacker();
             SqlSemanticsRequest request = new SqlSemanticsRequest(sqlTexts);
             packer.packPackableObject(request);
             Context.getCurrentExecuteThread()
@@ -65,6 +85,7 @@ public class ServerAPI {
 
             Header header = new Header(unpacker);
             ByteBuffer payload = unpacker.unpackBuffer();
+            digestAnswer(payload);
             unpacker.setBuffer(payload);
 
             int status = unpacker.unpackInt();
@@ -82,7 +103,7 @@ public class ServerAPI {
         }
 
         try {
-            CUBRIDPacker packer = new CUBRIDPacker(ByteBuffer.allocate(1024));
+            CUBRIDPacker packer = Context.getCurrentExecuteThread().getPayloadPacker();
             GlobalSemanticsRequest request = new GlobalSemanticsRequest(questions);
             packer.packPackableObject(request);
             Context.getCurrentExecuteThread()
@@ -93,6 +114,7 @@ public class ServerAPI {
 
             Header header = new Header(unpacker);
             ByteBuffer payload = unpacker.unpackBuffer();
+            digestAnswer(payload);
             unpacker.setBuffer(payload);
 
             int status = unpacker.unpackInt();
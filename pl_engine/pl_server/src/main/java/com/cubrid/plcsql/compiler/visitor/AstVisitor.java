@@ -98,6 +98,8 @@ public abstract class AstVisitor<R> {
 
     public abstract R visitExprSqlRowCount(ExprSqlRowCount node);
 
+    public abstract R visitExprSqlBulkRowCount(ExprSqlBulkRowCount node);
+
     public abstract R visitExprStr(ExprStr node);
 
     public abstract R visitExprSyntaxedCallAdddate(ExprSyntaxedCallAdddate node);
@@ -158,6 +160,8 @@ public abstract class AstVisitor<R> {
 
     public abstract R visitStmtForStaticSqlLoop(StmtForStaticSqlLoop node);
 
+    public abstract R visitStmtForall(StmtForall node);
+
     public abstract R visitStmtGlobalProcCall(StmtGlobalProcCall node);
 
     public abstract R visitStmtIf(StmtIf node);
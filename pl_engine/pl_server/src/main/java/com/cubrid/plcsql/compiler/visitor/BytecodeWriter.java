@@ -0,0 +1,4168 @@
+/*
+ *
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.plcsql.compiler.visitor;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import com.cubrid.jsp.data.DBType;
+import com.cubrid.jsp.exception.TypeMismatchException;
+import com.cubrid.jsp.value.DateTimeParser;
+import com.cubrid.jsp.value.ValueUtilities;
+import com.cubrid.plcsql.compiler.Coercion;
+import com.cubrid.plcsql.compiler.InstanceStore;
+import com.cubrid.plcsql.compiler.Misc;
+import com.cubrid.plcsql.compiler.SymbolStack;
+import com.cubrid.plcsql.compiler.ast.*;
+import com.cubrid.plcsql.compiler.type.Type;
+import com.cubrid.plcsql.compiler.type.TypeRecord;
+import com.cubrid.plcsql.predefined.sp.SpLib;
+import com.cubrid.plcsql.predefined.sp.SpLib.BulkRowCount;
+import com.cubrid.plcsql.predefined.sp.SpLib.Query;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.objectweb.asm.ClassTooLargeException;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodTooLargeException;
+import org.objectweb.asm.MethodVisitor;
+
+// Generates the class file of a PL/CSQL program directly from its typed AST, without going through
+// Java source code and javac. The generated class has the same contract as the one compiled from
+// the output of JavaCodeWriter: a public static method with the same signature, the same SpLib
+// calls, and the same code range markers, whose Java line numbers are carried by the line number
+// table instead of lines of source code.
+//
+// Local procedures and functions become private static methods of the class, which get the
+// variables of the enclosing routines they use as extra arguments. Such variables are kept in
+// one-element arrays as all the variables are in the Java code, so that an assignment in a local
+// routine is seen by the enclosing one. User-defined exceptions become classes of their own.
+//
+// Records are arrays of one-element field arrays instead of the record classes of the Java code.
+// A few constructs are not supported: records of dynamic SQL, records used as a whole as SQL host
+// values, record fields given as OUT arguments, and programs beyond the limits of a class file.
+// The visit methods throw NotSupported for them, and the caller is supposed to fall back to
+// JavaCodeWriter and javac then.
+public class BytecodeWriter extends AstVisitor<Class<?>> {
+
+    // a construct for which no class file can be generated. An unchecked exception because the
+    // visit methods cannot throw checked ones.
+    public static class NotSupported extends RuntimeException {
+        NotSupported(String construct) {
+            super(construct);
+        }
+
+        NotSupported(String construct, Throwable cause) {
+            super(construct, cause);
+        }
+    }
+
+    private final InstanceStore iStore;
+
+    public BytecodeWriter(InstanceStore iStore) {
+        this.iStore = iStore;
+    }
+
+    // returns the class files of the program by their class names, the main class first
+    public Map<String, byte[]> buildClassFiles(Unit unit) {
+
+        visitUnit(unit);
+
+        Map<String, byte[]> ret = new LinkedHashMap<>();
+        try {
+            ret.put(className, cw.toByteArray());
+        } catch (MethodTooLargeException | ClassTooLargeException e) {
+            throw new NotSupported("too large a program", e);
+        }
+        ret.putAll(exceptionClassFiles);
+
+        return ret;
+    }
+
+    // -----------------------------------------------------------------
+    // Unit
+    //
+
+    @Override
+    public Class<?> visitUnit(Unit node) {
+
+        unit = node;
+        className = node.getClassName();
+        fileName = className + ".java";
+
+        // the code is generated twice. The first time, without writing it anywhere, to find the
+        // variables of the enclosing routines that the local routines use
+        collecting = true;
+        genMethods();
+        computeCapturedDecls();
+
+        collecting = false;
+        mv = null;
+        slots.clear();
+        numericConsts.clear();
+        codeRangeMarkers.setLength(0);
+
+        cw =
+                new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+                    @Override
+                    protected ClassLoader getClassLoader() {
+                        return BytecodeWriter.class.getClassLoader();
+                    }
+                };
+        cw.visit(V1_8, ACC_PUBLIC | ACC_SUPER, className, null, "java/lang/Object", null);
+        cw.visitSource(fileName, null);
+
+        genMethods();
+        if (mv.line > MAX_JAVA_LINE) {
+            throw new NotSupported("too many code ranges");
+        }
+
+        genClassInit();
+        cw.visitEnd();
+
+        return null;
+    }
+
+    private void genMethods() {
+        genMainMethod();
+        while (!routinesToGen.isEmpty()) {
+            genLocalRoutineMethod(routinesToGen.removeFirst());
+        }
+    }
+
+    private void genMainMethod() {
+
+        DeclRoutine routine = unit.routine;
+
+        beginMethod(ACC_PUBLIC | ACC_STATIC, routine.name, methodDescriptorOf(routine, null));
+        genParamSlots(routine);
+
+        beginRange(UNIT_POSITION);
+
+        genNullifyOutParams(routine);
+
+        Label start = new Label();
+        Label end = new Label();
+        mv.visitLabel(start);
+
+        if (unit.connectionRequired) {
+            // Connection conn = DriverManager.getConnection(...);
+            mv.visitLdcInsn(
+                    "jdbc:default:connection::?autonomous_transaction="
+                            + unit.autonomousTransaction);
+            mv.visitMethodInsn(
+                    INVOKESTATIC,
+                    "java/sql/DriverManager",
+                    "getConnection",
+                    "(Ljava/lang/String;)Ljava/sql/Connection;",
+                    false);
+            connSlot = nextSlot++;
+            mv.visitVarInsn(ASTORE, connSlot);
+
+            // Long[] sql_rowcount = new Long[] { null };
+            mv.visitInsn(ICONST_1);
+            mv.visitTypeInsn(ANEWARRAY, "java/lang/Long");
+            rowCountSlot = nextSlot++;
+            mv.visitVarInsn(ASTORE, rowCountSlot);
+
+            // BulkRowCount[] sql_bulk_rowcount = new BulkRowCount[] { null };
+            mv.visitInsn(ICONST_1);
+            mv.visitTypeInsn(ANEWARRAY, BULK_ROW_COUNT);
+            bulkRowCountSlot = nextSlot++;
+            mv.visitVarInsn(ASTORE, bulkRowCountSlot);
+        }
+
+        genDecls(routine.decls);
+        visitBody(routine.body);
+        if (routine.isProcedure()) {
+            mv.visitInsn(RETURN);
+        } else {
+            // not reachable: every path of a function body ends with a return or a raise
+            genThrowNew(SP_LIB + "$PROGRAM_ERROR");
+        }
+
+        mv.visitLabel(end);
+
+        // exceptions that escaped from the exception handlers of the body
+        // (their positions are set by the handlers PlcsqlPositionWeaver adds)
+        Label handler = addTryCatch(start, end, PLCSQL_RUNTIME_ERROR);
+        mv.visitLabel(handler);
+        int e = nextSlot++;
+        int c = nextSlot++;
+        mv.visitVarInsn(ASTORE, e);
+        mv.visitVarInsn(ALOAD, e);
+        mv.visitMethodInsn(
+                INVOKEVIRTUAL, "java/lang/Throwable", "getCause", "()Ljava/lang/Throwable;", false);
+        mv.visitVarInsn(ASTORE, c);
+        Label noCause = new Label();
+        mv.visitVarInsn(ALOAD, c);
+        mv.visitJumpInsn(IFNULL, noCause);
+        // a Java exception converted in an exception handling block
+        mv.visitVarInsn(ALOAD, e);
+        mv.visitFieldInsn(GETSTATIC, className, "codeRangeTable", "[I");
+        mv.visitVarInsn(ALOAD, c);
+        genGetPlcLineColumn();
+        genSetPlcLineColumn();
+        mv.visitInsn(POP);
+        mv.visitLabel(noCause);
+        mv.visitVarInsn(ALOAD, e);
+        mv.visitInsn(ATHROW);
+
+        // exceptions raised in an exception handler
+        genTranslatingCatch(start, end, "java/lang/OutOfMemoryError", "STORAGE_ERROR", null);
+        genTranslatingCatch(
+                start, end, "java/lang/StackOverflowError", "PROGRAM_ERROR", "stack overflow");
+        genTranslatingCatch(
+                start,
+                end,
+                "java/lang/ClassCastException",
+                "PROGRAM_ERROR",
+                "type of a value does not match the one known at compile time"
+                        + " (hint: try recompiling this stored procedure)");
+        genTranslatingCatch(start, end, "java/lang/Throwable", "PROGRAM_ERROR", null);
+
+        endRange(true);
+
+        endMethod();
+    }
+
+    // -----------------------------------------------------------------
+    // Declarations
+    //
+
+    @Override
+    public Class<?> visitDeclFunc(DeclFunc node) {
+        visitDeclRoutine(node);
+        return null;
+    }
+
+    @Override
+    public Class<?> visitDeclProc(DeclProc node) {
+        visitDeclRoutine(node);
+        return null;
+    }
+
+    @Override
+    public Class<?> visitDeclParamIn(DeclParamIn node) {
+        // parameters are handled in visitUnit()
+        throw new RuntimeException("unreachable");
+    }
+
+    @Override
+    public Class<?> visitDeclParamOut(DeclParamOut node) {
+        // parameters are handled in visitUnit()
+        throw new RuntimeException("unreachable");
+    }
+
+    @Override
+    public Class<?> visitDeclVar(DeclVar node) {
+
+        if (node.val == null && node.typeSpec.type instanceof TypeRecord) {
+            genDeclRecordVar(node);
+            return null;
+        }
+
+        Class<?> ty = javaClassOf(node.typeSpec.type);
+        boolean cell = cells.contains(node);
+        if (cell) {
+            // <T>[] x = new <T>[] { <val> };
+            mv.visitInsn(ICONST_1);
+            mv.visitTypeInsn(ANEWARRAY, internalNameOf(ty));
+        }
+        if (node.val == null) {
+            if (!cell) {
+                mv.visitInsn(ACONST_NULL);
+            }
+        } else {
+            if (cell) {
+                mv.visitInsn(DUP);
+                mv.visitInsn(ICONST_0);
+            }
+            if (node.notNull) {
+                boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+                genCheckNotNull(node.val, ty);
+                endRange(marked);
+            } else {
+                genValue(node.val, ty);
+            }
+            if (cell) {
+                mv.visitInsn(AASTORE);
+            }
+        }
+
+        int slot = nextSlot++;
+        slots.put(node, slot);
+        mv.visitVarInsn(ASTORE, slot);
+
+        return null;
+    }
+
+    // <R>[] x = new <R>[] { new <R>() }; -- for a record variable declared without a value
+    private void genDeclRecordVar(DeclVar node) {
+        boolean cell = cells.contains(node);
+        if (cell) {
+            mv.visitInsn(ICONST_1);
+            mv.visitTypeInsn(ANEWARRAY, "[Ljava/lang/Object;");
+            mv.visitInsn(DUP);
+            mv.visitInsn(ICONST_0);
+        }
+        genNewRecord((TypeRecord) node.typeSpec.type);
+        if (cell) {
+            mv.visitInsn(AASTORE);
+        }
+
+        int slot = nextSlot++;
+        slots.put(node, slot);
+        mv.visitVarInsn(ASTORE, slot);
+    }
+
+    @Override
+    public Class<?> visitDeclConst(DeclConst node) {
+
+        Class<?> ty = javaClassOf(node.typeSpec.type);
+        if (node.notNull) {
+            boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+            genCheckNotNull(node.val, ty);
+            endRange(marked);
+        } else {
+            genValue(node.val, ty);
+        }
+
+        int slot = nextSlot++;
+        slots.put(node, slot);
+        mv.visitVarInsn(ASTORE, slot);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitDeclCursor(DeclCursor node) {
+
+        // final Query <name> = new Query(<sql>, true);
+        genNewQuery(node.staticSql.rewritten, true);
+        int slot = nextSlot++;
+        slots.put(node, slot);
+        mv.visitVarInsn(ASTORE, slot);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitDeclLabel(DeclLabel node) {
+        throw new RuntimeException("unreachable");
+    }
+
+    @Override
+    public Class<?> visitDeclException(DeclException node) {
+        exceptionClassOf(node);
+        return null;
+    }
+
+    // -----------------------------------------------------------------
+    // Expressions
+    //
+    // Each of them leaves the value on the operand stack and returns its Java type known at
+    // compile time, which is used to choose among overloaded methods as javac does.
+    // Coercions are applied in visit() below.
+    //
+
+    @Override
+    public Class<?> visit(AstNode node) {
+        if (node instanceof Expr) {
+            Expr expr = (Expr) node;
+            return applyCoercion(expr.coercion, expr);
+        } else {
+            return node.accept(this);
+        }
+    }
+
+    @Override
+    public Class<?> visitExprBetween(ExprBetween node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+        Class<?> ret =
+                genStaticCall(
+                        SpLib.class,
+                        "opBetween" + node.opExtension,
+                        node.target,
+                        node.lowerBound,
+                        node.upperBound);
+        endRange(marked);
+
+        return ret;
+    }
+
+    @Override
+    public Class<?> visitExprBinaryOp(ExprBinaryOp node) {
+
+        if (node.recordTypeOfOperands != null) {
+            return genRecordEquals(node);
+        }
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+        Class<?> ret =
+                genStaticCall(
+                        SpLib.class, "op" + node.opStr + node.opExtension, node.left, node.right);
+        endRange(marked);
+
+        return ret;
+    }
+
+    @Override
+    public Class<?> visitExprCase(ExprCase node) {
+
+        assert node.selectorType != null;
+        assert node.resultType != null;
+
+        if (node.resultType == Type.NULL) {
+            // in this case, every branch including else-part has null as its expression.
+            mv.visitInsn(ACONST_NULL);
+            return NULL_TYPE;
+        }
+
+        Class<?> selectorType = javaClassOf(node.selectorType);
+        Class<?> resultType = javaClassOf(node.resultType);
+
+        genValue(node.selector, selectorType);
+        int selector = nextSlot++;
+        mv.visitVarInsn(ASTORE, selector);
+
+        Label end = new Label();
+        for (CaseExpr ce : node.whenParts.nodes) {
+            boolean marked = beginRange(Misc.getLineColumnOf(ce.ctx));
+            Label next = new Label();
+            mv.visitFieldInsn(GETSTATIC, "java/lang/Boolean", "TRUE", "Ljava/lang/Boolean;");
+            mv.visitVarInsn(ALOAD, selector);
+            Class<?> valType = visit(ce.val);
+            Method eq = findMethod(SpLib.class, "opEq" + ce.opExtension, selectorType, valType);
+            genInvoke(eq);
+            genBooleanEquals();
+            mv.visitJumpInsn(IFEQ, next);
+            genValue(ce.expr, resultType);
+            mv.visitJumpInsn(GOTO, end);
+            endRange(marked);
+            mv.visitLabel(next);
+        }
+        if (node.elsePart == null) {
+            mv.visitInsn(ACONST_NULL);
+        } else {
+            genValue(node.elsePart, resultType);
+        }
+        mv.visitLabel(end);
+
+        return resultType;
+    }
+
+    @Override
+    public Class<?> visitExprCond(ExprCond node) {
+
+        assert node.resultType != null;
+
+        if (node.resultType == Type.NULL) {
+            // in this case, every branch including else has null as its expression.
+            mv.visitInsn(ACONST_NULL);
+            return NULL_TYPE;
+        }
+
+        Class<?> resultType = javaClassOf(node.resultType);
+
+        Label end = new Label();
+        for (CondExpr ce : node.condParts.nodes) {
+            Label next = new Label();
+            genCondition(ce.cond, next);
+            genValue(ce.expr, resultType);
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(next);
+        }
+        if (node.elsePart == null) {
+            mv.visitInsn(ACONST_NULL);
+        } else {
+            genValue(node.elsePart, resultType);
+        }
+        mv.visitLabel(end);
+
+        return resultType;
+    }
+
+    @Override
+    public Class<?> visitExprCursorAttr(ExprCursorAttr node) {
+
+        Class<?> ty = javaClassOf(node.attr.ty);
+        boolean isOpen = (node.attr == ExprCursorAttr.Attr.ISOPEN);
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        // (<cursor> == null) ? Boolean.FALSE : <cursor>.isOpen()
+        // (<cursor> == null) ? (<T>) throwInvalidCursor(<msg>) : <cursor>.<method>()
+        Label opened = new Label();
+        Label done = new Label();
+        int cursor = nextSlot++;
+        genLoad(node.id.decl);
+        mv.visitVarInsn(ASTORE, cursor);
+        mv.visitVarInsn(ALOAD, cursor);
+        mv.visitJumpInsn(IFNONNULL, opened);
+        if (isOpen) {
+            mv.visitFieldInsn(GETSTATIC, "java/lang/Boolean", "FALSE", "Ljava/lang/Boolean;");
+        } else {
+            mv.visitLdcInsn("tried to retrieve an attribute from an unopened SYS_REFCURSOR");
+            mv.visitMethodInsn(
+                    INVOKESTATIC,
+                    SP_LIB,
+                    "throwInvalidCursor",
+                    "(Ljava/lang/String;)Ljava/lang/Object;",
+                    false);
+            mv.visitTypeInsn(CHECKCAST, internalNameOf(ty));
+        }
+        mv.visitJumpInsn(GOTO, done);
+        mv.visitLabel(opened);
+        mv.visitVarInsn(ALOAD, cursor);
+        if (ty == Boolean.class) {
+            mv.visitMethodInsn(INVOKEVIRTUAL, QUERY, node.attr.method, "()Z", false);
+            genBox(Boolean.class, boolean.class);
+        } else {
+            assert ty == Long.class;
+            mv.visitMethodInsn(INVOKEVIRTUAL, QUERY, node.attr.method, "()J", false);
+            genBox(Long.class, long.class);
+        }
+        mv.visitLabel(done);
+
+        endRange(marked);
+
+        return ty;
+    }
+
+    @Override
+    public Class<?> visitExprDate(ExprDate node) {
+
+        // new Date(<year> - 1900, <month> - 1, <day>)
+        LocalDate date = node.date;
+        if (date.equals(DateTimeParser.nullDate)) {
+            // must be equal to ValueUtility.NULL_DATE
+            genNewWithInts("java/sql/Date", 0 - 1900, 0 - 1, 0);
+        } else {
+            genNewWithInts(
+                    "java/sql/Date",
+                    date.getYear() - 1900,
+                    date.getMonthValue() - 1,
+                    date.getDayOfMonth());
+        }
+
+        return java.sql.Date.class;
+    }
+
+    @Override
+    public Class<?> visitExprDatetime(ExprDatetime node) {
+
+        // new Timestamp(<year> - 1900, <month> - 1, <day>, <hour>, <minute>, <second>, <nano>)
+        LocalDateTime time = node.time;
+        if (time.equals(DateTimeParser.nullDatetime)) {
+            // must be equal to ValueUtility.NULL_DATETIME
+            genNewWithInts("java/sql/Timestamp", 0 - 1900, 0 - 1, 0, 0, 0, 0, 0);
+        } else {
+            genNewWithInts(
+                    "java/sql/Timestamp",
+                    time.getYear() - 1900,
+                    time.getMonthValue() - 1,
+                    time.getDayOfMonth(),
+                    time.getHour(),
+                    time.getMinute(),
+                    time.getSecond(),
+                    time.getNano());
+        }
+
+        return Timestamp.class;
+    }
+
+    @Override
+    public Class<?> visitExprFalse(ExprFalse node) {
+        mv.visitFieldInsn(GETSTATIC, "java/lang/Boolean", "FALSE", "Ljava/lang/Boolean;");
+        return Boolean.class;
+    }
+
+    @Override
+    public Class<?> visitExprField(ExprField node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+        Class<?> ret = genLoadField(node);
+        endRange(marked);
+
+        return ret;
+    }
+
+    @Override
+    public Class<?> visitExprGlobalFuncCall(ExprGlobalFuncCall node) {
+
+        assert node.decl != null;
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+        Class<?> ret = genGlobalCall(node.name, node.decl, node.args);
+        endRange(marked);
+
+        return ret;
+    }
+
+    @Override
+    public Class<?> visitExprId(ExprId node) {
+        return genLoad(node.decl);
+    }
+
+    @Override
+    public Class<?> visitExprIn(ExprIn node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        String name = "opIn" + node.opExtension;
+        Class<?> targetType = visit(node.target);
+
+        // element types are needed to choose the method before generating the varargs array
+        int size = node.inElements.nodes.size();
+        Class<?>[] elemTypes = new Class<?>[size];
+        for (int i = 0; i < size; i++) {
+            elemTypes[i] = staticTypeOf(node.inElements.nodes.get(i));
+        }
+        Method m = findVarargsMethod(SpLib.class, name, targetType, elemTypes);
+        Class<?> elemType = m.getParameterTypes()[1].getComponentType();
+
+        genIntConst(size);
+        mv.visitTypeInsn(ANEWARRAY, internalNameOf(elemType));
+        for (int i = 0; i < size; i++) {
+            mv.visitInsn(DUP);
+            genIntConst(i);
+            visit(node.inElements.nodes.get(i));
+            mv.visitInsn(AASTORE);
+        }
+        genInvoke(m);
+
+        endRange(marked);
+
+        return m.getReturnType();
+    }
+
+    @Override
+    public Class<?> visitExprLike(ExprLike node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+        Class<?> targetType = visit(node.target);
+        Class<?> patternType = visit(node.pattern);
+        Class<?> escapeType;
+        if (node.escape == null) {
+            mv.visitInsn(ACONST_NULL);
+            escapeType = NULL_TYPE;
+        } else {
+            escapeType = visitExprStr(node.escape);
+        }
+        genInvoke(findMethod(SpLib.class, "opLike", targetType, patternType, escapeType));
+        endRange(marked);
+
+        return Boolean.class;
+    }
+
+    @Override
+    public Class<?> visitExprBuiltinFuncCall(ExprBuiltinFuncCall node) {
+
+        if (node.getNativeFunc() == null) {
+            String callStr;
+            if (SymbolStack.noParenBuiltInFunc.indexOf(node.name) >= 0) {
+                assert node.args.nodes.isEmpty();
+                callStr = node.name;
+            } else {
+                String[] qmarks = new String[node.args.nodes.size()];
+                Arrays.fill(qmarks, "?");
+                callStr = String.format("%s(%s)", node.name, String.join(", ", qmarks));
+            }
+            return genServerBuiltinCall(
+                    callStr, node, node.args.nodes.toArray(new Expr[node.args.nodes.size()]));
+        }
+
+        // evaluated in Java without a server round trip
+        Method m = node.getNativeFunc();
+        Class<?>[] paramTypes = m.getParameterTypes();
+        boolean withConn = paramTypes.length > node.args.nodes.size();
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+        int i = 0;
+        if (withConn) {
+            assert connSlot >= 0;
+            mv.visitVarInsn(ALOAD, connSlot);
+            i++;
+        }
+        for (Expr arg : node.args.nodes) {
+            genValue(arg, paramTypes[i]);
+            i++;
+        }
+        genInvoke(m);
+        endRange(marked);
+
+        return m.getReturnType();
+    }
+
+    @Override
+    public Class<?> visitExprLocalFuncCall(ExprLocalFuncCall node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+        Class<?> ret = genLocalCall(node.decl, node.args);
+        endRange(marked);
+
+        return ret;
+    }
+
+    @Override
+    public Class<?> visitExprNull(ExprNull node) {
+        mv.visitInsn(ACONST_NULL);
+        return NULL_TYPE;
+    }
+
+    @Override
+    public Class<?> visitExprUint(ExprUint node) {
+
+        switch (node.ty.idx) {
+            case Type.IDX_NUMERIC:
+                genNumericConst(node.val);
+                return BigDecimal.class;
+            case Type.IDX_BIGINT:
+                mv.visitLdcInsn(Long.parseLong(node.val));
+                genBox(Long.class, long.class);
+                return Long.class;
+            case Type.IDX_INT:
+                genIntConst(Integer.parseInt(node.val));
+                genBox(Integer.class, int.class);
+                return Integer.class;
+            default:
+                throw new NotSupported("integer literals of type " + node.ty);
+        }
+    }
+
+    @Override
+    public Class<?> visitExprFloat(ExprFloat node) {
+
+        switch (node.ty.idx) {
+            case Type.IDX_DOUBLE:
+                mv.visitLdcInsn(Double.valueOf(node.val));
+                genBox(Double.class, double.class);
+                genInvoke(findMethod(SpLib.class, "checkDouble", Double.class));
+                return Double.class;
+            case Type.IDX_FLOAT:
+                mv.visitLdcInsn(Float.valueOf(node.val));
+                genBox(Float.class, float.class);
+                genInvoke(findMethod(SpLib.class, "checkFloat", Float.class));
+                return Float.class;
+            case Type.IDX_NUMERIC:
+                genNumericConst(node.val);
+                return BigDecimal.class;
+            default:
+                throw new RuntimeException("unreachable");
+        }
+    }
+
+    @Override
+    public Class<?> visitExprSerialVal(ExprSerialVal node) {
+
+        String sql =
+                String.format(
+                        "select %s.%s",
+                        node.name,
+                        (node.mode == ExprSerialVal.SerialVal.CURR_VAL)
+                                ? "CURRENT_VALUE"
+                                : "NEXT_VALUE");
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        Label start = new Label();
+        Label end = new Label();
+        Label noValue = new Label();
+        int stmt = nextSlot++;
+        int r = nextSlot++;
+        int ret = nextSlot++;
+
+        mv.visitLabel(start);
+
+        // PreparedStatement stmt = prepareStatement(conn, <sql>, true);
+        // ResultSet r = stmt.executeQuery();
+        mv.visitVarInsn(ALOAD, connSlot);
+        mv.visitLdcInsn(sql);
+        mv.visitInsn(ICONST_1);
+        mv.visitMethodInsn(
+                INVOKESTATIC,
+                SP_LIB,
+                "prepareStatement",
+                "(Ljava/sql/Connection;Ljava/lang/String;Z)Ljava/sql/PreparedStatement;",
+                false);
+        mv.visitVarInsn(ASTORE, stmt);
+        mv.visitVarInsn(ALOAD, stmt);
+        mv.visitMethodInsn(
+                INVOKEINTERFACE,
+                "java/sql/PreparedStatement",
+                "executeQuery",
+                "()Ljava/sql/ResultSet;",
+                true);
+        mv.visitVarInsn(ASTORE, r);
+
+        // BigDecimal ret = null;
+        // if (r.next()) {
+        //   ret = r.getBigDecimal(1);
+        //   if (ret != null && r.wasNull()) {
+        //     ret = null;
+        //   }
+        // }
+        mv.visitInsn(ACONST_NULL);
+        mv.visitVarInsn(ASTORE, ret);
+        mv.visitVarInsn(ALOAD, r);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/sql/ResultSet", "next", "()Z", true);
+        mv.visitJumpInsn(IFEQ, noValue);
+        mv.visitVarInsn(ALOAD, r);
+        mv.visitInsn(ICONST_1);
+        mv.visitMethodInsn(
+                INVOKEINTERFACE,
+                "java/sql/ResultSet",
+                "getBigDecimal",
+                "(I)Ljava/math/BigDecimal;",
+                true);
+        mv.visitVarInsn(ASTORE, ret);
+        mv.visitVarInsn(ALOAD, ret);
+        mv.visitJumpInsn(IFNULL, noValue);
+        mv.visitVarInsn(ALOAD, r);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/sql/ResultSet", "wasNull", "()Z", true);
+        mv.visitJumpInsn(IFEQ, noValue);
+        mv.visitInsn(ACONST_NULL);
+        mv.visitVarInsn(ASTORE, ret);
+        mv.visitLabel(noValue);
+
+        // stmt.close();
+        mv.visitVarInsn(ALOAD, stmt);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/sql/PreparedStatement", "close", "()V", true);
+
+        mv.visitLabel(end);
+        genSqlErrorCatch(start, end);
+
+        mv.visitVarInsn(ALOAD, ret);
+
+        endRange(marked);
+
+        return BigDecimal.class;
+    }
+
+    @Override
+    public Class<?> visitExprSqlRowCount(ExprSqlRowCount node) {
+
+        if (rowCountSlot < 0) {
+            // no SQL statement in the program
+            mv.visitInsn(ACONST_NULL);
+        } else {
+            mv.visitVarInsn(ALOAD, rowCountSlot);
+            mv.visitInsn(ICONST_0);
+            mv.visitInsn(AALOAD);
+        }
+
+        return Long.class;
+    }
+
+    @Override
+    public Class<?> visitExprSqlBulkRowCount(ExprSqlBulkRowCount node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        // getBulkRowCount(sql_bulk_rowcount[0], <index>)
+        if (bulkRowCountSlot < 0) {
+            // no SQL statement in the program
+            mv.visitInsn(ACONST_NULL);
+        } else {
+            mv.visitVarInsn(ALOAD, bulkRowCountSlot);
+            mv.visitInsn(ICONST_0);
+            mv.visitInsn(AALOAD);
+        }
+        genValue(node.index, Integer.class);
+        genInvoke(findMethod(SpLib.class, "getBulkRowCount", BulkRowCount.class, Integer.class));
+
+        endRange(marked);
+
+        return Long.class;
+    }
+
+    @Override
+    public Class<?> visitExprStr(ExprStr node) {
+
+        if (node.val.length() > MAX_STR_LITERAL_LEN) {
+            throw new NotSupported("too long string literals");
+        }
+        mv.visitLdcInsn(node.val);
+
+        return String.class;
+    }
+
+    @Override
+    public Class<?> visitExprSyntaxedCallAdddate(ExprSyntaxedCallAdddate node) {
+        String callStr = String.format("ADDDATE(?, INTERVAL ? %s)", node.timeUnit);
+        return genServerBuiltinCall(callStr, node, node.date, node.delta);
+    }
+
+    @Override
+    public Class<?> visitExprSyntaxedCallCast(ExprSyntaxedCallCast node) {
+        String callStr = String.format("CAST(? as %s)", node.tySpec.type.plcName);
+        return genServerBuiltinCall(callStr, node, node.arg);
+    }
+
+    @Override
+    public Class<?> visitExprSyntaxedCallChr(ExprSyntaxedCallChr node) {
+        String callStr = String.format("CHR(? USING %s)", node.isUtf8 ? "utf8" : "iso88591");
+        return genServerBuiltinCall(callStr, node, node.arg);
+    }
+
+    @Override
+    public Class<?> visitExprSyntaxedCallExtract(ExprSyntaxedCallExtract node) {
+        String callStr = String.format("EXTRACT(%s FROM ?)", node.timeField);
+        return genServerBuiltinCall(callStr, node, node.arg);
+    }
+
+    @Override
+    public Class<?> visitExprSyntaxedCallPosition(ExprSyntaxedCallPosition node) {
+        return genServerBuiltinCall("POSITION(? IN ?)", node, node.sub, node.whole);
+    }
+
+    @Override
+    public Class<?> visitExprSyntaxedCallSubdate(ExprSyntaxedCallSubdate node) {
+        String callStr = String.format("SUBDATE(?, INTERVAL ? %s)", node.timeUnit);
+        return genServerBuiltinCall(callStr, node, node.date, node.delta);
+    }
+
+    @Override
+    public Class<?> visitExprSyntaxedCallTrim(ExprSyntaxedCallTrim node) {
+        String callStr =
+                String.format("TRIM(%s %s FROM ?)", node.trimDir, node.trimStr == null ? "" : "?");
+        if (node.trimStr == null) {
+            return genServerBuiltinCall(callStr, node, node.str);
+        } else {
+            return genServerBuiltinCall(callStr, node, node.trimStr, node.str);
+        }
+    }
+
+    @Override
+    public Class<?> visitExprTime(ExprTime node) {
+        LocalTime time = node.time;
+        genNewWithInts("java/sql/Time", time.getHour(), time.getMinute(), time.getSecond());
+        return Time.class;
+    }
+
+    @Override
+    public Class<?> visitExprTrue(ExprTrue node) {
+        mv.visitFieldInsn(GETSTATIC, "java/lang/Boolean", "TRUE", "Ljava/lang/Boolean;");
+        return Boolean.class;
+    }
+
+    @Override
+    public Class<?> visitExprUnaryOp(ExprUnaryOp node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+        Class<?> ret = genStaticCall(SpLib.class, "op" + node.opStr, node.operand);
+        endRange(marked);
+
+        return ret;
+    }
+
+    @Override
+    public Class<?> visitExprTimestamp(ExprTimestamp node) {
+        mv.visitLdcInsn(node.timestampStr);
+        genInvoke(findMethod(SpLib.class, "parseTimestampStr", String.class));
+        return Timestamp.class;
+    }
+
+    @Override
+    public Class<?> visitExprAutoParam(ExprAutoParam node) {
+        return genAutoParam(node);
+    }
+
+    @Override
+    public Class<?> visitExprSqlCode(ExprSqlCode node) {
+
+        if (node.exHandlerDepth > 0) {
+            mv.visitVarInsn(ALOAD, exVarSlotOf(node.exHandlerDepth));
+            mv.visitFieldInsn(GETFIELD, PLCSQL_RUNTIME_ERROR, "code", "I");
+        } else {
+            // SQLCODEs that do not belong to an exception handler evaluates to zero (see Oracle
+            // Spec.)
+            mv.visitInsn(ICONST_0);
+        }
+        genBox(Integer.class, int.class);
+
+        return Integer.class;
+    }
+
+    @Override
+    public Class<?> visitExprSqlErrm(ExprSqlErrm node) {
+
+        if (node.exHandlerDepth > 0) {
+            mv.visitVarInsn(ALOAD, exVarSlotOf(node.exHandlerDepth));
+            mv.visitMethodInsn(
+                    INVOKEVIRTUAL,
+                    "java/lang/Throwable",
+                    "getMessage",
+                    "()Ljava/lang/String;",
+                    false);
+        } else {
+            mv.visitLdcInsn("no error");
+        }
+
+        return String.class;
+    }
+
+    // -----------------------------------------------------------------
+    // Statements
+    //
+
+    @Override
+    public Class<?> visitStmtAssign(StmtAssign node) {
+
+        if (node.val.coercion instanceof Coercion.NullToRecord) {
+
+            // (<target>).setNull(<val>); -- suppressing null record creation
+            boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+            genLoadTarget(node.target);
+            node.val.accept(this);
+            mv.visitInsn(POP);
+            genSetFieldsNull((TypeRecord) node.val.coercion.dst);
+            mv.visitInsn(POP);
+            endRange(marked);
+
+            return null;
+        } else if (node.val.coercion instanceof Coercion.RecordToRecord) {
+
+            // setFieldsOf<S>_To_<D>(<val>, <target>);
+            boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+            node.val.accept(this);
+            genLoadTarget(node.target);
+            genSetFields((Coercion.RecordToRecord) node.val.coercion);
+            mv.visitInsn(POP);
+            endRange(marked);
+
+            return null;
+        } else if (node.target instanceof ExprField) {
+
+            ExprField target = (ExprField) node.target;
+            Class<?> ty = javaClassOf(target.getType());
+            genStoreTarget(
+                    target,
+                    () -> {
+                        genValue(node.val, ty);
+                        return ty;
+                    });
+
+            return null;
+        }
+
+        ExprId target = (ExprId) node.target;
+        DeclId decl = target.decl;
+        Class<?> ty = javaClassOf(decl.type());
+
+        boolean checkNotNull = (decl instanceof DeclVar && ((DeclVar) decl).notNull);
+        boolean marked = checkNotNull && beginRange(Misc.getLineColumnOf(node.ctx));
+
+        genStore(
+                decl,
+                () -> {
+                    genAssignedValue(node.val, ty, checkNotNull);
+                    return ty;
+                });
+
+        endRange(marked);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtBasicLoop(StmtBasicLoop node) {
+
+        genDeclareLoopStmts(node);
+
+        Loop loop = new Loop();
+        mv.visitLabel(loop.continueLabel);
+        enterLoop(node.declLabel, loop);
+        visitNodeList(node.stmts);
+        exitLoop(node.declLabel);
+        mv.visitJumpInsn(GOTO, loop.continueLabel);
+        mv.visitLabel(loop.breakLabel);
+
+        genCloseLoopStmts(node);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtBlock(StmtBlock node) {
+
+        genDecls(node.decls);
+        visitBody(node.body);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtExit(StmtExit node) {
+        Loop loop = loopOf(node.declLabel);
+        genCloseStmtsLeft(loop);
+        mv.visitJumpInsn(GOTO, loop.breakLabel);
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtCase(StmtCase node) {
+
+        assert node.selectorType != null;
+
+        Class<?> selectorType = javaClassOf(node.selectorType);
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        genValue(node.selector, selectorType);
+        int selector = nextSlot++;
+        mv.visitVarInsn(ASTORE, selector);
+
+        Label end = new Label();
+        for (CaseStmt cs : node.whenParts.nodes) {
+            boolean csMarked = beginRange(Misc.getLineColumnOf(cs.ctx));
+            Label next = new Label();
+            mv.visitFieldInsn(GETSTATIC, "java/lang/Boolean", "TRUE", "Ljava/lang/Boolean;");
+            mv.visitVarInsn(ALOAD, selector);
+            Class<?> valType = visit(cs.val);
+            genInvoke(findMethod(SpLib.class, "opEq" + cs.opExtension, selectorType, valType));
+            genBooleanEquals();
+            mv.visitJumpInsn(IFEQ, next);
+            visitNodeList(cs.stmts);
+            mv.visitJumpInsn(GOTO, end);
+            endRange(csMarked);
+            mv.visitLabel(next);
+        }
+        if (node.elsePart == null) {
+            genThrowNew(SP_LIB + "$CASE_NOT_FOUND");
+        } else {
+            visitNodeList(node.elsePart);
+        }
+        mv.visitLabel(end);
+
+        endRange(marked);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtCommit(StmtCommit node) {
+        genEndTransaction("commit", node);
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtContinue(StmtContinue node) {
+        Loop loop = loopOf(node.declLabel);
+        genCloseStmtsLeft(loop);
+        mv.visitJumpInsn(GOTO, loop.continueLabel);
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtCursorClose(StmtCursorClose node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        // if (<cursor> != null && <cursor>.isOpen()) {
+        //   <cursor>.close();
+        // } else {
+        //   throw new INVALID_CURSOR("tried to close an unopened cursor");
+        // }
+        int cursor = genOpenedCursor(node.id, "tried to close an unopened cursor");
+        mv.visitVarInsn(ALOAD, cursor);
+        mv.visitMethodInsn(INVOKEVIRTUAL, QUERY, "close", "()V", false);
+
+        endRange(marked);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtCursorFetch(StmtCursorFetch node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        // if (<cursor> == null || !<cursor>.isOpen()) {
+        //   throw new INVALID_CURSOR("tried to fetch values with an unopened cursor");
+        // }
+        // ResultSet rs = <cursor>.rs;
+        // if (rs.next()) {
+        //   <cursor>.updateRowCount();
+        //   <set-into-variables>
+        // }
+        int cursor = genOpenedCursor(node.id, "tried to fetch values with an unopened cursor");
+        int rs = nextSlot++;
+        Label noRow = new Label();
+        mv.visitVarInsn(ALOAD, cursor);
+        mv.visitFieldInsn(GETFIELD, QUERY, "rs", "Ljava/sql/ResultSet;");
+        mv.visitVarInsn(ASTORE, rs);
+        mv.visitVarInsn(ALOAD, rs);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/sql/ResultSet", "next", "()Z", true);
+        mv.visitJumpInsn(IFEQ, noRow);
+        mv.visitVarInsn(ALOAD, cursor);
+        mv.visitMethodInsn(INVOKEVIRTUAL, QUERY, "updateRowCount", "()V", false);
+        genSetIntoTargets(node.intoTargetList, node.coercions, node.columnTypeList, rs, false);
+        mv.visitLabel(noRow);
+
+        endRange(marked);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtCursorOpen(StmtCursorOpen node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+        genCursorOpen(node.cursor, node.args);
+        endRange(marked);
+
+        return null;
+    }
+
+    private void genCursorOpen(ExprId cursor, NodeList<Expr> args) {
+
+        DeclCursor decl = (DeclCursor) cursor.decl;
+        int size = decl.paramNumOfHostExpr.length;
+
+        // Object a<k> = <arg-k>; -- for each parameter appearing more than once in the query
+        int[] dupArgSlots = new int[decl.paramRefCounts.length];
+        for (int k = 0; k < dupArgSlots.length; k++) {
+            if (decl.paramRefCounts[k] > 1) {
+                visit(args.nodes.get(k));
+                dupArgSlots[k] = nextSlot++;
+                mv.visitVarInsn(ASTORE, dupArgSlots[k]);
+            }
+        }
+
+        // <cursor>.open(conn, new Object[] { <host-exprs> });
+        genLoad(decl);
+        mv.visitVarInsn(ALOAD, connSlot);
+        genIntConst(size);
+        mv.visitTypeInsn(ANEWARRAY, "java/lang/Object");
+        if (size > 0) {
+            ArrayList<Expr> hostExprs = new ArrayList<>(decl.staticSql.hostExprs.keySet());
+            assert size == hostExprs.size();
+            for (int i = 0; i < size; i++) {
+                mv.visitInsn(DUP);
+                genIntConst(i);
+                int m = decl.paramNumOfHostExpr[i];
+                if (m > 0) {
+                    int k = m - 1;
+                    if (decl.paramRefCounts[k] > 1) {
+                        mv.visitVarInsn(ALOAD, dupArgSlots[k]);
+                    } else {
+                        assert decl.paramRefCounts[k] == 1;
+                        visit(args.nodes.get(k));
+                    }
+                } else {
+                    visit(hostExprs.get(i));
+                }
+                mv.visitInsn(AASTORE);
+            }
+        }
+        genQueryOpen();
+    }
+
+    @Override
+    public Class<?> visitStmtExecImme(StmtExecImme node) {
+        genStmtSql(node);
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtStaticSql(StmtStaticSql node) {
+        genStmtSql(node);
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtForCursorLoop(StmtForCursorLoop node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        genDeclareLoopStmts(node);
+
+        Label start = new Label();
+        Label end = new Label();
+        mv.visitLabel(start);
+
+        // <R>[] r = new <R>[] { new <R>() };
+        // <cursor>.open(conn, <host-exprs>);
+        // ResultSet rs = <cursor>.rs;
+        genDeclRecordVar(node.recordDecl);
+        int cursor = nextSlot++;
+        int rs = nextSlot++;
+        genLoad(node.cursor.decl);
+        mv.visitVarInsn(ASTORE, cursor);
+        genCursorOpen(node.cursor, node.cursorArgs);
+        mv.visitVarInsn(ALOAD, cursor);
+        mv.visitFieldInsn(GETFIELD, QUERY, "rs", "Ljava/sql/ResultSet;");
+        mv.visitVarInsn(ASTORE, rs);
+
+        // while (rs.next()) {
+        //   <cursor>.updateRowCount();
+        //   r[0].set(<field-values>);
+        //   <statements>
+        // }
+        // <cursor>.close();
+        Loop loop = new Loop();
+        mv.visitLabel(loop.continueLabel);
+        mv.visitVarInsn(ALOAD, rs);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/sql/ResultSet", "next", "()Z", true);
+        mv.visitJumpInsn(IFEQ, loop.breakLabel);
+        mv.visitVarInsn(ALOAD, cursor);
+        mv.visitMethodInsn(INVOKEVIRTUAL, QUERY, "updateRowCount", "()V", false);
+        genSetFieldsFromRow(node.recordDecl, rs);
+        enterLoop(node.declLabel, loop);
+        visitNodeList(node.stmts);
+        exitLoop(node.declLabel);
+        mv.visitJumpInsn(GOTO, loop.continueLabel);
+        mv.visitLabel(loop.breakLabel);
+        mv.visitVarInsn(ALOAD, cursor);
+        mv.visitMethodInsn(INVOKEVIRTUAL, QUERY, "close", "()V", false);
+        mv.visitLabel(end);
+
+        genSqlErrorCatch(start, end);
+
+        genCloseLoopStmts(node);
+
+        endRange(marked);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtForIterLoop(StmtForIterLoop node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        genDeclareLoopStmts(node);
+
+        int lower = nextSlot++;
+        int upper = nextSlot++;
+        int step = nextSlot++;
+        int iter = nextSlot++;
+
+        genIntValue(node.lowerBound);
+        mv.visitVarInsn(ISTORE, lower);
+        genIntValue(node.upperBound);
+        mv.visitVarInsn(ISTORE, upper);
+        Class<?> stepType;
+        if (node.step == null) {
+            mv.visitInsn(ICONST_1);
+            genBox(Integer.class, int.class);
+            stepType = Integer.class;
+        } else {
+            stepType = visit(node.step);
+        }
+        genInvoke(findMethod(SpLib.class, "checkForLoopIterStep", stepType));
+        genUnbox(Integer.class);
+        mv.visitVarInsn(ISTORE, step);
+
+        Loop loop = new Loop();
+        Label cond = new Label();
+
+        mv.visitVarInsn(ILOAD, node.reverse ? upper : lower);
+        mv.visitVarInsn(ISTORE, iter);
+        slots.put(node.iter, iter);
+
+        mv.visitLabel(cond);
+        mv.visitVarInsn(ILOAD, iter);
+        mv.visitVarInsn(ILOAD, node.reverse ? lower : upper);
+        mv.visitJumpInsn(node.reverse ? IF_ICMPLT : IF_ICMPGT, loop.breakLabel);
+
+        enterLoop(node.declLabel, loop);
+        visitNodeList(node.stmts);
+        exitLoop(node.declLabel);
+
+        mv.visitLabel(loop.continueLabel);
+        mv.visitVarInsn(ILOAD, iter);
+        mv.visitVarInsn(ILOAD, step);
+        mv.visitInsn(node.reverse ? ISUB : IADD);
+        mv.visitVarInsn(ISTORE, iter);
+        mv.visitJumpInsn(GOTO, cond);
+        mv.visitLabel(loop.breakLabel);
+
+        genCloseLoopStmts(node);
+
+        endRange(marked);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtForStaticSqlLoop(StmtForStaticSqlLoop node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        genDeclareLoopStmts(node);
+
+        int stmt = nextSlot++;
+        int rs = nextSlot++;
+        DeclVar record = (DeclVar) node.record;
+
+        mv.visitInsn(ACONST_NULL);
+        mv.visitVarInsn(ASTORE, stmt);
+
+        Label start = new Label();
+        Label end = new Label();
+        mv.visitLabel(start);
+
+        // <R>[] r = new <R>[] { new <R>() };
+        // pstmt = prepareStatement(conn, <sql>, true);
+        // <set-used-exprs>
+        // ResultSet rs = pstmt.executeQuery();
+        genDeclRecordVar(record);
+        mv.visitVarInsn(ALOAD, connSlot);
+        genValue(node.sql, String.class);
+        mv.visitInsn(ICONST_1);
+        genInvoke(
+                findMethod(
+                        SpLib.class,
+                        "prepareStatement",
+                        Connection.class,
+                        String.class,
+                        boolean.class));
+        mv.visitVarInsn(ASTORE, stmt);
+        genSetUsedExprs(stmt, node.usedExprList);
+        mv.visitVarInsn(ALOAD, stmt);
+        mv.visitMethodInsn(
+                INVOKEINTERFACE,
+                "java/sql/PreparedStatement",
+                "executeQuery",
+                "()Ljava/sql/ResultSet;",
+                true);
+        mv.visitVarInsn(ASTORE, rs);
+
+        // while (rs.next()) {
+        //   r[0].set(<field-values>);
+        //   <statements>
+        // }
+        Loop loop = new Loop();
+        mv.visitLabel(loop.continueLabel);
+        mv.visitVarInsn(ALOAD, rs);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/sql/ResultSet", "next", "()Z", true);
+        mv.visitJumpInsn(IFEQ, loop.breakLabel);
+        genSetFieldsFromRow(record, rs);
+        closingStmts.add(stmt);
+        enterLoop(node.declLabel, loop);
+        visitNodeList(node.stmts);
+        exitLoop(node.declLabel);
+        closingStmts.remove(closingStmts.size() - 1);
+        mv.visitJumpInsn(GOTO, loop.continueLabel);
+        mv.visitLabel(loop.breakLabel);
+        mv.visitLabel(end);
+
+        genSqlErrorCatchClosing(start, end, stmt);
+
+        genCloseLoopStmts(node);
+
+        endRange(marked);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtForall(StmtForall node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        int stmt = nextSlot++;
+        int lower = nextSlot++;
+        int upper = nextSlot++;
+        int bulk = nextSlot++;
+        int iter = nextSlot++;
+
+        mv.visitInsn(ACONST_NULL);
+        mv.visitVarInsn(ASTORE, stmt);
+
+        Label start = new Label();
+        Label end = new Label();
+        mv.visitLabel(start);
+
+        genIntValue(node.lowerBound);
+        mv.visitVarInsn(ISTORE, lower);
+        genIntValue(node.upperBound);
+        mv.visitVarInsn(ISTORE, upper);
+
+        // pstmt = prepareStatement(conn, <sql>, true);
+        mv.visitVarInsn(ALOAD, connSlot);
+        genValue(node.sql, String.class);
+        mv.visitInsn(ICONST_1);
+        genInvoke(
+                findMethod(
+                        SpLib.class,
+                        "prepareStatement",
+                        Connection.class,
+                        String.class,
+                        boolean.class));
+        mv.visitVarInsn(ASTORE, stmt);
+
+        // BulkRowCount bulk = new BulkRowCount(l, u);
+        // sql_bulk_rowcount[0] = bulk;
+        mv.visitTypeInsn(NEW, BULK_ROW_COUNT);
+        mv.visitInsn(DUP);
+        mv.visitVarInsn(ILOAD, lower);
+        mv.visitVarInsn(ILOAD, upper);
+        mv.visitMethodInsn(INVOKESPECIAL, BULK_ROW_COUNT, "<init>", "(II)V", false);
+        mv.visitVarInsn(ASTORE, bulk);
+        mv.visitVarInsn(ALOAD, bulkRowCountSlot);
+        mv.visitInsn(ICONST_0);
+        mv.visitVarInsn(ALOAD, bulk);
+        mv.visitInsn(AASTORE);
+
+        // for (i = l; i <= u; i++) {
+        //   <set-used-exprs>
+        //   bulk.addBatch(pstmt);
+        // }
+        Label cond = new Label();
+        Label done = new Label();
+        mv.visitVarInsn(ILOAD, lower);
+        mv.visitVarInsn(ISTORE, iter);
+        slots.put(node.iter, iter);
+        mv.visitLabel(cond);
+        mv.visitVarInsn(ILOAD, iter);
+        mv.visitVarInsn(ILOAD, upper);
+        mv.visitJumpInsn(IF_ICMPGT, done);
+        genSetUsedExprs(stmt, node.usedExprList);
+        mv.visitVarInsn(ALOAD, bulk);
+        mv.visitVarInsn(ALOAD, stmt);
+        mv.visitMethodInsn(
+                INVOKEVIRTUAL,
+                BULK_ROW_COUNT,
+                "addBatch",
+                "(Ljava/sql/PreparedStatement;)V",
+                false);
+        mv.visitIincInsn(iter, 1);
+        mv.visitJumpInsn(GOTO, cond);
+        mv.visitLabel(done);
+
+        // bulk.executeBatch(pstmt);
+        // sql_rowcount[0] = bulk.getTotal();
+        mv.visitVarInsn(ALOAD, bulk);
+        mv.visitVarInsn(ALOAD, stmt);
+        mv.visitMethodInsn(
+                INVOKEVIRTUAL,
+                BULK_ROW_COUNT,
+                "executeBatch",
+                "(Ljava/sql/PreparedStatement;)V",
+                false);
+        genSetRowCount(
+                () -> {
+                    mv.visitVarInsn(ALOAD, bulk);
+                    mv.visitMethodInsn(INVOKEVIRTUAL, BULK_ROW_COUNT, "getTotal", "()J", false);
+                });
+        mv.visitLabel(end);
+
+        genSqlErrorCatchClosing(start, end, stmt);
+
+        endRange(marked);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtGlobalProcCall(StmtGlobalProcCall node) {
+
+        assert node.decl != null;
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+        genGlobalCall(node.name, node.decl, node.args);
+        endRange(marked);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtIf(StmtIf node) {
+
+        boolean withElse = !(node.forIfStmt && node.elsePart == null);
+        boolean marked = withElse && beginRange(Misc.getLineColumnOf(node.ctx));
+
+        Label end = new Label();
+        for (CondStmt cs : node.condStmtParts.nodes) {
+            Label next = new Label();
+            genCondition(cs.cond, next);
+            visitNodeList(cs.stmts);
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(next);
+        }
+        if (withElse) {
+            if (node.elsePart == null) {
+                genThrowNew(SP_LIB + "$CASE_NOT_FOUND");
+            } else {
+                visitNodeList(node.elsePart);
+            }
+        }
+        mv.visitLabel(end);
+
+        endRange(marked);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtLocalProcCall(StmtLocalProcCall node) {
+        genLocalCall(node.decl, node.args);
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtNull(StmtNull node) {
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtOpenFor(StmtOpenFor node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        // <ref-cursor> = new Query(<sql>);
+        // <ref-cursor>.open(conn, <host-exprs>);
+        genStore(
+                node.id.decl,
+                () -> {
+                    genNewQuery(node.staticSql.rewritten, false);
+                    return Query.class;
+                });
+        genLoad(node.id.decl);
+        mv.visitVarInsn(ALOAD, connSlot);
+        genIntConst(node.staticSql.hostExprs.size());
+        mv.visitTypeInsn(ANEWARRAY, "java/lang/Object");
+        int i = 0;
+        for (Expr e : node.staticSql.hostExprs.keySet()) {
+            mv.visitInsn(DUP);
+            genIntConst(i++);
+            visit(e);
+            mv.visitInsn(AASTORE);
+        }
+        genQueryOpen();
+
+        endRange(marked);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtRaise(StmtRaise node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+        if (node.exName == null) {
+            mv.visitVarInsn(ALOAD, exVarSlotOf(node.exHandlerDepth));
+            mv.visitInsn(ATHROW);
+        } else {
+            genThrowNew(exceptionClassOf(node.exName));
+        }
+        endRange(marked);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtRaiseAppErr(StmtRaiseAppErr node) {
+
+        String appError = SP_LIB + "$$APP_ERROR";
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+        mv.visitTypeInsn(NEW, appError);
+        mv.visitInsn(DUP);
+        genIntValue(node.errCode);
+        genValue(node.errMsg, String.class);
+        // javac does not start a line at a constructor call nor at the throw, and so the exception
+        // is created and thrown at the line where the evaluation of the last argument ended
+        mv.visitMethodInsnAtLastLine(
+                INVOKESPECIAL, appError, "<init>", "(ILjava/lang/String;)V", false);
+        mv.visitInsnAtLastLine(ATHROW);
+        endRange(marked);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtReturn(StmtReturn node) {
+
+        if (node.retVal == null) {
+            mv.visitInsn(RETURN);
+        } else {
+            genValue(node.retVal, javaClassOf(node.retTypeSpec.type));
+            mv.visitInsn(ARETURN);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtRollback(StmtRollback node) {
+        genEndTransaction("rollback", node);
+        return null;
+    }
+
+    @Override
+    public Class<?> visitStmtWhileLoop(StmtWhileLoop node) {
+
+        genDeclareLoopStmts(node);
+
+        Loop loop = new Loop();
+        mv.visitLabel(loop.continueLabel);
+        if (!(node.cond instanceof ExprTrue)) {
+            genCondition(node.cond, loop.breakLabel);
+        }
+        enterLoop(node.declLabel, loop);
+        visitNodeList(node.stmts);
+        exitLoop(node.declLabel);
+        mv.visitJumpInsn(GOTO, loop.continueLabel);
+        mv.visitLabel(loop.breakLabel);
+
+        genCloseLoopStmts(node);
+
+        return null;
+    }
+
+    // -----------------------------------------------------------------
+    // Body and exception handlers
+    //
+
+    @Override
+    public Class<?> visitBody(Body node) {
+
+        if (node.exHandlers.nodes.size() == 0) {
+            visitNodeList(node.stmts);
+            return null;
+        }
+
+        Label start = new Label();
+        Label end = new Label();
+        Label after = new Label();
+
+        mv.visitLabel(start);
+        visitNodeList(node.stmts);
+        mv.visitLabel(end);
+        mv.visitJumpInsn(GOTO, after);
+
+        // convert every exception from the statements into PlcsqlRuntimeError
+        Label rethrow = addTryCatch(start, end, PLCSQL_RUNTIME_ERROR);
+        mv.visitLabel(rethrow);
+        mv.visitInsn(ATHROW);
+        genWrappingCatch(start, end, "java/lang/OutOfMemoryError", "STORAGE_ERROR");
+        genWrappingCatch(start, end, "java/lang/Throwable", "PROGRAM_ERROR");
+
+        Label wrapped = new Label();
+        mv.visitLabel(wrapped);
+
+        for (ExHandler h : node.exHandlers.nodes) {
+
+            Label handler = new Label();
+            for (ExName ex : h.exNames) {
+                String type =
+                        "OTHERS".equals(ex.name) ? PLCSQL_RUNTIME_ERROR : exceptionClassOf(ex);
+                tryCatches.add(new Label[] {start, wrapped, handler});
+                tryCatchTypes.put(handler, type);
+            }
+
+            mv.visitLabel(handler);
+            int e = nextSlot++;
+            mv.visitVarInsn(ASTORE, e);
+            Integer saved = exVarSlots.put(h.depth, e);
+            visitNodeList(h.stmts);
+            if (saved == null) {
+                exVarSlots.remove(h.depth);
+            } else {
+                exVarSlots.put(h.depth, saved);
+            }
+            mv.visitJumpInsn(GOTO, after);
+        }
+
+        mv.visitLabel(after);
+
+        return null;
+    }
+
+    @Override
+    public Class<?> visitExHandler(ExHandler node) {
+        // handled in visitBody()
+        throw new RuntimeException("unreachable");
+    }
+
+    @Override
+    public Class<?> visitExName(ExName node) {
+        // depends on the context in which this node is located and must not be called directly
+        throw new RuntimeException("unreachable");
+    }
+
+    @Override
+    public Class<?> visitTypeSpec(TypeSpec node) {
+        // TypeSpecs are not visited
+        throw new RuntimeException("unreachable");
+    }
+
+    @Override
+    public Class<?> visitTypeSpecPercent(TypeSpecPercent node) {
+        // TypeSpecs are not visited
+        throw new RuntimeException("unreachable");
+    }
+
+    @Override
+    public Class<?> visitCaseExpr(CaseExpr node) {
+        // handled in visitExprCase()
+        throw new RuntimeException("unreachable");
+    }
+
+    @Override
+    public Class<?> visitCaseStmt(CaseStmt node) {
+        // handled in visitStmtCase()
+        throw new RuntimeException("unreachable");
+    }
+
+    @Override
+    public Class<?> visitCondExpr(CondExpr node) {
+        // handled in visitExprCond()
+        throw new RuntimeException("unreachable");
+    }
+
+    @Override
+    public Class<?> visitCondStmt(CondStmt node) {
+        // handled in visitStmtIf()
+        throw new RuntimeException("unreachable");
+    }
+
+    // -----------------------------------------------------------------
+    // Private
+    // -----------------------------------------------------------------
+
+    private static final String SP_LIB = "com/cubrid/plcsql/predefined/sp/SpLib";
+    private static final String PLCSQL_RUNTIME_ERROR =
+            "com/cubrid/plcsql/predefined/PlcsqlRuntimeError";
+    private static final String QUERY = SP_LIB + "$Query";
+    private static final String BULK_ROW_COUNT = SP_LIB + "$BulkRowCount";
+    private static final String ROUTINE_LINK = "com/cubrid/jsp/RoutineLink";
+    private static final String ROUTINE_LINK_DESC = "L" + ROUTINE_LINK + ";";
+
+    // type of the null literal, which can be passed to a parameter of any reference type
+    private static final Class<?> NULL_TYPE = Void.class;
+
+    private static final int[] UNIT_POSITION = new int[] {1, 1};
+    private static final int MAX_JAVA_LINE = 65535; // line numbers are u2 in the class file
+    private static final int MAX_STR_LITERAL_LEN = 16383; // see ExprStr
+    private static final int MAX_METHOD_PARAMS = 255; // including the ones of long or double
+
+    // public static methods of SpLib by their names
+    private static final Map<String, List<Method>> spLibMethods = new HashMap<>();
+
+    static {
+        for (Method m : SpLib.class.getMethods()) {
+            if (Modifier.isStatic(m.getModifiers())) {
+                List<Method> overloads = spLibMethods.get(m.getName());
+                if (overloads == null) {
+                    overloads = new ArrayList<>();
+                    spLibMethods.put(m.getName(), overloads);
+                }
+                overloads.add(m);
+            }
+        }
+    }
+
+    private Unit unit;
+    private String className;
+    private String fileName;
+    private ClassWriter cw;
+    private LineMarker mv;
+
+    // true in the first of the two passes of visitUnit(), which writes no code
+    private boolean collecting;
+
+    // local routines by their declarations, and the ones whose methods are yet to be generated
+    private final Map<DeclRoutine, LocalRoutine> localRoutines = new LinkedHashMap<>();
+    private final LinkedList<LocalRoutine> routinesToGen = new LinkedList<>();
+
+    // variables kept in one-element arrays, because a local routine uses or changes them
+    private final Set<DeclId> cells = new HashSet<>();
+
+    // classes of the user-defined exceptions
+    private final Map<DeclException, String> exceptionClasses = new HashMap<>();
+    private final Map<String, byte[]> exceptionClassFiles = new LinkedHashMap<>();
+
+    // the routine whose method is being generated (null for the main routine) and its scope level
+    private LocalRoutine currRoutine;
+    private int routineLevel;
+
+    private int nextSlot;
+    private int connSlot = -1;
+    private int rowCountSlot = -1;
+    private int bulkRowCountSlot = -1;
+    private final Map<DeclId, Integer> slots = new HashMap<>();
+    // parameters are referenced through other DeclParam objects than the ones in the parameter
+    // list of the routine, which are made separately in the previsit of the routine
+    private final Map<String, Integer> paramSlots = new HashMap<>();
+    private final Map<DeclId, Integer> capturedSlots = new HashMap<>();
+    private final Map<Integer, Integer> exVarSlots = new HashMap<>(); // handler depth -> slot
+    private final Map<Integer, Integer> stmtSlots = new HashMap<>(); // SQL serial no. -> slot
+
+    private final Map<DeclLabel, Loop> labeledLoops = new HashMap<>();
+    private final LinkedList<Loop> loops = new LinkedList<>();
+    // statements closed in finally blocks enclosing the current position, innermost last
+    private final ArrayList<Integer> closingStmts = new ArrayList<>();
+
+    private final List<Label[]> tryCatches = new ArrayList<>(); // {start, end, handler}
+    private final Map<Label, String> tryCatchTypes = new HashMap<>();
+
+    private final List<String> numericConsts = new ArrayList<>();
+
+    private final StringBuilder codeRangeMarkers = new StringBuilder();
+
+    private static class Loop {
+        final Label continueLabel = new Label();
+        final Label breakLabel = new Label();
+        int closingStmtsDepth;
+    }
+
+    private static class LocalRoutine {
+        final DeclRoutine decl;
+        final String methodName;
+
+        // local routines it calls or declares
+        final Set<DeclRoutine> callees = new LinkedHashSet<>();
+        // declarations of the enclosing routines it uses directly or through its callees,
+        // which are passed to its method before the parameters
+        final Set<DeclId> captured = new LinkedHashSet<>();
+
+        LocalRoutine(DeclRoutine decl, String methodName) {
+            this.decl = decl;
+            this.methodName = methodName;
+        }
+    }
+
+    // MethodVisitor which puts every instruction at the Java line current when it is visited.
+    // A line number entry is added only when the current line changes, because HotSpot does not
+    // agree with itself on which of the entries at the same bytecode index to take.
+    private static class LineMarker extends MethodVisitor {
+
+        int line;
+        private int lineMarked = -1;
+
+        LineMarker(MethodVisitor mv) {
+            super(ASM9, mv);
+        }
+
+        private void mark() {
+            if (line != lineMarked) {
+                Label l = new Label();
+                super.visitLabel(l);
+                super.visitLineNumber(line, l);
+                lineMarked = line;
+            }
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            mark();
+            super.visitInsn(opcode);
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            mark();
+            super.visitIntInsn(opcode, operand);
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int var) {
+            mark();
+            super.visitVarInsn(opcode, var);
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            mark();
+            super.visitTypeInsn(opcode, type);
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            mark();
+            super.visitFieldInsn(opcode, owner, name, descriptor);
+        }
+
+        @Override
+        public void visitMethodInsn(
+                int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            mark();
+            super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+        }
+
+        void visitMethodInsnAtLastLine(
+                int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+        }
+
+        void visitInsnAtLastLine(int opcode) {
+            super.visitInsn(opcode);
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            mark();
+            super.visitJumpInsn(opcode, label);
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            mark();
+            super.visitLdcInsn(value);
+        }
+
+        @Override
+        public void visitIincInsn(int var, int increment) {
+            mark();
+            super.visitIincInsn(var, increment);
+        }
+    }
+
+    // begins a code range of the given PL/CSQL position in the same way as
+    // JavaCodeWriter.CodeTemplate.resolve() does for a template spanning over Java lines.
+    // returns false, without beginning any range, if the position is unknown.
+    private boolean beginRange(int[] plcsqlPos) {
+        if (plcsqlPos[0] > 0) {
+            mv.line++;
+            codeRangeMarkers.append(
+                    String.format(" (%d,%d,%d", mv.line, plcsqlPos[0], plcsqlPos[1]));
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    private void endRange(boolean marked) {
+        if (marked) {
+            mv.line++;
+            codeRangeMarkers.append(String.format(" )%d", mv.line));
+        }
+    }
+
+    private void beginMethod(int access, String name, String desc) {
+
+        int line = (mv == null) ? 0 : mv.line; // code ranges of all the methods are in one table
+        mv =
+                new LineMarker(
+                        collecting
+                                ? null
+                                : cw.visitMethod(
+                                        access,
+                                        name,
+                                        desc,
+                                        null,
+                                        new String[] {"java/lang/Exception"}));
+        mv.line = line;
+        mv.visitCode();
+
+        currRoutine = null;
+        routineLevel = SymbolStack.LEVEL_MAIN;
+        nextSlot = 0;
+        connSlot = -1;
+        rowCountSlot = -1;
+        bulkRowCountSlot = -1;
+        paramSlots.clear();
+        capturedSlots.clear();
+        exVarSlots.clear();
+        stmtSlots.clear();
+        loops.clear();
+        closingStmts.clear();
+        labeledLoops.clear();
+        tryCatches.clear();
+        tryCatchTypes.clear();
+    }
+
+    private void endMethod() {
+
+        // try-catch blocks are added innermost first, which is the order the JVM needs
+        for (Label[] tc : tryCatches) {
+            mv.visitTryCatchBlock(tc[0], tc[1], tc[2], tryCatchTypes.get(tc[2]));
+        }
+
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private void genParamSlots(DeclRoutine routine) {
+        if (!Misc.isEmpty(routine.paramList)) {
+            for (DeclParam dp : routine.paramList.nodes) {
+                paramSlots.put(dp.name, nextSlot++);
+            }
+        }
+    }
+
+    private void genNullifyOutParams(DeclRoutine routine) {
+        if (!Misc.isEmpty(routine.paramList)) {
+            for (DeclParam dp : routine.paramList.nodes) {
+                if (dp instanceof DeclParamOut && !((DeclParamOut) dp).alsoIn) {
+                    mv.visitVarInsn(ALOAD, paramSlots.get(dp.name));
+                    mv.visitInsn(ICONST_0);
+                    if (dp.typeSpec.type instanceof TypeRecord) {
+                        // <p>[0].setNull(null);
+                        mv.visitInsn(AALOAD);
+                        genSetFieldsNull((TypeRecord) dp.typeSpec.type);
+                        mv.visitInsn(POP);
+                    } else {
+                        mv.visitInsn(ACONST_NULL);
+                        mv.visitInsn(AASTORE);
+                    }
+                }
+            }
+        }
+    }
+
+    // a local routine becomes a private static method, which gets the connection and SQL%ROWCOUNT
+    // of the main routine and the declarations it captures before its parameters
+    private void genLocalRoutineMethod(LocalRoutine r) {
+
+        DeclRoutine routine = r.decl;
+
+        beginMethod(ACC_PRIVATE | ACC_STATIC, r.methodName, methodDescriptorOf(routine, r));
+        currRoutine = r;
+        routineLevel = routine.scope().level;
+
+        if (unit.connectionRequired) {
+            connSlot = nextSlot++;
+            rowCountSlot = nextSlot++;
+            bulkRowCountSlot = nextSlot++;
+        }
+        for (DeclId d : r.captured) {
+            capturedSlots.put(d, nextSlot++);
+        }
+        genParamSlots(routine);
+        if (nextSlot > MAX_METHOD_PARAMS) {
+            throw new NotSupported("too many variables used in a local procedure or function");
+        }
+
+        genNullifyOutParams(routine);
+        genDecls(routine.decls);
+        visitBody(routine.body);
+        if (routine.isProcedure()) {
+            mv.visitInsn(RETURN);
+        } else {
+            // not reachable: every path of a function body ends with a return or a raise
+            genThrowNew(SP_LIB + "$PROGRAM_ERROR");
+        }
+
+        endMethod();
+    }
+
+    private void visitDeclRoutine(DeclRoutine node) {
+        LocalRoutine r = localRoutineOf(node);
+        if (collecting && currRoutine != null) {
+            // calls to the routines declared in a routine need what they capture from it
+            currRoutine.callees.add(node);
+        }
+        routinesToGen.addLast(r);
+    }
+
+    private LocalRoutine localRoutineOf(DeclRoutine decl) {
+        LocalRoutine r = localRoutines.get(decl);
+        if (r == null) {
+            r = new LocalRoutine(decl, decl.name + "$" + (localRoutines.size() + 1));
+            localRoutines.put(decl, r);
+        }
+        return r;
+    }
+
+    // a routine captures what its callees capture from outside of it as well as what it uses
+    // directly, which the first pass of visitUnit() has collected
+    private void computeCapturedDecls() {
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (LocalRoutine r : localRoutines.values()) {
+                int level = r.decl.scope().level;
+                for (DeclRoutine c : r.callees) {
+                    LocalRoutine callee = localRoutines.get(c);
+                    if (callee == r) {
+                        continue;
+                    }
+                    for (DeclId d : callee.captured) {
+                        if (d.scope().level <= level && r.captured.add(d)) {
+                            changed = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        for (LocalRoutine r : localRoutines.values()) {
+            for (DeclId d : r.captured) {
+                if (d instanceof DeclVar) {
+                    cells.add(d);
+                }
+            }
+        }
+    }
+
+    // descriptor of the method of the main routine, or of a local routine if local is not null
+    private String methodDescriptorOf(DeclRoutine routine, LocalRoutine local) {
+
+        StringBuilder desc = new StringBuilder("(");
+        if (local != null) {
+            if (unit.connectionRequired) {
+                desc.append("Ljava/sql/Connection;[Ljava/lang/Long;[L" + BULK_ROW_COUNT + ";");
+            }
+            for (DeclId d : local.captured) {
+                desc.append(descriptorOf(javaClassOfCaptured(d)));
+            }
+        }
+        if (!Misc.isEmpty(routine.paramList)) {
+            for (DeclParam dp : routine.paramList.nodes) {
+                desc.append(descriptorOf(javaClassOfParam(dp)));
+            }
+        }
+        desc.append(')').append(descriptorOf(javaClassOfReturn(routine)));
+
+        return desc.toString();
+    }
+
+    // calls a local routine, the main routine recursively, or a predefined procedure such as
+    // DBMS_OUTPUT.PUT_LINE in the same way as the wrapper objects JavaCodeWriter makes for the
+    // calls: the arguments are evaluated first, the OUT arguments to be coerced are copied into
+    // arrays of the parameter types, and the results are copied back after the call
+    private Class<?> genLocalCall(DeclRoutine decl, NodeList<Expr> args) {
+
+        boolean predefined = (decl.scope().level == SymbolStack.LEVEL_PREDEFINED);
+        LocalRoutine callee = null;
+        if (decl.scope().level > SymbolStack.LEVEL_MAIN) {
+            callee = localRoutineOf(decl);
+            if (collecting && currRoutine != null) {
+                currRoutine.callees.add(decl);
+            }
+        }
+
+        List<DeclParam> params =
+                Misc.isEmpty(decl.paramList) ? new ArrayList<DeclParam>() : decl.paramList.nodes;
+        int size = params.size();
+        int[] argSlots = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            DeclParam dp = params.get(i);
+            if (dp instanceof DeclParamOut) {
+                ExprId id = outArgOf(args.nodes.get(i));
+                if (!(id.coercion instanceof Coercion.Identity)) {
+                    continue; // copied below
+                }
+                if (collecting && id.decl instanceof DeclVar) {
+                    cells.add(id.decl); // the routine changes it through the array
+                }
+                mv.visitVarInsn(ALOAD, slotOf(id.decl));
+            } else if (i < args.nodes.size()) {
+                genValue(args.nodes.get(i), javaClassOf(dp.typeSpec.type));
+            } else {
+                DeclParamIn dpi = (DeclParamIn) dp;
+                assert dpi.hasDefault();
+                genValue(dpi.defaultVal, javaClassOf(dp.typeSpec.type));
+            }
+            argSlots[i] = nextSlot++;
+            mv.visitVarInsn(ASTORE, argSlots[i]);
+        }
+
+        for (int i = 0; i < size; i++) {
+            DeclParam dp = params.get(i);
+            if (dp instanceof DeclParamOut) {
+                ExprId id = outArgOf(args.nodes.get(i));
+                if (!(id.coercion instanceof Coercion.Identity)) {
+                    // <PT>[] p = new <PT>[] { <c>(o[0]) };
+                    Class<?> paramType = javaClassOf(dp.typeSpec.type);
+                    mv.visitInsn(ICONST_1);
+                    mv.visitTypeInsn(ANEWARRAY, internalNameOf(paramType));
+                    mv.visitInsn(DUP);
+                    mv.visitInsn(ICONST_0);
+                    applyCoercion(id.coercion, Misc.UNKNOWN_LINE_COLUMN, () -> genLoad(id.decl));
+                    mv.visitInsn(AASTORE);
+                    argSlots[i] = nextSlot++;
+                    mv.visitVarInsn(ASTORE, argSlots[i]);
+                }
+            }
+        }
+
+        if (callee != null) {
+            if (unit.connectionRequired) {
+                mv.visitVarInsn(ALOAD, connSlot);
+                mv.visitVarInsn(ALOAD, rowCountSlot);
+                mv.visitVarInsn(ALOAD, bulkRowCountSlot);
+            }
+            if (!collecting) {
+                for (DeclId d : callee.captured) {
+                    mv.visitVarInsn(d instanceof DeclForIter ? ILOAD : ALOAD, slotOf(d));
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            mv.visitVarInsn(ALOAD, argSlots[i]);
+        }
+        if (predefined) {
+            Class<?>[] paramTypes = new Class<?>[size];
+            for (int i = 0; i < size; i++) {
+                paramTypes[i] = javaClassOfParam(params.get(i));
+            }
+            genInvoke(findMethod(SpLib.class, decl.name, paramTypes));
+        } else {
+            mv.visitMethodInsn(
+                    INVOKESTATIC,
+                    className,
+                    callee == null ? decl.name : callee.methodName,
+                    methodDescriptorOf(decl, callee),
+                    false);
+        }
+
+        Class<?> retType = javaClassOfReturn(decl);
+        int ret = -1;
+        if (retType != void.class) {
+            ret = nextSlot++;
+            mv.visitVarInsn(ASTORE, ret);
+        }
+
+        for (int i = 0; i < size; i++) {
+            DeclParam dp = params.get(i);
+            if (dp instanceof DeclParamOut) {
+                ExprId id = outArgOf(args.nodes.get(i));
+                if (!(id.coercion instanceof Coercion.Identity)) {
+                    // o[0] = <cRev>(p[0]);
+                    Class<?> paramType = javaClassOf(dp.typeSpec.type);
+                    Coercion cRev = id.coercion.getReversion(iStore);
+                    assert cRev != null; // by earlier check
+                    int p = argSlots[i];
+                    genStore(
+                            id.decl,
+                            () ->
+                                    applyCoercion(
+                                            cRev,
+                                            Misc.UNKNOWN_LINE_COLUMN,
+                                            () -> {
+                                                mv.visitVarInsn(ALOAD, p);
+                                                mv.visitInsn(ICONST_0);
+                                                mv.visitInsn(AALOAD);
+                                                return paramType;
+                                            }));
+                }
+                genCheckNotNullOut(id, "a not-null variable %s was set NULL by this function call");
+            }
+        }
+
+        if (ret >= 0) {
+            mv.visitVarInsn(ALOAD, ret);
+        }
+
+        return retType;
+    }
+
+    private static ExprId outArgOf(Expr arg) {
+        if (!(arg instanceof ExprId)) {
+            // JavaCodeWriter does not take record fields as OUT arguments either
+            throw new NotSupported("record fields as OUT arguments");
+        }
+        return (ExprId) arg;
+    }
+
+    // checkNotNull(o[0], <msg>) for a not-null variable given as an OUT argument
+    private void genCheckNotNullOut(ExprId id, String msg) {
+        if (id.decl instanceof DeclVar && ((DeclVar) id.decl).notNull) {
+            genLoad(id.decl);
+            mv.visitLdcInsn(String.format(msg, id.name));
+            mv.visitMethodInsn(
+                    INVOKESTATIC,
+                    SP_LIB,
+                    "checkNotNull",
+                    "(Ljava/lang/Object;Ljava/lang/String;)Ljava/lang/Object;",
+                    false);
+            mv.visitInsn(POP);
+        }
+    }
+
+    // new <type>(<int>, ...)
+    private void genNewWithInts(String type, int... args) {
+        mv.visitTypeInsn(NEW, type);
+        mv.visitInsn(DUP);
+        StringBuilder desc = new StringBuilder("(");
+        for (int i : args) {
+            genIntConst(i);
+            desc.append('I');
+        }
+        mv.visitMethodInsn(INVOKESPECIAL, type, "<init>", desc.append(")V").toString(), false);
+    }
+
+    // (<T>) invokeBuiltinFunc(conn, <call-str>, <result-type-code>, <args>...)
+    private Class<?> genServerBuiltinCall(String callStr, BuiltinFuncCall node, Expr... args) {
+
+        assert node.resultType != null;
+        Class<?> resultType = javaClassOf(node.resultType);
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        mv.visitVarInsn(ALOAD, connSlot);
+        mv.visitLdcInsn(callStr);
+        genIntConst(node.resultType.idx);
+        if (args.length == 1 && staticTypeOf(args[0]) == NULL_TYPE) {
+            // javac passes a single null as the variable arity array itself
+            visit(args[0]);
+        } else {
+            genIntConst(args.length);
+            mv.visitTypeInsn(ANEWARRAY, "java/lang/Object");
+            for (int i = 0; i < args.length; i++) {
+                mv.visitInsn(DUP);
+                genIntConst(i);
+                visit(args[i]);
+                mv.visitInsn(AASTORE);
+            }
+        }
+        mv.visitMethodInsn(
+                INVOKESTATIC,
+                SP_LIB,
+                "invokeBuiltinFunc",
+                "(Ljava/sql/Connection;Ljava/lang/String;I[Ljava/lang/Object;)Ljava/lang/Object;",
+                false);
+        mv.visitTypeInsn(CHECKCAST, internalNameOf(resultType));
+
+        endRange(marked);
+
+        return resultType;
+    }
+
+    // try {
+    //   conn.<method>();
+    //   sql_rowcount[0] = 0L;
+    // } catch (SQLException e) { ... }
+    private void genEndTransaction(String method, Stmt node) {
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        Label start = new Label();
+        Label end = new Label();
+        mv.visitLabel(start);
+        mv.visitVarInsn(ALOAD, connSlot);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/sql/Connection", method, "()V", true);
+        mv.visitVarInsn(ALOAD, rowCountSlot);
+        mv.visitInsn(ICONST_0);
+        mv.visitInsn(LCONST_0);
+        genBox(Long.class, long.class);
+        mv.visitInsn(AASTORE);
+        mv.visitLabel(end);
+        genSqlErrorCatch(start, end);
+
+        endRange(marked);
+    }
+
+    // the handler below, jumped over by the code before it
+    private void genSqlErrorCatch(Label start, Label end) {
+
+        Label after = new Label();
+        mv.visitJumpInsn(GOTO, after);
+        genSqlErrorHandler(start, end);
+        mv.visitLabel(after);
+    }
+
+    // catch (SQLException e) {
+    //   Server.log(e);
+    //   throw new SQL_ERROR(e.getMessage());
+    // }
+    private void genSqlErrorHandler(Label start, Label end) {
+
+        Label handler = addTryCatch(start, end, "java/sql/SQLException");
+        mv.visitLabel(handler);
+        int e = nextSlot++;
+        mv.visitVarInsn(ASTORE, e);
+        genServerLog(e);
+        String sqlError = SP_LIB + "$SQL_ERROR";
+        mv.visitTypeInsn(NEW, sqlError);
+        mv.visitInsn(DUP);
+        mv.visitVarInsn(ALOAD, e);
+        mv.visitMethodInsn(
+                INVOKEVIRTUAL, "java/lang/Throwable", "getMessage", "()Ljava/lang/String;", false);
+        mv.visitMethodInsn(INVOKESPECIAL, sqlError, "<init>", "(Ljava/lang/String;)V", false);
+        mv.visitInsn(ATHROW);
+    }
+
+    // calls a global procedure or function in the same way as the wrapper objects
+    // JavaCodeWriter makes for the calls: through a link to the routine if there is one which
+    // accepts the arguments, and with a CALL statement otherwise
+    private Class<?> genGlobalCall(String name, DeclRoutine decl, NodeList<Expr> args) {
+
+        List<DeclParam> params = decl.paramList.nodes;
+        int size = args.nodes.size();
+        boolean isFunc = decl.retTypeSpec != null;
+        int argOffset = isFunc ? 2 : 1;
+        Class<?> retType = javaClassOfReturn(decl);
+
+        // IN arguments
+        int[] argSlots = new int[size];
+        for (int i = 0; i < size; i++) {
+            DeclParam dp = params.get(i);
+            if (!(dp instanceof DeclParamOut)) {
+                genValue(args.nodes.get(i), javaClassOf(dp.typeSpec.type));
+                argSlots[i] = nextSlot++;
+                mv.visitVarInsn(ASTORE, argSlots[i]);
+            }
+        }
+
+        Label byStmt = new Label();
+        Label done = new Label();
+        int link = nextSlot++;
+        int linkArgs = nextSlot++;
+        int ret = isFunc ? nextSlot++ : -1;
+
+        // RoutineLink link = getRoutineLink(<name>);
+        // if (link != null) {
+        //   Object[] args = new Object[] { <direct-args> };
+        //   if (link.accepts(<RET>.class, args)) {
+        //     <RET> ret = (<RET>) invokeRoutineLink(link, args);
+        //     <update-direct-out-args>
+        //     return ret;
+        //   }
+        // }
+        mv.visitLdcInsn(name);
+        mv.visitMethodInsn(
+                INVOKESTATIC,
+                SP_LIB,
+                "getRoutineLink",
+                "(Ljava/lang/String;)" + ROUTINE_LINK_DESC,
+                false);
+        mv.visitVarInsn(ASTORE, link);
+        mv.visitVarInsn(ALOAD, link);
+        mv.visitJumpInsn(IFNULL, byStmt);
+
+        genIntConst(size);
+        mv.visitTypeInsn(ANEWARRAY, "java/lang/Object");
+        for (int i = 0; i < size; i++) {
+            mv.visitInsn(DUP);
+            genIntConst(i);
+            DeclParam dp = params.get(i);
+            if (dp instanceof DeclParamOut) {
+                // new <PT>[] { <c>(o[0]) } or new <PT>[] { null }
+                Class<?> paramType = javaClassOf(dp.typeSpec.type);
+                mv.visitInsn(ICONST_1);
+                mv.visitTypeInsn(ANEWARRAY, internalNameOf(paramType));
+                if (((DeclParamOut) dp).alsoIn) {
+                    mv.visitInsn(DUP);
+                    mv.visitInsn(ICONST_0);
+                    genOutArgValue(outArgOf(args.nodes.get(i)));
+                    mv.visitInsn(AASTORE);
+                }
+            } else {
+                mv.visitVarInsn(ALOAD, argSlots[i]);
+            }
+            mv.visitInsn(AASTORE);
+        }
+        mv.visitVarInsn(ASTORE, linkArgs);
+
+        mv.visitVarInsn(ALOAD, link);
+        if (isFunc) {
+            mv.visitLdcInsn(org.objectweb.asm.Type.getType(retType));
+        } else {
+            mv.visitFieldInsn(GETSTATIC, "java/lang/Void", "TYPE", "Ljava/lang/Class;");
+        }
+        mv.visitVarInsn(ALOAD, linkArgs);
+        mv.visitMethodInsn(
+                INVOKEVIRTUAL,
+                ROUTINE_LINK,
+                "accepts",
+                "(Ljava/lang/Class;[Ljava/lang/Object;)Z",
+                false);
+        mv.visitJumpInsn(IFEQ, byStmt);
+
+        mv.visitVarInsn(ALOAD, link);
+        mv.visitVarInsn(ALOAD, linkArgs);
+        mv.visitMethodInsn(
+                INVOKESTATIC,
+                SP_LIB,
+                "invokeRoutineLink",
+                "(" + ROUTINE_LINK_DESC + "[Ljava/lang/Object;)Ljava/lang/Object;",
+                false);
+        if (isFunc) {
+            mv.visitTypeInsn(CHECKCAST, internalNameOf(retType));
+            mv.visitVarInsn(ASTORE, ret);
+        } else {
+            mv.visitInsn(POP);
+        }
+        for (int i = 0; i < size; i++) {
+            DeclParam dp = params.get(i);
+            if (dp instanceof DeclParamOut) {
+                // o[0] = <cRev>(((<PT>[]) args[i])[0]);
+                Class<?> paramType = javaClassOf(dp.typeSpec.type);
+                int index = i;
+                genOutArgUpdate(
+                        outArgOf(args.nodes.get(i)),
+                        () -> {
+                            mv.visitVarInsn(ALOAD, linkArgs);
+                            genIntConst(index);
+                            mv.visitInsn(AALOAD);
+                            mv.visitTypeInsn(
+                                    CHECKCAST,
+                                    internalNameOf(Array.newInstance(paramType, 0).getClass()));
+                            mv.visitInsn(ICONST_0);
+                            mv.visitInsn(AALOAD);
+                            return paramType;
+                        });
+            }
+        }
+        mv.visitJumpInsn(GOTO, done);
+
+        // try {
+        //   CallableStatement stmt = conn.prepareCall(<dynamic-sql>);
+        //   ...
+        //   stmt.close();
+        // } catch (SQLException e) { ... }
+        mv.visitLabel(byStmt);
+        Label start = new Label();
+        Label end = new Label();
+        int stmt = nextSlot++;
+        String[] qmarks = new String[size];
+        Arrays.fill(qmarks, "?");
+        String dynSql =
+                String.format(
+                        isFunc ? "?= call %s(%s)" : "call %s(%s)", name, String.join(", ", qmarks));
+
+        mv.visitLabel(start);
+        mv.visitVarInsn(ALOAD, connSlot);
+        mv.visitLdcInsn(dynSql);
+        mv.visitMethodInsn(
+                INVOKEINTERFACE,
+                "java/sql/Connection",
+                "prepareCall",
+                "(Ljava/lang/String;)Ljava/sql/CallableStatement;",
+                true);
+        mv.visitVarInsn(ASTORE, stmt);
+        if (isFunc) {
+            genRegisterOutParameter(stmt, 1);
+        }
+        for (int i = 0; i < size; i++) {
+            DeclParam dp = params.get(i);
+            if (dp instanceof DeclParamOut) {
+                genRegisterOutParameter(stmt, i + argOffset);
+                if (((DeclParamOut) dp).alsoIn) {
+                    mv.visitVarInsn(ALOAD, stmt);
+                    genIntConst(i + argOffset);
+                    genOutArgValue(outArgOf(args.nodes.get(i)));
+                    genSetObject();
+                }
+            } else {
+                mv.visitVarInsn(ALOAD, stmt);
+                genIntConst(i + argOffset);
+                mv.visitVarInsn(ALOAD, argSlots[i]);
+                genSetObject();
+            }
+        }
+        mv.visitVarInsn(ALOAD, stmt);
+        mv.visitLdcInsn(name);
+        mv.visitMethodInsn(
+                INVOKESTATIC,
+                SP_LIB,
+                "executeRoutineCall",
+                "(Ljava/sql/CallableStatement;Ljava/lang/String;)V",
+                false);
+        if (isFunc) {
+            genGetObject(stmt, 1);
+            mv.visitTypeInsn(CHECKCAST, internalNameOf(retType));
+            mv.visitVarInsn(ASTORE, ret);
+        }
+        for (int i = 0; i < size; i++) {
+            DeclParam dp = params.get(i);
+            if (dp instanceof DeclParamOut) {
+                // o[0] = <cRev>((<PT>) stmt.getObject(i + offset));
+                Class<?> paramType = javaClassOf(dp.typeSpec.type);
+                int index = i + argOffset;
+                genOutArgUpdate(
+                        outArgOf(args.nodes.get(i)),
+                        () -> {
+                            genGetObject(stmt, index);
+                            mv.visitTypeInsn(CHECKCAST, internalNameOf(paramType));
+                            return paramType;
+                        });
+            }
+        }
+        mv.visitVarInsn(ALOAD, stmt);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/sql/CallableStatement", "close", "()V", true);
+        mv.visitLabel(end);
+        genSqlErrorCatch(start, end);
+
+        mv.visitLabel(done);
+        if (isFunc) {
+            mv.visitVarInsn(ALOAD, ret);
+        }
+
+        return retType;
+    }
+
+    // <c>(o[0]) for an OUT argument of a global call
+    private void genOutArgValue(ExprId id) {
+        applyCoercion(id.coercion, Misc.UNKNOWN_LINE_COLUMN, () -> genLoad(id.decl));
+    }
+
+    // o[0] = <cRev>(<out-value>) for an OUT argument of a global call
+    private void genOutArgUpdate(ExprId id, ValueGen outVal) {
+        Coercion cRev = id.coercion.getReversion(iStore);
+        assert cRev != null; // by earlier check
+        genStore(id.decl, () -> applyCoercion(cRev, Misc.UNKNOWN_LINE_COLUMN, outVal));
+        genCheckNotNullOut(id, "a not-null variable %s was set NULL by this call");
+    }
+
+    // stmt.registerOutParameter(<index>, java.sql.Types.OTHER);
+    private void genRegisterOutParameter(int stmt, int index) {
+        mv.visitVarInsn(ALOAD, stmt);
+        genIntConst(index);
+        genIntConst(Types.OTHER);
+        mv.visitMethodInsn(
+                INVOKEINTERFACE,
+                "java/sql/CallableStatement",
+                "registerOutParameter",
+                "(II)V",
+                true);
+    }
+
+    // expects a CallableStatement, an index, and a value on the operand stack
+    private void genSetObject() {
+        mv.visitMethodInsn(
+                INVOKEINTERFACE,
+                "java/sql/CallableStatement",
+                "setObject",
+                "(ILjava/lang/Object;)V",
+                true);
+    }
+
+    private void genGetObject(int stmt, int index) {
+        mv.visitVarInsn(ALOAD, stmt);
+        genIntConst(index);
+        mv.visitMethodInsn(
+                INVOKEINTERFACE,
+                "java/sql/CallableStatement",
+                "getObject",
+                "(I)Ljava/lang/Object;",
+                true);
+    }
+
+    // EXECUTE IMMEDIATE or a static SQL statement, as JavaCodeWriter makes it:
+    // prepared once before the outermost loop and closed after it if it is in a loop, and
+    // prepared and closed here otherwise
+    private void genStmtSql(StmtSql node) {
+
+        Integer moved = (node.outermostLoop == null) ? null : stmtSlots.get(node.sqlSerialNo);
+        boolean inLoop = moved != null;
+        int stmt = inLoop ? moved : nextSlot++;
+        int dynSql = nextSlot++;
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        if (!inLoop) {
+            mv.visitInsn(ACONST_NULL);
+            mv.visitVarInsn(ASTORE, stmt);
+        }
+
+        Label start = new Label();
+        Label end = new Label();
+        mv.visitLabel(start);
+
+        // String dynSql = checkNotNull(<sql>, "SQL part was evaluated to NULL");
+        genValue(node.sql, String.class);
+        mv.visitLdcInsn("SQL part was evaluated to NULL");
+        mv.visitMethodInsn(
+                INVOKESTATIC,
+                SP_LIB,
+                "checkNotNull",
+                "(Ljava/lang/Object;Ljava/lang/String;)Ljava/lang/Object;",
+                false);
+        mv.visitTypeInsn(CHECKCAST, "java/lang/String");
+        mv.visitVarInsn(ASTORE, dynSql);
+
+        // pstmt = prepareStatement(conn, dynSql, <is-static>);
+        Label prepared = new Label();
+        if (inLoop) {
+            mv.visitVarInsn(ALOAD, stmt);
+            mv.visitJumpInsn(IFNONNULL, prepared);
+        }
+        mv.visitVarInsn(ALOAD, connSlot);
+        mv.visitVarInsn(ALOAD, dynSql);
+        mv.visitInsn(node.dynamic ? ICONST_0 : ICONST_1);
+        genInvoke(
+                findMethod(
+                        SpLib.class,
+                        "prepareStatement",
+                        Connection.class,
+                        String.class,
+                        boolean.class));
+        mv.visitVarInsn(ASTORE, stmt);
+        mv.visitLabel(prepared);
+
+        if (node.intoTargetList != null) {
+            genBanIntoClause(stmt);
+        }
+        genSetUsedExprs(stmt, node.usedExprList);
+
+        // if (pstmt.execute()) {
+        //   sql_rowcount[0] = 0L;
+        //   <handle-into-clause>
+        // } else {
+        //   sql_rowcount[0] = (long) pstmt.getUpdateCount();
+        // }
+        Label notQuery = new Label();
+        Label executed = new Label();
+        mv.visitVarInsn(ALOAD, stmt);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/sql/PreparedStatement", "execute", "()Z", true);
+        mv.visitJumpInsn(IFEQ, notQuery);
+        genSetRowCount(() -> mv.visitInsn(LCONST_0));
+        if (node.intoTargetList != null) {
+            genHandleIntoClause(node, stmt);
+        }
+        mv.visitJumpInsn(GOTO, executed);
+        mv.visitLabel(notQuery);
+        genSetRowCount(
+                () -> {
+                    mv.visitVarInsn(ALOAD, stmt);
+                    mv.visitMethodInsn(
+                            INVOKEINTERFACE, "java/sql/Statement", "getUpdateCount", "()I", true);
+                    mv.visitInsn(I2L);
+                });
+        mv.visitLabel(executed);
+        mv.visitLabel(end);
+
+        if (inLoop) {
+            genSqlErrorCatch(start, end);
+        } else {
+            genSqlErrorCatchClosing(start, end, stmt);
+        }
+
+        endRange(marked);
+    }
+
+    // the same as genSqlErrorCatch() with
+    // finally {
+    //   if (pstmt != null) {
+    //     pstmt.close();
+    //   }
+    // }
+    private void genSqlErrorCatchClosing(Label start, Label end, int stmt) {
+        Label normal = new Label();
+        Label handlerStart = new Label();
+        Label handlerEnd = new Label();
+        Label anyHandler = new Label();
+        mv.visitJumpInsn(GOTO, normal);
+        mv.visitLabel(handlerStart);
+        genSqlErrorHandler(start, end);
+        mv.visitLabel(handlerEnd);
+        tryCatches.add(new Label[] {start, end, anyHandler});
+        tryCatches.add(new Label[] {handlerStart, handlerEnd, anyHandler});
+        tryCatchTypes.put(anyHandler, null);
+
+        mv.visitLabel(anyHandler);
+        int t = nextSlot++;
+        mv.visitVarInsn(ASTORE, t);
+        genCloseIfNotNull(stmt);
+        mv.visitVarInsn(ALOAD, t);
+        mv.visitInsn(ATHROW);
+
+        mv.visitLabel(normal);
+        genCloseIfNotNull(stmt);
+    }
+
+    private void genNewQuery(String sql, boolean isStatic) {
+        if (sql.length() > MAX_STR_LITERAL_LEN) {
+            throw new NotSupported("too long queries");
+        }
+        mv.visitTypeInsn(NEW, QUERY);
+        mv.visitInsn(DUP);
+        mv.visitLdcInsn(sql);
+        mv.visitInsn(isStatic ? ICONST_1 : ICONST_0);
+        mv.visitMethodInsn(INVOKESPECIAL, QUERY, "<init>", "(Ljava/lang/String;Z)V", false);
+    }
+
+    // expects a Query, a Connection and an Object[] on the operand stack
+    private void genQueryOpen() {
+        mv.visitMethodInsn(
+                INVOKEVIRTUAL, QUERY, "open", "(Ljava/sql/Connection;[Ljava/lang/Object;)V", false);
+    }
+
+    // throws INVALID_CURSOR with the message unless the cursor is open, and returns the slot of
+    // the cursor
+    private int genOpenedCursor(ExprId id, String msg) {
+        Label invalid = new Label();
+        Label valid = new Label();
+        int cursor = nextSlot++;
+        genLoad(id.decl);
+        mv.visitVarInsn(ASTORE, cursor);
+        mv.visitVarInsn(ALOAD, cursor);
+        mv.visitJumpInsn(IFNULL, invalid);
+        mv.visitVarInsn(ALOAD, cursor);
+        mv.visitMethodInsn(INVOKEVIRTUAL, QUERY, "isOpen", "()Z", false);
+        mv.visitJumpInsn(IFNE, valid);
+        mv.visitLabel(invalid);
+        genNew(SP_LIB + "$INVALID_CURSOR", msg);
+        mv.visitInsn(ATHROW);
+        mv.visitLabel(valid);
+        return cursor;
+    }
+
+    // sql_rowcount[0] = <long-value>;
+    private void genSetRowCount(Runnable longVal) {
+        mv.visitVarInsn(ALOAD, rowCountSlot);
+        mv.visitInsn(ICONST_0);
+        longVal.run();
+        genBox(Long.class, long.class);
+        mv.visitInsn(AASTORE);
+    }
+
+    // ResultSetMetaData rsmd = pstmt.getMetaData();
+    // if (rsmd == null || rsmd.getColumnCount() < 1) {
+    //   throw new SQL_ERROR("INTO clause must be used with a SELECT statement");
+    // }
+    private void genBanIntoClause(int stmt) {
+        Label banned = new Label();
+        Label ok = new Label();
+        int rsmd = nextSlot++;
+        mv.visitVarInsn(ALOAD, stmt);
+        mv.visitMethodInsn(
+                INVOKEINTERFACE,
+                "java/sql/PreparedStatement",
+                "getMetaData",
+                "()Ljava/sql/ResultSetMetaData;",
+                true);
+        mv.visitVarInsn(ASTORE, rsmd);
+        mv.visitVarInsn(ALOAD, rsmd);
+        mv.visitJumpInsn(IFNULL, banned);
+        mv.visitVarInsn(ALOAD, rsmd);
+        mv.visitMethodInsn(
+                INVOKEINTERFACE, "java/sql/ResultSetMetaData", "getColumnCount", "()I", true);
+        mv.visitInsn(ICONST_1);
+        mv.visitJumpInsn(IF_ICMPGE, ok);
+        mv.visitLabel(banned);
+        genNew(SP_LIB + "$SQL_ERROR", "INTO clause must be used with a SELECT statement");
+        mv.visitInsn(ATHROW);
+        mv.visitLabel(ok);
+    }
+
+    // pstmt.setObject(<i>, <used-expr-i>); ...
+    private void genSetUsedExprs(int stmt, List<? extends Expr> exprList) {
+        if (exprList == null) {
+            return;
+        }
+
+        int i = 0;
+        for (Expr expr : exprList) {
+            boolean marked = beginRange(Misc.getLineColumnOf(expr.ctx));
+            mv.visitVarInsn(ALOAD, stmt);
+            genIntConst(++i);
+            if (visit(expr) == Object[].class) {
+                throw new NotSupported("records as SQL host values");
+            }
+            mv.visitMethodInsn(
+                    INVOKEINTERFACE,
+                    "java/sql/PreparedStatement",
+                    "setObject",
+                    "(ILjava/lang/Object;)V",
+                    true);
+            endRange(marked);
+        }
+    }
+
+    // ResultSet r = pstmt.getResultSet();
+    // if (r == null) {
+    //   throw new SQL_ERROR("no result set");
+    // }
+    // int i = 0;
+    // while (r.next()) {
+    //   i++;
+    //   if (i > 1) {
+    //     break;
+    //   } else {
+    //     <set-results>
+    //   }
+    // }
+    // if (i == 0) {
+    //   throw new NO_DATA_FOUND();
+    // } else if (i == 1) {
+    //   sql_rowcount[0] = 1L;
+    // } else {
+    //   sql_rowcount[0] = 1L;
+    //   throw new TOO_MANY_ROWS();
+    // }
+    private void genHandleIntoClause(StmtSql node, int stmt) {
+
+        int r = nextSlot++;
+        int i = nextSlot++;
+        Label hasResultSet = new Label();
+        Label loop = new Label();
+        Label loopEnd = new Label();
+        Label found = new Label();
+        Label one = new Label();
+
+        mv.visitVarInsn(ALOAD, stmt);
+        mv.visitMethodInsn(
+                INVOKEINTERFACE,
+                "java/sql/Statement",
+                "getResultSet",
+                "()Ljava/sql/ResultSet;",
+                true);
+        mv.visitVarInsn(ASTORE, r);
+        mv.visitVarInsn(ALOAD, r);
+        mv.visitJumpInsn(IFNONNULL, hasResultSet);
+        genNew(SP_LIB + "$SQL_ERROR", "no result set");
+        mv.visitInsn(ATHROW);
+        mv.visitLabel(hasResultSet);
+
+        mv.visitInsn(ICONST_0);
+        mv.visitVarInsn(ISTORE, i);
+        mv.visitLabel(loop);
+        mv.visitVarInsn(ALOAD, r);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/sql/ResultSet", "next", "()Z", true);
+        mv.visitJumpInsn(IFEQ, loopEnd);
+        mv.visitIincInsn(i, 1);
+        mv.visitVarInsn(ILOAD, i);
+        mv.visitInsn(ICONST_1);
+        mv.visitJumpInsn(IF_ICMPGT, loopEnd);
+        assert node.dynamic || node.columnTypeList != null;
+        genSetIntoTargets(
+                node.intoTargetList,
+                node.coercions,
+                node.dynamic ? null : node.columnTypeList,
+                r,
+                true);
+        mv.visitJumpInsn(GOTO, loop);
+        mv.visitLabel(loopEnd);
+
+        mv.visitVarInsn(ILOAD, i);
+        mv.visitJumpInsn(IFNE, found);
+        genThrowNew(SP_LIB + "$NO_DATA_FOUND");
+        mv.visitLabel(found);
+        genSetRowCount(() -> mv.visitInsn(LCONST_1));
+        mv.visitVarInsn(ILOAD, i);
+        mv.visitInsn(ICONST_1);
+        mv.visitJumpInsn(IF_ICMPEQ, one);
+        genThrowNew(SP_LIB + "$TOO_MANY_ROWS");
+        mv.visitLabel(one);
+    }
+
+    // <target> = <c>((<T>) r.getObject(<i>));
+    // if (<target> != null && r.wasNull()) { <target> = null; }
+    // checkNotNull(<target>, "NOT NULL constraint violated"); -- if checkNotNull is true
+    private void genSetIntoTargets(
+            List<Expr> targets,
+            List<Coercion> coercions,
+            List<Type> columnTypes,
+            int r,
+            boolean checkNotNull) {
+
+        int size = targets.size();
+        assert coercions != null && coercions.size() == size;
+        assert columnTypes == null || columnTypes.size() == size;
+
+        for (int i = 0; i < size; i++) {
+            Expr target = targets.get(i);
+            DeclId decl = (target instanceof ExprId) ? ((ExprId) target).decl : null;
+            assert decl == null || decl instanceof DeclVar || decl instanceof DeclParamOut
+                    : "only variables or out-parameters can be used in into-clauses";
+
+            int col = i + 1;
+            Class<?> colType =
+                    (columnTypes == null) ? Object.class : javaClassOf(columnTypes.get(i));
+            Coercion c = coercions.get(i);
+            genStoreTarget(
+                    target,
+                    () ->
+                            applyCoercion(
+                                    c,
+                                    Misc.UNKNOWN_LINE_COLUMN,
+                                    () -> {
+                                        mv.visitVarInsn(ALOAD, r);
+                                        genIntConst(col);
+                                        mv.visitMethodInsn(
+                                                INVOKEINTERFACE,
+                                                "java/sql/ResultSet",
+                                                "getObject",
+                                                "(I)Ljava/lang/Object;",
+                                                true);
+                                        if (colType != Object.class) {
+                                            mv.visitTypeInsn(CHECKCAST, internalNameOf(colType));
+                                        }
+                                        return colType;
+                                    }));
+
+            Label notNull = new Label();
+            genLoadTarget(target);
+            mv.visitJumpInsn(IFNULL, notNull);
+            mv.visitVarInsn(ALOAD, r);
+            mv.visitMethodInsn(INVOKEINTERFACE, "java/sql/ResultSet", "wasNull", "()Z", true);
+            mv.visitJumpInsn(IFEQ, notNull);
+            genStoreTarget(
+                    target,
+                    () -> {
+                        mv.visitInsn(ACONST_NULL);
+                        return NULL_TYPE;
+                    });
+            mv.visitLabel(notNull);
+
+            if (checkNotNull && decl instanceof DeclVar && ((DeclVar) decl).notNull) {
+                genLoad(decl);
+                mv.visitLdcInsn("NOT NULL constraint violated");
+                mv.visitMethodInsn(
+                        INVOKESTATIC,
+                        SP_LIB,
+                        "checkNotNull",
+                        "(Ljava/lang/Object;Ljava/lang/String;)Ljava/lang/Object;",
+                        false);
+                mv.visitInsn(POP);
+            }
+        }
+    }
+
+    // the value of an auto parameter, made in the same way as ExprAutoParam.javaCode()
+    private Class<?> genAutoParam(ExprAutoParam node) {
+
+        if (node.ty == DBType.DB_NULL) {
+            mv.visitInsn(ACONST_NULL);
+            return NULL_TYPE;
+        }
+
+        Object javaObj;
+        try {
+            javaObj = ValueUtilities.resolveValue(node.ty, node.val);
+        } catch (TypeMismatchException e) {
+            throw new RuntimeException("Internal Error", e);
+        }
+        if (javaObj == null) {
+            mv.visitInsn(ACONST_NULL);
+            return NULL_TYPE;
+        }
+
+        switch (node.ty) {
+            case DBType.DB_CHAR:
+            case DBType.DB_STRING:
+                if (((String) javaObj).length() > MAX_STR_LITERAL_LEN) {
+                    throw new NotSupported("too long string literals");
+                }
+                mv.visitLdcInsn(javaObj);
+                return String.class;
+            case DBType.DB_SHORT:
+                genIntConst((Short) javaObj);
+                genBox(Short.class, short.class);
+                return Short.class;
+            case DBType.DB_INT:
+                genIntConst((Integer) javaObj);
+                genBox(Integer.class, int.class);
+                return Integer.class;
+            case DBType.DB_BIGINT:
+                mv.visitLdcInsn(javaObj);
+                genBox(Long.class, long.class);
+                return Long.class;
+            case DBType.DB_NUMERIC:
+                genNew("java/math/BigDecimal", javaObj.toString());
+                return BigDecimal.class;
+            case DBType.DB_FLOAT:
+                mv.visitLdcInsn(javaObj);
+                genBox(Float.class, float.class);
+                genInvoke(findMethod(SpLib.class, "checkFloat", Float.class));
+                return Float.class;
+            case DBType.DB_DOUBLE:
+                mv.visitLdcInsn(javaObj);
+                genBox(Double.class, double.class);
+                genInvoke(findMethod(SpLib.class, "checkDouble", Double.class));
+                return Double.class;
+            case DBType.DB_DATE:
+                mv.visitLdcInsn(javaObj.toString());
+                mv.visitMethodInsn(
+                        INVOKESTATIC,
+                        "java/sql/Date",
+                        "valueOf",
+                        "(Ljava/lang/String;)Ljava/sql/Date;",
+                        false);
+                return Date.class;
+            case DBType.DB_TIME:
+                mv.visitLdcInsn(javaObj.toString());
+                mv.visitMethodInsn(
+                        INVOKESTATIC,
+                        "java/sql/Time",
+                        "valueOf",
+                        "(Ljava/lang/String;)Ljava/sql/Time;",
+                        false);
+                return Time.class;
+            case DBType.DB_DATETIME:
+            case DBType.DB_TIMESTAMP:
+                mv.visitLdcInsn(javaObj.toString());
+                mv.visitMethodInsn(
+                        INVOKESTATIC,
+                        "java/sql/Timestamp",
+                        "valueOf",
+                        "(Ljava/lang/String;)Ljava/sql/Timestamp;",
+                        false);
+                return Timestamp.class;
+            default:
+                throw new RuntimeException("unreachable");
+        }
+    }
+
+    // loads the value of a variable, a constant, or a parameter
+    private Class<?> genLoad(DeclId decl) {
+
+        if (decl instanceof DeclForIter) {
+            mv.visitVarInsn(ILOAD, slotOf(decl));
+            genBox(Integer.class, int.class);
+            return Integer.class;
+        }
+
+        Class<?> ty = javaClassOf(decl.type());
+        if (decl instanceof DeclParamOut || cells.contains(decl)) {
+            mv.visitVarInsn(ALOAD, slotOf(decl));
+            mv.visitInsn(ICONST_0);
+            mv.visitInsn(AALOAD);
+        } else if (decl instanceof DeclParamIn
+                || decl instanceof DeclVar
+                || decl instanceof DeclConst
+                || decl instanceof DeclCursor) {
+            mv.visitVarInsn(ALOAD, slotOf(decl));
+        } else {
+            throw new NotSupported(decl.kind() + " references");
+        }
+
+        return ty;
+    }
+
+    // stores the value the given generator leaves on the operand stack to a variable or an OUT
+    // parameter
+    private void genStore(DeclId decl, ValueGen val) {
+        if (decl instanceof DeclParamOut || cells.contains(decl)) {
+            mv.visitVarInsn(ALOAD, slotOf(decl));
+            mv.visitInsn(ICONST_0);
+            val.gen();
+            mv.visitInsn(AASTORE);
+        } else if (decl instanceof DeclVar) {
+            val.gen();
+            mv.visitVarInsn(ASTORE, slotOf(decl));
+        } else {
+            throw new RuntimeException("unreachable");
+        }
+    }
+
+    private void genLoadTarget(Expr target) {
+        if (target instanceof ExprId) {
+            genLoad(((ExprId) target).decl);
+        } else {
+            genLoadField((ExprField) target);
+        }
+    }
+
+    private void genStoreTarget(Expr target, ValueGen val) {
+        if (target instanceof ExprId) {
+            genStore(((ExprId) target).decl, val);
+        } else {
+            // <record>.<field>[0] = <val>;
+            genFieldCell((ExprField) target);
+            mv.visitInsn(ICONST_0);
+            val.gen();
+            mv.visitInsn(AASTORE);
+        }
+    }
+
+    // -----------------------------------------------------------------
+    // Records
+    //
+    // A record is an Object array of the one-element arrays of its fields, as the objects of the
+    // record classes in the Java code have the field arrays. So, a record is shared by the
+    // variables it is assigned to without a coercion, and its fields are changed in place.
+
+    // new <R>()
+    private void genNewRecord(TypeRecord rec) {
+        List<Misc.Pair<String, Type>> fields = rec.selectList;
+        genIntConst(fields.size());
+        mv.visitTypeInsn(ANEWARRAY, "java/lang/Object");
+        int i = 0;
+        for (Misc.Pair<String, Type> f : fields) {
+            mv.visitInsn(DUP);
+            genIntConst(i++);
+            mv.visitInsn(ICONST_1);
+            mv.visitTypeInsn(ANEWARRAY, internalNameOf(javaClassOf(f.e2)));
+            mv.visitInsn(AASTORE);
+        }
+    }
+
+    // replaces the record on the operand stack with the array of its i-th field, and returns the
+    // type of the field
+    private Class<?> genFieldCell(TypeRecord rec, int i) {
+        Class<?> ty = javaClassOf(rec.selectList.get(i).e2);
+        genIntConst(i);
+        mv.visitInsn(AALOAD);
+        mv.visitTypeInsn(CHECKCAST, internalNameOf(Array.newInstance(ty, 0).getClass()));
+        return ty;
+    }
+
+    // <record>.<field>
+    private Class<?> genFieldCell(ExprField field) {
+        if (field.getColIndex() <= 0) {
+            throw new NotSupported("records of dynamic SQL");
+        }
+        genLoad(field.record.decl);
+        return genFieldCell((TypeRecord) field.record.decl.type(), field.getColIndex() - 1);
+    }
+
+    // <record>.<field>[0]
+    private Class<?> genLoadField(ExprField field) {
+        Class<?> ty = genFieldCell(field);
+        mv.visitInsn(ICONST_0);
+        mv.visitInsn(AALOAD);
+        return ty;
+    }
+
+    // <record>.setNull(null) for the record on the operand stack, which is left there
+    private void genSetFieldsNull(TypeRecord rec) {
+        int size = rec.selectList.size();
+        for (int i = 0; i < size; i++) {
+            mv.visitInsn(DUP);
+            genFieldCell(rec, i);
+            mv.visitInsn(ICONST_0);
+            mv.visitInsn(ACONST_NULL);
+            mv.visitInsn(AASTORE);
+        }
+    }
+
+    // setFieldsOf<S>_To_<D>(src, dst) for the records src and dst on the operand stack, which
+    // leaves dst there. As in dst.set(...), all the fields are coerced before any of them is set.
+    private void genSetFields(Coercion.RecordToRecord c) {
+        TypeRecord srcRec = (TypeRecord) c.src;
+        TypeRecord dstRec = (TypeRecord) c.dst;
+        int size = srcRec.selectList.size();
+        assert size == c.fieldCoercions.length;
+
+        int dst = nextSlot++;
+        int src = nextSlot++;
+        mv.visitVarInsn(ASTORE, dst);
+        mv.visitVarInsn(ASTORE, src);
+
+        Label notNull = new Label();
+        Label done = new Label();
+        mv.visitVarInsn(ALOAD, dst);
+        mv.visitVarInsn(ALOAD, src);
+        mv.visitJumpInsn(IFNONNULL, notNull);
+        genSetFieldsNull(dstRec);
+        mv.visitJumpInsn(GOTO, done);
+
+        mv.visitLabel(notNull);
+        int[] vals = new int[size];
+        for (int i = 0; i < size; i++) {
+            int k = i;
+            applyCoercion(
+                    c.fieldCoercions[i],
+                    Misc.UNKNOWN_LINE_COLUMN,
+                    () -> {
+                        mv.visitVarInsn(ALOAD, src);
+                        Class<?> ty = genFieldCell(srcRec, k);
+                        mv.visitInsn(ICONST_0);
+                        mv.visitInsn(AALOAD);
+                        return ty;
+                    });
+            vals[i] = nextSlot++;
+            mv.visitVarInsn(ASTORE, vals[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            mv.visitInsn(DUP);
+            genFieldCell(dstRec, i);
+            mv.visitInsn(ICONST_0);
+            mv.visitVarInsn(ALOAD, vals[i]);
+            mv.visitInsn(AASTORE);
+        }
+        mv.visitLabel(done);
+    }
+
+    // <r>[0].set((<T1>) getFieldWithIndex(rs, 1), ...);
+    private void genSetFieldsFromRow(DeclVar record, int rs) {
+        TypeRecord rec = (TypeRecord) record.typeSpec.type;
+        int size = rec.selectList.size();
+
+        int[] vals = new int[size];
+        for (int i = 0; i < size; i++) {
+            Class<?> ty = javaClassOf(rec.selectList.get(i).e2);
+            mv.visitVarInsn(ALOAD, rs);
+            genIntConst(i + 1);
+            genInvoke(findMethod(SpLib.class, "getFieldWithIndex", ResultSet.class, int.class));
+            mv.visitTypeInsn(CHECKCAST, internalNameOf(ty));
+            vals[i] = nextSlot++;
+            mv.visitVarInsn(ASTORE, vals[i]);
+        }
+        genLoad(record);
+        for (int i = 0; i < size; i++) {
+            mv.visitInsn(DUP);
+            genFieldCell(rec, i);
+            mv.visitInsn(ICONST_0);
+            mv.visitVarInsn(ALOAD, vals[i]);
+            mv.visitInsn(AASTORE);
+        }
+        mv.visitInsn(POP);
+    }
+
+    // opEq<R>(l, r), or !opEq<R>(l, r) for !=, where opEq<R> compares the fields with
+    // Objects.equals()
+    private Class<?> genRecordEquals(ExprBinaryOp node) {
+        TypeRecord rec = node.recordTypeOfOperands;
+        boolean isEq = node.opStr.equals("Eq");
+
+        boolean marked = beginRange(Misc.getLineColumnOf(node.ctx));
+
+        int l = nextSlot++;
+        int r = nextSlot++;
+        visit(node.left);
+        mv.visitVarInsn(ASTORE, l);
+        visit(node.right);
+        mv.visitVarInsn(ASTORE, r);
+
+        Label notEqual = new Label();
+        Label done = new Label();
+        int size = rec.selectList.size();
+        for (int i = 0; i < size; i++) {
+            mv.visitVarInsn(ALOAD, l);
+            genFieldCell(rec, i);
+            mv.visitInsn(ICONST_0);
+            mv.visitInsn(AALOAD);
+            mv.visitVarInsn(ALOAD, r);
+            genFieldCell(rec, i);
+            mv.visitInsn(ICONST_0);
+            mv.visitInsn(AALOAD);
+            mv.visitMethodInsn(
+                    INVOKESTATIC,
+                    "java/util/Objects",
+                    "equals",
+                    "(Ljava/lang/Object;Ljava/lang/Object;)Z",
+                    false);
+            mv.visitJumpInsn(IFEQ, notEqual);
+        }
+        mv.visitInsn(isEq ? ICONST_1 : ICONST_0);
+        mv.visitJumpInsn(GOTO, done);
+        mv.visitLabel(notEqual);
+        mv.visitInsn(isEq ? ICONST_0 : ICONST_1);
+        mv.visitLabel(done);
+        genBox(Boolean.class, boolean.class);
+
+        endRange(marked);
+
+        return Boolean.class;
+    }
+
+    private interface ValueGen {
+        // generates a value and returns its Java type known at compile time
+        Class<?> gen();
+    }
+
+    private void genDecls(NodeList<Decl> decls) {
+        if (decls != null) {
+            for (Decl d : decls.nodes) {
+                visit(d);
+            }
+        }
+    }
+
+    private void genClassInit() {
+
+        String markers = codeRangeMarkers.toString();
+        if (markers.length() > 65535) {
+            throw new NotSupported("too many code ranges");
+        }
+
+        MethodVisitor init = cw.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null);
+        init.visitCode();
+
+        int i = 0;
+        for (String val : numericConsts) {
+            String field = "NUMERIC_" + i;
+            cw.visitField(
+                            ACC_PRIVATE | ACC_STATIC | ACC_FINAL,
+                            field,
+                            "Ljava/math/BigDecimal;",
+                            null,
+                            null)
+                    .visitEnd();
+            init.visitTypeInsn(NEW, "java/math/BigDecimal");
+            init.visitInsn(DUP);
+            init.visitLdcInsn(val);
+            init.visitMethodInsn(
+                    INVOKESPECIAL,
+                    "java/math/BigDecimal",
+                    "<init>",
+                    "(Ljava/lang/String;)V",
+                    false);
+            init.visitFieldInsn(PUTSTATIC, className, field, "Ljava/math/BigDecimal;");
+            i++;
+        }
+
+        // the same fields as JavaCodeWriter makes. PlcsqlPositionWeaver reads the constant
+        // codeRanges
+        cw.visitField(
+                        ACC_PRIVATE | ACC_STATIC | ACC_FINAL,
+                        "codeRanges",
+                        "Ljava/lang/String;",
+                        null,
+                        markers)
+                .visitEnd();
+        cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "codeRangeTable", "[I", null, null)
+                .visitEnd();
+        init.visitLdcInsn(markers);
+        init.visitMethodInsn(
+                INVOKESTATIC, SP_LIB, "buildCodeRangeTable", "(Ljava/lang/String;)[I", false);
+        init.visitFieldInsn(PUTSTATIC, className, "codeRangeTable", "[I");
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+    }
+
+    // NUMERIC literals are made once in the class initializer instead of at every evaluation
+    private void genNumericConst(String val) {
+        int i = numericConsts.indexOf(val);
+        if (i < 0) {
+            i = numericConsts.size();
+            numericConsts.add(val);
+        }
+        mv.visitFieldInsn(GETSTATIC, className, "NUMERIC_" + i, "Ljava/math/BigDecimal;");
+    }
+
+    private Label addTryCatch(Label start, Label end, String type) {
+        Label handler = new Label();
+        tryCatches.add(new Label[] {start, end, handler});
+        tryCatchTypes.put(handler, type);
+        return handler;
+    }
+
+    // catch (<type> e) {
+    //   Server.log(e);
+    //   throw new <error>().initCause(e);
+    // }
+    private void genWrappingCatch(Label start, Label end, String type, String error) {
+
+        Label handler = addTryCatch(start, end, type);
+        mv.visitLabel(handler);
+        int e = nextSlot++;
+        mv.visitVarInsn(ASTORE, e);
+        genServerLog(e);
+        genNew(SP_LIB + "$" + error, null);
+        mv.visitVarInsn(ALOAD, e);
+        mv.visitMethodInsn(
+                INVOKEVIRTUAL,
+                "java/lang/Throwable",
+                "initCause",
+                "(Ljava/lang/Throwable;)Ljava/lang/Throwable;",
+                false);
+        mv.visitInsn(ATHROW);
+    }
+
+    // catch (<type> e) {
+    //   Server.log(e);
+    //   int[] pos = getPlcLineColumn(codeRangeTable, e, "<class-name>.java");
+    //   throw new <error>(<msg>).setPlcLineColumn(pos);
+    // }
+    private void genTranslatingCatch(
+            Label start, Label end, String type, String error, String msg) {
+
+        Label handler = addTryCatch(start, end, type);
+        mv.visitLabel(handler);
+        int e = nextSlot++;
+        mv.visitVarInsn(ASTORE, e);
+        genServerLog(e);
+        mv.visitFieldInsn(GETSTATIC, className, "codeRangeTable", "[I");
+        mv.visitVarInsn(ALOAD, e);
+        genGetPlcLineColumn();
+        mv.visitVarInsn(ASTORE, e);
+        genNew(SP_LIB + "$" + error, msg);
+        mv.visitVarInsn(ALOAD, e);
+        genSetPlcLineColumn();
+        mv.visitInsn(ATHROW);
+    }
+
+    private void genServerLog(int slot) {
+        mv.visitVarInsn(ALOAD, slot);
+        mv.visitMethodInsn(
+                INVOKESTATIC, "com/cubrid/jsp/Server", "log", "(Ljava/lang/Throwable;)V", false);
+    }
+
+    // expects the code range table and a Throwable on the operand stack
+    private void genGetPlcLineColumn() {
+        mv.visitLdcInsn(fileName);
+        mv.visitMethodInsn(
+                INVOKESTATIC,
+                SP_LIB,
+                "getPlcLineColumn",
+                "([ILjava/lang/Throwable;Ljava/lang/String;)[I",
+                false);
+    }
+
+    // expects a PlcsqlRuntimeError and a position on the operand stack
+    private void genSetPlcLineColumn() {
+        mv.visitMethodInsn(
+                INVOKEVIRTUAL,
+                PLCSQL_RUNTIME_ERROR,
+                "setPlcLineColumn",
+                "([I)L" + PLCSQL_RUNTIME_ERROR + ";",
+                false);
+    }
+
+    private void genNew(String type, String msg) {
+        mv.visitTypeInsn(NEW, type);
+        mv.visitInsn(DUP);
+        if (msg == null) {
+            mv.visitMethodInsn(INVOKESPECIAL, type, "<init>", "()V", false);
+        } else {
+            mv.visitLdcInsn(msg);
+            mv.visitMethodInsn(INVOKESPECIAL, type, "<init>", "(Ljava/lang/String;)V", false);
+        }
+    }
+
+    private void genThrowNew(String type) {
+        genNew(type, null);
+        mv.visitInsn(ATHROW);
+    }
+
+    private String exceptionClassOf(ExName ex) {
+        if (ex.decl == null) {
+            throw new RuntimeException("unreachable");
+        }
+        if (ex.decl.scope().level == SymbolStack.LEVEL_PREDEFINED) {
+            return SP_LIB + "$" + ex.name;
+        } else {
+            return exceptionClassOf(ex.decl);
+        }
+    }
+
+    // a user-defined exception becomes a class extending $APP_ERROR, as the local class
+    // 'class <name> extends $APP_ERROR {}' does in the Java code
+    private String exceptionClassOf(DeclException decl) {
+
+        String name = exceptionClasses.get(decl);
+        if (name != null) {
+            return name;
+        }
+
+        String appError = SP_LIB + "$$APP_ERROR";
+        name = className + "$" + (exceptionClasses.size() + 1) + decl.name;
+        exceptionClasses.put(decl, name);
+
+        ClassWriter ecw = new ClassWriter(0);
+        ecw.visit(V1_8, ACC_SUPER, name, null, appError, null);
+        ecw.visitSource(fileName, null);
+        MethodVisitor init = ecw.visitMethod(0, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, appError, "<init>", "()V", false);
+        init.visitInsn(RETURN);
+        init.visitMaxs(1, 1);
+        init.visitEnd();
+        ecw.visitEnd();
+        exceptionClassFiles.put(name, ecw.toByteArray());
+
+        return name;
+    }
+
+    // generates Boolean.TRUE.equals(<cond>) and a jump to the label if it is false
+    private void genCondition(Expr cond, Label ifNotTrue) {
+        mv.visitFieldInsn(GETSTATIC, "java/lang/Boolean", "TRUE", "Ljava/lang/Boolean;");
+        visit(cond);
+        genBooleanEquals();
+        mv.visitJumpInsn(IFEQ, ifNotTrue);
+    }
+
+    private void genBooleanEquals() {
+        mv.visitMethodInsn(
+                INVOKEVIRTUAL, "java/lang/Boolean", "equals", "(Ljava/lang/Object;)Z", false);
+    }
+
+    private void genValue(Expr expr, Class<?> expected) {
+        Class<?> ty = visit(expr);
+        if (!isAssignable(expected, ty)) {
+            throw new NotSupported(
+                    "a value of " + ty.getName() + " where " + expected.getName() + " is expected");
+        }
+    }
+
+    private void genAssignedValue(Expr val, Class<?> ty, boolean checkNotNull) {
+        if (checkNotNull) {
+            genCheckNotNull(val, ty);
+        } else {
+            genValue(val, ty);
+        }
+    }
+
+    // checkNotNull(<val>, "NOT NULL constraint violated")
+    private void genCheckNotNull(Expr val, Class<?> ty) {
+        genValue(val, ty);
+        mv.visitLdcInsn("NOT NULL constraint violated");
+        mv.visitMethodInsn(
+                INVOKESTATIC,
+                SP_LIB,
+                "checkNotNull",
+                "(Ljava/lang/Object;Ljava/lang/String;)Ljava/lang/Object;",
+                false);
+        mv.visitTypeInsn(CHECKCAST, internalNameOf(ty));
+    }
+
+    // an Integer value unboxed as javac does for 'int x = <expr>;', that is, on the first line of
+    // <expr> so that a null value is reported at the position of <expr>
+    private void genIntValue(Expr expr) {
+        int before = mv.line;
+        genValue(expr, Integer.class);
+        if (mv.line == before) {
+            genUnbox(Integer.class);
+        } else {
+            int after = mv.line;
+            mv.line = before + 1;
+            genUnbox(Integer.class);
+            mv.line = after;
+        }
+    }
+
+    private void genIntConst(int i) {
+        if (i >= -1 && i <= 5) {
+            mv.visitInsn(ICONST_0 + i);
+        } else if (i >= Byte.MIN_VALUE && i <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, i);
+        } else if (i >= Short.MIN_VALUE && i <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, i);
+        } else {
+            mv.visitLdcInsn(i);
+        }
+    }
+
+    private void genBox(Class<?> boxed, Class<?> primitive) {
+        mv.visitMethodInsn(
+                INVOKESTATIC,
+                internalNameOf(boxed),
+                "valueOf",
+                "(" + descriptorOf(primitive) + ")" + descriptorOf(boxed),
+                false);
+    }
+
+    private void genUnbox(Class<?> boxed) {
+        assert boxed == Integer.class;
+        mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Integer", "intValue", "()I", false);
+    }
+
+    private Class<?> genStaticCall(Class<?> owner, String name, Expr... args) {
+
+        Class<?>[] argTypes = new Class<?>[args.length];
+        for (int i = 0; i < args.length; i++) {
+            argTypes[i] = visit(args[i]);
+        }
+
+        Method m = findMethod(owner, name, argTypes);
+        genInvoke(m);
+
+        return m.getReturnType();
+    }
+
+    private void genInvoke(Method m) {
+        mv.visitMethodInsn(
+                INVOKESTATIC,
+                internalNameOf(m.getDeclaringClass()),
+                m.getName(),
+                org.objectweb.asm.Type.getMethodDescriptor(m),
+                false);
+    }
+
+    private Class<?> applyCoercion(Coercion c, Expr expr) {
+        return applyCoercion(c, Misc.getLineColumnOf(expr.ctx), () -> expr.accept(this));
+    }
+
+    // applies a coercion to the value generated by expr, whose PL/CSQL position is pos
+    private Class<?> applyCoercion(Coercion c, int[] pos, ValueGen expr) {
+
+        if (c == null || c instanceof Coercion.Identity) {
+            return expr.gen();
+        } else if (c instanceof Coercion.Cast) {
+            Coercion.Cast cast = (Coercion.Cast) c;
+            Class<?> dst = javaClassOf(cast.dst);
+            Class<?> src = expr.gen();
+            if (!isAssignable(dst, src)) {
+                mv.visitTypeInsn(CHECKCAST, internalNameOf(dst));
+            }
+            return dst;
+        } else if (c instanceof Coercion.Conversion) {
+            Coercion.Conversion conv = (Coercion.Conversion) c;
+            String name =
+                    String.format(
+                            "conv%sTo%s",
+                            Type.getTypeByIdx(conv.src.idx).plcName,
+                            Type.getTypeByIdx(conv.dst.idx).plcName);
+
+            boolean marked = beginRange(pos);
+            Class<?> src = expr.gen();
+            Method m = findMethod(SpLib.class, name, src);
+            genInvoke(m);
+            endRange(marked);
+
+            return m.getReturnType();
+        } else if (c instanceof Coercion.CoerceAndCheckPrecision) {
+            Coercion.CoerceAndCheckPrecision checkPrec = (Coercion.CoerceAndCheckPrecision) c;
+
+            boolean marked = beginRange(pos);
+            genIntConst(checkPrec.prec);
+            genIntConst(checkPrec.scale);
+            Class<?> src = applyCoercion(checkPrec.c, pos, expr);
+            genInvoke(findMethod(SpLib.class, "checkPrecision", int.class, short.class, src));
+            endRange(marked);
+
+            return BigDecimal.class;
+        } else if (c instanceof Coercion.CoerceAndCheckStrLength) {
+            Coercion.CoerceAndCheckStrLength checkStrLen = (Coercion.CoerceAndCheckStrLength) c;
+
+            boolean marked = beginRange(pos);
+            mv.visitInsn(checkStrLen.isChar ? ICONST_1 : ICONST_0);
+            genIntConst(checkStrLen.length);
+            Class<?> src = applyCoercion(checkStrLen.c, pos, expr);
+            genInvoke(findMethod(SpLib.class, "checkStrLength", boolean.class, int.class, src));
+            endRange(marked);
+
+            return String.class;
+        } else if (c instanceof Coercion.NullToRecord) {
+
+            // new <R>().setNull(<expr>)
+            boolean marked = beginRange(pos);
+            genNewRecord((TypeRecord) c.dst);
+            expr.gen();
+            mv.visitInsn(POP);
+            endRange(marked);
+
+            return Object[].class;
+        } else if (c instanceof Coercion.RecordToRecord) {
+
+            // setFieldsOf<S>_To_<D>(<expr>, new <D>())
+            boolean marked = beginRange(pos);
+            expr.gen();
+            genNewRecord((TypeRecord) c.dst);
+            genSetFields((Coercion.RecordToRecord) c);
+            endRange(marked);
+
+            return Object[].class;
+        } else {
+            throw new RuntimeException("unreachable");
+        }
+    }
+
+    // Java type of an expression without generating its code
+    private Class<?> staticTypeOf(Expr expr) {
+        LineMarker saved = mv;
+        int savedNextSlot = nextSlot;
+        int savedMarkersLen = codeRangeMarkers.length();
+        int savedTryCatches = tryCatches.size();
+        try {
+            mv = new LineMarker(null);
+            mv.line = saved.line;
+            return visit(expr);
+        } finally {
+            mv = saved;
+            nextSlot = savedNextSlot;
+            codeRangeMarkers.setLength(savedMarkersLen);
+            tryCatches.subList(savedTryCatches, tryCatches.size()).clear();
+        }
+    }
+
+    // PreparedStatement pstmt_<n> = null;
+    // for the SQL statements in the loop, which are prepared only once
+    private void genDeclareLoopStmts(StmtLoop node) {
+        if (node.loopOptimizable != null) {
+            for (StmtSql sql : node.loopOptimizable.sql) {
+                int slot = nextSlot++;
+                stmtSlots.put(sql.sqlSerialNo, slot);
+                mv.visitInsn(ACONST_NULL);
+                mv.visitVarInsn(ASTORE, slot);
+            }
+        }
+    }
+
+    // if (pstmt_<n> != null) { pstmt_<n>.close(); }
+    // right after the loop
+    private void genCloseLoopStmts(StmtLoop node) {
+        if (node.loopOptimizable != null) {
+            for (StmtSql sql : node.loopOptimizable.sql) {
+                genCloseIfNotNull(stmtSlots.get(sql.sqlSerialNo));
+            }
+        }
+    }
+
+    private void genCloseIfNotNull(int stmt) {
+        Label skip = new Label();
+        mv.visitVarInsn(ALOAD, stmt);
+        mv.visitJumpInsn(IFNULL, skip);
+        mv.visitVarInsn(ALOAD, stmt);
+        mv.visitMethodInsn(INVOKEINTERFACE, "java/sql/Statement", "close", "()V", true);
+        mv.visitLabel(skip);
+    }
+
+    private void enterLoop(DeclLabel label, Loop loop) {
+        loop.closingStmtsDepth = closingStmts.size();
+        loops.addFirst(loop);
+        if (label != null) {
+            labeledLoops.put(label, loop);
+        }
+    }
+
+    private void exitLoop(DeclLabel label) {
+        loops.removeFirst();
+        if (label != null) {
+            labeledLoops.remove(label);
+        }
+    }
+
+    // EXIT and CONTINUE jumping out of FOR loops with static SQL run their finally blocks
+    private void genCloseStmtsLeft(Loop target) {
+        for (int i = closingStmts.size() - 1; i >= target.closingStmtsDepth; i--) {
+            genCloseIfNotNull(closingStmts.get(i));
+        }
+    }
+
+    private Loop loopOf(DeclLabel label) {
+        Loop loop = (label == null) ? loops.peekFirst() : labeledLoops.get(label);
+        assert loop != null;
+        return loop;
+    }
+
+    private int slotOf(DeclId decl) {
+
+        Integer slot;
+        int level = decl.scope().level;
+        if (level <= routineLevel) {
+            // declared in an enclosing routine
+            if (currRoutine == null) {
+                throw new RuntimeException("unreachable");
+            }
+            if (collecting) {
+                currRoutine.captured.add(decl);
+                return 0;
+            }
+            slot = capturedSlots.get(decl);
+        } else if (decl instanceof DeclParam && level == routineLevel + 1) {
+            slot = paramSlots.get(((DeclParam) decl).name);
+        } else {
+            slot = slots.get(decl);
+        }
+
+        if (slot == null) {
+            // e.g. a variable used by a local routine called before the variable is declared
+            throw new NotSupported(decl.kind() + " " + decl.name() + " used before declared");
+        }
+        return slot;
+    }
+
+    private int exVarSlotOf(int depth) {
+        Integer slot = exVarSlots.get(depth);
+        if (slot == null) {
+            // SQLCODE or SQLERRM of an exception handler of an enclosing routine
+            throw new NotSupported("SQLCODE or SQLERRM out of an exception handler");
+        }
+        return slot;
+    }
+
+    private static Class<?> javaClassOfParam(DeclParam dp) {
+        Class<?> ty = javaClassOf(dp.typeSpec.type);
+        return (dp instanceof DeclParamOut) ? Array.newInstance(ty, 0).getClass() : ty;
+    }
+
+    private static Class<?> javaClassOfReturn(DeclRoutine routine) {
+        return routine.retTypeSpec == null ? void.class : javaClassOf(routine.retTypeSpec.type);
+    }
+
+    // Java type of a captured declaration as passed to the method of a local routine
+    private static Class<?> javaClassOfCaptured(DeclId decl) {
+        if (decl instanceof DeclForIter) {
+            return int.class;
+        }
+
+        Class<?> ty = javaClassOf(decl.type());
+        if (decl instanceof DeclVar || decl instanceof DeclParamOut) {
+            return Array.newInstance(ty, 0).getClass();
+        } else if (decl instanceof DeclParamIn
+                || decl instanceof DeclConst
+                || decl instanceof DeclCursor) {
+            return ty;
+        } else {
+            throw new NotSupported(decl.kind() + " references");
+        }
+    }
+
+    private static Class<?> javaClassOf(Type ty) {
+
+        if (ty == Type.NULL) {
+            return NULL_TYPE;
+        }
+        if (ty instanceof TypeRecord) {
+            return Object[].class;
+        }
+        if (ty == Type.RECORD_ANY) {
+            throw new NotSupported("records of dynamic SQL");
+        }
+        if (ty.idx == Type.IDX_CURSOR || ty.idx == Type.IDX_SYS_REFCURSOR) {
+            return Query.class;
+        }
+
+        try {
+            return Class.forName(ty.fullJavaType, false, BytecodeWriter.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new NotSupported("values of type " + ty.plcName);
+        }
+    }
+
+    private static String internalNameOf(Class<?> c) {
+        return org.objectweb.asm.Type.getInternalName(c);
+    }
+
+    private static String descriptorOf(Class<?> c) {
+        return org.objectweb.asm.Type.getDescriptor(c);
+    }
+
+    private static boolean isAssignable(Class<?> to, Class<?> from) {
+        if (from == NULL_TYPE) {
+            return !to.isPrimitive();
+        } else {
+            return to.isAssignableFrom(from);
+        }
+    }
+
+    // chooses the most specific one among the applicable static methods as javac does.
+    // The arguments are all of reference types, and so boxing and unboxing are not considered.
+    private static Method findMethod(Class<?> owner, String name, Class<?>... argTypes) {
+
+        List<Method> applicable = new ArrayList<>();
+        for (Method m : getStaticMethods(owner, name)) {
+            Class<?>[] paramTypes = m.getParameterTypes();
+            if (paramTypes.length != argTypes.length) {
+                continue;
+            }
+
+            boolean ok = true;
+            for (int i = 0; i < argTypes.length; i++) {
+                if (argTypes[i].isPrimitive()
+                        ? paramTypes[i] != argTypes[i]
+                        : !isAssignable(paramTypes[i], argTypes[i])) {
+                    ok = false;
+                    break;
+                }
+            }
+            if (ok) {
+                applicable.add(m);
+            }
+        }
+
+        return getMostSpecific(applicable, name);
+    }
+
+    // same as findMethod() for methods of the form m(T, T...) called with a variable arity
+    private static Method findVarargsMethod(
+            Class<?> owner, String name, Class<?> firstType, Class<?>[] restTypes) {
+
+        List<Method> applicable = new ArrayList<>();
+        for (Method m : getStaticMethods(owner, name)) {
+            Class<?>[] paramTypes = m.getParameterTypes();
+            if (!m.isVarArgs() || paramTypes.length != 2) {
+                continue;
+            }
+            if (!isAssignable(paramTypes[0], firstType)) {
+                continue;
+            }
+
+            Class<?> elemType = paramTypes[1].getComponentType();
+            boolean ok = true;
+            for (Class<?> t : restTypes) {
+                if (!isAssignable(elemType, t)) {
+                    ok = false;
+                    break;
+                }
+            }
+            if (ok) {
+                applicable.add(m);
+            }
+        }
+
+        return getMostSpecific(applicable, name);
+    }
+
+    private static List<Method> getStaticMethods(Class<?> owner, String name) {
+
+        if (owner == SpLib.class) {
+            List<Method> ret = spLibMethods.get(name);
+            return ret == null ? new ArrayList<Method>() : ret;
+        }
+
+        List<Method> ret = new ArrayList<>();
+        for (Method m : owner.getMethods()) {
+            if (Modifier.isStatic(m.getModifiers()) && m.getName().equals(name)) {
+                ret.add(m);
+            }
+        }
+        return ret;
+    }
+
+    private static Method getMostSpecific(List<Method> applicable, String name) {
+
+        for (Method m : applicable) {
+            boolean mostSpecific = true;
+            for (Method other : applicable) {
+                if (m != other && !isMoreSpecific(m, other)) {
+                    mostSpecific = false;
+                    break;
+                }
+            }
+            if (mostSpecific) {
+                return m;
+            }
+        }
+
+        throw new NotSupported(
+                applicable.isEmpty() ? "no applicable method " + name : "ambiguous method " + name);
+    }
+
+    private static boolean isMoreSpecific(Method m, Method other) {
+
+        Class<?>[] mParams = m.getParameterTypes();
+        Class<?>[] otherParams = other.getParameterTypes();
+        for (int i = 0; i < mParams.length; i++) {
+            Class<?> p = mParams[i];
+            Class<?> q = otherParams[i];
+            if (m.isVarArgs() && i == mParams.length - 1) {
+                p = p.getComponentType();
+                q = q.getComponentType();
+            }
+            if (!q.isAssignableFrom(p)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
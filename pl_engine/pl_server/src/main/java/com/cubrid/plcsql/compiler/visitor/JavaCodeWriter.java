@@ -76,10 +76,9 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
         CodeToResolve ctr = visitUnit(unit);
         ctr.resolve(0, codeLines, codeRangeMarkers);
 
+        codeLines.add("  private static final String codeRanges = \"" + codeRangeMarkers + "\";");
         codeLines.add(
-                "  private static List<CodeRangeMarker> codeRangeMarkerList = buildCodeRangeMarkerList(\""
-                        + codeRangeMarkers
-                        + "\");");
+                "  private static final int[] codeRangeTable = buildCodeRangeTable(codeRanges);");
         codeLines.add("}");
 
         return String.join("\n", codeLines);
@@ -114,31 +113,36 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
                 "    %'+NULLIFY-OUT-PARAMETERS'%",
                 "    try {",
                 "      Long[] sql_rowcount = new Long[] { null };",
+                "      BulkRowCount[] sql_bulk_rowcount = new BulkRowCount[] { null };",
                 "      %'GET-CONNECTION'%",
                 "      %'+DECL-CLASS'%",
                 "      %'+BODY'%",
                 // exceptions that escaped from the exception handlers of the body
+                // (their positions are set by the handlers PlcsqlPositionWeaver adds)
                 "    } catch (PlcsqlRuntimeError e) {",
                 "      Throwable c = e.getCause();",
-                "      int[] pos = getPlcLineColumn(codeRangeMarkerList, c == null ? e : c, \"%'CLASS-NAME'%.java\");",
-                "      throw e.setPlcLineColumn(pos);",
+                "      if (c != null) {",
+                // a Java exception converted in an exception handling block
+                "        e.setPlcLineColumn(getPlcLineColumn(codeRangeTable, c, \"%'CLASS-NAME'%.java\"));",
+                "      }",
+                "      throw e;",
                 // exceptions raised in an exception handler
                 "    } catch (OutOfMemoryError e) {",
                 "      Server.log(e);",
-                "      int[] pos = getPlcLineColumn(codeRangeMarkerList, e, \"%'CLASS-NAME'%.java\");",
+                "      int[] pos = getPlcLineColumn(codeRangeTable, e, \"%'CLASS-NAME'%.java\");",
                 "      throw new STORAGE_ERROR().setPlcLineColumn(pos);",
                 "    } catch (StackOverflowError e) {",
                 "      Server.log(e);",
-                "      int[] pos = getPlcLineColumn(codeRangeMarkerList, e, \"%'CLASS-NAME'%.java\");",
+                "      int[] pos = getPlcLineColumn(codeRangeTable, e, \"%'CLASS-NAME'%.java\");",
                 "      throw new PROGRAM_ERROR(\"stack overflow\").setPlcLineColumn(pos);",
                 "    } catch (ClassCastException e) {",
                 "      Server.log(e);",
-                "      int[] pos = getPlcLineColumn(codeRangeMarkerList, e, \"%'CLASS-NAME'%.java\");",
+                "      int[] pos = getPlcLineColumn(codeRangeTable, e, \"%'CLASS-NAME'%.java\");",
                 "      throw new PROGRAM_ERROR(\"type of a value does not match the one known at compile time"
                         + " (hint: try recompiling this stored procedure)\").setPlcLineColumn(pos);",
                 "    } catch (Throwable e) {",
                 "      Server.log(e);",
-                "      int[] pos = getPlcLineColumn(codeRangeMarkerList, e, \"%'CLASS-NAME'%.java\");",
+                "      int[] pos = getPlcLineColumn(codeRangeTable, e, \"%'CLASS-NAME'%.java\");",
                 "      throw new PROGRAM_ERROR().setPlcLineColumn(pos);",
                 "    }",
                 "  }",
@@ -400,7 +404,7 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
 
         String code =
                 String.format(
-                        "final Query %s = new Query(\"%s\"); // param-ref-counts: %s, param-num-of-host-expr: %s",
+                        "final Query %s = new Query(\"%s\", true); // param-ref-counts: %s, param-num-of-host-expr: %s",
                         node.name,
                         node.staticSql.rewritten,
                         Arrays.toString(node.paramRefCounts),
@@ -674,12 +678,21 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
             new String[] {
                 "(new Object() { // global function call: %'FUNC-NAME'%",
                 "  %'RETURN-TYPE'% invoke(%'PARAMETERS'%) throws Exception {",
+                "    RoutineLink link = getRoutineLink(\"%'FUNC-NAME'%\");",
+                "    if (link != null) {",
+                "      Object[] args = new Object[] { %'DIRECT-ARGS'% };",
+                "      if (link.accepts(%'RETURN-TYPE'%.class, args)) {",
+                "        %'RETURN-TYPE'% ret = (%'RETURN-TYPE'%) invokeRoutineLink(link, args);",
+                "        %'+UPDATE-DIRECT-OUT-ARGS'%",
+                "        return ret;",
+                "      }",
+                "    }",
                 "    try {",
                 "      String dynSql = \"%'DYNAMIC-SQL'%\";",
                 "      CallableStatement stmt = conn.prepareCall(dynSql);",
                 "      stmt.registerOutParameter(1, java.sql.Types.OTHER);",
                 "      %'+SET-GLOBAL-FUNC-ARGS'%",
-                "      stmt.execute();",
+                "      executeRoutineCall(stmt, \"%'FUNC-NAME'%\");",
                 "      %'RETURN-TYPE'% ret = (%'RETURN-TYPE'%) stmt.getObject(1);",
                 "      %'+UPDATE-GLOBAL-FUNC-OUT-ARGS'%",
                 "      stmt.close();",
@@ -704,6 +717,7 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
         String wrapperParam = getCallWrapperParam(argSize, node.args, node.decl.paramList);
         GlobalCallCodeSnippets code =
                 getGlobalCallCodeSnippets(argSize, 2, node.args, node.decl.paramList);
+        javaTypesUsed.add("com.cubrid.jsp.RoutineLink");
 
         CodeTemplate tmpl =
                 new CodeTemplate(
@@ -722,6 +736,10 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
                         code.setArgs,
                         "%'+UPDATE-GLOBAL-FUNC-OUT-ARGS'%",
                         code.updateOutArgs,
+                        "%'DIRECT-ARGS'%",
+                        code.directArgs,
+                        "%'+UPDATE-DIRECT-OUT-ARGS'%",
+                        code.updateDirectOutArgs,
                         "%'+ARGUMENTS'%",
                         visitArguments(node.args, node.decl.paramList, false));
 
@@ -800,6 +818,12 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
                 ")"
             };
 
+    private static String[] tmplExprNativeBuiltinFuncCall =
+            new String[] {"%'FUNC'%(", "  %'+ARGS'%", ")"};
+
+    private static String[] tmplExprNativeBuiltinFuncCallWithConn =
+            new String[] {"%'FUNC'%(conn,", "  %'+ARGS'%", ")"};
+
     @Override
     public CodeToResolve visitExprBuiltinFuncCall(ExprBuiltinFuncCall node) {
 
@@ -810,6 +834,31 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
         CodeTemplate tmpl;
 
         int argsLen = node.args.nodes.size();
+        if (node.getNativeFunc() != null) {
+
+            // evaluated in Java without a server round trip
+            assert argsLen > 0;
+            Class[] paramTypes = node.getNativeFunc().getParameterTypes();
+            boolean withConn = paramTypes.length > argsLen;
+
+            tmpl =
+                    new CodeTemplate(
+                            "ExprBuiltinFuncCall natively evaluated",
+                            Misc.getLineColumnOf(node.ctx),
+                            withConn
+                                    ? tmplExprNativeBuiltinFuncCallWithConn
+                                    : tmplExprNativeBuiltinFuncCall,
+                            "%'FUNC'%",
+                            node.getNativeFunc().getDeclaringClass().getName()
+                                    + "."
+                                    + node.getNativeFunc().getName(),
+                            // assumption: built-in functions do not have OUT parameters
+                            "%'+ARGS'%",
+                            visitNodeList(node.args).setDelimiter(","));
+
+            return applyCoercion(node.coercion, tmpl, node.ctx);
+        }
+
         String callStr = getNormalCallStr(node.name, argsLen);
 
         if (argsLen == 0) {
@@ -1056,7 +1105,7 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
                 "    try {",
                 "      BigDecimal ret;",
                 "      String dynSql = \"select %'SERIAL-NAME'%.%'SERIAL-VAL'%\";",
-                "      PreparedStatement stmt = conn.prepareStatement(dynSql);",
+                "      PreparedStatement stmt = prepareStatement(conn, dynSql, true);",
                 "      ResultSet r = stmt.executeQuery();",
                 "      if (r.next()) {",
                 "        ret = r.getBigDecimal(1);",
@@ -1102,6 +1151,22 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
         return applyCoercion(node.coercion, tmpl, node.ctx);
     }
 
+    private static String[] tmplExprSqlBulkRowCount =
+            new String[] {"getBulkRowCount(sql_bulk_rowcount[0],", "  %'+INDEX'%", ")"};
+
+    @Override
+    public CodeToResolve visitExprSqlBulkRowCount(ExprSqlBulkRowCount node) {
+
+        CodeTemplate tmpl =
+                new CodeTemplate(
+                        "ExprSqlBulkRowCount",
+                        Misc.getLineColumnOf(node.ctx),
+                        tmplExprSqlBulkRowCount,
+                        "%'+INDEX'%",
+                        visit(node.index));
+        return applyCoercion(node.coercion, tmpl, node.ctx);
+    }
+
     @Override
     public CodeToResolve visitExprStr(ExprStr node) {
 
@@ -1207,22 +1272,18 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
 
         if (node.val.coercion instanceof Coercion.NullToRecord) {
 
-            node.val.coercion = null; // small optimization: suppressing null record creation
-
             return new CodeTemplate(
                     "StmtAssign - null to record",
                     Misc.getLineColumnOf(node.ctx),
                     tmplAssignNullToRecord,
                     "%'+SRC-EXPR'%",
-                    visit(node.val),
+                    visitWithoutCoercion(node.val),
                     "%'+DST-EXPR'%",
                     visit(node.target));
 
         } else if (node.val.coercion instanceof Coercion.RecordToRecord) {
 
             Coercion c = node.val.coercion;
-            node.val.coercion = null; // small optimization: suppressing null record creation
-
             return new CodeTemplate(
                     "StmtAssign - record to record",
                     Misc.getLineColumnOf(node.ctx),
@@ -1232,7 +1293,7 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
                     "%'DST-RECORD'%",
                     c.dst.javaCode,
                     "%'+SRC-EXPR'%",
-                    visit(node.val),
+                    visitWithoutCoercion(node.val),
                     "%'+DST-EXPR'%",
                     visit(node.target));
         }
@@ -1267,6 +1328,17 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
         }
     }
 
+    // small optimization: suppressing null record creation. The coercion is restored afterwards
+    // since the AST is also given to BytecodeWriter
+    private CodeToResolve visitWithoutCoercion(Expr val) {
+        Coercion c = val.coercion;
+        val.coercion = null;
+        CodeToResolve ret = visit(val);
+        val.coercion = c;
+
+        return ret;
+    }
+
     // -------------------------------------------------------------------------
     // StmtBasicLoop
     //
@@ -1557,7 +1629,7 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
                 "  try {",
                 "    String dynSql_%'LEVEL'% = checkNotNull(",
                 "      %'+SQL'%, \"SQL part was evaluated to NULL\");",
-                "    pstmt_%'SQL-SERIAL-NO'% = conn.prepareStatement(dynSql_%'LEVEL'%);",
+                "    pstmt_%'SQL-SERIAL-NO'% = prepareStatement(conn, dynSql_%'LEVEL'%, %'IS-STATIC'%);",
                 "    %'+BAN-INTO-CLAUSE'%",
                 "    %'+SET-USED-EXPR'%",
                 "    if (pstmt_%'SQL-SERIAL-NO'%.execute()) {",
@@ -1587,7 +1659,7 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
                 "      %'+SQL'%, \"SQL part was evaluated to NULL\");",
                 "    if (pstmt_%'SQL-SERIAL-NO'% == null) {",
                 // check if it is null to prepare the statement only once
-                "      pstmt_%'SQL-SERIAL-NO'% = conn.prepareStatement(dynSql_%'LEVEL'%);",
+                "      pstmt_%'SQL-SERIAL-NO'% = prepareStatement(conn, dynSql_%'LEVEL'%, %'IS-STATIC'%);",
                 "    }",
                 "    %'+BAN-INTO-CLAUSE'%",
                 "    %'+SET-USED-EXPR'%",
@@ -1720,6 +1792,8 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
                 node.outermostLoop == null ? tmplStmtSqlNotInLoop : tmplStmtSqlInLoop,
                 "%'KIND'%",
                 node.dynamic ? "dynamic" : "static",
+                "%'IS-STATIC'%",
+                node.dynamic ? "false" : "true",
                 "%'SQL-SERIAL-NO'%",
                 "" + node.sqlSerialNo,
                 "%'+SQL'%",
@@ -1960,7 +2034,7 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
                 "    %'RECORD-CLASS'%[] %'RECORD'% = new %'RECORD-CLASS'%[] { new %'RECORD-CLASS'%() };",
                 "    String sql_%'LEVEL'% =",
                 "      %'+SQL'%;",
-                "    pstmt_%'SQL-SERIAL-NO'% = conn.prepareStatement(sql_%'LEVEL'%);",
+                "    pstmt_%'SQL-SERIAL-NO'% = prepareStatement(conn, sql_%'LEVEL'%, true);",
                 "    %'+SET-USED-EXPR'%",
                 "    ResultSet %'RECORD'%_r%'LEVEL'% = pstmt_%'SQL-SERIAL-NO'%.executeQuery();", // never
                 // null
@@ -2022,6 +2096,64 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
         }
     }
 
+    // -------------------------------------------------------------------------
+    // StmtForall
+    //
+
+    private static String[] tmplStmtForall =
+            new String[] {
+                "{ // FORALL with static SQL",
+                "  PreparedStatement pstmt_%'SQL-SERIAL-NO'% = null;",
+                "  try {",
+                "    int l%'LVL'% =",
+                "      %'+LOWER-BOUND'%;",
+                "    int u%'LVL'% =",
+                "      %'+UPPER-BOUND'%;",
+                "    pstmt_%'SQL-SERIAL-NO'% = prepareStatement(conn,",
+                "      %'+SQL'%, true);",
+                "    BulkRowCount bulk_%'SQL-SERIAL-NO'% = new BulkRowCount(l%'LVL'%, u%'LVL'%);",
+                "    sql_bulk_rowcount[0] = bulk_%'SQL-SERIAL-NO'%;",
+                "    int[] %'I'%_i%'LVL'% = new int[1];",
+                "    for (%'I'%_i%'LVL'%[0] = l%'LVL'%; %'I'%_i%'LVL'%[0] <= u%'LVL'%; %'I'%_i%'LVL'%[0]++) {",
+                "      %'+SET-USED-EXPR'%",
+                "      bulk_%'SQL-SERIAL-NO'%.addBatch(pstmt_%'SQL-SERIAL-NO'%);",
+                "    }",
+                "    bulk_%'SQL-SERIAL-NO'%.executeBatch(pstmt_%'SQL-SERIAL-NO'%);",
+                "    sql_rowcount[0] = bulk_%'SQL-SERIAL-NO'%.getTotal();",
+                "  } catch (SQLException e) {",
+                "    Server.log(e);",
+                "    throw new SQL_ERROR(e.getMessage());",
+                "  } finally {",
+                "    if (pstmt_%'SQL-SERIAL-NO'% != null) {",
+                "      pstmt_%'SQL-SERIAL-NO'%.close();",
+                "    }",
+                "  }",
+                "}"
+            };
+
+    @Override
+    public CodeToResolve visitStmtForall(StmtForall node) {
+
+        return new CodeTemplate(
+                "StmtForall",
+                Misc.getLineColumnOf(node.ctx),
+                tmplStmtForall,
+                "%'SQL-SERIAL-NO'%",
+                "" + node.sqlSerialNo,
+                "%'LVL'%",
+                Integer.toString(node.iter.scope.level),
+                "%'I'%",
+                node.iter.name,
+                "%'+LOWER-BOUND'%",
+                visit(node.lowerBound),
+                "%'+UPPER-BOUND'%",
+                visit(node.upperBound),
+                "%'+SQL'%",
+                visit(node.sql),
+                "%'+SET-USED-EXPR'%",
+                getSetUsedExpr(node.usedExprList));
+    }
+
     // -------------------------------------------------------------------------
     // StmtGlobalProcCall
     //
@@ -2030,11 +2162,20 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
             new String[] {
                 "new Object() { // global procedure call: %'PROC-NAME'%",
                 "  void invoke(%'PARAMETERS'%) throws Exception {",
+                "    RoutineLink link = getRoutineLink(\"%'PROC-NAME'%\");",
+                "    if (link != null) {",
+                "      Object[] args = new Object[] { %'DIRECT-ARGS'% };",
+                "      if (link.accepts(void.class, args)) {",
+                "        invokeRoutineLink(link, args);",
+                "        %'+UPDATE-DIRECT-OUT-ARGS'%",
+                "        return;",
+                "      }",
+                "    }",
                 "    try {",
                 "      String dynSql = \"%'DYNAMIC-SQL'%\";",
                 "      CallableStatement stmt = conn.prepareCall(dynSql);",
                 "      %'+SET-GLOBAL-PROC-ARGS'%",
-                "      stmt.execute();",
+                "      executeRoutineCall(stmt, \"%'PROC-NAME'%\");",
                 "      %'+UPDATE-GLOBAL-PROC-OUT-ARGS'%",
                 "      stmt.close();",
                 "    } catch (SQLException e) {",
@@ -2057,6 +2198,7 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
         String wrapperParam = getCallWrapperParam(argSize, node.args, node.decl.paramList);
         GlobalCallCodeSnippets code =
                 getGlobalCallCodeSnippets(argSize, 1, node.args, node.decl.paramList);
+        javaTypesUsed.add("com.cubrid.jsp.RoutineLink");
 
         return new CodeTemplate(
                 "StmtGlobalProcCall",
@@ -2072,6 +2214,10 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
                 code.setArgs,
                 "%'+UPDATE-GLOBAL-PROC-OUT-ARGS'%",
                 code.updateOutArgs,
+                "%'DIRECT-ARGS'%",
+                code.directArgs,
+                "%'+UPDATE-DIRECT-OUT-ARGS'%",
+                code.updateDirectOutArgs,
                 "%'+ARGUMENTS'%",
                 visitArguments(node.args, node.decl.paramList, false));
     }
@@ -2918,6 +3064,8 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
     private static class GlobalCallCodeSnippets {
         String[] setArgs;
         String[] updateOutArgs;
+        String directArgs;
+        String[] updateDirectOutArgs;
     }
 
     private GlobalCallCodeSnippets getGlobalCallCodeSnippets(
@@ -2925,11 +3073,17 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
 
         List<String> setArgs = new LinkedList<>();
         List<String> updateOutArgs = new LinkedList<>();
+        StringBuilder directArgs = new StringBuilder();
+        List<String> updateDirectOutArgs = new LinkedList<>();
 
         for (int i = 0; i < size; i++) {
 
             DeclParam param = paramList.nodes.get(i);
 
+            if (i > 0) {
+                directArgs.append(", ");
+            }
+
             if (param instanceof DeclParamOut) {
 
                 // fill setArgs
@@ -2942,38 +3096,48 @@ public class JavaCodeWriter extends AstVisitor<JavaCodeWriter.CodeToResolve> {
                 Coercion c = id.coercion;
                 assert c != null;
 
+                String paramType = getJavaCodeOfType(param.typeSpec);
                 if (((DeclParamOut) param).alsoIn) {
                     String paramVal = "o" + i + "[0]";
                     setArgs.add(
                             String.format(
                                     "stmt.setObject(%d, %s);",
                                     i + argOffset, c.javaCode(paramVal)));
+                    directArgs.append(
+                            String.format("new %s[] { %s }", paramType, c.javaCode(paramVal)));
+                } else {
+                    directArgs.append(String.format("new %s[] { null }", paramType));
                 }
 
                 // fill updateOutArgs
                 Coercion cRev = c.getReversion(iStore);
                 assert cRev != null; // by earlier check
-                String outVal =
-                        String.format(
-                                "(%s) stmt.getObject(%d)",
-                                getJavaCodeOfType(param.typeSpec), i + argOffset);
+                String outVal = String.format("(%s) stmt.getObject(%d)", paramType, i + argOffset);
                 updateOutArgs.add(String.format("o%d[0] = %s;", i, cRev.javaCode(outVal)));
+                String directOutVal = String.format("((%s[]) args[%d])[0]", paramType, i);
+                updateDirectOutArgs.add(
+                        String.format("o%d[0] = %s;", i, cRev.javaCode(directOutVal)));
 
                 DeclId declId = id.decl;
                 if (declId instanceof DeclVar && ((DeclVar) declId).notNull) {
-                    updateOutArgs.add(
+                    String checkNotNull =
                             String.format(
                                     "checkNotNull(o%d[0], \"a not-null variable %s was set NULL by this call\");",
-                                    i, id.name));
+                                    i, id.name);
+                    updateOutArgs.add(checkNotNull);
+                    updateDirectOutArgs.add(checkNotNull);
                 }
             } else {
                 setArgs.add(String.format("stmt.setObject(%d, o%d);", i + argOffset, i));
+                directArgs.append("o" + i);
             }
         }
 
         GlobalCallCodeSnippets ret = new GlobalCallCodeSnippets();
         ret.setArgs = setArgs.toArray(DUMMY_STRING_ARRAY);
         ret.updateOutArgs = updateOutArgs.toArray(DUMMY_STRING_ARRAY);
+        ret.directArgs = directArgs.toString();
+        ret.updateDirectOutArgs = updateDirectOutArgs.toArray(DUMMY_STRING_ARRAY);
         return ret;
     }
 
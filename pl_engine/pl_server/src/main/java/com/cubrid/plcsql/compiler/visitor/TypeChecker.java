@@ -657,9 +657,14 @@ public class TypeChecker extends AstVisitor<Type> {
     @Override
     public Type visitExprBuiltinFuncCall(ExprBuiltinFuncCall node) {
 
-        String tvStr = checkArgsAndConvertToTypicalValuesStr(node.args.nodes, node.name);
+        List<Type> argTypes = new ArrayList<>();
+        String tvStr = checkArgsAndConvertToTypicalValuesStr(node.args.nodes, node.name, argTypes);
         String sql = String.format("select %s%s from dual", node.name, tvStr);
-        return typeBuiltinFuncCall(node, node.name, sql);
+        Type ret = typeBuiltinFuncCall(node, node.name, sql);
+
+        // evaluate it in Java if possible
+        node.setNativeFunc(SymbolStack.getNativeBuiltinFunc(node.name, argTypes, ret));
+        return ret;
     }
 
     // -------------------------------------------------------------------------
@@ -796,6 +801,21 @@ public class TypeChecker extends AstVisitor<Type> {
         return Type.BIGINT;
     }
 
+    @Override
+    public Type visitExprSqlBulkRowCount(ExprSqlBulkRowCount node) {
+        Type ty = visit(node.index);
+        Coercion c = Coercion.getCoercion(iStore, ty, Type.INT);
+        if (c == null) {
+            throw new SemanticError(
+                    Misc.getLineColumnOf(node.index.ctx), // s438
+                    "indexes of SQL%BULK_ROWCOUNT must have a type compatible with INT");
+        } else {
+            node.index.setCoercion(c);
+        }
+
+        return Type.BIGINT;
+    }
+
     @Override
     public Type visitExprStr(ExprStr node) {
         return TypeChar.getInstance(iStore, TypeChar.MAX_LEN);
@@ -1189,6 +1209,36 @@ public class TypeChecker extends AstVisitor<Type> {
         return null;
     }
 
+    @Override
+    public Type visitStmtForall(StmtForall node) {
+        Type ty;
+        Coercion c;
+
+        ty = visit(node.lowerBound);
+        c = Coercion.getCoercion(iStore, ty, Type.INT);
+        if (c == null) {
+            throw new SemanticError(
+                    Misc.getLineColumnOf(node.lowerBound.ctx), // s439
+                    "lower bounds of FORALL statements must have a type compatible with INT");
+        } else {
+            node.lowerBound.setCoercion(c);
+        }
+
+        ty = visit(node.upperBound);
+        c = Coercion.getCoercion(iStore, ty, Type.INT);
+        if (c == null) {
+            throw new SemanticError(
+                    Misc.getLineColumnOf(node.upperBound.ctx), // s440
+                    "upper bounds of FORALL statements must have a type compatible with INT");
+        } else {
+            node.upperBound.setCoercion(c);
+        }
+
+        typeCheckHostExprs(node.staticSql); // s441
+
+        return null;
+    }
+
     @Override
     public Type visitStmtForStaticSqlLoop(StmtForStaticSqlLoop node) {
 
@@ -1339,6 +1389,11 @@ public class TypeChecker extends AstVisitor<Type> {
     }
 
     private String checkArgAndGetTypicalValueStr(Expr arg) {
+        return checkArgAndGetTypicalValueStr(arg, null);
+    }
+
+    // the type of the argument is added to outArgTypes if it is not null
+    private String checkArgAndGetTypicalValueStr(Expr arg, List<Type> outArgTypes) {
 
         String ret;
         if (arg instanceof SqlLiteral) {
@@ -1349,15 +1404,22 @@ public class TypeChecker extends AstVisitor<Type> {
             } else {
                 ret = arg.ctx.getText();
             }
+            if (outArgTypes != null) {
+                outArgTypes.add(visit(arg));
+            }
         } else {
             Type argType = visit(arg);
             ret = argType.typicalValueStr;
+            if (outArgTypes != null) {
+                outArgTypes.add(argType);
+            }
         }
 
         return ret;
     }
 
-    private String checkArgsAndConvertToTypicalValuesStr(List<Expr> args, String funcName) {
+    private String checkArgsAndConvertToTypicalValuesStr(
+            List<Expr> args, String funcName, List<Type> outArgTypes) {
 
         if (args.size() == 0) {
             if (SymbolStack.noParenBuiltInFunc.indexOf(funcName) >= 0) {
@@ -1374,7 +1436,7 @@ public class TypeChecker extends AstVisitor<Type> {
         for (int i = 0; i < len; i++) {
 
             Expr arg = args.get(i);
-            String typicalValueStr = checkArgAndGetTypicalValueStr(arg);
+            String typicalValueStr = checkArgAndGetTypicalValueStr(arg, outArgTypes);
 
             if (typicalValueStr == null) {
                 throw new SemanticError(
@@ -30,6 +30,10 @@
 
 package com.cubrid.plcsql.predefined;
 
+import com.cubrid.jsp.context.Context;
+import com.cubrid.jsp.context.ContextManager;
+import java.lang.reflect.Field;
+
 public class PlcsqlRuntimeError extends RuntimeException {
 
     public final int code;
@@ -53,10 +57,72 @@ public class PlcsqlRuntimeError extends RuntimeException {
         return this;
     }
 
+    // called by the exception handlers PlcsqlPositionWeaver adds to the generated code, first by
+    // the one of the innermost code range where this error is thrown
+    public PlcsqlRuntimeError setPlcLineColumnIfUnknown(int line, int column) {
+        if (this.line == -1) {
+            this.line = line;
+            this.column = column;
+        }
+        return this;
+    }
+
+    // the position in PL/CSQL code is not found from the stack trace (see PlcsqlPositionWeaver).
+    // it is filled only if requested by stored_procedure_error_stack_trace for debugging, because
+    // errors like NO_DATA_FOUND can be raised and handled repeatedly in a loop, or while a legacy
+    // class is running (see isLegacyClass()).
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        if (inLegacyClass.get()[0]) {
+            return super.fillInStackTrace();
+        }
+
+        Context ctx = ContextManager.getContextofCurrentThread();
+        if (ctx == null || ctx.getSessionSettings().errorStackTrace) {
+            return super.fillInStackTrace();
+        } else {
+            return this;
+        }
+    }
+
+    // classes compiled by the previous versions do not have code range tables and are not woven by
+    // PlcsqlPositionWeaver. they find the positions of errors from the stack traces, see
+    // SpLib.getPlcLineColumn(List<CodeRangeMarker>, ...)
+    public static boolean isLegacyClass(Class<?> c) {
+        return legacyClasses.get(c);
+    }
+
+    // called around the invocation of a routine with whether its class is a legacy one, and
+    // with the returned value after it, to restore the caller's
+    public static boolean setInLegacyClass(boolean legacy) {
+        boolean[] flag = inLegacyClass.get();
+        boolean old = flag[0];
+        flag[0] = legacy;
+        return old;
+    }
+
     // --------------------------------------------
     // Private
     // --------------------------------------------
 
+    private static final String LEGACY_CODE_RANGES_FIELD = "codeRangeMarkerList";
+
+    private static final ClassValue<Boolean> legacyClasses =
+            new ClassValue<Boolean>() {
+                @Override
+                protected Boolean computeValue(Class<?> c) {
+                    for (Field f : c.getDeclaredFields()) {
+                        if (LEGACY_CODE_RANGES_FIELD.equals(f.getName())) {
+                            return Boolean.TRUE;
+                        }
+                    }
+                    return Boolean.FALSE;
+                }
+            };
+
+    private static final ThreadLocal<boolean[]> inLegacyClass =
+            ThreadLocal.withInitial(() -> new boolean[1]);
+
     private int line = -1; // -1: unknown yet
     private int column = -1;
 }
@@ -30,9 +30,16 @@
 
 package com.cubrid.plcsql.predefined.sp;
 
+import com.cubrid.jsp.ExecuteThread;
+import com.cubrid.jsp.RoutineLink;
+import com.cubrid.jsp.RoutineLinkCache;
 import com.cubrid.jsp.Server;
-import com.cubrid.jsp.SysParam;
+import com.cubrid.jsp.StoredProcedure;
 import com.cubrid.jsp.context.Context;
+import com.cubrid.jsp.context.SessionSettings;
+import com.cubrid.jsp.jdbc.CUBRIDServerSideConnection;
+import com.cubrid.jsp.jdbc.CUBRIDServerSidePreparedStatement;
+import com.cubrid.jsp.metrics.RoutineMetrics;
 import com.cubrid.jsp.value.DateTimeParser;
 import com.cubrid.plcsql.builtin.DBMS_OUTPUT;
 import com.cubrid.plcsql.compiler.CoercionScheme;
@@ -53,6 +60,7 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -225,6 +233,97 @@ public class SpLib {
     // To provide line and column numbers for run-time exceptions
     //
 
+    // A code range table has a triple {Java line, PL/CSQL line, PL/CSQL column} for each Java line
+    // where the innermost code range changes, sorted by the Java line. The PL/CSQL line and column
+    // are -1 after the outermost code range.
+    public static int[] buildCodeRangeTable(String markers) {
+
+        String[] split = markers.split(" ");
+        assert split[0].length() == 0 && split[1].charAt(0) == '(';
+
+        int[] table = new int[(split.length - 1) * 3];
+        int len = 0;
+
+        // positions of the code ranges containing the current Java line, innermost last
+        int[] stack = new int[16];
+        int height = 0;
+
+        for (int i = 1; i < split.length; i++) {
+
+            String s = split[i];
+
+            int javaLine;
+            if (s.charAt(0) == '(') {
+                // beginning marker of the form '(<java-line>,<plc-line>,<plc-column>'
+                String[] split2 = s.substring(1).split(",");
+                assert split2.length == 3;
+                javaLine = Integer.parseInt(split2[0]);
+                if (height * 2 == stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[height * 2] = Integer.parseInt(split2[1]);
+                stack[height * 2 + 1] = Integer.parseInt(split2[2]);
+                height++;
+            } else {
+                // ending marker of the form ')<java-line>'
+                assert s.charAt(0) == ')';
+                javaLine = Integer.parseInt(s.substring(1));
+                height--;
+            }
+            assert height >= 0;
+
+            if (len > 0 && table[len - 3] == javaLine) {
+                len -= 3; // the markers at the same line: the last one decides
+            }
+            table[len] = javaLine;
+            table[len + 1] = (height == 0) ? -1 : stack[height * 2 - 2];
+            table[len + 2] = (height == 0) ? -1 : stack[height * 2 - 1];
+            len += 3;
+        }
+        assert height == 0;
+
+        return Arrays.copyOf(table, len);
+    }
+
+    // returns the index in the code range table of the triple for the Java line, or -1 if the line
+    // is before the first code range
+    public static int findCodeRange(int[] table, int javaLine) {
+        int lo = 0;
+        int hi = table.length / 3 - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (table[mid * 3] <= javaLine) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi * 3;
+    }
+
+    // for Java exceptions, which have their stack traces.
+    // PlcsqlRuntimeErrors get their positions from the handlers added by PlcsqlPositionWeaver
+    public static int[] getPlcLineColumn(int[] table, Throwable thrown, String fileName) {
+
+        // get exception line number in the generated Java class
+        int exceptionJavaLine = 0;
+        for (StackTraceElement e : thrown.getStackTrace()) {
+            if (fileName.equals(e.getFileName())) {
+                exceptionJavaLine = e.getLineNumber();
+                break;
+            }
+        }
+
+        int i = (exceptionJavaLine > 0) ? findCodeRange(table, exceptionJavaLine) : -1;
+        if (i < 0 || table[i + 1] < 0) {
+            return UNKNOWN_LINE_COLUMN;
+        }
+        return new int[] {table[i + 1], table[i + 2]};
+    }
+
+    // getPlcLineColumn(), buildCodeRangeMarkerList() and CodeRangeMarker below are used by the
+    // classes compiled by the previous versions, which do not have code range tables
+
     public static int[] getPlcLineColumn(
             List<CodeRangeMarker> crmList, Throwable thrown, String fileName) {
 
@@ -330,7 +429,7 @@ public class SpLib {
         String query = String.format("select %s from dual", callStr);
 
         try {
-            PreparedStatement pstmt = conn.prepareStatement(query);
+            PreparedStatement pstmt = prepareStatement(conn, query, true);
             for (int i = 0; i < argsLen; i++) {
                 pstmt.setObject(i + 1, args[i]);
             }
@@ -396,6 +495,169 @@ public class SpLib {
         }
     }
 
+    // a static SQL statement is taken from the statement cache of the server-side connection
+    public static PreparedStatement prepareStatement(Connection conn, String sql, boolean isStatic)
+            throws SQLException {
+        if (isStatic && conn instanceof CUBRIDServerSideConnection) {
+            return ((CUBRIDServerSideConnection) conn).prepareCachedStatement(sql);
+        } else {
+            return conn.prepareStatement(sql);
+        }
+    }
+
+    public static class BulkRowCount {
+
+        // number of rows sent to the server in one batch execution
+        public static final int BATCH_SIZE = 1000;
+
+        private final int lowerBound;
+        private final int[] counts;
+        private int executed = 0;
+        private int batched = 0;
+        private long total = 0;
+
+        public BulkRowCount(int lowerBound, int upperBound) {
+            long n = (upperBound < lowerBound) ? 0 : (long) upperBound - lowerBound + 1;
+            if (n > Integer.MAX_VALUE) {
+                throw new VALUE_ERROR(
+                        "too many iterations in FORALL: " + lowerBound + " .. " + upperBound);
+            }
+
+            this.lowerBound = lowerBound;
+            this.counts = new int[(int) n];
+        }
+
+        public void addBatch(PreparedStatement pstmt) throws SQLException {
+            pstmt.addBatch();
+            batched++;
+            if (batched >= BATCH_SIZE) {
+                executeBatch(pstmt);
+            }
+        }
+
+        public void executeBatch(PreparedStatement pstmt) throws SQLException {
+            if (batched == 0) {
+                return;
+            }
+
+            batched = 0;
+            int[] results;
+            try {
+                if (pstmt instanceof CUBRIDServerSidePreparedStatement) {
+                    // FORALL ends at the failed row: the rows after it must not be executed
+                    results = ((CUBRIDServerSidePreparedStatement) pstmt).executeBatch(true);
+                } else {
+                    results = pstmt.executeBatch();
+                }
+            } catch (BatchUpdateException e) {
+                // the rows executed before the failed one are still counted
+                record(e.getUpdateCounts());
+                throw e;
+            }
+            record(results);
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        private void record(int[] results) {
+            if (results == null) {
+                return;
+            }
+
+            for (int c : results) {
+                if (c == Statement.EXECUTE_FAILED || executed >= counts.length) {
+                    break;
+                }
+
+                c = Math.max(c, 0); // SUCCESS_NO_INFO
+                counts[executed++] = c;
+                total += c;
+            }
+        }
+
+        public Long get(int index) {
+            int i = index - lowerBound;
+            if (i < 0 || i >= executed) {
+                return null;
+            }
+
+            return (long) counts[i];
+        }
+    }
+
+    public static Long getBulkRowCount(BulkRowCount bulk, Integer index) {
+        if (bulk == null || index == null) {
+            return null;
+        }
+
+        return bulk.get(index);
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // calls to global procedures and functions
+    //
+
+    // returns null if the routine has to be called with a CALL statement
+    public static RoutineLink getRoutineLink(String name) {
+        ExecuteThread t = ExecuteThread.current();
+        StoredProcedure sp = (t == null) ? null : t.getStoredProcedure();
+        if (sp == null) {
+            return null;
+        }
+
+        Context ctx = t.getCurrentContext();
+        return ctx.getRoutineLinkCache().get(sp.getAuthUser(), name);
+    }
+
+    public static void executeRoutineCall(CallableStatement stmt, String name) throws SQLException {
+        ExecuteThread t = ExecuteThread.current();
+        StoredProcedure sp = (t == null) ? null : t.getStoredProcedure();
+        if (sp == null) {
+            stmt.execute();
+            return;
+        }
+
+        RoutineLinkCache routineLinks = t.getCurrentContext().getRoutineLinkCache();
+        routineLinks.expect(sp.getAuthUser(), name);
+        try {
+            stmt.execute();
+        } finally {
+            routineLinks.cancelExpect();
+        }
+    }
+
+    public static Object invokeRoutineLink(RoutineLink link, Object[] args) {
+        ExecuteThread thread = ExecuteThread.current();
+        Context ctx = thread.getCurrentContext();
+        RoutineLinkCache routineLinks = ctx.getRoutineLinkCache();
+
+        boolean transactionControl = ctx.getTransactionControl();
+        ctx.setTransactionControl(link.getTransactionControl());
+        RoutineMetrics metrics = link.getMetrics();
+        RoutineMetrics prevMetrics = thread.setRoutineMetrics(metrics);
+        boolean failed = true;
+        long start = System.nanoTime();
+        routineLinks.enter();
+        try {
+            Object ret = link.invoke(args);
+            failed = false;
+            return ret;
+        } catch (PlcsqlRuntimeError e) {
+            // as if the error has been returned by the server for a CALL statement
+            throw new SQL_ERROR(ExecuteThread.getErrorMessage(e));
+        } catch (Throwable e) {
+            Server.log(e);
+            throw new SQL_ERROR(e.getMessage());
+        } finally {
+            routineLinks.exit();
+            metrics.recordCall(System.nanoTime() - start, failed);
+            thread.setRoutineMetrics(prevMetrics);
+            ctx.setTransactionControl(transactionControl);
+        }
+    }
+
     public static Object throwInvalidCursor(String msg) {
         throw new INVALID_CURSOR(msg);
     }
@@ -585,11 +847,17 @@ public class SpLib {
 
     public static class Query {
         public final String query;
+        public final boolean isStatic;
         public ResultSet rs;
         public int rowCount;
 
         public Query(String query) {
+            this(query, false);
+        }
+
+        public Query(String query, boolean isStatic) {
             this.query = query;
+            this.isStatic = isStatic;
         }
 
         public void open(Connection conn, Object... val) {
@@ -600,7 +868,7 @@ public class SpLib {
                 if (isOpen()) {
                     throw new CURSOR_ALREADY_OPEN();
                 }
-                PreparedStatement pstmt = conn.prepareStatement(query);
+                PreparedStatement pstmt = prepareStatement(conn, query, isStatic);
                 for (int i = 0; i < val.length; i++) {
                     pstmt.setObject(i + 1, val[i]);
                 }
@@ -699,7 +967,7 @@ public class SpLib {
     // is null
     @Operator(coercionScheme = CoercionScheme.ObjectOp)
     public static Boolean opIsNull(Object l) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -776,7 +1044,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.ArithOp)
     public static Object opNeg(Object l) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -851,7 +1119,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.IntArithOp)
     public static Object opBitCompli(Object l) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -938,7 +1206,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.CompOp)
     public static Boolean opEq(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -951,7 +1219,7 @@ public class SpLib {
     }
 
     public static Boolean opEqChar(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1034,7 +1302,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.CompOp)
     public static Boolean opEq(Object l, Object r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1059,7 +1327,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.CompOp)
     public static Boolean opNullSafeEq(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1072,7 +1340,7 @@ public class SpLib {
     }
 
     public static Boolean opNullSafeEqChar(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1167,7 +1435,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.CompOp)
     public static Boolean opNullSafeEq(Object l, Object r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1195,7 +1463,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.CompOp)
     public static Boolean opNeq(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1282,7 +1550,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.CompOp)
     public static Boolean opNeq(Object l, Object r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1308,7 +1576,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.CompOp)
     public static Boolean opLe(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1321,7 +1589,7 @@ public class SpLib {
     }
 
     public static Boolean opLeChar(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1404,7 +1672,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.CompOp)
     public static Boolean opLe(Object l, Object r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1428,7 +1696,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.CompOp)
     public static Boolean opGe(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1441,7 +1709,7 @@ public class SpLib {
     }
 
     public static Boolean opGeChar(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1524,7 +1792,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.CompOp)
     public static Boolean opGe(Object l, Object r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1548,7 +1816,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.CompOp)
     public static Boolean opLt(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1561,7 +1829,7 @@ public class SpLib {
     }
 
     public static Boolean opLtChar(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1644,7 +1912,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.CompOp)
     public static Boolean opLt(Object l, Object r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1669,7 +1937,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.CompOp)
     public static Boolean opGt(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1682,7 +1950,7 @@ public class SpLib {
     }
 
     public static Boolean opGtChar(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1765,7 +2033,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.CompOp)
     public static Boolean opGt(Object l, Object r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -1793,7 +2061,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.NAryCompOp)
     public static Boolean opBetween(String o, String lower, String upper) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(o)) {
                 o = null;
             }
@@ -1812,7 +2080,7 @@ public class SpLib {
     }
 
     public static Boolean opBetweenChar(String o, String lower, String upper) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(o)) {
                 o = null;
             }
@@ -1927,7 +2195,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.NAryCompOp)
     public static Boolean opBetween(Object o, Object lower, Object upper) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(o)) {
                 o = null;
             }
@@ -1965,7 +2233,8 @@ public class SpLib {
     public static Boolean opInChar(String o, String... arr) {
         assert arr != null;
 
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        boolean oracleStyleEmptyString = settings().oracleStyleEmptyString;
+        if (oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(o)) {
                 o = null;
             }
@@ -1978,7 +2247,7 @@ public class SpLib {
 
         boolean nullFound = false;
         for (String p : arr) {
-            if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+            if (oracleStyleEmptyString) {
                 if (EMPTY_STRING.equals(p)) {
                     p = null;
                 }
@@ -2083,7 +2352,8 @@ public class SpLib {
     public static Boolean opIn(Object o, Object... arr) {
         assert arr != null;
 
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        boolean oracleStyleEmptyString = settings().oracleStyleEmptyString;
+        if (oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(o)) {
                 o = null;
             }
@@ -2094,7 +2364,7 @@ public class SpLib {
         }
         boolean nullFound = false;
         for (Object p : arr) {
-            if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+            if (oracleStyleEmptyString) {
                 if (EMPTY_STRING.equals(p)) {
                     p = null;
                 }
@@ -2194,7 +2464,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.ArithOp)
     public static Object opMult(Object l, Object r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -2220,7 +2490,7 @@ public class SpLib {
         if (r.equals((short) 0)) {
             throw new ZERO_DIVIDE();
         }
-        if (Context.getSystemParameterBool(SysParam.ORACLE_COMPAT_NUMBER_BEHAVIOR)) {
+        if (settings().oracleCompatNumberBehavior) {
             return opDiv(BigDecimal.valueOf(l.longValue()), BigDecimal.valueOf(r.longValue()));
         } else {
             return (short) (l / r);
@@ -2235,7 +2505,7 @@ public class SpLib {
         if (r.equals(0)) {
             throw new ZERO_DIVIDE();
         }
-        if (Context.getSystemParameterBool(SysParam.ORACLE_COMPAT_NUMBER_BEHAVIOR)) {
+        if (settings().oracleCompatNumberBehavior) {
             return opDiv(BigDecimal.valueOf(l.longValue()), BigDecimal.valueOf(r.longValue()));
         } else {
             return l / r;
@@ -2251,7 +2521,7 @@ public class SpLib {
             throw new ZERO_DIVIDE();
         }
 
-        if (Context.getSystemParameterBool(SysParam.ORACLE_COMPAT_NUMBER_BEHAVIOR)) {
+        if (settings().oracleCompatNumberBehavior) {
             return opDiv(BigDecimal.valueOf(l), BigDecimal.valueOf(r));
         } else {
             return l / r;
@@ -2273,7 +2543,7 @@ public class SpLib {
         int s2 = r.scale();
 
         int scale;
-        if (Context.getSystemParameterBool(SysParam.COMPAT_NUMERIC_DIVISION_SCALE)) {
+        if (settings().compatNumericDivisionScale) {
             scale = Math.max(s1, s2);
         } else {
             scale = Math.max(9, Math.max(s1, s2));
@@ -2322,7 +2592,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.ArithOp)
     public static Object opDiv(Object l, Object r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -2375,7 +2645,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.IntArithOp)
     public static Object opDivInt(Object l, Object r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -2428,7 +2698,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.IntArithOp)
     public static Object opMod(Object l, Object r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -2448,7 +2718,7 @@ public class SpLib {
     // +
     @Operator(coercionScheme = CoercionScheme.ArithOp)
     public static String opAdd(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (l == null) {
                 l = EMPTY_STRING;
             }
@@ -2642,7 +2912,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.ArithOp)
     public static Object opAdd(Object l, Object r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -2876,7 +3146,7 @@ public class SpLib {
 
     @Operator(coercionScheme = CoercionScheme.ArithOp)
     public static Object opSubtract(Object l, Object r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(l)) {
                 l = null;
             }
@@ -2896,7 +3166,7 @@ public class SpLib {
     // ||
     @Operator(coercionScheme = CoercionScheme.StringOp)
     public static String opConcat(String l, String r) {
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        if (settings().oracleStyleEmptyString) {
             if (l == null) {
                 l = EMPTY_STRING;
             }
@@ -3200,7 +3470,7 @@ public class SpLib {
             return null;
         }
 
-        if (Context.getSystemParameterBool(SysParam.ORACLE_COMPAT_NUMBER_BEHAVIOR)) {
+        if (settings().oracleCompatNumberBehavior) {
             BigDecimal bd = new BigDecimal(e.doubleValue(), doubleToStringContext);
             return detachTrailingZeros(bd.toPlainString());
         } else {
@@ -3284,7 +3554,7 @@ public class SpLib {
             return null;
         }
 
-        if (Context.getSystemParameterBool(SysParam.ORACLE_COMPAT_NUMBER_BEHAVIOR)) {
+        if (settings().oracleCompatNumberBehavior) {
             BigDecimal bd = new BigDecimal(e.doubleValue(), floatToStringContext);
             return detachTrailingZeros(bd.toPlainString());
         } else {
@@ -3359,7 +3629,7 @@ public class SpLib {
             return null;
         }
 
-        if (Context.getSystemParameterBool(SysParam.ORACLE_COMPAT_NUMBER_BEHAVIOR)) {
+        if (settings().oracleCompatNumberBehavior) {
             return detachTrailingZeros(e.toPlainString());
         } else {
             return e.toString();
@@ -3647,6 +3917,11 @@ public class SpLib {
             return null;
         }
 
+        Timestamp fast = parseIsoDatetime(e);
+        if (fast != null) {
+            return fast;
+        }
+
         LocalDateTime dt = DateTimeParser.DatetimeLiteral.parse(e);
         if (dt == null) {
             // invalid string
@@ -3672,6 +3947,11 @@ public class SpLib {
             return null;
         }
 
+        int ymd = parseIsoDate(e, 0);
+        if (ymd >= 0 && e.length() == 10) {
+            return new Date(ymd / 10000 - 1900, ymd / 100 % 100 - 1, ymd % 100);
+        }
+
         LocalDate d = DateTimeParser.DateLiteral.parse(e);
         if (d == null) {
             // invalid string
@@ -3690,6 +3970,11 @@ public class SpLib {
             return null;
         }
 
+        int hms = parseIsoTime(e, 0);
+        if (hms >= 0 && e.length() == 8) {
+            return new Time(hms / 10000, hms / 100 % 100, hms % 100);
+        }
+
         LocalTime t = DateTimeParser.TimeLiteral.parse(e);
         if (t == null) {
             // invalid string
@@ -3735,8 +4020,13 @@ public class SpLib {
             return INT_ZERO;
         }
 
+        long l = parsePlainInteger(e);
+        if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE) {
+            return Integer.valueOf((int) l);
+        }
+
+        // other forms, or out of range to be reported by bigDecimalToInt()
         BigDecimal bd = strToBigDecimal(e);
-        ;
         return Integer.valueOf(bigDecimalToInt(bd));
     }
 
@@ -3750,8 +4040,13 @@ public class SpLib {
             return SHORT_ZERO;
         }
 
+        long l = parsePlainInteger(e);
+        if (l >= Short.MIN_VALUE && l <= Short.MAX_VALUE) {
+            return Short.valueOf((short) l);
+        }
+
+        // other forms, or out of range to be reported by bigDecimalToShort()
         BigDecimal bd = strToBigDecimal(e);
-        ;
         return Short.valueOf(bigDecimalToShort(bd));
     }
 
@@ -3765,8 +4060,13 @@ public class SpLib {
             return BYTE_ZERO;
         }
 
+        long l = parsePlainInteger(e);
+        if (l >= Byte.MIN_VALUE && l <= Byte.MAX_VALUE) {
+            return Byte.valueOf((byte) l);
+        }
+
+        // other forms, or out of range to be reported by bigDecimalToByte()
         BigDecimal bd = strToBigDecimal(e);
-        ;
         return Byte.valueOf(bigDecimalToByte(bd));
     }
 
@@ -3822,6 +4122,11 @@ public class SpLib {
             return LONG_ZERO;
         }
 
+        long l = parsePlainInteger(e);
+        if (l != NOT_PLAIN_INTEGER) {
+            return Long.valueOf(l);
+        }
+
         BigDecimal bd = strToBigDecimal(e);
         return Long.valueOf(bigDecimalToLong(bd));
     }
@@ -4161,6 +4466,12 @@ public class SpLib {
 
     private static final DateFormat AM_PM = new SimpleDateFormat("a", Locale.US);
 
+    // session parameters the operators depend on. they are read from the immutable snapshot taken
+    // at the entry of the invocation instead of being looked up and parsed at every operation.
+    private static SessionSettings settings() {
+        return Context.getCurrentSessionSettings();
+    }
+
     private static Short shortOfInt(int i) {
         if (i <= Short.MAX_VALUE && i >= Short.MIN_VALUE) {
             return (short) i;
@@ -4273,7 +4584,8 @@ public class SpLib {
     private static Boolean commonOpIn(Object o, Object... arr) {
         assert arr != null;
 
-        if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+        boolean oracleStyleEmptyString = settings().oracleStyleEmptyString;
+        if (oracleStyleEmptyString) {
             if (EMPTY_STRING.equals(o)) {
                 o = null;
             }
@@ -4284,7 +4596,7 @@ public class SpLib {
         }
         boolean nullFound = false;
         for (Object p : arr) {
-            if (Context.getSystemParameterBool(SysParam.ORACLE_STYLE_EMPTY_STRING)) {
+            if (oracleStyleEmptyString) {
                 if (EMPTY_STRING.equals(p)) {
                     p = null;
                 }
@@ -4453,6 +4765,142 @@ public class SpLib {
         return bigDecimalToByte(BigDecimal.valueOf(l));
     }
 
+    // ------------------------------------------------
+    // fast paths of the conversions from strings in the most common forms. they allocate
+    // nothing but the result, and return a value meaning 'not in the form' for the other strings,
+    // which are then converted by strToBigDecimal() or DateTimeParser as before.
+
+    private static final long NOT_PLAIN_INTEGER = Long.MIN_VALUE;
+
+    // an optional sign followed by at most 18 decimal digits, which never overflow long
+    private static long parsePlainInteger(String s) {
+        int len = s.length();
+        int i = 0;
+        boolean negative = false;
+        if (len > 0) {
+            char c = s.charAt(0);
+            if (c == '-' || c == '+') {
+                negative = (c == '-');
+                i = 1;
+            }
+        }
+        if (i == len || len - i > 18) {
+            return NOT_PLAIN_INTEGER;
+        }
+
+        long v = 0;
+        for (; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_PLAIN_INTEGER;
+            }
+            v = v * 10 + (c - '0');
+        }
+
+        return negative ? -v : v;
+    }
+
+    // value of the n decimal digits at s[from], or -1 if any of them is not a decimal digit
+    private static int parseDigits(String s, int from, int n) {
+        int v = 0;
+        for (int i = from; i < from + n; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    // yyyy-MM-dd at s[from] as yyyyMMdd, or -1.
+    // years before 1583 are left to DateTimeParser, which follows the Julian calendar for them
+    // as GregorianCalendar does, and so are 0000-00-00 and the dates out of the valid range.
+    private static int parseIsoDate(String s, int from) {
+        if (s.length() < from + 10 || s.charAt(from + 4) != '-' || s.charAt(from + 7) != '-') {
+            return -1;
+        }
+
+        int year = parseDigits(s, from, 4);
+        int month = parseDigits(s, from + 5, 2);
+        int day = parseDigits(s, from + 8, 2);
+        if (year < 1583 || month < 1 || month > 12 || day < 1) {
+            return -1;
+        }
+
+        int lastDay = DAYS_OF_MONTH[month - 1];
+        if (month == 2 && year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) {
+            lastDay = 29;
+        }
+        if (day > lastDay) {
+            return -1;
+        }
+
+        return year * 10000 + month * 100 + day;
+    }
+
+    // HH:mm:ss at s[from] as HHmmss, or -1
+    private static int parseIsoTime(String s, int from) {
+        if (s.length() < from + 8 || s.charAt(from + 2) != ':' || s.charAt(from + 5) != ':') {
+            return -1;
+        }
+
+        int hour = parseDigits(s, from, 2);
+        int minute = parseDigits(s, from + 3, 2);
+        int second = parseDigits(s, from + 6, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return -1;
+        }
+
+        return hour * 10000 + minute * 100 + second;
+    }
+
+    // yyyy-MM-dd, yyyy-MM-dd HH:mm:ss or yyyy-MM-dd HH:mm:ss.SSS, or null
+    private static Timestamp parseIsoDatetime(String s) {
+        int len = s.length();
+        if (len != 10 && len != 19 && len != 23) {
+            return null;
+        }
+
+        int ymd = parseIsoDate(s, 0);
+        if (ymd < 0) {
+            return null;
+        }
+
+        int hms = 0;
+        int millis = 0;
+        if (len > 10) {
+            if (s.charAt(10) != ' ') {
+                return null;
+            }
+            hms = parseIsoTime(s, 11);
+            if (hms < 0) {
+                return null;
+            }
+            if (len == 23) {
+                if (s.charAt(19) != '.') {
+                    return null;
+                }
+                millis = parseDigits(s, 20, 3);
+                if (millis < 0) {
+                    return null;
+                }
+            }
+        }
+
+        return new Timestamp(
+                ymd / 10000 - 1900,
+                ymd / 100 % 100 - 1,
+                ymd % 100,
+                hms / 10000,
+                hms / 100 % 100,
+                hms % 100,
+                millis * 1000000);
+    }
+
+    private static final int[] DAYS_OF_MONTH =
+            new int[] {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
     private static BigDecimal strToBigDecimal(String s) {
         try {
             BigDecimal ret = new BigDecimal(s);
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.jsp.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cubrid.jsp.Server;
+import com.cubrid.jsp.ServerConfig;
+import com.cubrid.jsp.SysParam;
+import com.cubrid.jsp.context.ContextManager;
+import com.cubrid.jsp.protocol.BootstrapRequest;
+import com.cubrid.jsp.value.SetValue;
+import com.cubrid.jsp.value.Value;
+import com.cubrid.plcsql.predefined.sp.SpLib;
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+ * Packs values as the PL server sends them and unpacks them as they are received, in the binary
+ * forms (DBType.BINARY_ENCODED) and in the forms used with a server which did not agree to them.
+ */
+public class TestPackerRoundTrip {
+
+    private static final long SESSION_ID = 3;
+    private static final int MARKER = 0x5a5a5a5a;
+
+    @TempDir static Path tempDir;
+
+    @BeforeAll
+    public static void startServer() throws Exception {
+        String root = tempDir.toAbsolutePath().toString();
+        Files.createDirectories(tempDir.resolve("tmp"));
+        ServerConfig config =
+                new ServerConfig("mock", "1.0", root, root + File.separatorChar + "databases", "0");
+        Server.startWithConfig(config);
+        bootstrap(BootstrapRequest.SUPPORTED_FEATURES);
+        ContextManager.registerThread(Thread.currentThread().getId(), SESSION_ID);
+    }
+
+    @AfterAll
+    public static void stopServer() {
+        ContextManager.deregisterThread(Thread.currentThread().getId());
+        ContextManager.destroyContext(SESSION_ID);
+        Server.stop(0);
+    }
+
+    @Test
+    public void testDateTimeBinary() throws Exception {
+        bootstrap(BootstrapRequest.SUPPORTED_FEATURES);
+
+        Date date = Date.valueOf("2024-02-29");
+        Time time = Time.valueOf("23:59:58");
+        Timestamp timestamp = Timestamp.valueOf("2038-01-19 03:14:07");
+        Timestamp datetime = Timestamp.valueOf("1999-12-31 23:59:59.999");
+
+        assertEquals(date, roundTrip(date, DBType.DB_DATE).toDate());
+        assertEquals(time.toString(), roundTrip(time, DBType.DB_TIME).toTime().toString());
+        assertEquals(timestamp, roundTrip(timestamp, DBType.DB_TIMESTAMP).toTimestamp());
+        assertEquals(datetime, roundTrip(datetime, DBType.DB_DATETIME).toDatetime());
+    }
+
+    @Test
+    public void testZeroDateTimeBinary() throws Exception {
+        bootstrap(BootstrapRequest.SUPPORTED_FEATURES);
+
+        assertEquals(SpLib.ZERO_DATE, roundTrip(SpLib.ZERO_DATE, DBType.DB_DATE).toDate());
+        assertEquals(
+                SpLib.ZERO_DATETIME,
+                roundTrip(SpLib.ZERO_DATETIME, DBType.DB_DATETIME).toDatetime());
+
+        // year 0, month -1 (0-based) and day 0 as the server sends 0000-00-00
+        CUBRIDUnpacker unpacker = pack(SpLib.ZERO_DATE, DBType.DB_DATE);
+        assertEquals(DBType.DB_DATE | DBType.BINARY_ENCODED, unpacker.unpackInt());
+        assertEquals(0, unpacker.unpackInt());
+        assertEquals(-1, unpacker.unpackInt());
+        assertEquals(0, unpacker.unpackInt());
+        assertEquals(MARKER, unpacker.unpackInt());
+    }
+
+    @Test
+    public void testDateTimeString() throws Exception {
+        bootstrap(0);
+
+        assertEquals("2024-02-29", packedString(Date.valueOf("2024-02-29"), DBType.DB_DATE));
+        assertEquals("23:59:58", packedString(Time.valueOf("23:59:58"), DBType.DB_TIME));
+        assertEquals(
+                "2038-01-19 03:14:07",
+                packedString(Timestamp.valueOf("2038-01-19 03:14:07"), DBType.DB_TIMESTAMP));
+        assertEquals(
+                "1999-12-31 23:59:59.999",
+                packedString(Timestamp.valueOf("1999-12-31 23:59:59.999"), DBType.DB_DATETIME));
+
+        assertEquals("0000-00-00", packedString(SpLib.ZERO_DATE, DBType.DB_DATE));
+        assertEquals(
+                "0000-00-00 00:00:00.000", packedString(SpLib.ZERO_DATETIME, DBType.DB_DATETIME));
+    }
+
+    @Test
+    public void testNumeric() throws Exception {
+        String[] numerics = {
+            "0",
+            "1",
+            "-1",
+            "0.05",
+            "-0.05",
+            "123.456",
+            "-123.456",
+            "1E+5",
+            "-9223372036854775809",
+            "18446744073709551616",
+            "99999999999999999999999999999999999999",
+            "-99999999999999999999999999999999999999",
+            "0.00000000000000000000000000000000000001",
+            "-1234567890123456789.0123456789012345678",
+        };
+
+        for (int features : new int[] {BootstrapRequest.SUPPORTED_FEATURES, 0}) {
+            bootstrap(features);
+            for (String s : numerics) {
+                BigDecimal bd = new BigDecimal(s);
+                BigDecimal unpacked = roundTrip(bd, DBType.DB_NUMERIC).toBigDecimal();
+                assertEquals(0, bd.compareTo(unpacked), s + " with features " + features);
+            }
+        }
+
+        // more than 38 digits is sent as a string, for the server to report the overflow
+        bootstrap(BootstrapRequest.SUPPORTED_FEATURES);
+        String tooLarge = "123456789012345678901234567890123456789";
+        assertEquals(tooLarge, packedString(new BigDecimal(tooLarge), DBType.DB_NUMERIC));
+    }
+
+    @Test
+    public void testPrimitiveArrays() throws Exception {
+        Object[] arrays = {
+            new short[] {},
+            new short[] {1},
+            new short[] {Short.MIN_VALUE, -1, Short.MAX_VALUE},
+            new int[] {Integer.MIN_VALUE, 0, Integer.MAX_VALUE},
+            new long[] {Long.MIN_VALUE, 0, Long.MAX_VALUE},
+            new float[] {Float.MIN_VALUE, -0.5f, Float.MAX_VALUE},
+            new double[] {Double.MAX_VALUE, -0.5, -Double.MIN_VALUE},
+        };
+
+        for (int features : new int[] {BootstrapRequest.SUPPORTED_FEATURES, 0}) {
+            bootstrap(features);
+            for (Object a : arrays) {
+                SetValue v = (SetValue) roundTrip(a, DBType.DB_SEQUENCE);
+                assertArrayEquals(
+                        boxed(a), v.toObjectArray(), a.getClass().getSimpleName() + " " + features);
+            }
+        }
+    }
+
+    @Test
+    public void testPrimitiveArrayAlignment() throws Exception {
+        bootstrap(BootstrapRequest.SUPPORTED_FEATURES);
+
+        // an odd number of shorts leaves the next value unaligned, and the elements of a long[]
+        // are aligned as the values of packBigInt () whatever precedes them
+        short[] shorts = {1, 2, 3};
+        long[] longs = {-1L, 1L << 40};
+        for (int lead = 0; lead < 3; lead++) {
+            CUBRIDPacker packer = new CUBRIDPacker(ByteBuffer.allocate(16));
+            for (int i = 0; i < lead; i++) {
+                packer.packShort((short) i);
+            }
+            packer.packObject(shorts, DBType.DB_SEQUENCE, 0);
+            packer.packObject(longs, DBType.DB_SEQUENCE, 0);
+            packer.packInt(MARKER);
+            ByteBuffer packed = packer.getBuffer();
+            packed.flip();
+
+            CUBRIDUnpacker unpacker = new CUBRIDUnpacker(packed);
+            for (int i = 0; i < lead; i++) {
+                assertEquals((short) i, unpacker.unpackShort());
+            }
+            int start = unpacker.getCurrentPosition();
+            assertArrayEquals(shorts, unpackValue(unpacker).toShortArray());
+            assertArrayEquals(longs, unpackValue(unpacker).toLongArray());
+            assertEquals(MARKER, unpacker.unpackInt());
+            assertFalse(packed.hasRemaining());
+
+            // skipValue () moves over them the same way
+            int end = unpacker.getCurrentPosition();
+            unpacker.setCurrentPosition(start);
+            unpacker.skipValue(unpacker.unpackInt());
+            unpacker.skipValue(unpacker.unpackInt());
+            assertEquals(MARKER, unpacker.unpackInt());
+            assertEquals(end, unpacker.getCurrentPosition());
+        }
+    }
+
+    // --------------------------------------------------
+    // Private
+    // --------------------------------------------------
+
+    private static void bootstrap(int features) {
+        CUBRIDPacker packer = new CUBRIDPacker(ByteBuffer.allocate(64));
+        packer.packBigInt(1);
+        packer.packInt(SysParam.INTL_COLLATION);
+        packer.packInt(SysParam.PRM_TYPE_STRING);
+        packer.packCString("utf8_bin".getBytes(StandardCharsets.UTF_8));
+        packer.packInt(features);
+        ByteBuffer buffer = packer.getBuffer();
+        buffer.flip();
+        Server.bootstrap(new BootstrapRequest(new CUBRIDUnpacker(buffer)));
+    }
+
+    // the value packed and followed by MARKER, ready to be unpacked
+    private static CUBRIDUnpacker pack(Object o, int dbType) throws Exception {
+        CUBRIDPacker packer = new CUBRIDPacker(ByteBuffer.allocate(16));
+        packer.packObject(o, dbType, SysParam.getCodesetId(StandardCharsets.UTF_8));
+        packer.packInt(MARKER);
+        ByteBuffer buffer = packer.getBuffer();
+        buffer.flip();
+        return new CUBRIDUnpacker(buffer);
+    }
+
+    private static Value roundTrip(Object o, int dbType) throws Exception {
+        CUBRIDUnpacker unpacker = pack(o, dbType);
+        Value v = unpackValue(unpacker);
+        assertEquals(MARKER, unpacker.unpackInt());
+        return v;
+    }
+
+    private static Value unpackValue(CUBRIDUnpacker unpacker) throws Exception {
+        Value v = unpacker.unpackValue(unpacker.unpackInt());
+        assertNotNull(v);
+        return v;
+    }
+
+    // the string form sent to a server which did not agree to the binary form
+    private static String packedString(Object o, int dbType) throws Exception {
+        CUBRIDUnpacker unpacker = pack(o, dbType);
+        assertEquals(dbType, unpacker.unpackInt());
+        String s = unpacker.unpackCString();
+        assertEquals(MARKER, unpacker.unpackInt());
+        return s;
+    }
+
+    private static Object[] boxed(Object array) {
+        Object[] ret = new Object[java.lang.reflect.Array.getLength(array)];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = java.lang.reflect.Array.get(array, i);
+        }
+        return ret;
+    }
+}
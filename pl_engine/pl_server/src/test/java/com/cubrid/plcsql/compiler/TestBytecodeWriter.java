@@ -0,0 +1,489 @@
+/*
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.plcsql.compiler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cubrid.jsp.Server;
+import com.cubrid.jsp.ServerConfig;
+import com.cubrid.jsp.SysParam;
+import com.cubrid.jsp.benchmark.MockCas;
+import com.cubrid.jsp.benchmark.MockDatabase;
+import com.cubrid.jsp.classloader.SessionClassLoader;
+import com.cubrid.jsp.code.CompiledCode;
+import com.cubrid.jsp.code.CompiledCodeSet;
+import com.cubrid.jsp.context.Context;
+import com.cubrid.jsp.context.ContextManager;
+import com.cubrid.jsp.data.CUBRIDPacker;
+import com.cubrid.jsp.data.CUBRIDUnpacker;
+import com.cubrid.jsp.data.CompileInfo;
+import com.cubrid.jsp.data.DBType;
+import com.cubrid.jsp.protocol.BootstrapRequest;
+import com.cubrid.plcsql.builtin.MessageBuffer;
+import com.cubrid.plcsql.predefined.PlcsqlRuntimeError;
+import com.cubrid.plcsql.predefined.sp.SpLib;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+ * Runs the routines of src/jmh/resources/plcsql compiled by BytecodeWriter and by javac from the
+ * output of JavaCodeWriter, and checks that they give the same results, OUT arguments, messages
+ * of DBMS_OUTPUT and errors with the same PL/CSQL positions. The routines with SQL run on the
+ * server through MockCas, which answers their callbacks from the MockDatabase of the benchmarks.
+ */
+public class TestBytecodeWriter {
+
+    private static final long SESSION_ID = 1;
+    private static final long CAS_SESSION_ID = 2;
+    private static final Path CORPUS = Paths.get("src", "jmh", "resources", "plcsql");
+
+    @TempDir static Path tempDir;
+
+    private static MockCas cas;
+
+    @BeforeAll
+    public static void startServer() throws Exception {
+        String root = tempDir.toAbsolutePath().toString();
+        Files.createDirectories(tempDir.resolve("tmp"));
+        ServerConfig config =
+                new ServerConfig("mock", "1.0", root, root + File.separatorChar + "databases", "0");
+        Server.startWithConfig(config);
+        Server.bootstrap(new BootstrapRequest(new CUBRIDUnpacker(packSystemParameters())));
+        ContextManager.registerThread(Thread.currentThread().getId(), SESSION_ID);
+
+        // javac of the server compiles the translated routines against $CUBRID/vm/pl_server.jar
+        createServerJar(tempDir.resolve("vm").resolve("pl_server.jar"));
+        cas = new MockCas(Server.getServer().getServerPort(), CAS_SESSION_ID);
+    }
+
+    @AfterAll
+    public static void stopServer() throws IOException {
+        cas.close();
+        ContextManager.destroyContext(CAS_SESSION_ID);
+        ContextManager.deregisterThread(Thread.currentThread().getId());
+        ContextManager.destroyContext(SESSION_ID);
+        Server.stop(0);
+    }
+
+    @Test
+    public void testFibonacci() throws Exception {
+        compareBackends("fibonacci", new Object[][] {{0}, {1}, {10}, {92}, {93}, {-1}, {null}});
+    }
+
+    @Test
+    public void testGrade() throws Exception {
+        compareBackends(
+                "grade",
+                new Object[][] {{95}, {80}, {70}, {62}, {40}, {Integer.MAX_VALUE}, {null}});
+    }
+
+    @Test
+    public void testInterest() throws Exception {
+        compareBackends(
+                "interest",
+                new Object[][] {
+                    {new BigDecimal("1000"), new BigDecimal("3.5"), 10},
+                    {new BigDecimal("1000"), new BigDecimal("0"), 3},
+                    {new BigDecimal("1000"), new BigDecimal("-2.25"), 0},
+                    {new BigDecimal("1E+20"), new BigDecimal("900"), 5},
+                    {null, new BigDecimal("1"), 1},
+                    {new BigDecimal("1000"), new BigDecimal("1"), null}
+                });
+    }
+
+    @Test
+    public void testNested() throws Exception {
+        compareBackends("nested", new Object[][] {{0}, {1}, {12}, {-1}, {null}});
+    }
+
+    @Test
+    public void testStaticSql() throws Exception {
+        compareBackendsOnCas("sql_static", new Object[][] {{10}, {20}, {30}, {50}, {99}, {null}});
+    }
+
+    @Test
+    public void testDynamicSql() throws Exception {
+        compareBackendsOnCas(
+                "sql_dynamic",
+                new Object[][] {
+                    {"emp", 10}, {"emp", 20}, {"emp", 30}, {"nosuch", 10}, {"emp", null}
+                });
+    }
+
+    @Test
+    public void testCursor() throws Exception {
+        compareBackendsOnCas("sql_cursor", new Object[][] {{10}, {20}, {30}, {40}, {null}});
+    }
+
+    @Test
+    public void testRecord() throws Exception {
+        compareBackendsOnCas("sql_record", new Object[][] {{1}, {4}, {99}, {null}});
+    }
+
+    @Test
+    public void testForall() throws Exception {
+        compareBackendsOnCas("sql_forall", new Object[][] {{7, 9}, {7, 12}, {12, 7}, {null, 3}});
+    }
+
+    @Test
+    public void testForallStopsAtFailedRow() throws Exception {
+        // inserting the id 10 violates the primary key, and the ids 11 and 12 are not inserted
+        for (String mode : new String[] {"", "b"}) {
+            String output = callOnCas(mode, "sql_forall", new Object[][] {{7, 12}}).get(0);
+            assertTrue(output.contains(" msg=insert failed: "), output);
+            assertTrue(
+                    output.contains(
+                            " msg=inserted 7: 1 msg=inserted 8: 1 msg=inserted 9: 1"
+                                    + " msg=inserted 10: -1 msg=inserted 11: -1 msg=inserted 12: -1 "),
+                    output);
+            // the UPDATE adds 7, 8 and 9 to the salary of the row 9
+            assertTrue(
+                    output.endsWith("(9, 'temp9', 90, 114.00) (10, 'yoon', 60, 1800.00)"), output);
+        }
+    }
+
+    @Test
+    public void testGlobalCall() throws Exception {
+        compareBackendsOnCas(
+                "sql_global",
+                new Object[][] {{1, 3}, {3, 6}, {4, 5}, {5, 7}},
+                "raise_of",
+                "audit_emp");
+    }
+
+    private void compareBackends(String routine, Object[][] argLists) throws Exception {
+        String source = readCorpus(routine);
+
+        CompileInfo viaJavac = PlcsqlCompilerMain.compilePLCSQL(source, false, false, "DBA", "1");
+        CompileInfo viaBytecode = PlcsqlCompilerMain.compilePLCSQL(source, false, true, "DBA", "2");
+        assertEquals(0, viaJavac.errCode, viaJavac.errMsg);
+        assertEquals(0, viaBytecode.errCode, viaBytecode.errMsg);
+        assertNotNull(viaBytecode.classFiles, routine + " is expected to be supported");
+
+        Method javacMethod = loadMethod(viaJavac.className, compileJava(viaJavac));
+        Method bytecodeMethod = loadMethod(viaBytecode.className, toCodeList(viaBytecode));
+
+        for (Object[] args : argLists) {
+            String expected = call(javacMethod, args);
+            String actual = call(bytecodeMethod, args);
+            assertEquals(expected, actual, routine + " with arguments " + describe(args));
+        }
+    }
+
+    /*
+     * compiles the callees and the routine on the server with javac and then with BytecodeWriter,
+     * and calls the routine with each argument list on the table emp of the same rows
+     */
+    private void compareBackendsOnCas(String routine, Object[][] argLists, String... callees)
+            throws Exception {
+        List<String> expected = callOnCas("", routine, argLists, callees);
+        List<String> actual = callOnCas("b", routine, argLists, callees);
+        for (int i = 0; i < argLists.length; i++) {
+            assertEquals(
+                    expected.get(i),
+                    actual.get(i),
+                    routine + " with arguments " + describe(argLists[i]));
+        }
+    }
+
+    private static List<String> callOnCas(
+            String mode, String routine, Object[][] argLists, String... callees) throws Exception {
+        createEmp(cas.getDatabase()); // for the semantics of the SQL
+        for (String callee : callees) {
+            checkBackend(mode, cas.compile(readCorpus(callee), mode));
+        }
+        MockCas.Routine r = cas.compile(readCorpus(routine), mode);
+        checkBackend(mode, r);
+
+        MessageBuffer messages = ContextManager.getContext(CAS_SESSION_ID).getMessageBuffer();
+        List<String> outputs = new ArrayList<>();
+        for (Object[] args : argLists) {
+            createEmp(cas.getDatabase());
+            messages.enable(20000);
+
+            MockCas.CallResult result = cas.call(r.name, args);
+            StringBuilder sb = new StringBuilder();
+            if (result.error != null) {
+                sb.append("error=").append(result.error.trim());
+            } else {
+                sb.append("ret=").append(describe(result.result));
+                for (int i = 0; i < result.outArgs.length; i++) {
+                    sb.append(" out").append(i).append('=').append(describe(result.outArgs[i]));
+                }
+            }
+
+            String line;
+            while ((line = messages.getLine()) != null) {
+                sb.append(" msg=").append(line);
+            }
+            messages.disable();
+
+            sb.append(" emp=").append(cas.getDatabase().dump("emp"));
+            outputs.add(sb.toString());
+        }
+        return outputs;
+    }
+
+    // javac compiles the local routines to anonymous classes, and BytecodeWriter does not
+    private static void checkBackend(String mode, MockCas.Routine routine) throws IOException {
+        boolean anonymous = false;
+        try (JarInputStream jar =
+                new JarInputStream(new ByteArrayInputStream(routine.objectCode))) {
+            JarEntry e;
+            while ((e = jar.getNextJarEntry()) != null) {
+                anonymous |= e.getName().matches(".*\\$\\d+\\.class");
+            }
+        }
+        assertEquals(
+                mode.isEmpty(),
+                anonymous,
+                routine.name + " is expected to be compiled by the mode '" + mode + "'");
+    }
+
+    private static void createEmp(MockDatabase db) throws Exception {
+        db.createTable(
+                "emp",
+                MockDatabase.column("id", DBType.DB_INT, 10, 0),
+                MockDatabase.column("name", DBType.DB_STRING, 100, 0),
+                MockDatabase.column("dept", DBType.DB_INT, 10, 0),
+                MockDatabase.column("sal", DBType.DB_NUMERIC, 8, 2));
+        db.insert("emp", 1, "kim", 10, new BigDecimal("3000"));
+        db.insert("emp", 2, "lee", 10, new BigDecimal("2500.50"));
+        db.insert("emp", 3, "park", 20, new BigDecimal("4100"));
+        db.insert("emp", 4, "choi", 30, null);
+        db.insert("emp", 5, "jung", 50, new BigDecimal("2000"));
+        db.insert("emp", 6, "kang", 50, new BigDecimal("2100"));
+        db.insert("emp", 10, "yoon", 60, new BigDecimal("1800"));
+    }
+
+    private static String readCorpus(String routine) throws IOException {
+        return new String(
+                Files.readAllBytes(CORPUS.resolve(routine + ".sql")), StandardCharsets.UTF_8);
+    }
+
+    // the classes of pl_server, which are in a directory when the tests run from the build tree
+    private static void createServerJar(Path jar) throws Exception {
+        Path classes =
+                Paths.get(SpLib.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Files.createDirectories(jar.getParent());
+        if (!Files.isDirectory(classes)) {
+            Files.copy(classes, jar);
+            return;
+        }
+
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+                Stream<Path> files = Files.walk(classes)) {
+            for (Path f : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                out.putNextEntry(
+                        new JarEntry(
+                                classes.relativize(f).toString().replace(File.separatorChar, '/')));
+                Files.copy(f, out);
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static List<CompiledCode> compileJava(CompileInfo info) throws Exception {
+        Path srcDir = Files.createTempDirectory(tempDir, "src");
+        Path outDir = Files.createTempDirectory(tempDir, "classes");
+        Path srcFile = srcDir.resolve(info.className + ".java");
+        Files.write(srcFile, info.translated.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int ret =
+                compiler.run(
+                        null,
+                        null,
+                        null,
+                        "-proc:none",
+                        "-nowarn",
+                        "-encoding",
+                        "UTF-8",
+                        "-cp",
+                        // the generated code only refers to the classes of pl_server
+                        Paths.get(
+                                        SpLib.class
+                                                .getProtectionDomain()
+                                                .getCodeSource()
+                                                .getLocation()
+                                                .toURI())
+                                .toString(),
+                        "-d",
+                        outDir.toString(),
+                        srcFile.toString());
+        assertEquals(0, ret, "javac failed on " + info.className);
+
+        List<CompiledCode> codes = new ArrayList<>();
+        for (File f : outDir.toFile().listFiles()) {
+            String name = f.getName();
+            CompiledCode code = new CompiledCode(name.substring(0, name.length() - 6));
+            code.openOutputStream().write(Files.readAllBytes(f.toPath()));
+            codes.add(code);
+        }
+        return codes;
+    }
+
+    private static List<CompiledCode> toCodeList(CompileInfo info) throws Exception {
+        List<CompiledCode> codes = new ArrayList<>();
+        for (Map.Entry<String, byte[]> e : info.classFiles.entrySet()) {
+            CompiledCode code = new CompiledCode(e.getKey());
+            code.openOutputStream().write(e.getValue());
+            codes.add(code);
+        }
+        return codes;
+    }
+
+    private static Method loadMethod(String className, List<CompiledCode> codes) throws Exception {
+        CompiledCodeSet codeSet = PlcsqlPositionWeaver.weave(new CompiledCodeSet(className, codes));
+        Class<?> c = new SessionClassLoader(codeSet).loadClass(className);
+        for (Method m : c.getDeclaredMethods()) {
+            if (Modifier.isPublic(m.getModifiers()) && Modifier.isStatic(m.getModifiers())) {
+                return m;
+            }
+        }
+        throw new AssertionError("no routine in " + className);
+    }
+
+    // the result, the OUT arguments and the messages, or the error of a call
+    private static String call(Method m, Object[] args) throws Exception {
+        Class<?>[] paramTypes = m.getParameterTypes();
+        Object[] actualArgs = new Object[paramTypes.length];
+        for (int i = 0; i < paramTypes.length; i++) {
+            Object arg = (i < args.length) ? args[i] : null;
+            if (paramTypes[i].isArray()) {
+                Object[] cell =
+                        (Object[])
+                                java.lang.reflect.Array.newInstance(
+                                        paramTypes[i].getComponentType(), 1);
+                cell[0] = arg;
+                arg = cell;
+            }
+            actualArgs[i] = arg;
+        }
+
+        Context ctx = ContextManager.getContextofCurrentThread();
+        ctx.getMessageBuffer().enable(20000);
+
+        StringBuilder sb = new StringBuilder();
+        try {
+            Object ret = m.invoke(null, actualArgs);
+            sb.append("ret=").append(describe(ret));
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            sb.append("error=").append(cause.getClass().getSimpleName());
+            if (cause instanceof PlcsqlRuntimeError) {
+                PlcsqlRuntimeError err = (PlcsqlRuntimeError) cause;
+                sb.append(
+                        String.format(
+                                "@%d:%d %s", err.getLine(), err.getColumn(), err.getMessage()));
+            }
+        }
+        for (int i = 0; i < paramTypes.length; i++) {
+            if (paramTypes[i].isArray()) {
+                sb.append(" out")
+                        .append(i)
+                        .append('=')
+                        .append(describe(((Object[]) actualArgs[i])[0]));
+            }
+        }
+
+        String line;
+        while ((line = ctx.getMessageBuffer().getLine()) != null) {
+            sb.append(" msg=").append(line);
+        }
+        ctx.getMessageBuffer().disable();
+
+        return sb.toString();
+    }
+
+    private static String describe(Object o) {
+        if (o == null) {
+            return "null";
+        } else if (o instanceof Object[]) {
+            StringBuilder sb = new StringBuilder("(");
+            for (Object e : (Object[]) o) {
+                sb.append(sb.length() > 1 ? ", " : "").append(describe(e));
+            }
+            return sb.append(')').toString();
+        } else {
+            return o.getClass().getSimpleName() + ":" + o;
+        }
+    }
+
+    /* same layout as the payload of UTIL_BOOTSTRAP */
+    private static ByteBuffer packSystemParameters() {
+        String[][] params = {
+            {Integer.toString(SysParam.ORACLE_STYLE_EMPTY_STRING), "false"},
+            {Integer.toString(SysParam.COMPAT_NUMERIC_DIVISION_SCALE), "false"},
+            {Integer.toString(SysParam.INTL_NUMBER_LANG), "en_US"},
+            {Integer.toString(SysParam.INTL_DATE_LANG), "en_US"},
+            {Integer.toString(SysParam.INTL_COLLATION), "utf8_bin"},
+            {Integer.toString(SysParam.TIMEZONE), "Asia/Seoul"},
+            {Integer.toString(SysParam.ORACLE_COMPAT_NUMBER_BEHAVIOR), "false"},
+            {Integer.toString(SysParam.STORED_PROCEDURE_DUMP_ICODE), "false"},
+        };
+
+        CUBRIDPacker packer = new CUBRIDPacker(ByteBuffer.allocate(1024));
+        packer.packBigInt(params.length);
+        for (String[] param : params) {
+            packer.packInt(Integer.parseInt(param[0]));
+            packer.packInt(SysParam.PRM_TYPE_STRING);
+            packer.packCString(param[1].getBytes(StandardCharsets.UTF_8));
+        }
+
+        ByteBuffer buffer = packer.getBuffer();
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2016 CUBRID Corporation.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of the <ORGANIZATION> nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software without
+ *   specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY
+ * OF SUCH DAMAGE.
+ *
+ */
+
+package com.cubrid.plcsql.predefined.sp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.cubrid.jsp.SysParam;
+import com.cubrid.jsp.context.Context;
+import com.cubrid.jsp.context.ContextManager;
+import com.cubrid.jsp.data.CUBRIDPacker;
+import com.cubrid.jsp.data.CUBRIDUnpacker;
+import com.cubrid.jsp.value.DateTimeParser;
+import com.cubrid.plcsql.predefined.PlcsqlRuntimeError;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+// the fast paths of the string conversions in SpLib must give the same results and errors as
+// the general parsers they bypass, which are reproduced below as the reference
+public class TestSpLibConversions {
+
+    private static final long SESSION_ID = 2;
+
+    // the error messages depend on the session parameters
+    @BeforeAll
+    public static void bindSession() {
+        String[][] params = {
+            {Integer.toString(SysParam.ORACLE_STYLE_EMPTY_STRING), "false"},
+            {Integer.toString(SysParam.COMPAT_NUMERIC_DIVISION_SCALE), "false"},
+            {Integer.toString(SysParam.INTL_COLLATION), "utf8_bin"},
+            {Integer.toString(SysParam.ORACLE_COMPAT_NUMBER_BEHAVIOR), "false"},
+            {Integer.toString(SysParam.STORED_PROCEDURE_ERROR_STACK_TRACE), "false"},
+        };
+
+        CUBRIDPacker packer = new CUBRIDPacker(ByteBuffer.allocate(1024));
+        for (String[] param : params) {
+            packer.packInt(Integer.parseInt(param[0]));
+            packer.packInt(SysParam.PRM_TYPE_STRING);
+            packer.packCString(param[1].getBytes(StandardCharsets.UTF_8));
+        }
+        ByteBuffer buffer = packer.getBuffer();
+        buffer.flip();
+
+        Context ctx = ContextManager.getContext(SESSION_ID);
+        CUBRIDUnpacker unpacker = new CUBRIDUnpacker(buffer);
+        for (int i = 0; i < params.length; i++) {
+            ctx.setSystemParameter(new SysParam(unpacker));
+        }
+        ContextManager.registerThread(Thread.currentThread().getId(), SESSION_ID);
+    }
+
+    @AfterAll
+    public static void unbindSession() {
+        ContextManager.deregisterThread(Thread.currentThread().getId());
+        ContextManager.destroyContext(SESSION_ID);
+    }
+
+    @Test
+    public void testStringToIntegers() {
+        List<String> inputs = new ArrayList<>();
+        String[] samples = {
+            "0",
+            "1",
+            "-1",
+            "+1",
+            "-0",
+            "+0",
+            "007",
+            "-007",
+            "+",
+            "-",
+            "--1",
+            "+-1",
+            "1-",
+            "1.0",
+            "1.5",
+            "-1.5",
+            "1e3",
+            "1E+2",
+            " 12 ",
+            "12 34",
+            "0x10",
+            "abc",
+            "١٢٣",
+            "127",
+            "128",
+            "-128",
+            "-129",
+            "32767",
+            "32768",
+            "-32768",
+            "-32769",
+            "2147483647",
+            "2147483648",
+            "-2147483648",
+            "-2147483649",
+            "999999999999999999",
+            "-999999999999999999",
+            "1000000000000000000",
+            "9223372036854775807",
+            "9223372036854775808",
+            "-9223372036854775808",
+            "-9223372036854775809",
+            "000000000000000000001",
+            "123456789012345678901234567890123456789"
+        };
+        for (String s : samples) {
+            inputs.add(s);
+        }
+        for (long l = -300; l <= 300; l += 7) {
+            inputs.add(Long.toString(l));
+        }
+
+        for (String s : inputs) {
+            assertSame(s, SpLib::convStringToInt, e -> SpLib.convNumericToInt(refNumeric(e)));
+            assertSame(s, SpLib::convStringToShort, e -> SpLib.convNumericToShort(refNumeric(e)));
+            assertSame(s, SpLib::convStringToByte, e -> SpLib.convNumericToByte(refNumeric(e)));
+            assertSame(s, SpLib::convStringToBigint, e -> SpLib.convNumericToBigint(refNumeric(e)));
+        }
+    }
+
+    @Test
+    public void testStringToDateTime() {
+        List<String> dates = new ArrayList<>();
+        int[] years = {0, 1, 999, 1582, 1583, 1600, 1700, 1900, 1970, 2000, 2023, 2024, 9999};
+        for (int y : years) {
+            for (int m = 0; m <= 13; m++) {
+                for (int d : new int[] {0, 1, 15, 28, 29, 30, 31, 32}) {
+                    dates.add(String.format("%04d-%02d-%02d", y, m, d));
+                }
+            }
+        }
+        dates.add("0000-00-00");
+        dates.add("2024-1-01");
+        dates.add("2024/01/01");
+        dates.add("2024-01-0a");
+        dates.add("+024-01-01");
+        dates.add("01/02/2024");
+        dates.add("2024-01-01 ");
+
+        List<String> times = new ArrayList<>();
+        for (int h : new int[] {0, 1, 11, 12, 13, 23, 24}) {
+            for (int m : new int[] {0, 30, 59, 60}) {
+                for (int s : new int[] {0, 1, 59, 60}) {
+                    times.add(String.format("%02d:%02d:%02d", h, m, s));
+                }
+            }
+        }
+        times.add("1:02:03");
+        times.add("01:02");
+        times.add("01-02-03");
+        times.add("0a:00:00");
+        times.add("01:02:03 pm");
+        times.add("13:02:03 pm");
+
+        for (String s : dates) {
+            assertSame(s, SpLib::convStringToDate, TestSpLibConversions::refDate);
+            assertSame(s, SpLib::convStringToDatetime, TestSpLibConversions::refDatetime);
+        }
+        for (String s : times) {
+            assertSame(s, SpLib::convStringToTime, TestSpLibConversions::refTime);
+        }
+
+        String[] sampleDates = {
+            "0000-00-00", "1582-10-10", "1583-01-01", "2024-02-29", "2023-02-29"
+        };
+        String[] sampleTimes = {"00:00:00", "12:34:56", "23:59:59", "24:00:00", "12:60:00"};
+        for (String d : sampleDates) {
+            for (String t : sampleTimes) {
+                String dt = d + " " + t;
+                assertSame(dt, SpLib::convStringToDatetime, TestSpLibConversions::refDatetime);
+                for (String f : new String[] {".000", ".001", ".999", ".12", ".1234", ".abc"}) {
+                    assertSame(
+                            dt + f, SpLib::convStringToDatetime, TestSpLibConversions::refDatetime);
+                }
+                assertSame(
+                        d + "T" + t,
+                        SpLib::convStringToDatetime,
+                        TestSpLibConversions::refDatetime);
+            }
+        }
+    }
+
+    // --------------------------------------------------
+    // Private
+    // --------------------------------------------------
+
+    private static <T> void assertSame(
+            String s, Function<String, T> actual, Function<String, T> expected) {
+        assertEquals(apply(expected, s), apply(actual, s), "converting '" + s + "'");
+    }
+
+    // the result, or the class and the message of the error
+    private static <T> Object apply(Function<String, T> f, String s) {
+        try {
+            T ret = f.apply(s);
+            return ret == null ? null : ret.getClass().getName() + ":" + ret;
+        } catch (PlcsqlRuntimeError e) {
+            return e.getClass().getName() + ":" + e.getMessage();
+        }
+    }
+
+    private static BigDecimal refNumeric(String e) {
+        e = e.trim();
+        return e.length() == 0 ? BigDecimal.ZERO : SpLib.convStringToNumeric(e);
+    }
+
+    private static Date refDate(String e) {
+        LocalDate d = DateTimeParser.DateLiteral.parse(e);
+        if (d == null) {
+            throw new SpLib.VALUE_ERROR("invalid DATE string: '" + e + "'");
+        }
+
+        if (d.equals(DateTimeParser.nullDate)) {
+            return SpLib.ZERO_DATE;
+        } else {
+            return new Date(d.getYear() - 1900, d.getMonthValue() - 1, d.getDayOfMonth());
+        }
+    }
+
+    private static Time refTime(String e) {
+        LocalTime t = DateTimeParser.TimeLiteral.parse(e);
+        if (t == null) {
+            throw new SpLib.VALUE_ERROR("invalid TIME string: '" + e + "'");
+        }
+
+        return new Time(t.getHour(), t.getMinute(), t.getSecond());
+    }
+
+    private static Timestamp refDatetime(String e) {
+        LocalDateTime dt = DateTimeParser.DatetimeLiteral.parse(e);
+        if (dt == null) {
+            throw new SpLib.VALUE_ERROR("invalid DATETIME string: '" + e + "'");
+        }
+
+        if (dt.equals(DateTimeParser.nullDatetime)) {
+            return SpLib.ZERO_DATETIME;
+        } else {
+            return new Timestamp(
+                    dt.getYear() - 1900,
+                    dt.getMonthValue() - 1,
+                    dt.getDayOfMonth(),
+                    dt.getHour(),
+                    dt.getMinute(),
+                    dt.getSecond(),
+                    dt.getNano());
+        }
+    }
+}
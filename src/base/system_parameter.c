@@ -767,6 +767,8 @@ static const char sysprm_ha_conf_file_name[] = "cubrid_ha.conf";
 
 #define PRM_NAME_STORED_PROCEDURE_RETURN_NUMERIC_SIZE "stored_procedure_return_numeric_size"
 
+#define PRM_NAME_STORED_PROCEDURE_ERROR_STACK_TRACE "stored_procedure_error_stack_trace"
+
 /*
  * Note about ERROR_LIST and INTEGER_LIST type
  * ERROR_LIST type is an array of bool type with the size of -(ER_LAST_ERROR)
@@ -2354,6 +2356,10 @@ static int *prm_stored_procedure_return_numeric_size_default = prm_stored_proced
 
 static unsigned int prm_stored_procedure_return_numeric_size_flag = 0;
 
+bool PRM_STORED_PROCEDURE_ERROR_STACK_TRACE = false;
+static bool prm_stored_procedure_error_stack_trace_default = false;
+static unsigned int prm_stored_procedure_error_stack_trace_flag = 0;
+
 bool PRM_ALLOW_TRUNCATED_STRING = false;
 static bool prm_allow_truncated_string_default = false;
 static unsigned int prm_allow_truncated_string_flag = 0;
@@ -6551,6 +6557,17 @@ SYSPRM_PARAM prm_Def[] = {
    (void *) NULL, (void *) NULL,
    (char *) NULL,
    (DUP_PRM_FUNC) NULL,
+   (DUP_PRM_FUNC) NULL},
+  {PRM_ID_STORED_PROCEDURE_ERROR_STACK_TRACE,
+   PRM_NAME_STORED_PROCEDURE_ERROR_STACK_TRACE,
+   (PRM_FOR_CLIENT | PRM_FOR_SESSION | PRM_FOR_SERVER | PRM_USER_CHANGE | PRM_FOR_PL_CONTEXT),
+   PRM_BOOLEAN,
+   &prm_stored_procedure_error_stack_trace_flag,
+   (void *) &prm_stored_procedure_error_stack_trace_default,
+   (void *) &PRM_STORED_PROCEDURE_ERROR_STACK_TRACE,
+   (void *) NULL, (void *) NULL,
+   (char *) NULL,
+   (DUP_PRM_FUNC) NULL,
    (DUP_PRM_FUNC) NULL}
 };
 
@@ -495,8 +495,9 @@ enum param_id
   PRM_ID_STORED_PROCEDURE_UDS,
   PRM_ID_STORED_PROCEDURE_DUMP_ICODE,
   PRM_ID_STORED_PROCEDURE_RETURN_NUMERIC_SIZE,
+  PRM_ID_STORED_PROCEDURE_ERROR_STACK_TRACE,
   /* change PRM_LAST_ID when adding new system parameters */
-  PRM_LAST_ID = PRM_ID_STORED_PROCEDURE_RETURN_NUMERIC_SIZE
+  PRM_LAST_ID = PRM_ID_STORED_PROCEDURE_ERROR_STACK_TRACE
 };
 typedef enum param_id PARAM_ID;
 
@@ -561,6 +561,40 @@ pl_status_server (const PL_SERVER_INFO pl_info, const std::string &db_name)
 		status_info.vm_args.push_back (arg);
 	      }
 
+	    /* metrics, see ServerStatus.java */
+	    unpacker.unpack_bigint (status_info.compiles);
+	    unpacker.unpack_bigint (status_info.compile_errors);
+	    unpacker.unpack_bigint (status_info.compile_mean_us);
+	    unpacker.unpack_bigint (status_info.compile_max_us);
+	    unpacker.unpack_bigint (status_info.class_cache_hits);
+	    unpacker.unpack_bigint (status_info.class_cache_misses);
+
+	    int num_routines = 0;
+	    unpacker.unpack_int (num_routines);
+	    status_info.routines.resize (num_routines);
+	    for (PL_ROUTINE_STATUS &routine : status_info.routines)
+	      {
+		unpacker.unpack_string (routine.signature);
+		unpacker.unpack_bigint (routine.calls);
+		unpacker.unpack_bigint (routine.errors);
+		unpacker.unpack_bigint (routine.latency_mean_us);
+		unpacker.unpack_bigint (routine.latency_p50_us);
+		unpacker.unpack_bigint (routine.latency_p99_us);
+		unpacker.unpack_bigint (routine.latency_max_us);
+		unpacker.unpack_bigint (routine.rows_fetched);
+		unpacker.unpack_bigint (routine.bytes_in);
+		unpacker.unpack_bigint (routine.bytes_out);
+
+		int num_functions = 0;
+		unpacker.unpack_int (num_functions);
+		routine.round_trips.resize (num_functions);
+		for (int j = 0; j < num_functions; j++)
+		  {
+		    unpacker.unpack_string (routine.round_trips[j].first);
+		    unpacker.unpack_bigint (routine.round_trips[j].second);
+		  }
+	      }
+
 	    pl_dump_status (stdout, status_info);
 	  }
       }
@@ -642,6 +676,38 @@ pl_dump_status (FILE *fp, PL_STATUS_INFO status_info)
 	}
       fprintf (fp, " -------------------------------------------------\n");
     }
+
+  fprintf (fp, "Compile : %lld (errors %lld, mean %lld us, max %lld us)\n", (long long) status_info.compiles,
+	   (long long) status_info.compile_errors, (long long) status_info.compile_mean_us,
+	   (long long) status_info.compile_max_us);
+  fprintf (fp, "Class cache : %lld hits, %lld misses\n", (long long) status_info.class_cache_hits,
+	   (long long) status_info.class_cache_misses);
+
+  if (!status_info.routines.empty ())
+    {
+      fprintf (fp, "Routines :\n");
+      fprintf (fp, " -------------------------------------------------\n");
+      for (const PL_ROUTINE_STATUS &routine : status_info.routines)
+	{
+	  fprintf (fp, "  %s\n", routine.signature.c_str ());
+	  fprintf (fp, "    calls %lld, errors %lld, latency(us) mean %lld p50 %lld p99 %lld max %lld\n",
+		   (long long) routine.calls, (long long) routine.errors, (long long) routine.latency_mean_us,
+		   (long long) routine.latency_p50_us, (long long) routine.latency_p99_us,
+		   (long long) routine.latency_max_us);
+	  fprintf (fp, "    rows fetched %lld, bytes in %lld, bytes out %lld\n", (long long) routine.rows_fetched,
+		   (long long) routine.bytes_in, (long long) routine.bytes_out);
+	  if (!routine.round_trips.empty ())
+	    {
+	      fprintf (fp, "    round trips :");
+	      for (const auto &rt : routine.round_trips)
+		{
+		  fprintf (fp, " %s=%lld", rt.first.c_str (), (long long) rt.second);
+		}
+	      fprintf (fp, "\n");
+	    }
+	}
+      fprintf (fp, " -------------------------------------------------\n");
+    }
 }
 
 static bool
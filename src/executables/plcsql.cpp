@@ -47,6 +47,7 @@ namespace fs = std::filesystem;
 // input
 static std::string input_string;
 static bool verbose = false;
+static bool bytecode = false;
 
 // output
 static PLCSQL_COMPILE_RESPONSE compile_response;
@@ -103,6 +104,7 @@ utility_plcsql_usage (void)
 	   "-p, --password=PASS           user password; default: none\n"
 	   "-i, --input-file              path for input PL/CSQL file\n"
 	   "-v, --verbose                 verbose mode to print logs\n"
+	   "-b, --bytecode                generate class files without javac if possible\n"
 	   "-h, --help                    show usage\n");
 }
 
@@ -165,6 +167,7 @@ parse_options (int argc, char *argv[], plcsql_argument *pl_args)
     {"password", 1, 0, 'p'},
     {"input-file", 1, 0, 'i'},
     {"verbose", 0, 0, 'v'},
+    {"bytecode", 0, 0, 'b'},
     {0, 0, 0, 0}
   };
 
@@ -173,7 +176,7 @@ parse_options (int argc, char *argv[], plcsql_argument *pl_args)
       int option_index = 0;
       int option_key;
 
-      option_key = getopt_long (argc, argv, "u:p:i:vh", opts, &option_index);
+      option_key = getopt_long (argc, argv, "u:p:i:vbh", opts, &option_index);
       if (option_key == -1)
 	{
 	  break;
@@ -197,6 +200,10 @@ parse_options (int argc, char *argv[], plcsql_argument *pl_args)
 	  verbose = true;
 	  break;
 
+	case 'b':
+	  bytecode = true;
+	  break;
+
 	default:
 	  return ER_FAILED;
 	}
@@ -258,6 +265,10 @@ main (int argc, char *argv[])
     PLCSQL_COMPILE_REQUEST compile_request;
     compile_request.code = input_string;
     compile_request.mode = (verbose == true) ? "v" : "";
+    if (bytecode == true)
+      {
+	compile_request.mode += "b";
+      }
     compile_request.owner = "DBA"; // dummy
 
     if (plcsql_transfer_file (compile_request, compile_response) != NO_ERROR)
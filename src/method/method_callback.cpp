@@ -18,6 +18,8 @@
 
 #include "method_callback.hpp"
 
+#include <climits>
+
 #include "dbi.h"
 #include "ddl_log.h"
 
@@ -53,6 +55,7 @@ namespace cubmethod
   callback_handler::callback_handler (int max_query_handler)
   {
     m_query_handlers.resize (max_query_handler, nullptr);
+    m_last_handler_serial = 0;
     m_oid_handler = nullptr;
   }
 
@@ -84,6 +87,9 @@ namespace cubmethod
       case METHOD_CALLBACK_QUERY_EXECUTE:
 	error = execute (unpacker);
 	break;
+      case METHOD_CALLBACK_EXECUTE_ARRAY:
+	error = execute_batch (unpacker);
+	break;
       case METHOD_CALLBACK_OID_GET:
 	error = oid_get (unpacker);
 	break;
@@ -237,11 +243,10 @@ namespace cubmethod
     request.unpack (unpacker);
 
     query_handler *handler = get_query_handler_by_id (request.handler_id);
-    if (handler == nullptr)
+    if (handler == nullptr || handler->get_serial () != request.handler_serial)
       {
-	// TODO: proper error code
-	m_error_ctx.set_error (METHOD_CALLBACK_ER_INTERNAL, NULL, __FILE__, __LINE__);
-	assert (false); // the error should have been handled in prepare function
+	/* e.g. freed on a rollback to a savepoint, the id may have been given to another query since */
+	m_error_ctx.set_error (METHOD_CALLBACK_ER_SRV_HANDLE, NULL, __FILE__, __LINE__);
       }
     else
       {
@@ -286,6 +291,54 @@ namespace cubmethod
       }
   }
 
+  int
+  callback_handler::execute_batch (packing_unpacker &unpacker)
+  {
+    execute_batch_request request;
+    request.unpack (unpacker);
+
+    query_handler *handler = get_query_handler_by_id (request.handler_id);
+    if (handler == nullptr || handler->get_serial () != request.handler_serial)
+      {
+	/* e.g. the handler is already closed, or the id is not of this connection */
+	m_error_ctx.set_error (METHOD_CALLBACK_ER_SRV_HANDLE, NULL, __FILE__, __LINE__);
+	return xs_pack_and_queue (METHOD_RESPONSE_ERROR, m_error_ctx);
+      }
+
+    /* like JDBC executeBatch, a failed execution does not stop the following ones unless requested */
+    execute_batch_info info;
+    for (const execute_request &execution : request.executions)
+      {
+	int error = handler->execute (execution);
+	if (error == ER_QPROC_INVALID_XASLNODE)
+	  {
+	    /* XASL cache is not found */
+	    handler->prepare_retry ();
+	    error = handler->execute (execution);
+	  }
+
+	if (error == NO_ERROR)
+	  {
+	    info.add_result (handler->get_execute_info ().num_affected, NO_ERROR, "");
+	  }
+	else
+	  {
+	    info.add_result (0, db_error_code (), db_error_string (1));
+	  }
+
+	/* DDL audit */
+	logddl_write_end ();
+
+	if (error != NO_ERROR && request.stop_on_error)
+	  {
+	    /* e.g. FORALL, which ends at the failed row */
+	    break;
+	  }
+      }
+
+    return xs_pack_and_queue (METHOD_RESPONSE_SUCCESS, info);
+  }
+
   int
   callback_handler::make_out_resultset (packing_unpacker &unpacker)
   {
@@ -1053,7 +1106,10 @@ exit:
 	  }
       }
 
-    query_handler *handler = new (std::nothrow) query_handler (m_error_ctx, idx);
+    /* a freed id is reused, the serial tells the new handler from the freed one */
+    m_last_handler_serial = (m_last_handler_serial == INT_MAX) ? 1 : m_last_handler_serial + 1;
+
+    query_handler *handler = new (std::nothrow) query_handler (m_error_ctx, idx, m_last_handler_serial);
     if (handler == nullptr)
       {
 	assert (false);
@@ -89,6 +89,7 @@ namespace cubmethod
       int end_transaction (packing_unpacker &unpacker);
       int prepare (packing_unpacker &unpacker);
       int execute (packing_unpacker &unpacker);
+      int execute_batch (packing_unpacker &unpacker);
       int make_out_resultset (packing_unpacker &unpacker);
       int generated_keys (packing_unpacker &unpacker);
 
@@ -117,6 +118,7 @@ namespace cubmethod
       error_context m_error_ctx;
 
       std::vector<query_handler *> m_query_handlers;
+      int m_last_handler_serial;
       oid_handler *m_oid_handler;
 
       std::queue <cubmem::extensible_block> m_data_queue;
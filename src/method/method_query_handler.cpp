@@ -35,8 +35,9 @@ extern void jsp_unset_prepare_call ();
 
 namespace cubmethod
 {
-  query_handler::query_handler (error_context &ctx, int id)
+  query_handler::query_handler (error_context &ctx, int id, int serial)
     : m_id (id)
+    , m_serial (serial)
     , m_tid (NULL_TRANID)
     , m_user ("")
     , m_error_ctx (ctx)
@@ -91,6 +92,12 @@ namespace cubmethod
     return m_id;
   }
 
+  int
+  query_handler::get_serial () const
+  {
+    return m_serial;
+  }
+
   std::string
   query_handler::get_user_name () const
   {
@@ -207,6 +214,7 @@ namespace cubmethod
       {
 	m_user = au_get_current_user_name ();
 	m_prepare_info.handle_id = get_id ();
+	m_prepare_info.handle_serial = get_serial ();
 	m_prepare_info.stmt_type = m_query_result.stmt_type;
 	m_prepare_info.num_markers = get_num_markers ();
 	set_prepare_column_list_info (m_prepare_info.column_infos);
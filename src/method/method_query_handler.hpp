@@ -74,7 +74,7 @@ namespace cubmethod
   class EXPORT_IMPORT query_handler
   {
     public:
-      query_handler (error_context &ctx, int id);
+      query_handler (error_context &ctx, int id, int serial);
       ~query_handler ();
 
       /* request */
@@ -92,6 +92,7 @@ namespace cubmethod
       bool is_prepared () const;
 
       int get_id () const;
+      int get_serial () const;
       std::string get_sql_stmt () const;
       int get_statement_type () const;
       std::string get_user_name () const;
@@ -153,6 +154,7 @@ namespace cubmethod
 
     private:
       int m_id;
+      int m_serial; /* tells this handler from the others that had the same id */
       TRANID m_tid;
 
       /* user */
@@ -238,6 +238,7 @@ namespace cubmethod
 
   prepare_info::prepare_info ()
     : handle_id (-1),
+      handle_serial (0),
       stmt_type (-1),
       num_markers (0)
   {
@@ -248,6 +249,7 @@ namespace cubmethod
   prepare_info::pack (cubpacking::packer &serializator) const
   {
     serializator.pack_int (handle_id);
+    serializator.pack_int (handle_serial);
     serializator.pack_int (stmt_type);
     serializator.pack_int (num_markers);
     serializator.pack_int (column_infos.size());
@@ -262,6 +264,7 @@ namespace cubmethod
   {
     int num_column_info;
     deserializator.unpack_int (handle_id);
+    deserializator.unpack_int (handle_serial);
     deserializator.unpack_int (stmt_type);
     deserializator.unpack_int (num_markers);
     deserializator.unpack_int (num_column_info);
@@ -280,6 +283,7 @@ namespace cubmethod
   prepare_info::get_packed_size (cubpacking::packer &serializator, std::size_t start_offset) const
   {
     size_t size = serializator.get_packed_int_size (start_offset); // handle_id
+    size += serializator.get_packed_int_size (size); // handle_serial
     size += serializator.get_packed_int_size (size); // stmt_type
     size += serializator.get_packed_int_size (size); // num_markers
     size += serializator.get_packed_int_size (size); // num_columns
@@ -298,6 +302,7 @@ namespace cubmethod
   prepare_info::dump ()
   {
     fprintf (stdout, "handler_id: %d\n", handle_id);
+    fprintf (stdout, "handle_serial: %d\n", handle_serial);
     fprintf (stdout, "stmt_type: %d\n", stmt_type);
     fprintf (stdout, "num_markers: %d\n", num_markers);
     fprintf (stdout, "column_infos.size(): %d\n", (int) column_infos.size());
@@ -502,6 +507,7 @@ namespace cubmethod
   execute_request::pack (cubpacking::packer &serializator) const
   {
     serializator.pack_int (handler_id);
+    serializator.pack_int (handler_serial);
     serializator.pack_int (execute_flag);
     serializator.pack_int (max_field);
     serializator.pack_int (is_forward_only);
@@ -509,22 +515,28 @@ namespace cubmethod
 
     if (has_parameter > 0)
       {
-	serializator.pack_int (param_values.size());
+	pack_parameters (serializator);
+      }
+  }
 
-	dbvalue_java sp_val;
-	for (int i = 0; i < (int) param_values.size(); i++)
+  void
+  execute_request::pack_parameters (cubpacking::packer &serializator) const
+  {
+    serializator.pack_int (param_values.size());
+
+    dbvalue_java sp_val;
+    for (int i = 0; i < (int) param_values.size(); i++)
+      {
+	if (has_parameter == 2)
+	  {
+	    sp_val.value = (DB_VALUE *) &param_values[i];
+	    sp_val.pack (serializator);
+	  }
+	else if (has_parameter == 1)
 	  {
-	    if (has_parameter == 2)
-	      {
-		sp_val.value = (DB_VALUE *) &param_values[i];
-		sp_val.pack (serializator);
-	      }
-	    else if (has_parameter == 1)
-	      {
-		serializator.pack_db_value (param_values[i]);
-	      }
-	    serializator.pack_int (param_modes[i]);
+	    serializator.pack_db_value (param_values[i]);
 	  }
+	serializator.pack_int (param_modes[i]);
       }
   }
 
@@ -537,33 +549,40 @@ namespace cubmethod
   execute_request::unpack (cubpacking::unpacker &deserializator)
   {
     deserializator.unpack_int (handler_id);
+    deserializator.unpack_int (handler_serial);
     deserializator.unpack_int (execute_flag);
     deserializator.unpack_int (max_field);
     deserializator.unpack_int (is_forward_only);
     deserializator.unpack_int (has_parameter);
 
-    int parameter_cnt;
     if (has_parameter > 0)
       {
-	deserializator.unpack_int (parameter_cnt);
+	unpack_parameters (deserializator);
+      }
+  }
 
-	param_values.resize (parameter_cnt);
-	param_modes.resize (parameter_cnt);
+  void
+  execute_request::unpack_parameters (cubpacking::unpacker &deserializator)
+  {
+    int parameter_cnt;
+    deserializator.unpack_int (parameter_cnt);
 
-	dbvalue_java sp_val;
-	for (int i = 0; i < parameter_cnt; i++)
+    param_values.resize (parameter_cnt);
+    param_modes.resize (parameter_cnt);
+
+    dbvalue_java sp_val;
+    for (int i = 0; i < parameter_cnt; i++)
+      {
+	if (has_parameter == 2)
+	  {
+	    sp_val.value = &param_values[i];
+	    sp_val.unpack (deserializator);
+	  }
+	else if (has_parameter == 1)
 	  {
-	    if (has_parameter == 2)
-	      {
-		sp_val.value = &param_values[i];
-		sp_val.unpack (deserializator);
-	      }
-	    else if (has_parameter == 1)
-	      {
-		deserializator.unpack_db_value (param_values[i]);
-	      }
-	    deserializator.unpack_int (param_modes[i]);
+	    deserializator.unpack_db_value (param_values[i]);
 	  }
+	deserializator.unpack_int (param_modes[i]);
       }
   }
 
@@ -571,6 +590,7 @@ namespace cubmethod
   execute_request::get_packed_size (cubpacking::packer &serializator, std::size_t start_offset) const
   {
     size_t size = serializator.get_packed_int_size (start_offset); // handler_id
+    size += serializator.get_packed_int_size (size); // handler_serial
     size += serializator.get_packed_int_size (size); // execute_flag
     size += serializator.get_packed_int_size (size); // max_field
     size += serializator.get_packed_int_size (size); // is_forward_only
@@ -578,22 +598,30 @@ namespace cubmethod
 
     if (has_parameter > 0)
       {
-	size += serializator.get_packed_int_size (size); // param_values.size()
-	dbvalue_java sp_val;
+	size += get_packed_parameters_size (serializator, size);
+      }
 
-	for (int i = 0; i < (int) param_values.size(); i++)
+    return size;
+  }
+
+  size_t
+  execute_request::get_packed_parameters_size (cubpacking::packer &serializator, std::size_t start_offset) const
+  {
+    size_t size = serializator.get_packed_int_size (start_offset); // param_values.size()
+    dbvalue_java sp_val;
+
+    for (int i = 0; i < (int) param_values.size(); i++)
+      {
+	if (has_parameter == 2)
+	  {
+	    sp_val.value = (DB_VALUE *) &param_values[i];
+	    size += sp_val.get_packed_size (serializator, size);
+	  }
+	else if (has_parameter == 1)
 	  {
-	    if (has_parameter == 2)
-	      {
-		sp_val.value = (DB_VALUE *) &param_values[i];
-		size += sp_val.get_packed_size (serializator, size);
-	      }
-	    else if (has_parameter == 1)
-	      {
-		size += serializator.get_packed_db_value_size (param_values[i], size);
-	      }
-	    size += serializator.get_packed_int_size (size);
+	    size += serializator.get_packed_db_value_size (param_values[i], size);
 	  }
+	size += serializator.get_packed_int_size (size);
       }
 
     return size;
@@ -608,6 +636,128 @@ namespace cubmethod
       }
   }
 
+  void
+  execute_batch_request::pack (cubpacking::packer &serializator) const
+  {
+    serializator.pack_int (handler_id);
+    serializator.pack_int (handler_serial);
+    serializator.pack_int (execute_flag);
+    serializator.pack_int (stop_on_error);
+    serializator.pack_int (has_parameter);
+
+    serializator.pack_int (executions.size());
+    for (int i = 0; i < (int) executions.size() && has_parameter > 0; i++)
+      {
+	executions[i].pack_parameters (serializator);
+      }
+  }
+
+  void
+  execute_batch_request::unpack (cubpacking::unpacker &deserializator)
+  {
+    deserializator.unpack_int (handler_id);
+    deserializator.unpack_int (handler_serial);
+    deserializator.unpack_int (execute_flag);
+    deserializator.unpack_int (stop_on_error);
+    deserializator.unpack_int (has_parameter);
+
+    int execution_cnt;
+    deserializator.unpack_int (execution_cnt);
+
+    executions.resize (execution_cnt);
+    for (int i = 0; i < execution_cnt; i++)
+      {
+	execute_request &request = executions[i];
+	request.handler_id = handler_id;
+	request.handler_serial = handler_serial;
+	request.execute_flag = execute_flag;
+	request.max_field = 0;
+	request.is_forward_only = 1;
+	request.has_parameter = has_parameter;
+	if (has_parameter > 0)
+	  {
+	    request.unpack_parameters (deserializator);
+	  }
+      }
+  }
+
+  size_t
+  execute_batch_request::get_packed_size (cubpacking::packer &serializator, std::size_t start_offset) const
+  {
+    size_t size = serializator.get_packed_int_size (start_offset); // handler_id
+    size += serializator.get_packed_int_size (size); // handler_serial
+    size += serializator.get_packed_int_size (size); // execute_flag
+    size += serializator.get_packed_int_size (size); // stop_on_error
+    size += serializator.get_packed_int_size (size); // has_parameter
+
+    size += serializator.get_packed_int_size (size); // executions.size()
+    for (int i = 0; i < (int) executions.size() && has_parameter > 0; i++)
+      {
+	size += executions[i].get_packed_parameters_size (serializator, size);
+      }
+
+    return size;
+  }
+
+  void
+  execute_batch_request::clear ()
+  {
+    for (int i = 0; i < (int) executions.size(); i++)
+      {
+	executions[i].clear ();
+      }
+  }
+
+  void
+  execute_batch_info::add_result (int affected, int error_code, const std::string &error_msg)
+  {
+    num_affected.push_back (affected);
+    error_codes.push_back (error_code);
+    error_msgs.push_back (error_msg);
+  }
+
+  void
+  execute_batch_info::pack (cubpacking::packer &serializator) const
+  {
+    serializator.pack_int (num_affected.size());
+    for (int i = 0; i < (int) num_affected.size(); i++)
+      {
+	serializator.pack_int (num_affected[i]);
+	serializator.pack_int (error_codes[i]);
+	serializator.pack_string (error_msgs[i]);
+      }
+  }
+
+  void
+  execute_batch_info::unpack (cubpacking::unpacker &deserializator)
+  {
+    int execution_cnt;
+    deserializator.unpack_int (execution_cnt);
+
+    num_affected.resize (execution_cnt);
+    error_codes.resize (execution_cnt);
+    error_msgs.resize (execution_cnt);
+    for (int i = 0; i < execution_cnt; i++)
+      {
+	deserializator.unpack_int (num_affected[i]);
+	deserializator.unpack_int (error_codes[i]);
+	deserializator.unpack_string (error_msgs[i]);
+      }
+  }
+
+  size_t
+  execute_batch_info::get_packed_size (cubpacking::packer &serializator, std::size_t start_offset) const
+  {
+    size_t size = serializator.get_packed_int_size (start_offset); // num_affected.size()
+    for (int i = 0; i < (int) num_affected.size(); i++)
+      {
+	size += serializator.get_packed_int_size (size); // num_affected
+	size += serializator.get_packed_int_size (size); // error_code
+	size += serializator.get_packed_string_size (error_msgs[i], size); // error_msg
+      }
+    return size;
+  }
+
   execute_info::execute_info ()
   {
     handle_id = -1;
@@ -84,6 +84,7 @@ namespace cubmethod
     prepare_info ();
 
     int handle_id;
+    int handle_serial; /* given back on executing, see execute_request */
     int stmt_type; /* CUBRID_STMT_TYPE */
     int num_markers;
     std::vector<column_info> column_infos; // num_columns = column_infos.size()
@@ -138,6 +139,7 @@ namespace cubmethod
     ~execute_request();
 
     int handler_id;
+    int handler_serial; /* the handler is freed and its id is reused if this does not match */
     int execute_flag;
     int max_field;
     int is_forward_only;
@@ -149,9 +151,48 @@ namespace cubmethod
     void unpack (cubpacking::unpacker &deserializator) override;
     size_t get_packed_size (cubpacking::packer &serializator, std::size_t start_offset) const override;
 
+    void pack_parameters (cubpacking::packer &serializator) const;
+    void unpack_parameters (cubpacking::unpacker &deserializator);
+    size_t get_packed_parameters_size (cubpacking::packer &serializator, std::size_t start_offset) const;
+
+    void clear ();
+  };
+
+  /* executes a prepared statement once per parameter set (JDBC executeBatch) */
+  struct execute_batch_request : public cubpacking::packable_object
+  {
+    execute_batch_request() = default;
+
+    int handler_id;
+    int handler_serial;
+    int execute_flag;
+    int stop_on_error; // 1: the executions after a failed one are skipped (FORALL)
+    int has_parameter; // see execute_request
+    std::vector<execute_request> executions; // resized once by unpack (), execute_request is not copyable
+
+    void pack (cubpacking::packer &serializator) const override;
+    void unpack (cubpacking::unpacker &deserializator) override;
+    size_t get_packed_size (cubpacking::packer &serializator, std::size_t start_offset) const override;
+
     void clear ();
   };
 
+  struct execute_batch_info : public cubpacking::packable_object
+  {
+    execute_batch_info () = default;
+
+    /* for each execution */
+    std::vector<int> num_affected;
+    std::vector<int> error_codes; // NO_ERROR if succeeded
+    std::vector<std::string> error_msgs;
+
+    void add_result (int affected, int error_code, const std::string &error_msg);
+
+    void pack (cubpacking::packer &serializator) const override;
+    void unpack (cubpacking::unpacker &deserializator) override;
+    size_t get_packed_size (cubpacking::packer &serializator, std::size_t start_offset) const override;
+  };
+
   struct execute_info : public cubpacking::packable_object
   {
     execute_info ();
@@ -33,6 +33,7 @@
 #include "work_space.h" /* WS_OID */
 #endif
 
+#include <atomic>
 #include <cstring>
 // XXX: SHOULD BE THE LAST INCLUDE HEADER
 #include "memory_wrapper.hpp"
@@ -43,15 +44,127 @@ namespace cubmethod
 // DB_VALUE
 //////////////////////////////////////////////////////////////////////////
 
+  /* the features the PL server agreed to at bootstrap (DBVALUE_JAVA_FEATURE_*) */
+  static std::atomic<int> dbvalue_java_features (0);
+
+  /* DB_C_NUMERIC is the unscaled value in 128 bits two's complement, big endian */
+  static void
+  numeric_to_bigints (const DB_C_NUMERIC num, std::uint64_t &high, std::uint64_t &low)
+  {
+    high = low = 0;
+    for (int i = 0; i < 8; i++)
+      {
+	high = (high << 8) | num[i];
+	low = (low << 8) | num[8 + i];
+      }
+  }
+
+  static void
+  bigints_to_numeric (std::uint64_t high, std::uint64_t low, DB_C_NUMERIC num)
+  {
+    for (int i = 7; i >= 0; i--)
+      {
+	num[i] = (unsigned char) (high & 0xff);
+	num[8 + i] = (unsigned char) (low & 0xff);
+	high >>= 8;
+	low >>= 8;
+      }
+  }
+
   dbvalue_java::dbvalue_java ()
     : value (nullptr)
   {
   }
 
+  /*
+   * get_primitive_array_type () - the element type of a collection to be packed in the binary form,
+   *                               DB_TYPE_NULL if the elements are not all of the same numeric type
+   */
+  static DB_TYPE
+  get_primitive_array_type (DB_SET *set)
+  {
+    DB_TYPE elem_type = DB_TYPE_NULL;
+    int ncol = set_size (set);
+    DB_VALUE elem_v;
+
+    for (int i = 0; i < ncol; i++)
+      {
+	if (set_get_element_nocopy (set, i, &elem_v) != NO_ERROR)
+	  {
+	    return DB_TYPE_NULL;
+	  }
+
+	DB_TYPE type = DB_VALUE_TYPE (&elem_v);
+	if (i == 0)
+	  {
+	    switch (type)
+	      {
+	      case DB_TYPE_SHORT:
+	      case DB_TYPE_INTEGER:
+	      case DB_TYPE_BIGINT:
+	      case DB_TYPE_FLOAT:
+	      case DB_TYPE_DOUBLE:
+		elem_type = type;
+		break;
+	      default:
+		return DB_TYPE_NULL;
+	      }
+	  }
+	else if (type != elem_type)
+	  {
+	    return DB_TYPE_NULL;
+	  }
+      }
+
+    return elem_type;
+  }
+
+  static size_t
+  get_primitive_array_elem_size (int elem_type)
+  {
+    switch (elem_type)
+      {
+      case DB_TYPE_SHORT:
+	return OR_SHORT_SIZE;
+      case DB_TYPE_INTEGER:
+	return OR_INT_SIZE;
+      case DB_TYPE_BIGINT:
+	return OR_BIGINT_SIZE;
+      case DB_TYPE_FLOAT:
+	return OR_FLOAT_SIZE;
+      case DB_TYPE_DOUBLE:
+	return OR_DOUBLE_SIZE;
+      default:
+	assert (false);
+	return 0;
+      }
+  }
+
+  void
+  dbvalue_java::set_features (int features)
+  {
+    dbvalue_java_features.store (features);
+  }
+
+  bool
+  dbvalue_java::has_feature (int feature)
+  {
+    return (dbvalue_java_features.load () & feature) != 0;
+  }
+
   void
   dbvalue_java::pack_value_internal (cubpacking::packer &serializator, DB_VALUE &v) const
   {
     int param_type = DB_VALUE_TYPE (&v);
+    if (param_type == DB_TYPE_NUMERIC && has_feature (DBVALUE_JAVA_FEATURE_BINARY_ENCODING))
+      {
+	param_type |= DBVALUE_JAVA_BINARY_ENCODED;
+      }
+    else if (TP_IS_SET_TYPE (param_type) && has_feature (DBVALUE_JAVA_FEATURE_PRIMITIVE_ARRAY)
+	     && get_primitive_array_type (db_get_set (&v)) != DB_TYPE_NULL)
+      {
+	param_type |= DBVALUE_JAVA_BINARY_ENCODED;
+      }
     serializator.pack_int (param_type);
 
     switch (param_type)
@@ -111,6 +224,17 @@ namespace cubmethod
       }
       break;
 
+      case DB_TYPE_NUMERIC | DBVALUE_JAVA_BINARY_ENCODED:
+      {
+	std::uint64_t high, low;
+	numeric_to_bigints (db_get_numeric (&v), high, low);
+	serializator.pack_int (db_value_precision (&v));
+	serializator.pack_int (db_value_scale (&v));
+	serializator.pack_bigint (high);
+	serializator.pack_bigint (low);
+      }
+      break;
+
       case DB_TYPE_CHAR:
       case DB_TYPE_NCHAR:
       case DB_TYPE_VARNCHAR:
@@ -207,6 +331,57 @@ namespace cubmethod
       }
       break;
 
+      case DB_TYPE_SET | DBVALUE_JAVA_BINARY_ENCODED:
+      case DB_TYPE_MULTISET | DBVALUE_JAVA_BINARY_ENCODED:
+      case DB_TYPE_SEQUENCE | DBVALUE_JAVA_BINARY_ENCODED:
+      {
+	DB_SET *set = db_get_set (&v);
+	int ncol = set_size (set);
+	DB_TYPE elem_type = get_primitive_array_type (set);
+	size_t elem_size = get_primitive_array_elem_size (elem_type);
+
+	DB_VALUE elem_v;
+	OR_BUF or_buf;
+
+	serializator.pack_int (elem_type);
+	serializator.pack_int (ncol);
+	if (elem_type == DB_TYPE_BIGINT)
+	  {
+	    serializator.align (MAX_ALIGNMENT); /* as pack_bigint () */
+	  }
+	serializator.delegate_to_or_buf (ncol * elem_size, or_buf);
+	for (int i = 0; i < ncol; i++)
+	  {
+	    char *ptr = or_buf.ptr + i * elem_size;
+	    (void) set_get_element_nocopy (set, i, &elem_v);
+	    switch (elem_type)
+	      {
+	      case DB_TYPE_SHORT:
+		OR_PUT_SHORT (ptr, db_get_short (&elem_v));
+		break;
+	      case DB_TYPE_INTEGER:
+		OR_PUT_INT (ptr, db_get_int (&elem_v));
+		break;
+	      case DB_TYPE_BIGINT:
+	      {
+		DB_BIGINT bi = db_get_bigint (&elem_v);
+		OR_PUT_BIGINT (ptr, &bi);
+	      }
+	      break;
+	      case DB_TYPE_FLOAT:
+		OR_PUT_FLOAT (ptr, db_get_float (&elem_v));
+		break;
+	      case DB_TYPE_DOUBLE:
+		OR_PUT_DOUBLE (ptr, db_get_double (&elem_v));
+		break;
+	      default:
+		assert (false);
+		break;
+	      }
+	  }
+      }
+      break;
+
       case DB_TYPE_OID:
       {
 	OID *oid = db_get_oid (&v);
@@ -318,13 +493,21 @@ namespace cubmethod
 	break;
 
       case DB_TYPE_NUMERIC:
-      {
-	char str_buf[NUMERIC_MAX_STRING_SIZE];
-	numeric_db_value_print (value, str_buf);
-	size += serializator.get_packed_int_size (size); /* dummy length */
-	size += serializator.get_packed_c_string_size (str_buf, strlen (str_buf), size);
-      }
-      break;
+	if (has_feature (DBVALUE_JAVA_FEATURE_BINARY_ENCODING))
+	  {
+	    size += serializator.get_packed_int_size (size); /* precision */
+	    size += serializator.get_packed_int_size (size); /* scale */
+	    size += serializator.get_packed_bigint_size (size); /* high 64 bits of the unscaled value */
+	    size += serializator.get_packed_bigint_size (size); /* low 64 bits of the unscaled value */
+	  }
+	else
+	  {
+	    char str_buf[NUMERIC_MAX_STRING_SIZE];
+	    numeric_db_value_print (value, str_buf);
+	    size += serializator.get_packed_int_size (size); /* dummy length */
+	    size += serializator.get_packed_c_string_size (str_buf, strlen (str_buf), size);
+	  }
+	break;
 
       case DB_TYPE_CHAR:
       case DB_TYPE_NCHAR:
@@ -397,6 +580,23 @@ namespace cubmethod
 	int ncol = set_size (set);
 	DB_VALUE elem_v;
 
+	DB_TYPE elem_type = DB_TYPE_NULL;
+	if (has_feature (DBVALUE_JAVA_FEATURE_PRIMITIVE_ARRAY))
+	  {
+	    elem_type = get_primitive_array_type (set);
+	  }
+
+	if (elem_type != DB_TYPE_NULL)
+	  {
+	    size += serializator.get_packed_int_size (size); /* element type */
+	    size += serializator.get_packed_int_size (size); /* ncol */
+	    if (elem_type == DB_TYPE_BIGINT)
+	      {
+		size += DB_ALIGN (size, MAX_ALIGNMENT) - size;
+	      }
+	    size += ncol * get_primitive_array_elem_size (elem_type); /* elements */
+	    break;
+	  }
 
 	size += serializator.get_packed_int_size (size); /* ncol */
 
@@ -516,6 +716,26 @@ namespace cubmethod
       }
       break;
 
+      case DB_TYPE_NUMERIC | DBVALUE_JAVA_BINARY_ENCODED:
+      {
+	int precision, scale;
+	std::uint64_t high, low;
+	unsigned char num[DB_NUMERIC_BUF_SIZE];
+	deserializator.unpack_int (precision);
+	deserializator.unpack_int (scale);
+	deserializator.unpack_bigint (high);
+	deserializator.unpack_bigint (low);
+
+	bigints_to_numeric (high, low, num);
+	db_make_null (v);
+	if (db_make_numeric (v, num, precision, scale) != NO_ERROR)
+	  {
+	    // TODO: needs error handling?
+	    assert (false);
+	  }
+      }
+      break;
+
       case DB_TYPE_CHAR:
       case DB_TYPE_NCHAR:
       case DB_TYPE_VARNCHAR:
@@ -590,6 +810,22 @@ namespace cubmethod
       }
       break;
 
+      case DB_TYPE_DATE | DBVALUE_JAVA_BINARY_ENCODED:
+      {
+	int year, month, day;
+	DB_DATE date;
+	deserializator.unpack_int (year);
+	deserializator.unpack_int (month);
+	deserializator.unpack_int (day);
+	if (db_date_encode (&date, month + 1, day, year) != NO_ERROR)
+	  {
+	    assert (false);
+	    return;
+	  }
+	db_value_put_encoded_date (v, &date);
+      }
+      break;
+
       case DB_TYPE_TIME:
       {
 	DB_TIME time;
@@ -607,6 +843,22 @@ namespace cubmethod
       }
       break;
 
+      case DB_TYPE_TIME | DBVALUE_JAVA_BINARY_ENCODED:
+      {
+	int hour, min, sec;
+	DB_TIME time;
+	deserializator.unpack_int (hour);
+	deserializator.unpack_int (min);
+	deserializator.unpack_int (sec);
+	if (db_time_encode (&time, hour, min, sec) != NO_ERROR)
+	  {
+	    assert (false);
+	    return;
+	  }
+	db_value_put_encoded_time (v, &time);
+      }
+      break;
+
       case DB_TYPE_TIMESTAMP:
       {
 	DB_TIMESTAMP timestamp;
@@ -624,6 +876,32 @@ namespace cubmethod
       }
       break;
 
+      case DB_TYPE_TIMESTAMP | DBVALUE_JAVA_BINARY_ENCODED:
+      {
+	int year, month, day, hour, min, sec;
+	DB_DATE date;
+	DB_TIME time;
+	DB_TIMESTAMP timestamp = 0; /* the zero timestamp (year 0) */
+	deserializator.unpack_int (year);
+	deserializator.unpack_int (month);
+	deserializator.unpack_int (day);
+	deserializator.unpack_int (hour);
+	deserializator.unpack_int (min);
+	deserializator.unpack_int (sec);
+	if (year != 0)
+	  {
+	    if (db_date_encode (&date, month + 1, day, year) != NO_ERROR
+		|| db_time_encode (&time, hour, min, sec) != NO_ERROR
+		|| db_timestamp_encode_ses (&date, &time, &timestamp, NULL) != NO_ERROR)
+	      {
+		assert (false);
+		return;
+	      }
+	  }
+	db_make_timestamp (v, timestamp);
+      }
+      break;
+
       case DB_TYPE_DATETIME:
       {
 	DB_DATETIME datetime;
@@ -641,6 +919,26 @@ namespace cubmethod
       }
       break;
 
+      case DB_TYPE_DATETIME | DBVALUE_JAVA_BINARY_ENCODED:
+      {
+	int year, month, day, hour, min, sec, msec;
+	DB_DATETIME datetime;
+	deserializator.unpack_int (year);
+	deserializator.unpack_int (month);
+	deserializator.unpack_int (day);
+	deserializator.unpack_int (hour);
+	deserializator.unpack_int (min);
+	deserializator.unpack_int (sec);
+	deserializator.unpack_int (msec);
+	if (db_datetime_encode (&datetime, month + 1, day, year, hour, min, sec, msec) != NO_ERROR)
+	  {
+	    assert (false);
+	    return;
+	  }
+	db_make_datetime (v, &datetime);
+      }
+      break;
+
       case DB_TYPE_SET:
       case DB_TYPE_MULTISET:
       case DB_TYPE_SEQUENCE:
@@ -677,6 +975,83 @@ namespace cubmethod
       }
       break;
 
+      case DB_TYPE_SET | DBVALUE_JAVA_BINARY_ENCODED:
+      case DB_TYPE_MULTISET | DBVALUE_JAVA_BINARY_ENCODED:
+      case DB_TYPE_SEQUENCE | DBVALUE_JAVA_BINARY_ENCODED:
+      {
+	int elem_type, ncol;
+	deserializator.unpack_int (elem_type);
+	deserializator.unpack_int (ncol);
+
+	size_t elem_size = get_primitive_array_elem_size (elem_type);
+	if (elem_type == DB_TYPE_BIGINT)
+	  {
+	    deserializator.align (MAX_ALIGNMENT); /* as unpack_bigint () */
+	  }
+	OR_BUF or_buf;
+	deserializator.delegate_to_or_buf (ncol * elem_size, or_buf);
+
+	DB_SET *set = set_create ((DB_TYPE) (type & ~DBVALUE_JAVA_BINARY_ENCODED), ncol);
+	DB_VALUE elem;
+	for (int i = 0; i < ncol; i++)
+	  {
+	    char *ptr = or_buf.ptr + i * elem_size;
+	    switch (elem_type)
+	      {
+	      case DB_TYPE_SHORT:
+		db_make_short (&elem, OR_GET_SHORT (ptr));
+		break;
+	      case DB_TYPE_INTEGER:
+		db_make_int (&elem, OR_GET_INT (ptr));
+		break;
+	      case DB_TYPE_BIGINT:
+	      {
+		DB_BIGINT bi;
+		OR_GET_BIGINT (ptr, &bi);
+		db_make_bigint (&elem, bi);
+	      }
+	      break;
+	      case DB_TYPE_FLOAT:
+	      {
+		float f;
+		OR_GET_FLOAT (ptr, &f);
+		db_make_float (&elem, f);
+	      }
+	      break;
+	      case DB_TYPE_DOUBLE:
+	      {
+		double d;
+		OR_GET_DOUBLE (ptr, &d);
+		db_make_double (&elem, d);
+	      }
+	      break;
+	      default:
+		assert (false);
+		db_make_null (&elem);
+		break;
+	      }
+
+	    if (set_add_element (set, &elem) != NO_ERROR)
+	      {
+		// FIXME: error handling
+		set_free (set);
+		set = NULL;
+		assert (false);
+		break;
+	      }
+	  }
+
+	if (set != NULL)
+	  {
+	    db_make_collection (v, set);
+	  }
+	else
+	  {
+	    db_make_null (v);
+	  }
+      }
+      break;
+
       case DB_TYPE_OID:
       {
 	OID oid;
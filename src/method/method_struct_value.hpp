@@ -24,6 +24,18 @@
 
 namespace cubmethod
 {
+  /*
+   * or'ed to the type of a DATE, TIME, TIMESTAMP, DATETIME or NUMERIC value sent in its binary form
+   * instead of a string, or of a collection of SHORT, INTEGER, BIGINT, FLOAT or DOUBLE sent as
+   * the element type, the count and the elements one after another (DBType.BINARY_ENCODED in DBType.java)
+   */
+  const int DBVALUE_JAVA_BINARY_ENCODED = 0x100;
+
+  /* features negotiated with the PL server at bootstrap (BootstrapRequest.java) */
+  const int DBVALUE_JAVA_FEATURE_BINARY_ENCODING = 0x1;
+  const int DBVALUE_JAVA_FEATURE_PRIMITIVE_ARRAY = 0x2;
+  const int DBVALUE_JAVA_FEATURES = DBVALUE_JAVA_FEATURE_BINARY_ENCODING | DBVALUE_JAVA_FEATURE_PRIMITIVE_ARRAY;
+
   /*
    * cubmethod::dbvalue_java
    *
@@ -45,6 +57,8 @@ namespace cubmethod
    *
    * note
    *    - packing/unpacking shoudld should sync with CUBRIDPacker.java and CUBRIDUnpacker.java
+   *    - values in both the string and the binary form (DBVALUE_JAVA_BINARY_ENCODED) are unpacked,
+   *      NUMERIC and collections are packed in the binary form only if the PL server agreed to it (set_features ())
    *
    */
   struct dbvalue_java : public cubpacking::packable_object
@@ -59,6 +73,9 @@ namespace cubmethod
     void unpack_value_interanl (cubpacking::unpacker &deserializator, DB_VALUE *v);
     size_t get_packed_value_size_internal (cubpacking::packer &serializator, std::size_t start_offset, DB_VALUE &v) const;
 
+    static void set_features (int features);
+    static bool has_feature (int feature);
+
     DB_VALUE *value;
   };
 } // namespace cubmethod
@@ -36,6 +36,8 @@
 
 #include <vector>
 #include <string>
+#include <cstdint>
+#include <utility>
 
 #include "porting.h"
 
@@ -59,6 +61,24 @@ typedef enum
   SP_CODE_UTIL_TERMINATE_SERVER = 0xFF
 } SP_CODE;
 
+typedef struct pl_routine_status PL_ROUTINE_STATUS;
+struct pl_routine_status
+{
+  std::string signature;
+  std::int64_t calls;
+  std::int64_t errors;
+  std::int64_t latency_mean_us;
+  std::int64_t latency_p50_us;
+  std::int64_t latency_p99_us;
+  std::int64_t latency_max_us;
+  std::int64_t rows_fetched;
+  std::int64_t bytes_in;
+  std::int64_t bytes_out;
+  // *INDENT-OFF*
+  std::vector < std::pair < std::string, std::int64_t > > round_trips;	/* per function code */
+  // *INDENT-ON*
+};
+
 typedef struct pl_status_info PL_STATUS_INFO;
 struct pl_status_info
 {
@@ -68,6 +88,16 @@ struct pl_status_info
   // *INDENT-OFF*
   std::vector < std::string > vm_args;
   // *INDENT-ON*
+
+  std::int64_t compiles;
+  std::int64_t compile_errors;
+  std::int64_t compile_mean_us;
+  std::int64_t compile_max_us;
+  std::int64_t class_cache_hits;
+  std::int64_t class_cache_misses;
+  // *INDENT-OFF*
+  std::vector < PL_ROUTINE_STATUS > routines;
+  // *INDENT-ON*
 };
 
 #ifdef __cplusplus
@@ -542,6 +542,10 @@ exit:
 	error_code = callback_execute (thread_ref, unpacker);
 	break;
 
+      case METHOD_CALLBACK_EXECUTE_ARRAY:
+	error_code = callback_execute_batch (thread_ref, unpacker);
+	break;
+
       case METHOD_CALLBACK_FETCH:
 	error_code = callback_fetch (thread_ref, unpacker);
 	break;
@@ -578,6 +582,9 @@ exit:
       case METHOD_CALLBACK_GET_CODE_ATTR:
 	error_code = callback_get_code_attr (thread_ref, unpacker);
 	break;
+      case METHOD_CALLBACK_RELEASE_QUERY_HANDLES:
+	error_code = callback_release_query_handles (thread_ref, unpacker);
+	break;
       default:
 	// TODO: not implemented yet, do we need error handling?
 	assert (false);
@@ -649,6 +656,10 @@ exit:
 
     unpacker.unpack_all (sql, flag);
 
+    /* a retained handler is not reset at the end of this stack, the PL server releases it later */
+    bool is_retained = (flag & METHOD_CALLBACK_PREPARE_RETAIN) != 0;
+    flag &= ~METHOD_CALLBACK_PREPARE_RETAIN;
+
     auto get_prepare_info = [&] (const cubmem::block & b)
     {
       packing_unpacker unpacker (b.ptr, (size_t) b.dim);
@@ -661,7 +672,10 @@ exit:
 	  prepare_info info;
 	  info.unpack (unpacker);
 
-	  m_stack->add_query_handler (info.handle_id);
+	  if (!is_retained)
+	    {
+	      m_stack->add_query_handler (info.handle_id);
+	    }
 	}
 
       m_stack->send_data_to_java (b);
@@ -716,6 +730,33 @@ exit:
     return error;
   }
 
+  int
+  executor::callback_execute_batch (cubthread::entry &thread_ref, packing_unpacker &unpacker)
+  {
+    int error = NO_ERROR;
+    int code = METHOD_CALLBACK_EXECUTE_ARRAY;
+    execute_batch_request request;
+
+    unpacker.unpack_all (request);
+    request.has_parameter = 1;
+    for (execute_request &execution : request.executions)
+      {
+	execution.has_parameter = 1;
+      }
+
+    /* a batch never opens a cursor (DML only), the result is passed to Java as it is */
+    auto get_execute_batch_info = [&] (const cubmem::block & b)
+    {
+      error = m_stack->send_data_to_java (b);
+      return error;
+    };
+
+    error = m_stack->send_data_to_client_recv (get_execute_batch_info, code, request);
+    request.clear ();
+
+    return error;
+  }
+
   int
   executor::callback_fetch (cubthread::entry &thread_ref, packing_unpacker &unpacker)
   {
@@ -1020,4 +1061,28 @@ exit:
 
     return error;
   }
+
+  int
+  executor::callback_release_query_handles (cubthread::entry &thread_ref, packing_unpacker &unpacker)
+  {
+    int error = NO_ERROR;
+
+    std::vector<int> handlers;
+    unpacker.unpack_all (handlers);
+
+    // hand over the retained handlers to this stack, they are reset with the others at the end of it
+    for (int handler_id : handlers)
+      {
+	m_stack->add_query_handler (handler_id);
+      }
+
+    cubmem::block blk = std::move (pack_data_block (METHOD_RESPONSE_SUCCESS));
+    if (blk.is_valid ())
+      {
+	error = m_stack->send_data_to_java (blk);
+	blk.freemem ();
+      }
+
+    return error;
+  }
 }
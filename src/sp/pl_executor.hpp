@@ -110,6 +110,7 @@ namespace cubpl
       int callback_get_db_parameter (cubthread::entry &thread_ref, packing_unpacker &unpacker);
       int callback_prepare (cubthread::entry &thread_ref, packing_unpacker &unpacker);
       int callback_execute (cubthread::entry &thread_ref, packing_unpacker &unpacker);
+      int callback_execute_batch (cubthread::entry &thread_ref, packing_unpacker &unpacker);
       int callback_fetch (cubthread::entry &thread_ref, packing_unpacker &unpacker);
       int callback_oid_get (cubthread::entry &thread_ref, packing_unpacker &unpacker);
       int callback_oid_put (cubthread::entry &thread_ref, packing_unpacker &unpacker);
@@ -120,6 +121,7 @@ namespace cubpl
       int callback_end_transaction (cubthread::entry &thread_ref, packing_unpacker &unpacker);
       int callback_change_auth_rights (cubthread::entry &thread_ref, packing_unpacker &unpacker);
       int callback_get_code_attr (cubthread::entry &thread_ref, packing_unpacker &unpacker);
+      int callback_release_query_handles (cubthread::entry &thread_ref, packing_unpacker &unpacker);
   };
 }
 
@@ -617,6 +617,14 @@ exit:
 	packing_unpacker deserializator (bootstrap_response);
 	deserializator.unpack_int (error);
 
+	// a PL server of an older version does not reply the features it accepted
+	int features = 0;
+	if (error == NO_ERROR && !deserializator.is_ended ())
+	  {
+	    deserializator.unpack_int (features);
+	  }
+	cubmethod::dbvalue_java::set_features (features & cubmethod::DBVALUE_JAVA_FEATURES);
+
 	bootstrap_response.freemem ();
       }
 
@@ -640,6 +648,7 @@ exit:
   bootstrap_request::pack (cubpacking::packer &serializator) const
   {
     serializator.pack_all (server_params);
+    serializator.pack_int (cubmethod::DBVALUE_JAVA_FEATURES);
   }
 
   void
@@ -651,7 +660,9 @@ exit:
   size_t
   bootstrap_request::get_packed_size (cubpacking::packer &serializator, std::size_t start_offset) const
   {
-    return serializator.get_all_packed_size_starting_offset (start_offset, server_params);
+    size_t size = serializator.get_all_packed_size_starting_offset (start_offset, server_params);
+    size += serializator.get_packed_int_size (start_offset + size); /* features */
+    return size;
   }
 } // namespace cubpl
 
@@ -464,6 +464,16 @@ pl_jvm_options ()
   options.push_back ("-Djava.class.path=" + pl_file_path + "pl_server.jar");
   options.push_back ("-Djava.util.logging.config.file=" + pl_file_path + "logging.properties");
 
+  // class data sharing archive, installed only if built with WITH_PL_CDS_ARCHIVE
+  // (cdsArchive task of pl_server/build.gradle.kts). the JVM ignores it if it does not match
+  std::string cds_archive = pl_file_path + "pl_server.jsa";
+  if (access (cds_archive.c_str (), R_OK) == 0)
+    {
+      options.push_back ("-Xshare:auto");
+      options.push_back ("-XX:+UnlockDiagnosticVMOptions"); // SharedArchiveFile is diagnostic in JDK 8
+      options.push_back ("-XX:SharedArchiveFile=" + cds_archive);
+    }
+
   int debug_port = prm_get_integer_value (PRM_ID_JAVA_STORED_PROCEDURE_DEBUG);
   if (debug_port != -1)
     {
@@ -163,7 +163,16 @@ enum METHOD_CALLBACK_RESPONSE
   METHOD_CALLBACK_CHANGE_RIGHTS = 200,
 
   // CLASS ACCESS
-  METHOD_CALLBACK_GET_CODE_ATTR = 201
+  METHOD_CALLBACK_GET_CODE_ATTR = 201,
+
+  // QUERY HANDLER
+  METHOD_CALLBACK_RELEASE_QUERY_HANDLES = 202
+};
+
+/* a bit of the prepare flag only used between the PL server and the DB server, it is not passed to the client */
+enum METHOD_CALLBACK_PREPARE_FLAG
+{
+  METHOD_CALLBACK_PREPARE_RETAIN = 0x20 /* the query handler outlives the execution stack */
 };
 
 enum METHOD_ARG_MODE